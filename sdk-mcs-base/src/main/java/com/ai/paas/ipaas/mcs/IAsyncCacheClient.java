@@ -0,0 +1,236 @@
+package com.ai.paas.ipaas.mcs;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步缓存客户端，方法与ICacheClient一一对应，返回CompletableFuture。
+ * 基于lettuce的多路复用连接，所有调用共享少量长连接，不占用连接池，适合单个请求内并发发出大量缓存调用的场景。
+ * 失败时future以CacheException异常结束。
+ * 锁、事务、管道、订阅等依赖独占连接的操作请使用ICacheClient。
+ */
+public interface IAsyncCacheClient {
+
+    /**
+     * 关闭和 redis的连接，尽量不使用，因为单例模式
+     */
+    void close();
+
+    /**
+     * 设置一个key的value值 如果key已经存在了，它会被覆盖，而不管它是什么类型。
+     *
+     * @param key
+     * @param value
+     * @return 总是OK
+     */
+    CompletableFuture<String> set(String key, String value);
+
+    /**
+     * 设置key对应字符串value,并设置有效期。
+     *
+     * @param key
+     * @param seconds 秒 有效期
+     * @param value
+     * @return
+     */
+    CompletableFuture<String> setex(String key, int seconds, String value);
+
+    /**
+     * key不存在时才设置
+     *
+     * @param key
+     * @param value
+     * @return 1设置成功，0 key已存在
+     */
+    CompletableFuture<Long> setnx(String key, String value);
+
+    /**
+     * 获取key对应的value，key不存在时为null
+     *
+     * @param key
+     * @return
+     */
+    CompletableFuture<String> get(String key);
+
+    CompletableFuture<Long> del(String key);
+
+    CompletableFuture<Long> del(String... keys);
+
+    /**
+     * 删除一个或多个key，内存在后台线程中回收
+     *
+     * @param keys
+     * @return
+     */
+    CompletableFuture<Long> unlink(String... keys);
+
+    /**
+     * 设置key的过期时间
+     *
+     * @param key
+     * @param seconds
+     * @return 1设置成功，0 key不存在
+     */
+    CompletableFuture<Long> expire(String key, int seconds);
+
+    CompletableFuture<Long> expireAt(String key, long timestamp);
+
+    CompletableFuture<Long> ttl(String key);
+
+    CompletableFuture<Boolean> exists(String key);
+
+    CompletableFuture<Long> incr(String key);
+
+    CompletableFuture<Long> incrBy(String key, long increment);
+
+    CompletableFuture<Double> incrByFloat(String key, double value);
+
+    CompletableFuture<Long> decr(String key);
+
+    CompletableFuture<Long> decrBy(String key, long decrement);
+
+    /**
+     * 批量获取，结果与keys的顺序一致，不存在的key对应null
+     *
+     * @param keys
+     * @return
+     */
+    CompletableFuture<List<String>> mget(String... keys);
+
+    CompletableFuture<String> mset(Map<String, String> values);
+
+    CompletableFuture<Long> lpush(String key, String... strings);
+
+    CompletableFuture<Long> rpush(String key, String... strings);
+
+    CompletableFuture<Long> lrem(String key, long count, String value);
+
+    CompletableFuture<Long> llen(String key);
+
+    CompletableFuture<String> lpop(String key);
+
+    CompletableFuture<String> rpop(String key);
+
+    CompletableFuture<List<String>> lrange(String key, long start, long end);
+
+    CompletableFuture<List<String>> lrangeAll(String key);
+
+    CompletableFuture<Long> hset(String key, String field, String value);
+
+    CompletableFuture<Long> hsetnx(String key, String field, String value);
+
+    CompletableFuture<String> hmset(String key, Map<String, String> hash);
+
+    CompletableFuture<String> hget(String key, String field);
+
+    /**
+     * 结果与fields的顺序一致，不存在的field对应null
+     *
+     * @param key
+     * @param fields
+     * @return
+     */
+    CompletableFuture<List<String>> hmget(String key, String... fields);
+
+    CompletableFuture<Boolean> hexists(String key, String field);
+
+    CompletableFuture<Long> hdel(String key, String... fields);
+
+    CompletableFuture<Long> hlen(String key);
+
+    CompletableFuture<Map<String, String>> hgetAll(String key);
+
+    CompletableFuture<Set<String>> hkeys(String key);
+
+    CompletableFuture<List<String>> hvals(String key);
+
+    CompletableFuture<Long> hincrBy(String key, String field, long value);
+
+    CompletableFuture<Double> hincrByFloat(String key, String field, double value);
+
+    CompletableFuture<Long> sadd(String key, String... members);
+
+    CompletableFuture<Set<String>> smembers(String key);
+
+    CompletableFuture<Long> srem(String key, String... members);
+
+    CompletableFuture<Long> scard(String key);
+
+    CompletableFuture<Set<String>> sunion(String... keys);
+
+    CompletableFuture<Set<String>> sdiff(String... keys);
+
+    CompletableFuture<Long> zadd(String key, double score, String member);
+
+    CompletableFuture<Long> zadd(String key, Map<String, Double> scoreMembers);
+
+    CompletableFuture<Long> zcount(String key, double min, double max);
+
+    CompletableFuture<Double> zincrby(String key, double score, String member);
+
+    /**
+     * 按分数从小到大，结果集合保持顺序
+     *
+     * @param key
+     * @param start
+     * @param end
+     * @return
+     */
+    CompletableFuture<Set<String>> zrange(String key, long start, long end);
+
+    CompletableFuture<Set<String>> zrangeByScore(String key, double min, double max);
+
+    CompletableFuture<Set<String>> zrangeByScore(String key, double min, double max, int offset, int count);
+
+    CompletableFuture<Set<String>> zrevrange(String key, long start, long end);
+
+    CompletableFuture<Set<String>> zrevrangeByScore(String key, double max, double min);
+
+    CompletableFuture<Set<String>> zrevrangeByScore(String key, double max, double min, int offset, int count);
+
+    CompletableFuture<Long> zrevrank(String key, String member);
+
+    CompletableFuture<Long> zrem(String key, String... members);
+
+    CompletableFuture<Long> zremrangeByRank(String key, long start, long end);
+
+    CompletableFuture<Long> zremrangeByScore(String key, double start, double end);
+
+    CompletableFuture<Long> publish(String channel, String message);
+
+    CompletableFuture<String> set(byte[] key, byte[] value);
+
+    CompletableFuture<String> setex(byte[] key, int seconds, byte[] value);
+
+    CompletableFuture<Long> setnx(byte[] key, byte[] value);
+
+    CompletableFuture<byte[]> get(byte[] key);
+
+    CompletableFuture<Long> del(byte[] key);
+
+    CompletableFuture<Long> del(byte[]... keys);
+
+    CompletableFuture<Long> expire(byte[] key, int seconds);
+
+    CompletableFuture<Long> ttl(byte[] key);
+
+    CompletableFuture<Boolean> exists(byte[] key);
+
+    CompletableFuture<Long> hset(byte[] key, byte[] field, byte[] value);
+
+    CompletableFuture<byte[]> hget(byte[] key, byte[] field);
+
+    CompletableFuture<List<byte[]>> hmget(byte[] key, byte[]... fields);
+
+    CompletableFuture<Long> hdel(byte[] key, byte[]... fields);
+
+    CompletableFuture<Map<byte[], byte[]>> hgetAll(byte[] key);
+
+    CompletableFuture<Long> lpush(byte[] key, byte[]... strings);
+
+    CompletableFuture<Long> rpush(byte[] key, byte[]... strings);
+
+    CompletableFuture<List<byte[]>> lrange(byte[] key, long start, long end);
+}
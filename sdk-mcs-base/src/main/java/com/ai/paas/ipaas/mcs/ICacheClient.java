@@ -1,9 +1,12 @@
 package com.ai.paas.ipaas.mcs;
 
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import redis.clients.jedis.GeoCoordinate;
 import redis.clients.jedis.GeoRadiusResponse;
@@ -11,6 +14,7 @@ import redis.clients.jedis.GeoUnit;
 import redis.clients.jedis.JedisPubSub;
 import redis.clients.jedis.Pipeline;
 import redis.clients.jedis.Transaction;
+import redis.clients.jedis.Tuple;
 import redis.clients.jedis.params.GeoRadiusParam;
 import redis.clients.jedis.params.ZAddParams;
 import redis.clients.jedis.params.ZIncrByParams;
@@ -65,6 +69,14 @@ public interface ICacheClient {
      */
     Long del(String... keys);
 
+    /**
+     * 删除一个或多个key，内存在后台线程中回收，删除大key时不阻塞redis
+     *
+     * @param keys
+     * @return 被删除的key的数量
+     */
+    Long unlink(String... keys);
+
     /**
      * 设置key的过期时间。如果key已过期，将会被自动删除。
      *
@@ -210,7 +222,7 @@ public interface ICacheClient {
     List<String> lrange(String key, long start, long end);
 
     /**
-     * list 获得列表里所有的元素。(0,-1)
+     * list 获得列表里所有的元素。(0,-1) 大list请使用lscan
      *
      * @param key 用于获取list的key
      * @return 返回指定范围里的列表元素。 @
@@ -293,7 +305,7 @@ public interface ICacheClient {
     Long hlen(String key);
 
     /**
-     * map 获得hash全集
+     * map 获得hash全集，大hash请使用hscan
      *
      * @param key
      * @return Map<String, String> @
@@ -311,7 +323,7 @@ public interface ICacheClient {
     Long sadd(String key, String... members);
 
     /**
-     * set 返回key集合所有的元素.
+     * set 返回key集合所有的元素. 大集合请使用sscan
      *
      * @param key
      * @return 集合中的所有元素. @
@@ -388,6 +400,30 @@ public interface ICacheClient {
      */
     byte[] get(byte[] key);
 
+    /**
+     * 按窗口用GETRANGE读取key的value写入out，内存中只保留一批窗口，用于读取大的value。
+     * 读取期间value的长度被其他写操作改变时抛出CacheException；被等长的value覆盖时无法发现，
+     * 可能读到新旧value拼接的数据
+     *
+     * @param key
+     * @param out 读到的数据依次写入，不会关闭
+     * @return value的长度，key不存在时返回-1
+     */
+    long getStream(byte[] key, OutputStream out);
+
+    /**
+     * 按窗口读取in直到结束，用SET、APPEND写入key，内存中只保留一批窗口，用于写入大的value。
+     * 先写入同一slot的临时key，写完后RENAME替换原key，读者不会看到写了一半的value，写入失败时原value不变。
+     * codis不支持RENAME，直接写入原key：读取in在第一批窗口发出之前失败时原value不变，
+     * 之后失败时原value已被覆盖，写了一半的key被删除
+     *
+     * @param key
+     * @param in      要写入的数据，不会关闭
+     * @param seconds 秒 有效期，不大于0时不过期
+     * @return 写入的字节数
+     */
+    long setStream(byte[] key, InputStream in, int seconds);
+
     /**
      * 删除一个key
      *
@@ -553,7 +589,7 @@ public interface ICacheClient {
     List<byte[]> lrange(byte[] key, long start, long end);
 
     /**
-     * list 获得列表里所有的元素。(0,-1)
+     * list 获得列表里所有的元素。(0,-1) 大list请使用lscan
      *
      * @param key 用于获取list的key
      * @return 返回指定范围里的列表元素。 @
@@ -646,7 +682,7 @@ public interface ICacheClient {
     Long hlen(byte[] key);
 
     /**
-     * map 获得hash全集
+     * map 获得hash全集，大hash请使用hscan
      *
      * @param key
      * @return Map<String, String> @
@@ -664,7 +700,7 @@ public interface ICacheClient {
     Long sadd(byte[] key, byte[]... members);
 
     /**
-     * set 返回key集合所有的元素.
+     * set 返回key集合所有的元素. 大集合请使用sscan
      *
      * @param key
      * @return 集合中的所有元素. @
@@ -770,6 +806,13 @@ public interface ICacheClient {
 
     Long zcount(final String key, final String min, final String max);
 
+    /**
+     * 返回键值为key的有序集合的成员数量。
+     * 
+     * @param key
+     */
+    Long zcard(final String key);
+
     /**
      * 对键值为key的有序集合中,指定的member成员的分数，加上score。
      * 
@@ -855,6 +898,7 @@ public interface ICacheClient {
      * @param acquireTimeoutInMS 获取锁超时时间(ms)
      * @param lockTimeoutInMS    锁的超时时间(ms)
      * @return 获取锁标识
+     * @throws IllegalArgumentException 锁的超时时间不大于0
      */
     String acquireLock(String lockName, long acquireTimeoutInMS, long lockTimeoutInMS);
 
@@ -867,6 +911,33 @@ public interface ICacheClient {
      */
     boolean releaseLock(String lockName, String identifier);
 
+    /**
+     * 获取自动续期的分布式锁，持有期间由后台线程定期续期，使用完后调用release或close释放
+     * 
+     * @param lockName           竞争获取锁key
+     * @param acquireTimeoutInMS 获取锁超时时间(ms)
+     * @param leaseTimeInMS      租期(ms)，持有者停止续期后锁最多保留这么久
+     * @return 锁，获取超时返回null
+     * @throws IllegalArgumentException 租期不大于0
+     */
+    LockHandle acquireRenewableLock(String lockName, long acquireTimeoutInMS, long leaseTimeInMS);
+
+    /**
+     * 获取可重入锁，同一线程可以多次加锁
+     * 
+     * @param lockName 锁名称
+     * @return 锁对象，不会访问redis
+     */
+    ICacheLock getReentrantLock(String lockName);
+
+    /**
+     * 获取读写锁，多个读者可以同时持有读锁
+     * 
+     * @param lockName 锁名称
+     * @return 锁对象，不会访问redis
+     */
+    ICacheReadWriteLock getReadWriteLock(String lockName);
+
     /**
      * 发布
      * 
@@ -892,6 +963,26 @@ public interface ICacheClient {
      */
     public void psubscribe(final JedisPubSub jedisPubSub, final String... patterns);
 
+    /**
+     * 执行lua脚本，集群模式下keys必须在同一个slot
+     * 
+     * @param script 脚本
+     * @param keys   脚本中的KEYS
+     * @param args   脚本中的ARGV
+     * @return 脚本返回值
+     */
+    public Object eval(final String script, final List<String> keys, final List<String> args);
+
+    /**
+     * 按摘要执行已缓存的lua脚本，脚本未缓存时抛出的CacheException由NOSCRIPT错误引起
+     * 
+     * @param sha1 脚本的SHA1摘要
+     * @param keys 脚本中的KEYS
+     * @param args 脚本中的ARGV
+     * @return 脚本返回值
+     */
+    public Object evalsha(final String sha1, final List<String> keys, final List<String> args);
+
     /**
      * 返回map对象中的所有key
      * 
@@ -940,12 +1031,67 @@ public interface ICacheClient {
      * 查询Redis的键值列表，注意此方法不不能使用* Glob style patterns examples: h?llo will match hello
      * hallo hhllo h*llo will match hllo heeeello h[ae]llo will match hello and
      * hallo, but not hillo
+     * 基于SCAN实现，不会阻塞redis，但结果会全部放入内存，key较多时请使用scan
      * 
      * @param pattern
      * @return
      */
     public Set<String> keys(String pattern);
 
+    /**
+     * 用SCAN遍历匹配的key，遍历时逐页读取，不会阻塞redis，内存中只保留一页。集群模式下并行遍历所有主节点。
+     * 遍历期间被修改的key可能返回多次或不返回
+     * 
+     * @param pattern 匹配模式，为空时遍历所有key
+     * @param count   每页的数量，即SCAN的COUNT
+     * @return
+     */
+    public Stream<String> scan(String pattern, int count);
+
+    /**
+     * 用HSCAN逐页遍历hash，代替大hash的hgetAll、hkeys、hvals。遍历期间被修改的field可能返回多次或不返回
+     * 
+     * @param key
+     * @param count 每页的数量，不大于0时取默认值，不超过10000
+     * @return field和value
+     */
+    public Stream<Map.Entry<String, String>> hscan(String key, int count);
+
+    public Stream<Map.Entry<byte[], byte[]>> hscan(byte[] key, int count);
+
+    /**
+     * 用SSCAN逐页遍历集合，代替大集合的smembers
+     * 
+     * @param key
+     * @param count 每页的数量
+     * @return 集合中的元素
+     */
+    public Stream<String> sscan(String key, int count);
+
+    public Stream<byte[]> sscan(byte[] key, int count);
+
+    /**
+     * 用ZSCAN逐页遍历有序集合，返回顺序与分数无关
+     * 
+     * @param key
+     * @param count 每页的数量
+     * @return 成员和分数
+     */
+    public Stream<Tuple> zscan(String key, int count);
+
+    public Stream<Tuple> zscan(byte[] key, int count);
+
+    /**
+     * 用LRANGE分页遍历list，代替大list的lrangeAll。遍历期间list头部有插入或删除时元素会重复或遗漏
+     * 
+     * @param key
+     * @param count 每页的数量
+     * @return 从表头开始的元素
+     */
+    public Stream<String> lscan(String key, int count);
+
+    public Stream<byte[]> lscan(byte[] key, int count);
+
     /**
      * 开启一个事务
      * 
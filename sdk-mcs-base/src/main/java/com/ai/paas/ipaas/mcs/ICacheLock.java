@@ -0,0 +1,35 @@
+package com.ai.paas.ipaas.mcs;
+
+/**
+ * 可重入的分布式锁，按线程计数：同一线程可以多次加锁，加锁几次就要解锁几次。
+ * 锁对象可以在线程间共享。
+ */
+public interface ICacheLock {
+
+    /**
+     * 加锁
+     *
+     * @param acquireTimeoutInMS 获取锁超时时间(ms)
+     * @param leaseTimeInMS      租期(ms)，每次加锁都会把锁的有效期延长到租期
+     * @return 是否获得锁，超时或线程被中断时返回false
+     * @throws IllegalArgumentException 租期不大于0
+     */
+    boolean tryLock(long acquireTimeoutInMS, long leaseTimeInMS);
+
+    /**
+     * 解锁一次，计数减到0时释放锁
+     *
+     * @throws com.ai.paas.ipaas.mcs.exception.CacheException 当前线程没有持有锁，或锁已过期
+     */
+    void unlock();
+
+    /**
+     * 当前线程是否持有锁，只检查本地计数
+     */
+    boolean isHeldByCurrentThread();
+
+    /**
+     * 当前线程加锁的次数
+     */
+    int getHoldCount();
+}
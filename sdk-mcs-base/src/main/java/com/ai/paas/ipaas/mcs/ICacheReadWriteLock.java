@@ -0,0 +1,12 @@
+package com.ai.paas.ipaas.mcs;
+
+/**
+ * 分布式读写锁。读锁可以被多个持有者同时持有，写锁与读锁、写锁互斥；两者都可重入。
+ * 持有写锁的线程可以再获取读锁（降级），持有读锁时获取写锁会一直等到超时。
+ */
+public interface ICacheReadWriteLock {
+
+    ICacheLock readLock();
+
+    ICacheLock writeLock();
+}
@@ -0,0 +1,42 @@
+package com.ai.paas.ipaas.mcs;
+
+/**
+ * 自动续期的分布式锁。持有期间由后台线程按租期的一部分定期续期，release或close后停止续期并释放锁。
+ * 每次加锁得到一个单调递增的fencing token，下游存储可以拒绝比已见过的token更小的写入，
+ * 避免持有者因停顿而失去锁后仍然写入。
+ */
+public interface LockHandle extends AutoCloseable {
+
+    /**
+     * 锁名称
+     */
+    String getLockName();
+
+    /**
+     * 锁标识，与acquireLock返回的标识相同，可以用于releaseLock
+     */
+    String getIdentifier();
+
+    /**
+     * 本次加锁的fencing token，同一把锁每次加锁递增
+     */
+    long getFencingToken();
+
+    /**
+     * 锁是否仍由本持有者持有。续期失败（锁已被他人获得或租期内一直无法续期）后返回false
+     */
+    boolean isHeld();
+
+    /**
+     * 停止续期并释放锁
+     *
+     * @return 锁由本持有者持有并被删除时返回true
+     */
+    boolean release();
+
+    /**
+     * 同release
+     */
+    @Override
+    void close();
+}
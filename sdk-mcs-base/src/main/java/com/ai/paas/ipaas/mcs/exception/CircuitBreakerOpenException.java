@@ -0,0 +1,13 @@
+package com.ai.paas.ipaas.mcs.exception;
+
+/**
+ * 熔断器处于打开状态时，命令不会发送到redis，直接抛出此异常
+ */
+public class CircuitBreakerOpenException extends CacheException {
+
+    private static final long serialVersionUID = 4518832712207542870L;
+
+    public CircuitBreakerOpenException(String message) {
+        super(message);
+    }
+}
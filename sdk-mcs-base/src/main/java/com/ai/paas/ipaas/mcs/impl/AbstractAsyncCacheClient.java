@@ -0,0 +1,595 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.ai.paas.ipaas.mcs.IAsyncCacheClient;
+import com.ai.paas.ipaas.mcs.exception.CacheException;
+import com.ai.paas.util.StringUtil;
+
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.Limit;
+import io.lettuce.core.Range;
+import io.lettuce.core.RedisCommandTimeoutException;
+import io.lettuce.core.RedisConnectionException;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.ScoredValue;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.resource.ClientResources;
+import io.lettuce.core.resource.DefaultClientResources;
+
+/**
+ * 异步客户端的公共实现，各模式只需提供lettuce的异步命令接口。
+ * 命令在发出前经过熔断器判断，完成时把耗时与结果记录到熔断器和CommandMetrics，并按采样通知CommandListener；熔断打开时直接返回失败的future，不发送命令。
+ * future在lettuce的IO线程上完成，回调中不要做阻塞操作，必要时使用thenApplyAsync等方法切换线程。
+ */
+public abstract class AbstractAsyncCacheClient implements IAsyncCacheClient {
+
+    /**
+     * 命令超时时间
+     */
+    static final Duration TIMEOUT = Duration.ofSeconds(15);
+
+    private final String name;
+    private final CircuitBreaker circuitBreaker;
+    private final CommandMetrics metrics;
+    private final CommandListeners listeners = new CommandListeners();
+
+    protected AbstractAsyncCacheClient(String name) {
+        this.name = name;
+        this.circuitBreaker = new CircuitBreaker(name);
+        this.metrics = new CommandMetrics(name);
+    }
+
+    /**
+     * 字符串编码的命令接口，每次调用命令时获取
+     *
+     * @return
+     */
+    protected abstract RedisClusterAsyncCommands<String, String> commands();
+
+    /**
+     * 二进制编码的命令接口，每次调用命令时获取
+     *
+     * @return
+     */
+    protected abstract RedisClusterAsyncCommands<byte[], byte[]> binaryCommands();
+
+    /**
+     * 所有异步客户端共享一套IO和计算线程
+     *
+     * @return
+     */
+    static ClientResources clientResources() {
+        return ResourcesHolder.RESOURCES;
+    }
+
+    private static class ResourcesHolder {
+        static final ClientResources RESOURCES = DefaultClientResources.create();
+    }
+
+    static RedisURI redisURI(String address, String pwd) {
+        String[] ipAndPort = address.split(":");
+        RedisURI.Builder builder = RedisURI.Builder.redis(ipAndPort[0], Integer.parseInt(ipAndPort[1]))
+                .withTimeout(TIMEOUT);
+        if (!StringUtil.isBlank(pwd))
+            builder.withPassword(pwd);
+        return builder.build();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 熔断器，可以调整配置、注册状态变化监听、获取统计
+     *
+     * @return
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * 按命令统计的耗时与计数
+     *
+     * @return
+     */
+    public CommandMetrics getCommandMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 命令执行的监听，可以按采样和慢调用阈值注册
+     *
+     * @return
+     */
+    public CommandListeners getCommandListeners() {
+        return listeners;
+    }
+
+    protected <T> CompletableFuture<T> execute(String command, Supplier<RedisFuture<T>> call) {
+        return execute(command, call, Function.identity());
+    }
+
+    protected <T, R> CompletableFuture<R> execute(String command, Supplier<RedisFuture<T>> call,
+            Function<T, R> mapper) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+        CommandMetrics.Stat stat = metrics.of(command);
+        try {
+            circuitBreaker.acquirePermission();
+        } catch (CacheException e) {
+            stat.record(0, true);
+            listeners.fire(name, command, 0, e);
+            result.completeExceptionally(e);
+            return result;
+        }
+        long start = System.nanoTime();
+        RedisFuture<T> future;
+        try {
+            future = call.get();
+        } catch (Exception e) {
+            long duration = System.nanoTime() - start;
+            circuitBreaker.onResult(command, duration, isConnectionFailure(e));
+            stat.attemptFailed(e);
+            stat.record(duration, true);
+            listeners.fire(name, command, duration, e);
+            result.completeExceptionally(wrap(e));
+            return result;
+        }
+        future.whenComplete((value, e) ->
+            {
+                long duration = System.nanoTime() - start;
+                circuitBreaker.onResult(command, duration, e != null && isConnectionFailure(e));
+                if (e != null)
+                    stat.attemptFailed(e);
+                stat.record(duration, e != null);
+                listeners.fire(name, command, duration, e);
+                if (e != null) {
+                    result.completeExceptionally(wrap(e));
+                    return;
+                }
+                try {
+                    result.complete(mapper.apply(value));
+                } catch (Exception ex) {
+                    result.completeExceptionally(wrap(ex));
+                }
+            });
+        return result;
+    }
+
+    private static boolean isConnectionFailure(Throwable e) {
+        Throwable cause = e instanceof CompletionException && null != e.getCause() ? e.getCause() : e;
+        return cause instanceof RedisConnectionException || cause instanceof RedisCommandTimeoutException;
+    }
+
+    private static Throwable wrap(Throwable e) {
+        Throwable cause = e instanceof CompletionException && null != e.getCause() ? e.getCause() : e;
+        if (cause instanceof CacheException || !(cause instanceof Exception))
+            return cause;
+        return new CacheException((Exception) cause);
+    }
+
+    private static Long toLong(Boolean value) {
+        return null != value && value ? 1L : 0L;
+    }
+
+    private static <V> List<V> values(List<KeyValue<V, V>> keyValues) {
+        List<V> values = new ArrayList<>(keyValues.size());
+        for (KeyValue<V, V> keyValue : keyValues) {
+            values.add(keyValue.getValueOrElse(null));
+        }
+        return values;
+    }
+
+    private static Set<String> toSet(List<String> values) {
+        return new LinkedHashSet<>(values);
+    }
+
+    @Override
+    public CompletableFuture<String> set(String key, String value) {
+        return execute("set", () -> commands().set(key, value));
+    }
+
+    @Override
+    public CompletableFuture<String> setex(String key, int seconds, String value) {
+        return execute("setex", () -> commands().setex(key, seconds, value));
+    }
+
+    @Override
+    public CompletableFuture<Long> setnx(String key, String value) {
+        return execute("setnx", () -> commands().setnx(key, value), AbstractAsyncCacheClient::toLong);
+    }
+
+    @Override
+    public CompletableFuture<String> get(String key) {
+        return execute("get", () -> commands().get(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> del(String key) {
+        return execute("del", () -> commands().del(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> del(String... keys) {
+        return execute("del", () -> commands().del(keys));
+    }
+
+    @Override
+    public CompletableFuture<Long> unlink(String... keys) {
+        return execute("unlink", () -> commands().unlink(keys));
+    }
+
+    @Override
+    public CompletableFuture<Long> expire(String key, int seconds) {
+        return execute("expire", () -> commands().expire(key, seconds), AbstractAsyncCacheClient::toLong);
+    }
+
+    @Override
+    public CompletableFuture<Long> expireAt(String key, long timestamp) {
+        return execute("expireAt", () -> commands().expireat(key, timestamp), AbstractAsyncCacheClient::toLong);
+    }
+
+    @Override
+    public CompletableFuture<Long> ttl(String key) {
+        return execute("ttl", () -> commands().ttl(key));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> exists(String key) {
+        return execute("exists", () -> commands().exists(key), count -> count > 0);
+    }
+
+    @Override
+    public CompletableFuture<Long> incr(String key) {
+        return execute("incr", () -> commands().incr(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> incrBy(String key, long increment) {
+        return execute("incrBy", () -> commands().incrby(key, increment));
+    }
+
+    @Override
+    public CompletableFuture<Double> incrByFloat(String key, double value) {
+        return execute("incrByFloat", () -> commands().incrbyfloat(key, value));
+    }
+
+    @Override
+    public CompletableFuture<Long> decr(String key) {
+        return execute("decr", () -> commands().decr(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> decrBy(String key, long decrement) {
+        return execute("decrBy", () -> commands().decrby(key, decrement));
+    }
+
+    @Override
+    public CompletableFuture<List<String>> mget(String... keys) {
+        return execute("mget", () -> commands().mget(keys), AbstractAsyncCacheClient::values);
+    }
+
+    @Override
+    public CompletableFuture<String> mset(Map<String, String> values) {
+        return execute("mset", () -> commands().mset(values));
+    }
+
+    @Override
+    public CompletableFuture<Long> lpush(String key, String... strings) {
+        return execute("lpush", () -> commands().lpush(key, strings));
+    }
+
+    @Override
+    public CompletableFuture<Long> rpush(String key, String... strings) {
+        return execute("rpush", () -> commands().rpush(key, strings));
+    }
+
+    @Override
+    public CompletableFuture<Long> lrem(String key, long count, String value) {
+        return execute("lrem", () -> commands().lrem(key, count, value));
+    }
+
+    @Override
+    public CompletableFuture<Long> llen(String key) {
+        return execute("llen", () -> commands().llen(key));
+    }
+
+    @Override
+    public CompletableFuture<String> lpop(String key) {
+        return execute("lpop", () -> commands().lpop(key));
+    }
+
+    @Override
+    public CompletableFuture<String> rpop(String key) {
+        return execute("rpop", () -> commands().rpop(key));
+    }
+
+    @Override
+    public CompletableFuture<List<String>> lrange(String key, long start, long end) {
+        return execute("lrange", () -> commands().lrange(key, start, end));
+    }
+
+    @Override
+    public CompletableFuture<List<String>> lrangeAll(String key) {
+        return lrange(key, 0, -1);
+    }
+
+    @Override
+    public CompletableFuture<Long> hset(String key, String field, String value) {
+        return execute("hset", () -> commands().hset(key, field, value), AbstractAsyncCacheClient::toLong);
+    }
+
+    @Override
+    public CompletableFuture<Long> hsetnx(String key, String field, String value) {
+        return execute("hsetnx", () -> commands().hsetnx(key, field, value), AbstractAsyncCacheClient::toLong);
+    }
+
+    @Override
+    public CompletableFuture<String> hmset(String key, Map<String, String> hash) {
+        return execute("hmset", () -> commands().hmset(key, hash));
+    }
+
+    @Override
+    public CompletableFuture<String> hget(String key, String field) {
+        return execute("hget", () -> commands().hget(key, field));
+    }
+
+    @Override
+    public CompletableFuture<List<String>> hmget(String key, String... fields) {
+        return execute("hmget", () -> commands().hmget(key, fields), AbstractAsyncCacheClient::values);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> hexists(String key, String field) {
+        return execute("hexists", () -> commands().hexists(key, field));
+    }
+
+    @Override
+    public CompletableFuture<Long> hdel(String key, String... fields) {
+        return execute("hdel", () -> commands().hdel(key, fields));
+    }
+
+    @Override
+    public CompletableFuture<Long> hlen(String key) {
+        return execute("hlen", () -> commands().hlen(key));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, String>> hgetAll(String key) {
+        return execute("hgetAll", () -> commands().hgetall(key));
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> hkeys(String key) {
+        return execute("hkeys", () -> commands().hkeys(key), AbstractAsyncCacheClient::toSet);
+    }
+
+    @Override
+    public CompletableFuture<List<String>> hvals(String key) {
+        return execute("hvals", () -> commands().hvals(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> hincrBy(String key, String field, long value) {
+        return execute("hincrBy", () -> commands().hincrby(key, field, value));
+    }
+
+    @Override
+    public CompletableFuture<Double> hincrByFloat(String key, String field, double value) {
+        return execute("hincrByFloat", () -> commands().hincrbyfloat(key, field, value));
+    }
+
+    @Override
+    public CompletableFuture<Long> sadd(String key, String... members) {
+        return execute("sadd", () -> commands().sadd(key, members));
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> smembers(String key) {
+        return execute("smembers", () -> commands().smembers(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> srem(String key, String... members) {
+        return execute("srem", () -> commands().srem(key, members));
+    }
+
+    @Override
+    public CompletableFuture<Long> scard(String key) {
+        return execute("scard", () -> commands().scard(key));
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> sunion(String... keys) {
+        return execute("sunion", () -> commands().sunion(keys));
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> sdiff(String... keys) {
+        return execute("sdiff", () -> commands().sdiff(keys));
+    }
+
+    @Override
+    public CompletableFuture<Long> zadd(String key, double score, String member) {
+        return execute("zadd", () -> commands().zadd(key, score, member));
+    }
+
+    @Override
+    public CompletableFuture<Long> zadd(String key, Map<String, Double> scoreMembers) {
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        ScoredValue<String>[] scoredValues = new ScoredValue[scoreMembers.size()];
+        int i = 0;
+        for (Map.Entry<String, Double> entry : scoreMembers.entrySet()) {
+            scoredValues[i++] = ScoredValue.just(entry.getValue(), entry.getKey());
+        }
+        return execute("zadd", () -> commands().zadd(key, scoredValues));
+    }
+
+    @Override
+    public CompletableFuture<Long> zcount(String key, double min, double max) {
+        return execute("zcount", () -> commands().zcount(key, Range.create(min, max)));
+    }
+
+    @Override
+    public CompletableFuture<Double> zincrby(String key, double score, String member) {
+        return execute("zincrby", () -> commands().zincrby(key, score, member));
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> zrange(String key, long start, long end) {
+        return execute("zrange", () -> commands().zrange(key, start, end), AbstractAsyncCacheClient::toSet);
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> zrangeByScore(String key, double min, double max) {
+        return execute("zrangeByScore", () -> commands().zrangebyscore(key, Range.create(min, max)),
+                AbstractAsyncCacheClient::toSet);
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> zrangeByScore(String key, double min, double max, int offset, int count) {
+        return execute("zrangeByScore",
+                () -> commands().zrangebyscore(key, Range.create(min, max), Limit.create(offset, count)),
+                AbstractAsyncCacheClient::toSet);
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> zrevrange(String key, long start, long end) {
+        return execute("zrevrange", () -> commands().zrevrange(key, start, end), AbstractAsyncCacheClient::toSet);
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> zrevrangeByScore(String key, double max, double min) {
+        return execute("zrevrangeByScore", () -> commands().zrevrangebyscore(key, Range.create(min, max)),
+                AbstractAsyncCacheClient::toSet);
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> zrevrangeByScore(String key, double max, double min, int offset,
+            int count) {
+        return execute("zrevrangeByScore",
+                () -> commands().zrevrangebyscore(key, Range.create(min, max), Limit.create(offset, count)),
+                AbstractAsyncCacheClient::toSet);
+    }
+
+    @Override
+    public CompletableFuture<Long> zrevrank(String key, String member) {
+        return execute("zrevrank", () -> commands().zrevrank(key, member));
+    }
+
+    @Override
+    public CompletableFuture<Long> zrem(String key, String... members) {
+        return execute("zrem", () -> commands().zrem(key, members));
+    }
+
+    @Override
+    public CompletableFuture<Long> zremrangeByRank(String key, long start, long end) {
+        return execute("zremrangeByRank", () -> commands().zremrangebyrank(key, start, end));
+    }
+
+    @Override
+    public CompletableFuture<Long> zremrangeByScore(String key, double start, double end) {
+        return execute("zremrangeByScore", () -> commands().zremrangebyscore(key, Range.create(start, end)));
+    }
+
+    @Override
+    public CompletableFuture<Long> publish(String channel, String message) {
+        return execute("publish", () -> commands().publish(channel, message));
+    }
+
+    @Override
+    public CompletableFuture<String> set(byte[] key, byte[] value) {
+        return execute("set", () -> binaryCommands().set(key, value));
+    }
+
+    @Override
+    public CompletableFuture<String> setex(byte[] key, int seconds, byte[] value) {
+        return execute("setex", () -> binaryCommands().setex(key, seconds, value));
+    }
+
+    @Override
+    public CompletableFuture<Long> setnx(byte[] key, byte[] value) {
+        return execute("setnx", () -> binaryCommands().setnx(key, value), AbstractAsyncCacheClient::toLong);
+    }
+
+    @Override
+    public CompletableFuture<byte[]> get(byte[] key) {
+        return execute("get", () -> binaryCommands().get(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> del(byte[] key) {
+        return execute("del", () -> binaryCommands().del(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> del(byte[]... keys) {
+        return execute("del", () -> binaryCommands().del(keys));
+    }
+
+    @Override
+    public CompletableFuture<Long> expire(byte[] key, int seconds) {
+        return execute("expire", () -> binaryCommands().expire(key, seconds), AbstractAsyncCacheClient::toLong);
+    }
+
+    @Override
+    public CompletableFuture<Long> ttl(byte[] key) {
+        return execute("ttl", () -> binaryCommands().ttl(key));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> exists(byte[] key) {
+        return execute("exists", () -> binaryCommands().exists(key), count -> count > 0);
+    }
+
+    @Override
+    public CompletableFuture<Long> hset(byte[] key, byte[] field, byte[] value) {
+        return execute("hset", () -> binaryCommands().hset(key, field, value), AbstractAsyncCacheClient::toLong);
+    }
+
+    @Override
+    public CompletableFuture<byte[]> hget(byte[] key, byte[] field) {
+        return execute("hget", () -> binaryCommands().hget(key, field));
+    }
+
+    @Override
+    public CompletableFuture<List<byte[]>> hmget(byte[] key, byte[]... fields) {
+        return execute("hmget", () -> binaryCommands().hmget(key, fields), AbstractAsyncCacheClient::values);
+    }
+
+    @Override
+    public CompletableFuture<Long> hdel(byte[] key, byte[]... fields) {
+        return execute("hdel", () -> binaryCommands().hdel(key, fields));
+    }
+
+    @Override
+    public CompletableFuture<Map<byte[], byte[]>> hgetAll(byte[] key) {
+        return execute("hgetAll", () -> binaryCommands().hgetall(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> lpush(byte[] key, byte[]... strings) {
+        return execute("lpush", () -> binaryCommands().lpush(key, strings));
+    }
+
+    @Override
+    public CompletableFuture<Long> rpush(byte[] key, byte[]... strings) {
+        return execute("rpush", () -> binaryCommands().rpush(key, strings));
+    }
+
+    @Override
+    public CompletableFuture<List<byte[]>> lrange(byte[] key, long start, long end) {
+        return execute("lrange", () -> binaryCommands().lrange(key, start, end));
+    }
+}
@@ -0,0 +1,44 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+
+/**
+ * 单机模式的异步客户端，字符串和二进制命令各使用一条多路复用连接，断线后由lettuce自动重连
+ */
+public class AsyncCacheClient extends AbstractAsyncCacheClient {
+
+    private final RedisClient client;
+    private final StatefulRedisConnection<String, String> connection;
+    private final StatefulRedisConnection<byte[], byte[]> binaryConnection;
+
+    public AsyncCacheClient(String host) {
+        this(host, null);
+    }
+
+    public AsyncCacheClient(String host, String pwd) {
+        super(host);
+        client = RedisClient.create(clientResources(), redisURI(host, pwd));
+        connection = client.connect();
+        binaryConnection = client.connect(ByteArrayCodec.INSTANCE);
+    }
+
+    @Override
+    protected RedisClusterAsyncCommands<String, String> commands() {
+        return connection.async();
+    }
+
+    @Override
+    protected RedisClusterAsyncCommands<byte[], byte[]> binaryCommands() {
+        return binaryConnection.async();
+    }
+
+    @Override
+    public void close() {
+        connection.close();
+        binaryConnection.close();
+        client.shutdown();
+    }
+}
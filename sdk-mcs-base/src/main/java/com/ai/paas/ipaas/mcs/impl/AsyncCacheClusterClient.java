@@ -0,0 +1,60 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.cluster.ClusterClientOptions;
+import io.lettuce.core.cluster.ClusterTopologyRefreshOptions;
+import io.lettuce.core.cluster.ClusterTopologyRefreshOptions.RefreshTrigger;
+import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+
+/**
+ * 集群模式的异步客户端，命令按slot路由到对应节点，跨slot的mget/mset/del由lettuce拆分后合并结果
+ */
+public class AsyncCacheClusterClient extends AbstractAsyncCacheClient {
+
+    private final RedisClusterClient clusterClient;
+    private final StatefulRedisClusterConnection<String, String> connection;
+    private final StatefulRedisClusterConnection<byte[], byte[]> binaryConnection;
+
+    public AsyncCacheClusterClient(String[] hosts) {
+        this(hosts, null);
+    }
+
+    public AsyncCacheClusterClient(String[] hosts, String pwd) {
+        super(String.join(";", hosts));
+        List<RedisURI> redisURIS = new ArrayList<>();
+        for (String address : hosts) {
+            redisURIS.add(redisURI(address, pwd));
+        }
+        clusterClient = RedisClusterClient.create(clientResources(), redisURIS);
+        ClusterTopologyRefreshOptions topologyRefreshOptions = ClusterTopologyRefreshOptions.builder()
+                .enableAdaptiveRefreshTrigger(RefreshTrigger.MOVED_REDIRECT, RefreshTrigger.PERSISTENT_RECONNECTS)
+                .adaptiveRefreshTriggersTimeout(Duration.ofSeconds(30)).build();
+        clusterClient.setOptions(ClusterClientOptions.builder().topologyRefreshOptions(topologyRefreshOptions).build());
+        connection = clusterClient.connect();
+        binaryConnection = clusterClient.connect(ByteArrayCodec.INSTANCE);
+    }
+
+    @Override
+    protected RedisClusterAsyncCommands<String, String> commands() {
+        return connection.async();
+    }
+
+    @Override
+    protected RedisClusterAsyncCommands<byte[], byte[]> binaryCommands() {
+        return binaryConnection.async();
+    }
+
+    @Override
+    public void close() {
+        connection.close();
+        binaryConnection.close();
+        clusterClient.shutdown();
+    }
+}
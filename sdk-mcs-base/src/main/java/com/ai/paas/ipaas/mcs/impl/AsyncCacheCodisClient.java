@@ -0,0 +1,168 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.PathChildrenCache;
+import org.apache.curator.framework.recipes.cache.PathChildrenCache.StartMode;
+import org.apache.curator.framework.recipes.cache.PathChildrenCacheEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ai.paas.ipaas.mcs.exception.CacheException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.codis.jodis.BoundedExponentialBackoffRetryUntilElapsed;
+import io.codis.jodis.CodisProxyInfo;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionException;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+
+/**
+ * codis模式的异步客户端。与jodis一样从zookeeper发现在线的proxy并监听变化，每个proxy保持多路复用连接，命令在proxy间轮询
+ */
+public class AsyncCacheCodisClient extends AbstractAsyncCacheClient {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncCacheCodisClient.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private static final String CODIS_PROXY_STATE_ONLINE = "online";
+
+    private final String pwd;
+    private final CuratorFramework curatorClient;
+    private final PathChildrenCache watcher;
+    private volatile List<Proxy> proxies = Collections.emptyList();
+    private final AtomicInteger nextIdx = new AtomicInteger();
+    private boolean closed = false;
+
+    public AsyncCacheCodisClient(String zkAddr, String codisPath) {
+        this(zkAddr, codisPath, null);
+    }
+
+    /**
+     * @param pwd proxy的密码，为空时不认证
+     */
+    public AsyncCacheCodisClient(String zkAddr, String codisPath, String pwd) {
+        super(codisPath);
+        this.pwd = pwd;
+        curatorClient = CuratorFrameworkFactory.builder().connectString(zkAddr).sessionTimeoutMs(30000)
+                .connectionTimeoutMs(30000).retryPolicy(new BoundedExponentialBackoffRetryUntilElapsed(100, 30000, -1))
+                .build();
+        curatorClient.start();
+        watcher = new PathChildrenCache(curatorClient, codisPath, true);
+        watcher.getListenable().addListener((client, event) ->
+            {
+                if (event.getType() == PathChildrenCacheEvent.Type.CHILD_ADDED
+                        || event.getType() == PathChildrenCacheEvent.Type.CHILD_UPDATED
+                        || event.getType() == PathChildrenCacheEvent.Type.CHILD_REMOVED)
+                    resetProxies();
+            });
+        try {
+            watcher.start(StartMode.BUILD_INITIAL_CACHE);
+        } catch (Exception e) {
+            close();
+            throw new CacheException(e);
+        }
+        resetProxies();
+    }
+
+    /**
+     * 根据zookeeper上的proxy信息重建连接列表，地址未变化的proxy沿用原连接
+     */
+    private synchronized void resetProxies() {
+        if (closed)
+            return;
+        Map<String, Proxy> oldProxies = new HashMap<>();
+        for (Proxy proxy : proxies) {
+            oldProxies.put(proxy.addr, proxy);
+        }
+        List<Proxy> newProxies = new ArrayList<>();
+        for (ChildData childData : watcher.getCurrentData()) {
+            try {
+                CodisProxyInfo proxyInfo = MAPPER.readValue(childData.getData(), CodisProxyInfo.class);
+                if (!CODIS_PROXY_STATE_ONLINE.equals(proxyInfo.getState()))
+                    continue;
+                Proxy proxy = oldProxies.remove(proxyInfo.getAddr());
+                newProxies.add(null != proxy ? proxy : new Proxy(proxyInfo.getAddr(), pwd));
+            } catch (Exception e) {
+                log.warn("Add codis proxy of " + childData.getPath() + " failed.", e);
+            }
+        }
+        proxies = newProxies;
+        for (Proxy proxy : oldProxies.values()) {
+            proxy.close();
+        }
+        log.info("Codis proxies of {} changed, online:{}", getName(), newProxies.size());
+    }
+
+    private Proxy nextProxy() {
+        List<Proxy> current = proxies;
+        if (current.isEmpty())
+            throw new RedisConnectionException("No codis proxy is online under " + getName());
+        return current.get(Math.floorMod(nextIdx.getAndIncrement(), current.size()));
+    }
+
+    @Override
+    protected RedisClusterAsyncCommands<String, String> commands() {
+        return nextProxy().connection.async();
+    }
+
+    @Override
+    protected RedisClusterAsyncCommands<byte[], byte[]> binaryCommands() {
+        return nextProxy().binaryConnection.async();
+    }
+
+    @Override
+    public void close() {
+        try {
+            watcher.close();
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+        curatorClient.close();
+        synchronized (this) {
+            closed = true;
+            for (Proxy proxy : proxies) {
+                proxy.close();
+            }
+            proxies = Collections.emptyList();
+        }
+    }
+
+    private static class Proxy {
+        final String addr;
+        final RedisClient client;
+        final StatefulRedisConnection<String, String> connection;
+        final StatefulRedisConnection<byte[], byte[]> binaryConnection;
+
+        Proxy(String addr, String pwd) {
+            this.addr = addr;
+            this.client = RedisClient.create(clientResources(), redisURI(addr, pwd));
+            try {
+                this.connection = client.connect();
+                this.binaryConnection = client.connect(ByteArrayCodec.INSTANCE);
+            } catch (RuntimeException e) {
+                client.shutdown();
+                throw e;
+            }
+        }
+
+        void close() {
+            connection.close();
+            binaryConnection.close();
+            client.shutdown();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import com.ai.paas.util.StringUtil;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+
+/**
+ * 哨兵模式的异步客户端，通过哨兵找到master，主从切换后重连时重新从哨兵获取master地址
+ */
+public class AsyncSentinelClient extends AbstractAsyncCacheClient {
+
+    private final RedisClient client;
+    private final StatefulRedisConnection<String, String> connection;
+    private final StatefulRedisConnection<byte[], byte[]> binaryConnection;
+
+    public AsyncSentinelClient(String host, String pwd) {
+        this("mymaster", host, pwd);
+    }
+
+    /**
+     * @param clusterName 哨兵监控的master名称
+     * @param host        哨兵地址，多个用;或,分隔
+     * @param pwd
+     */
+    public AsyncSentinelClient(String clusterName, String host, String pwd) {
+        super(clusterName + "@" + host);
+        RedisURI.Builder builder = null;
+        for (String address : host.split(";|,")) {
+            String[] ipAndPort = address.split(":");
+            if (null == builder)
+                builder = RedisURI.Builder.sentinel(ipAndPort[0], Integer.parseInt(ipAndPort[1]), clusterName);
+            else
+                builder.withSentinel(ipAndPort[0], Integer.parseInt(ipAndPort[1]));
+        }
+        builder.withTimeout(TIMEOUT);
+        if (!StringUtil.isBlank(pwd))
+            builder.withPassword(pwd);
+        client = RedisClient.create(clientResources(), builder.build());
+        connection = client.connect();
+        binaryConnection = client.connect(ByteArrayCodec.INSTANCE);
+    }
+
+    @Override
+    protected RedisClusterAsyncCommands<String, String> commands() {
+        return connection.async();
+    }
+
+    @Override
+    protected RedisClusterAsyncCommands<byte[], byte[]> binaryCommands() {
+        return binaryConnection.async();
+    }
+
+    @Override
+    public void close() {
+        connection.close();
+        binaryConnection.close();
+        client.shutdown();
+    }
+}
@@ -0,0 +1,295 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ai.paas.ipaas.mcs.ICacheClient;
+import com.ai.paas.ipaas.mcs.exception.CacheException;
+
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+/**
+ * 自动合并并发请求的客户端，包装已有的ICacheClient，适合大量线程同时读取单个key的场景。
+ * get(String)、hget(String, String)、exists(String)不直接访问redis，而是放入队列，由合并线程收集一个时间窗口内的请求：
+ * 合并为一个pipeline（相同的请求只发一次），集群模式下由被包装的客户端按slot分组发往各节点。
+ * 每个调用方仍然阻塞等待自己的结果，减少的是往返次数和对连接池的争用，代价是每次调用增加最多一个窗口的延迟。
+ * pipeline中单条命令的错误只影响该调用方，整批失败（如连接断开）时这一批的调用方都收到CacheException；合并的请求不重试。
+ * 其他方法直接转发。
+ */
+public class AutoBatchingCacheClient extends ForwardingCacheClient {
+
+    private static final Logger log = LoggerFactory.getLogger(AutoBatchingCacheClient.class);
+
+    private enum Type {
+        GET, HGET, EXISTS
+    }
+
+    private static final class Request {
+        final Type type;
+        final String key;
+        final String field;
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        Request(Type type, String key, String field) {
+            this.type = type;
+            this.key = key;
+            this.field = field;
+        }
+    }
+
+    private static final AtomicInteger IDS = new AtomicInteger();
+
+    private final AutoBatchingConfig config;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final Semaphore inFlight;
+    private final ExecutorService dispatcher;
+    private final Thread collector;
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+    private volatile boolean closed;
+
+    /**
+     * @param delegate 被包装的客户端
+     * @param config   合并的配置
+     */
+    public AutoBatchingCacheClient(ICacheClient delegate, AutoBatchingConfig config) {
+        super(delegate);
+        this.config = config;
+        this.inFlight = new Semaphore(config.getMaxInFlightBatches());
+        String name = "mcs-auto-batch-" + IDS.incrementAndGet();
+        AtomicInteger threads = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(config.getMaxInFlightBatches(), r ->
+            {
+                Thread t = new Thread(r, name + "-" + threads.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        this.collector = new Thread(this::collect, name);
+        collector.setDaemon(true);
+        collector.start();
+    }
+
+    public AutoBatchingConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * 已发出的批次数
+     */
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * 经过合并发出的请求数，除以批次数即平均每批的大小
+     */
+    public long getBatchedRequestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * 先取得执行许可再收集，所有批次都在执行时请求留在队列中积累
+     */
+    private void collect() {
+        long windowNanos = TimeUnit.MICROSECONDS.toNanos(config.getWindowMicros());
+        int maxBatchSize = config.getMaxBatchSize();
+        while (!closed) {
+            List<Request> batch = new ArrayList<>();
+            try {
+                inFlight.acquire();
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0)
+                        break;
+                    Request next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (null == next)
+                        break;
+                    batch.add(next);
+                }
+                dispatcher.execute(() ->
+                    {
+                        try {
+                            execute(batch);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(batch, new CacheException("Auto batching client closed"));
+                return;
+            } catch (RuntimeException e) {
+                // 线程池已关闭
+                inFlight.release();
+                fail(batch, new CacheException(e));
+            }
+        }
+    }
+
+    private void execute(List<Request> batch) {
+        batches.increment();
+        requests.add(batch.size());
+        try {
+            if (batch.size() == 1)
+                executeOne(batch.get(0));
+            else
+                executePipeline(batch);
+        } catch (RuntimeException e) {
+            fail(batch, e instanceof CacheException ? (CacheException) e : new CacheException(e));
+        } catch (Error e) {
+            fail(batch, new CacheException(e.toString()));
+            throw e;
+        }
+    }
+
+    /**
+     * 只有一个请求时按原来的方式执行，保留被包装客户端的重试
+     */
+    private void executeOne(Request request) {
+        switch (request.type) {
+        case GET:
+            request.result.complete(delegate.get(request.key));
+            break;
+        case HGET:
+            request.result.complete(delegate.hget(request.key, request.field));
+            break;
+        default:
+            request.result.complete(delegate.exists(request.key));
+            break;
+        }
+    }
+
+    /**
+     * 相同的请求只发一次；get也逐条发送而不用mget，mget对类型不符的key返回nil，单独的get才会报WRONGTYPE
+     */
+    private void executePipeline(List<Request> batch) {
+        Map<List<Object>, List<Request>> same = new LinkedHashMap<>();
+        for (Request request : batch) {
+            same.computeIfAbsent(Arrays.asList(request.type, request.key, request.field), k -> new ArrayList<>(1))
+                    .add(request);
+        }
+        Pipeline pipeline = delegate.startPipeline();
+        try {
+            List<Response<?>> responses = new ArrayList<>(same.size());
+            for (List<Request> group : same.values()) {
+                Request request = group.get(0);
+                switch (request.type) {
+                case GET:
+                    responses.add(pipeline.get(request.key));
+                    break;
+                case HGET:
+                    responses.add(pipeline.hget(request.key, request.field));
+                    break;
+                default:
+                    responses.add(pipeline.exists(request.key));
+                    break;
+                }
+            }
+            pipeline.sync();
+            int i = 0;
+            for (List<Request> group : same.values()) {
+                Response<?> response = responses.get(i++);
+                for (Request request : group) {
+                    try {
+                        request.result.complete(response.get());
+                    } catch (RuntimeException e) {
+                        request.result.completeExceptionally(new CacheException(e));
+                    }
+                }
+            }
+        } finally {
+            delegate.endPipeline(pipeline);
+        }
+    }
+
+    private static void fail(List<Request> batch, CacheException e) {
+        for (Request request : batch) {
+            request.result.completeExceptionally(e);
+        }
+    }
+
+    private Object submit(Request request) {
+        if (closed)
+            throw new CacheException("Auto batching client closed");
+        queue.add(request);
+        // 与close并发时，close已清空队列的请求不会再被执行
+        if (closed && queue.remove(request))
+            throw new CacheException("Auto batching client closed");
+        try {
+            return request.result.get(config.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CacheException)
+                throw (CacheException) cause;
+            throw new CacheException(cause instanceof Exception ? (Exception) cause : e);
+        } catch (TimeoutException e) {
+            throw new CacheException("Batched " + request.type + " " + request.key + " timed out in "
+                    + config.getTimeoutMillis() + "ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CacheException(e);
+        }
+    }
+
+    @Override
+    public String get(String key) {
+        if (null == key)
+            return delegate.get(key);
+        return (String) submit(new Request(Type.GET, key, null));
+    }
+
+    @Override
+    public String hget(String key, String field) {
+        if (null == key || null == field)
+            return delegate.hget(key, field);
+        return (String) submit(new Request(Type.HGET, key, field));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        if (null == key)
+            return delegate.exists(key);
+        return Boolean.TRUE.equals(submit(new Request(Type.EXISTS, key, null)));
+    }
+
+    /**
+     * 停止合并，队列中未发出的请求收到CacheException，然后关闭被包装的客户端
+     */
+    @Override
+    public void close() {
+        closed = true;
+        collector.interrupt();
+        dispatcher.shutdown();
+        try {
+            if (!dispatcher.awaitTermination(config.getTimeoutMillis(), TimeUnit.MILLISECONDS))
+                log.warn("Auto batching batches still running after {}ms", config.getTimeoutMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Request> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        fail(pending, new CacheException("Auto batching client closed"));
+        delegate.close();
+    }
+}
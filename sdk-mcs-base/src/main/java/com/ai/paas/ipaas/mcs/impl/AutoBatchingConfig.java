@@ -0,0 +1,64 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+/**
+ * 自动合并请求的配置，在创建AutoBatchingCacheClient之前设置
+ */
+public class AutoBatchingConfig {
+
+    /**
+     * 收到一批中的第一个请求后最多再等待的时间，为0时不等待，只合并在上一批执行期间积累的请求
+     */
+    private long windowMicros = 100;
+    /**
+     * 一批最多合并的请求数，达到后立即发出
+     */
+    private int maxBatchSize = 128;
+    /**
+     * 同时执行的批次数，每批占用一条连接；都在执行时新的请求继续积累，下一批会更大
+     */
+    private int maxInFlightBatches = 4;
+    /**
+     * 调用方等待结果的最长时间，应大于命令的超时时间
+     */
+    private long timeoutMillis = 10000;
+
+    public long getWindowMicros() {
+        return windowMicros;
+    }
+
+    public void setWindowMicros(long windowMicros) {
+        if (windowMicros < 0)
+            throw new IllegalArgumentException("windowMicros must not be negative");
+        this.windowMicros = windowMicros;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        if (maxBatchSize < 1)
+            throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public int getMaxInFlightBatches() {
+        return maxInFlightBatches;
+    }
+
+    public void setMaxInFlightBatches(int maxInFlightBatches) {
+        if (maxInFlightBatches < 1)
+            throw new IllegalArgumentException("maxInFlightBatches must be at least 1");
+        this.maxInFlightBatches = maxInFlightBatches;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public void setTimeoutMillis(long timeoutMillis) {
+        if (timeoutMillis < 1)
+            throw new IllegalArgumentException("timeoutMillis must be at least 1");
+        this.timeoutMillis = timeoutMillis;
+    }
+}
@@ -0,0 +1,56 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+/**
+ * 发现的一个大key，bytes和cardinality未知时为-1
+ */
+public class BigKey {
+
+    private final String key;
+    private final String type;
+    private final long bytes;
+    private final long cardinality;
+
+    BigKey(String key, String type, long bytes, long cardinality) {
+        this.key = key;
+        this.type = type;
+        this.bytes = bytes;
+        this.cardinality = cardinality;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * string、hash、list、set或zset
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * 运行时为一次写入或读取的字节数，报告中为MEMORY USAGE的结果
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * 集合的元素个数，string为长度
+     */
+    public long getCardinality() {
+        return cardinality;
+    }
+
+    /**
+     * 取两次记录中较大的值
+     */
+    BigKey merge(BigKey other) {
+        return new BigKey(key, type, Math.max(bytes, other.bytes), Math.max(cardinality, other.cardinality));
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + key + " bytes=" + bytes + " cardinality=" + cardinality;
+    }
+}
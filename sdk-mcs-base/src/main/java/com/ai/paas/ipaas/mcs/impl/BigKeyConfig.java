@@ -0,0 +1,136 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+/**
+ * 大key检查的配置，在创建BigKeyGuardClient或BigKeyReport之前设置
+ */
+public class BigKeyConfig {
+
+    /**
+     * 写入超过限制时的处理方式
+     */
+    public enum Action {
+        /**
+         * 照常写入，第一次发现时打印警告日志
+         */
+        WARN,
+        /**
+         * 不写入，抛出CacheException
+         */
+        REJECT,
+        /**
+         * set(byte[], byte[])和setex(byte[], int, byte[])的value分块存储（见ChunkedValueStore），
+         * 其他写操作按WARN处理
+         */
+        CHUNK
+    }
+
+    /**
+     * 一次写入的value（集合为所有成员合计）的字节数上限，字符串按字符数计算；读到的string也按此检查
+     */
+    private long maxValueBytes = 1024 * 1024;
+    /**
+     * 集合的元素个数上限，一次写入的成员数和读取时抽样查询的元素个数都按此检查
+     */
+    private long maxCardinality = 10000;
+    private Action action = Action.WARN;
+    /**
+     * 每多少次读取抽样查询一次集合的元素个数(HLEN/LLEN/ZCARD)
+     */
+    private int sampleEvery = 100;
+    /**
+     * CHUNK时每块的字节数
+     */
+    private int chunkBytes = 512 * 1024;
+    /**
+     * 运行时最多记录的大key个数，超过后不再记录新的key
+     */
+    private int maxTracked = 1000;
+    /**
+     * BigKeyReport每次SCAN的COUNT
+     */
+    private int reportScanCount = 1000;
+    /**
+     * BigKeyReport每检查一页后暂停的时间(ms)，用于降低对服务端的影响
+     */
+    private long reportPauseMillis;
+
+    public long getMaxValueBytes() {
+        return maxValueBytes;
+    }
+
+    public void setMaxValueBytes(long maxValueBytes) {
+        if (maxValueBytes < 1)
+            throw new IllegalArgumentException("maxValueBytes must be at least 1");
+        this.maxValueBytes = maxValueBytes;
+    }
+
+    public long getMaxCardinality() {
+        return maxCardinality;
+    }
+
+    public void setMaxCardinality(long maxCardinality) {
+        if (maxCardinality < 1)
+            throw new IllegalArgumentException("maxCardinality must be at least 1");
+        this.maxCardinality = maxCardinality;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public void setAction(Action action) {
+        if (null == action)
+            throw new IllegalArgumentException("action must not be null");
+        this.action = action;
+    }
+
+    public int getSampleEvery() {
+        return sampleEvery;
+    }
+
+    public void setSampleEvery(int sampleEvery) {
+        if (sampleEvery < 1)
+            throw new IllegalArgumentException("sampleEvery must be at least 1");
+        this.sampleEvery = sampleEvery;
+    }
+
+    public int getChunkBytes() {
+        return chunkBytes;
+    }
+
+    public void setChunkBytes(int chunkBytes) {
+        if (chunkBytes < 1)
+            throw new IllegalArgumentException("chunkBytes must be at least 1");
+        this.chunkBytes = chunkBytes;
+    }
+
+    public int getMaxTracked() {
+        return maxTracked;
+    }
+
+    public void setMaxTracked(int maxTracked) {
+        if (maxTracked < 1)
+            throw new IllegalArgumentException("maxTracked must be at least 1");
+        this.maxTracked = maxTracked;
+    }
+
+    public int getReportScanCount() {
+        return reportScanCount;
+    }
+
+    public void setReportScanCount(int reportScanCount) {
+        if (reportScanCount < 1)
+            throw new IllegalArgumentException("reportScanCount must be at least 1");
+        this.reportScanCount = reportScanCount;
+    }
+
+    public long getReportPauseMillis() {
+        return reportPauseMillis;
+    }
+
+    public void setReportPauseMillis(long reportPauseMillis) {
+        if (reportPauseMillis < 0)
+            throw new IllegalArgumentException("reportPauseMillis must not be negative");
+        this.reportPauseMillis = reportPauseMillis;
+    }
+}
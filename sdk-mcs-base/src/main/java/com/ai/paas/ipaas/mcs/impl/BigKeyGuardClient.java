@@ -0,0 +1,588 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ai.paas.ipaas.mcs.ICacheClient;
+import com.ai.paas.ipaas.mcs.exception.CacheException;
+
+import redis.clients.jedis.params.ZAddParams;
+import redis.clients.jedis.util.SafeEncoder;
+
+/**
+ * 检查大key的客户端，包装已有的ICacheClient。
+ * 写入string、hash、list、set、zset时计算本次写入的字节数和成员数，超过BigKeyConfig的限制时按action警告、拒绝或分块存储；
+ * 拒绝时，已知元素个数超过限制的集合也不能再增加成员。
+ * 读取时检查读到的string的长度和整个集合的元素个数，只读部分元素的命令按sampleEvery抽样查询HLEN/LLEN/ZCARD，
+ * set没有只读部分元素的命令，sadd/srem时抽样查询SCARD。长度均为UTF-8编码后的字节数，与redis中保存的一致。
+ * 发现的大key记录在本地（getBigKeys），第一次发现时打印警告日志。
+ * get(byte[])识别分块存储的value并拼接返回；CHUNK时set/setex/del(byte[])会先读取旧的清单，使旧版本的块过期，
+ * 分块存储的key应始终通过本客户端写入和删除，过期时间也应在写入时设置，需要单独设置时使用ChunkedCacheClient。
+ * setStream写入前不知道value的大小，只在写完后记录。其他方法直接转发。
+ */
+public class BigKeyGuardClient extends ForwardingCacheClient {
+
+    private static final Logger log = LoggerFactory.getLogger(BigKeyGuardClient.class);
+
+    private final BigKeyConfig config;
+    private final ChunkedValueStore chunks;
+    private final ConcurrentMap<String, BigKey> bigKeys = new ConcurrentHashMap<>();
+    private final LongAdder oversizedWrites = new LongAdder();
+    private final LongAdder rejectedWrites = new LongAdder();
+    private final LongAdder chunkedWrites = new LongAdder();
+
+    /**
+     * @param delegate 被包装的客户端
+     * @param config   大key的限制和处理方式
+     */
+    public BigKeyGuardClient(ICacheClient delegate, BigKeyConfig config) {
+        super(delegate);
+        this.config = config;
+        ChunkedValueConfig chunkConfig = new ChunkedValueConfig();
+        chunkConfig.setChunkBytes(config.getChunkBytes());
+        this.chunks = new ChunkedValueStore(delegate, chunkConfig);
+    }
+
+    public BigKeyConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * 运行时发现的大key，按字节数从大到小
+     */
+    public List<BigKey> getBigKeys() {
+        List<BigKey> keys = new ArrayList<>(bigKeys.values());
+        keys.sort((a, b) -> Long.compare(b.getBytes(), a.getBytes()));
+        return keys;
+    }
+
+    /**
+     * 超过限制的写入次数，包括被拒绝和分块存储的
+     */
+    public long getOversizedWrites() {
+        return oversizedWrites.sum();
+    }
+
+    public long getRejectedWrites() {
+        return rejectedWrites.sum();
+    }
+
+    public long getChunkedWrites() {
+        return chunkedWrites.sum();
+    }
+
+    private boolean chunking() {
+        return config.getAction() == BigKeyConfig.Action.CHUNK;
+    }
+
+    private void record(String key, String type, long bytes, long cardinality) {
+        BigKey found = new BigKey(key, type, bytes, cardinality);
+        BigKey old = bigKeys.get(key);
+        if (null == old) {
+            if (bigKeys.size() >= config.getMaxTracked())
+                return;
+            if (null == bigKeys.putIfAbsent(key, found)) {
+                log.warn("Big key found: {}", found);
+                return;
+            }
+        }
+        bigKeys.computeIfPresent(key, (k, v) -> v.merge(found));
+    }
+
+    /**
+     * 检查一次写入，超过限制时记录；REJECT时抛出CacheException
+     *
+     * @param members 本次写入的成员数，string为0
+     * @return 是否超过限制
+     */
+    private boolean checkWrite(String command, String key, String type, long bytes, long members) {
+        BigKey known = members > 0 ? bigKeys.get(key) : null;
+        boolean full = null != known && known.getCardinality() > config.getMaxCardinality();
+        if (bytes <= config.getMaxValueBytes() && members <= config.getMaxCardinality() && !full)
+            return false;
+        oversizedWrites.increment();
+        // 写入的成员数不是集合的元素个数，元素个数由读取时查询
+        record(key, type, bytes, "string".equals(type) ? bytes : -1);
+        if (config.getAction() == BigKeyConfig.Action.REJECT) {
+            rejectedWrites.increment();
+            throw new CacheException(command + " " + key + " rejected: " + bytes + " bytes, " + members
+                    + " members" + (full ? ", already " + known.getCardinality() + " members" : "")
+                    + " exceeds big key limits");
+        }
+        return true;
+    }
+
+    private void checkRead(String key, String type, long bytes, long cardinality) {
+        if (bytes > config.getMaxValueBytes() || cardinality > config.getMaxCardinality())
+            record(key, type, bytes, cardinality);
+    }
+
+    /**
+     * 按抽样查询集合的元素个数，查询失败不影响调用方
+     */
+    private void sampleCardinality(String key, String type, LongSupplier count) {
+        if (ThreadLocalRandom.current().nextInt(config.getSampleEvery()) != 0)
+            return;
+        try {
+            checkRead(key, type, -1, count.getAsLong());
+        } catch (RuntimeException e) {
+            log.debug("Sampling cardinality of {} failed", key, e);
+        }
+    }
+
+    private static long count(Long count) {
+        return null == count ? 0 : count;
+    }
+
+    /**
+     * UTF-8编码后的字节数，逐个字符计算，不做编码
+     */
+    private static long length(String value) {
+        if (null == value)
+            return 0;
+        long length = value.length();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            // 代理对的两个char合计4字节
+            if (c >= 0x80)
+                length += c < 0x800 || Character.isSurrogate(c) ? 1 : 2;
+        }
+        return length;
+    }
+
+    private static long length(String... values) {
+        long length = 0;
+        for (String value : values) {
+            length += length(value);
+        }
+        return length;
+    }
+
+    private static long length(byte[] value) {
+        return null == value ? 0 : value.length;
+    }
+
+    private static long length(byte[]... values) {
+        long length = 0;
+        for (byte[] value : values) {
+            length += length(value);
+        }
+        return length;
+    }
+
+    private static long lengthOfStrings(Map<String, String> hash) {
+        long length = 0;
+        for (Map.Entry<String, String> entry : hash.entrySet()) {
+            length += length(entry.getKey()) + length(entry.getValue());
+        }
+        return length;
+    }
+
+    private static long lengthOfBytes(Map<byte[], byte[]> hash) {
+        long length = 0;
+        for (Map.Entry<byte[], byte[]> entry : hash.entrySet()) {
+            length += length(entry.getKey()) + length(entry.getValue());
+        }
+        return length;
+    }
+
+    private static long lengthOfMembers(Map<String, Double> scoreMembers) {
+        long length = 0;
+        for (String member : scoreMembers.keySet()) {
+            length += 8 + length(member);
+        }
+        return length;
+    }
+
+    /**
+     * CHUNK时覆盖key后使旧版本的块过期
+     */
+    private <T> T replacing(byte[] key, Supplier<T> write) {
+        return chunking() ? chunks.replace(key, write) : write.get();
+    }
+
+    @Override
+    public String set(String key, String value) {
+        checkWrite("set", key, "string", length(value), 0);
+        return delegate.set(key, value);
+    }
+
+    @Override
+    public String setex(String key, int seconds, String value) {
+        checkWrite("setex", key, "string", length(value), 0);
+        return delegate.setex(key, seconds, value);
+    }
+
+    @Override
+    public Long setnx(String key, String value) {
+        checkWrite("setnx", key, "string", length(value), 0);
+        return delegate.setnx(key, value);
+    }
+
+    @Override
+    public String get(String key) {
+        String value = delegate.get(key);
+        checkRead(key, "string", length(value), length(value));
+        return value;
+    }
+
+    @Override
+    public String set(byte[] key, byte[] value) {
+        if (checkWrite("set", SafeEncoder.encode(key), "string", length(value), 0) && chunking()) {
+            chunkedWrites.increment();
+            chunks.set(key, value, 0);
+            return "OK";
+        }
+        return replacing(key, () -> delegate.set(key, value));
+    }
+
+    @Override
+    public String setex(byte[] key, int seconds, byte[] value) {
+        if (checkWrite("setex", SafeEncoder.encode(key), "string", length(value), 0) && chunking()) {
+            chunkedWrites.increment();
+            chunks.set(key, value, seconds);
+            return "OK";
+        }
+        return replacing(key, () -> delegate.setex(key, seconds, value));
+    }
+
+    @Override
+    public Long setnx(byte[] key, byte[] value) {
+        checkWrite("setnx", SafeEncoder.encode(key), "string", length(value), 0);
+        return delegate.setnx(key, value);
+    }
+
+    /**
+     * 分块存储的value读取各块后拼接返回
+     */
+    @Override
+    public byte[] get(byte[] key) {
+        byte[] value = chunks.get(key);
+        checkRead(SafeEncoder.encode(key), "string", length(value), length(value));
+        return value;
+    }
+
+    /**
+     * 分块存储的value按块读取，其他value按窗口读取
+     */
+    @Override
+    public long getStream(byte[] key, OutputStream out) {
+        long length = chunking() && null != chunks.manifest(key) ? chunks.read(key, out) : delegate.getStream(key, out);
+        checkRead(SafeEncoder.encode(key), "string", length, length);
+        return length;
+    }
+
+    /**
+     * 写入前不知道value的大小，不拒绝也不分块，写完后超过限制时记录
+     */
+    @Override
+    public long setStream(byte[] key, InputStream in, int seconds) {
+        long length = replacing(key, () -> delegate.setStream(key, in, seconds));
+        if (length > config.getMaxValueBytes()) {
+            oversizedWrites.increment();
+            record(SafeEncoder.encode(key), "string", length, length);
+        }
+        return length;
+    }
+
+    @Override
+    public Long del(byte[] key) {
+        return chunking() ? chunks.delete(key) : delegate.del(key);
+    }
+
+    @Override
+    public Long del(byte[]... keys) {
+        if (!chunking())
+            return delegate.del(keys);
+        long deleted = 0;
+        for (byte[] key : keys) {
+            Long count = chunks.delete(key);
+            deleted += null == count ? 0 : count;
+        }
+        return deleted;
+    }
+
+    @Override
+    public Long lpush(String key, String... strings) {
+        checkWrite("lpush", key, "list", length(strings), strings.length);
+        return delegate.lpush(key, strings);
+    }
+
+    @Override
+    public Long rpush(String key, String... strings) {
+        checkWrite("rpush", key, "list", length(strings), strings.length);
+        return delegate.rpush(key, strings);
+    }
+
+    @Override
+    public Long lpush(byte[] key, byte[]... strings) {
+        checkWrite("lpush", SafeEncoder.encode(key), "list", length(strings), strings.length);
+        return delegate.lpush(key, strings);
+    }
+
+    @Override
+    public Long rpush(byte[] key, byte[]... strings) {
+        checkWrite("rpush", SafeEncoder.encode(key), "list", length(strings), strings.length);
+        return delegate.rpush(key, strings);
+    }
+
+    @Override
+    public List<String> lrange(String key, long start, long end) {
+        sampleCardinality(key, "list", () -> count(delegate.llen(key)));
+        return delegate.lrange(key, start, end);
+    }
+
+    @Override
+    public List<byte[]> lrange(byte[] key, long start, long end) {
+        sampleCardinality(SafeEncoder.encode(key), "list", () -> count(delegate.llen(key)));
+        return delegate.lrange(key, start, end);
+    }
+
+    @Override
+    public List<String> lrangeAll(String key) {
+        List<String> values = delegate.lrangeAll(key);
+        checkRead(key, "list", -1, values.size());
+        return values;
+    }
+
+    @Override
+    public List<byte[]> lrangeAll(byte[] key) {
+        List<byte[]> values = delegate.lrangeAll(key);
+        checkRead(SafeEncoder.encode(key), "list", -1, values.size());
+        return values;
+    }
+
+    @Override
+    public Long hset(String key, String field, String value) {
+        checkWrite("hset", key, "hash", length(field) + length(value), 1);
+        return delegate.hset(key, field, value);
+    }
+
+    @Override
+    public Long hsetnx(String key, String field, String value) {
+        checkWrite("hsetnx", key, "hash", length(field) + length(value), 1);
+        return delegate.hsetnx(key, field, value);
+    }
+
+    @Override
+    public String hmset(String key, Map<String, String> hash) {
+        checkWrite("hmset", key, "hash", lengthOfStrings(hash), hash.size());
+        return delegate.hmset(key, hash);
+    }
+
+    @Override
+    public Long hset(byte[] key, byte[] field, byte[] value) {
+        checkWrite("hset", SafeEncoder.encode(key), "hash", length(field) + length(value), 1);
+        return delegate.hset(key, field, value);
+    }
+
+    @Override
+    public Long hsetnx(byte[] key, byte[] field, byte[] value) {
+        checkWrite("hsetnx", SafeEncoder.encode(key), "hash", length(field) + length(value), 1);
+        return delegate.hsetnx(key, field, value);
+    }
+
+    @Override
+    public String hmset(byte[] key, Map<byte[], byte[]> hash) {
+        checkWrite("hmset", SafeEncoder.encode(key), "hash", lengthOfBytes(hash), hash.size());
+        return delegate.hmset(key, hash);
+    }
+
+    @Override
+    public String hget(String key, String field) {
+        sampleCardinality(key, "hash", () -> count(delegate.hlen(key)));
+        return delegate.hget(key, field);
+    }
+
+    @Override
+    public byte[] hget(byte[] key, byte[] field) {
+        sampleCardinality(SafeEncoder.encode(key), "hash", () -> count(delegate.hlen(key)));
+        return delegate.hget(key, field);
+    }
+
+    @Override
+    public List<String> hmget(String key, String... fields) {
+        sampleCardinality(key, "hash", () -> count(delegate.hlen(key)));
+        return delegate.hmget(key, fields);
+    }
+
+    @Override
+    public List<byte[]> hmget(byte[] key, byte[]... fields) {
+        sampleCardinality(SafeEncoder.encode(key), "hash", () -> count(delegate.hlen(key)));
+        return delegate.hmget(key, fields);
+    }
+
+    @Override
+    public Map<String, String> hgetAll(String key) {
+        Map<String, String> hash = delegate.hgetAll(key);
+        checkRead(key, "hash", lengthOfStrings(hash), hash.size());
+        return hash;
+    }
+
+    @Override
+    public Map<byte[], byte[]> hgetAll(byte[] key) {
+        Map<byte[], byte[]> hash = delegate.hgetAll(key);
+        checkRead(SafeEncoder.encode(key), "hash", lengthOfBytes(hash), hash.size());
+        return hash;
+    }
+
+    @Override
+    public Set<String> hkeys(String key) {
+        Set<String> fields = delegate.hkeys(key);
+        checkRead(key, "hash", -1, fields.size());
+        return fields;
+    }
+
+    @Override
+    public Set<byte[]> hkeys(byte[] key) {
+        Set<byte[]> fields = delegate.hkeys(key);
+        checkRead(SafeEncoder.encode(key), "hash", -1, fields.size());
+        return fields;
+    }
+
+    @Override
+    public List<String> hvals(String key) {
+        List<String> values = delegate.hvals(key);
+        checkRead(key, "hash", -1, values.size());
+        return values;
+    }
+
+    @Override
+    public Collection<byte[]> hvals(byte[] key) {
+        Collection<byte[]> values = delegate.hvals(key);
+        checkRead(SafeEncoder.encode(key), "hash", -1, values.size());
+        return values;
+    }
+
+    @Override
+    public Long sadd(String key, String... members) {
+        sampleCardinality(key, "set", () -> count(delegate.scard(key)));
+        checkWrite("sadd", key, "set", length(members), members.length);
+        return delegate.sadd(key, members);
+    }
+
+    @Override
+    public Long sadd(byte[] key, byte[]... members) {
+        sampleCardinality(SafeEncoder.encode(key), "set", () -> count(delegate.scard(key)));
+        checkWrite("sadd", SafeEncoder.encode(key), "set", length(members), members.length);
+        return delegate.sadd(key, members);
+    }
+
+    @Override
+    public Set<String> smembers(String key) {
+        Set<String> members = delegate.smembers(key);
+        checkRead(key, "set", -1, members.size());
+        return members;
+    }
+
+    @Override
+    public Set<byte[]> smembers(byte[] key) {
+        Set<byte[]> members = delegate.smembers(key);
+        checkRead(SafeEncoder.encode(key), "set", -1, members.size());
+        return members;
+    }
+
+    @Override
+    public Long srem(String key, String... members) {
+        sampleCardinality(key, "set", () -> count(delegate.scard(key)));
+        return delegate.srem(key, members);
+    }
+
+    @Override
+    public Long srem(byte[] key, byte[]... members) {
+        sampleCardinality(SafeEncoder.encode(key), "set", () -> count(delegate.scard(key)));
+        return delegate.srem(key, members);
+    }
+
+    @Override
+    public Long scard(String key) {
+        Long count = delegate.scard(key);
+        checkRead(key, "set", -1, count(count));
+        return count;
+    }
+
+    @Override
+    public Long scard(byte[] key) {
+        Long count = delegate.scard(key);
+        checkRead(SafeEncoder.encode(key), "set", -1, count(count));
+        return count;
+    }
+
+    @Override
+    public Long zadd(String key, double score, String member) {
+        checkWrite("zadd", key, "zset", 8 + length(member), 1);
+        return delegate.zadd(key, score, member);
+    }
+
+    @Override
+    public Long zadd(String key, double score, String member, ZAddParams params) {
+        checkWrite("zadd", key, "zset", 8 + length(member), 1);
+        return delegate.zadd(key, score, member, params);
+    }
+
+    @Override
+    public Long zadd(String key, Map<String, Double> scoreMembers) {
+        checkWrite("zadd", key, "zset", lengthOfMembers(scoreMembers), scoreMembers.size());
+        return delegate.zadd(key, scoreMembers);
+    }
+
+    @Override
+    public Long zadd(String key, Map<String, Double> scoreMembers, ZAddParams params) {
+        checkWrite("zadd", key, "zset", lengthOfMembers(scoreMembers), scoreMembers.size());
+        return delegate.zadd(key, scoreMembers, params);
+    }
+
+    @Override
+    public Set<String> zrange(String key, long start, long end) {
+        sampleCardinality(key, "zset", () -> count(delegate.zcard(key)));
+        return delegate.zrange(key, start, end);
+    }
+
+    @Override
+    public Set<String> zrevrange(String key, long start, long end) {
+        sampleCardinality(key, "zset", () -> count(delegate.zcard(key)));
+        return delegate.zrevrange(key, start, end);
+    }
+
+    @Override
+    public Set<String> zrangeByScore(String key, double min, double max) {
+        sampleCardinality(key, "zset", () -> count(delegate.zcard(key)));
+        return delegate.zrangeByScore(key, min, max);
+    }
+
+    @Override
+    public Set<String> zrevrangeByScore(String key, double max, double min) {
+        sampleCardinality(key, "zset", () -> count(delegate.zcard(key)));
+        return delegate.zrevrangeByScore(key, max, min);
+    }
+
+    @Override
+    public void mset(Map<String, String> values) {
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            checkWrite("mset", entry.getKey(), "string", length(entry.getValue()), 0);
+        }
+        delegate.mset(values);
+    }
+
+    @Override
+    public void pipelineSet(Map<String, String> values) {
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            checkWrite("pipelineSet", entry.getKey(), "string", length(entry.getValue()), 0);
+        }
+        delegate.pipelineSet(values);
+    }
+}
@@ -0,0 +1,148 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ai.paas.ipaas.mcs.exception.CacheException;
+import com.ai.paas.util.StringUtil;
+
+import redis.clients.jedis.Client;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.commands.ProtocolCommand;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.util.SafeEncoder;
+
+/**
+ * 离线扫描大key：在每个主节点上SCAN，每页的key先用一次pipeline查询TYPE和MEMORY USAGE，
+ * 再按类型查询元素个数(STRLEN/HLEN/LLEN/SCARD/ZCARD)，返回占用内存或元素个数超过BigKeyConfig限制的key。
+ * 会给服务端带来额外的负载，应在低峰期运行，或设置reportPauseMillis降低速度
+ */
+public class BigKeyReport {
+
+    private static final Logger log = LoggerFactory.getLogger(BigKeyReport.class);
+
+    private static final ProtocolCommand MEMORY = () -> SafeEncoder.encode("MEMORY");
+
+    private final NodeAware nodes;
+    private final BigKeyConfig config;
+
+    /**
+     * @param nodes  可以直接连接各主节点的客户端，如CacheClient、CacheClusterClient、SentinelClient
+     * @param config 大key的限制
+     */
+    public BigKeyReport(NodeAware nodes, BigKeyConfig config) {
+        this.nodes = nodes;
+        this.config = config;
+    }
+
+    /**
+     * 扫描所有主节点
+     *
+     * @param pattern SCAN的MATCH，为空时扫描所有key
+     * @return 超过限制的key，按占用内存从大到小
+     */
+    public List<BigKey> run(String pattern) {
+        ScanParams params = new ScanParams().count(config.getReportScanCount());
+        if (!StringUtil.isBlank(pattern))
+            params.match(pattern);
+        List<BigKey> found = new ArrayList<>();
+        for (HostAndPort node : nodes.getMasterNodes()) {
+            long scanned = 0;
+            try (Jedis jedis = nodes.connect(node)) {
+                String cursor = ScanParams.SCAN_POINTER_START;
+                do {
+                    ScanResult<String> page = jedis.scan(cursor, params);
+                    cursor = page.getCursor();
+                    scanned += page.getResult().size();
+                    inspect(jedis.getClient(), page.getResult(), found);
+                    pause();
+                } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+            }
+            log.info("Big key report scanned {} keys on {}", scanned, node);
+        }
+        found.sort((a, b) -> Long.compare(b.getBytes(), a.getBytes()));
+        return found;
+    }
+
+    private void pause() {
+        if (config.getReportPauseMillis() <= 0)
+            return;
+        try {
+            Thread.sleep(config.getReportPauseMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CacheException(e);
+        }
+    }
+
+    private void inspect(Client client, List<String> keys, List<BigKey> found) {
+        if (keys.isEmpty())
+            return;
+        for (String key : keys) {
+            client.sendCommand(Protocol.Command.TYPE, key);
+            client.sendCommand(MEMORY, "USAGE", key);
+        }
+        List<String> types = new ArrayList<>(keys.size());
+        long[] bytes = new long[keys.size()];
+        for (int i = 0; i < keys.size(); i++) {
+            Object type = reply(client);
+            types.add(null == type ? "none" : SafeEncoder.encode((byte[]) type));
+            Object memory = reply(client);
+            bytes[i] = null == memory ? -1 : (Long) memory;
+        }
+        List<Integer> counted = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            Protocol.Command command = cardinalityCommand(types.get(i));
+            if (null == command)
+                continue;
+            client.sendCommand(command, keys.get(i));
+            counted.add(i);
+        }
+        long[] cardinality = new long[keys.size()];
+        for (int i : counted) {
+            Object count = reply(client);
+            cardinality[i] = null == count ? -1 : (Long) count;
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            if (bytes[i] > config.getMaxValueBytes()
+                    || !"string".equals(types.get(i)) && cardinality[i] > config.getMaxCardinality())
+                found.add(new BigKey(keys.get(i), types.get(i), bytes[i], cardinality[i]));
+        }
+    }
+
+    /**
+     * 读取一条结果，命令出错（如服务端不支持MEMORY）时返回null，不影响后面的结果
+     */
+    private static Object reply(Client client) {
+        try {
+            return client.getOne();
+        } catch (JedisDataException e) {
+            log.debug("Big key report command failed: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static Protocol.Command cardinalityCommand(String type) {
+        switch (type) {
+        case "string":
+            return Protocol.Command.STRLEN;
+        case "hash":
+            return Protocol.Command.HLEN;
+        case "list":
+            return Protocol.Command.LLEN;
+        case "set":
+            return Protocol.Command.SCARD;
+        case "zset":
+            return Protocol.Command.ZCARD;
+        default:
+            return null;
+        }
+    }
+}
@@ -1,68 +1,98 @@
 package com.ai.paas.ipaas.mcs.impl;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.time.Duration;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.UUID;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
 
+import org.apache.commons.pool2.impl.GenericKeyedObjectPool;
 import org.apache.commons.pool2.impl.GenericObjectPool;
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import org.slf4j.LoggerFactory;
 
-import com.ai.paas.GeneralRuntimeException;
 import com.ai.paas.ipaas.mcs.ICacheClient;
+import com.ai.paas.ipaas.mcs.ICacheLock;
+import com.ai.paas.ipaas.mcs.ICacheReadWriteLock;
+import com.ai.paas.ipaas.mcs.LockHandle;
 import com.ai.paas.ipaas.mcs.exception.CacheException;
 import com.ai.paas.util.Assert;
 import com.ai.paas.util.StringUtil;
-import com.google.common.collect.Lists;
 
-import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.KeyScanCursor;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.RedisCommandTimeoutException;
+import io.lettuce.core.RedisConnectionException;
 import io.lettuce.core.RedisFuture;
 import io.lettuce.core.RedisURI;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScanCursor;
 import io.lettuce.core.cluster.ClusterClientOptions;
 import io.lettuce.core.cluster.ClusterTopologyRefreshOptions;
 import io.lettuce.core.cluster.ClusterTopologyRefreshOptions.RefreshTrigger;
 import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.cluster.SlotHash;
 import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
 import io.lettuce.core.cluster.api.async.RedisAdvancedClusterAsyncCommands;
+import io.lettuce.core.cluster.models.partitions.RedisClusterNode;
 import io.lettuce.core.support.ConnectionPoolSupport;
 import redis.clients.jedis.GeoCoordinate;
 import redis.clients.jedis.GeoRadiusResponse;
 import redis.clients.jedis.GeoUnit;
 import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisCluster;
 import redis.clients.jedis.JedisPubSub;
 import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.ScanParams;
 import redis.clients.jedis.Transaction;
-import redis.clients.jedis.exceptions.JedisClusterException;
+import redis.clients.jedis.Tuple;
+import redis.clients.jedis.exceptions.JedisConnectionException;
 import redis.clients.jedis.params.GeoRadiusParam;
 import redis.clients.jedis.params.ZAddParams;
 import redis.clients.jedis.params.ZIncrByParams;
+import redis.clients.jedis.util.SafeEncoder;
 
-public class CacheClusterClient implements ICacheClient {
+public class CacheClusterClient implements ICacheClient, CommandExecutorAware, NodeAware {
 
     private static final org.slf4j.Logger log = LoggerFactory.getLogger(CacheClusterClient.class);
     @SuppressWarnings("rawtypes")
     private GenericObjectPoolConfig config;
     private String[] hosts;
     private String pwd;
-    private JedisCluster jc;
+    private volatile JedisCluster jc;
     private boolean isRedisNeedAuth = false;
+    private HealthChecker healthChecker;
+    private CommandExecutor<JedisCluster> executor;
+    private final DistributedLock lock = new DistributedLock(this, true);
     GenericObjectPool<StatefulRedisClusterConnection<String, String>> pool = null;
 
     StatefulRedisClusterConnection<String, String> connection = null;
 
     RedisClusterClient clusterClient = null;
 
+    private GenericKeyedObjectPool<HostAndPort, ClusterPipeline.NodeClient> pipelineClients;
+
     private static final String UNSUPPORTED = "Unsupported Feature!";
 
+    private static final long LETTUCE_TIMEOUT_SECONDS = 20;
+
     @SuppressWarnings("rawtypes")
     public CacheClusterClient(GenericObjectPoolConfig config, String[] hosts) {
         this.config = config;
@@ -84,6 +114,23 @@ public class CacheClusterClient implements ICacheClient {
     }
 
     private void getCluster() {
+        createJedisCluster();
+        log.info("-----------------------创建LettucePool------------------------begin---");
+        createLettuceClientPool();
+        log.info("-----------------------创建LettucePool------------------------end---");
+        pipelineClients = ClusterPipeline.createClientPool(config, pwd, 20000);
+        String name = String.join(";", hosts);
+        healthChecker = new HealthChecker(name, new ClusterPingProbe(this::probeTargets, pwd), this::createJedisCluster);
+        executor = new CommandExecutor<>(name, CommandExecutor.ConnectionProvider.of(() -> jc, cluster ->
+            {
+                // JedisCluster自己管理各节点的连接池，无需归还
+            }), RetryPolicy.defaultPolicy(), healthChecker);
+    }
+
+    /**
+     * 创建JedisCluster，构造时调用，以及由HealthChecker在后台线程中调用重建，请求线程不会调用
+     */
+    private synchronized void createJedisCluster() {
         log.info("-----------------------创建JedisPool------------------------begin---");
         Set<HostAndPort> jedisClusterNodes = new HashSet<>();
         try {
@@ -94,17 +141,17 @@ public class CacheClusterClient implements ICacheClient {
             }
             if (config.getMaxWaitMillis() < 20000)
                 config.setMaxWaitMillis(20000);
+            JedisCluster oldCluster = jc;
             if (isRedisNeedAuth)
                 jc = new JedisCluster(jedisClusterNodes, 20000, 20000, 20000, pwd, config);
             else
                 jc = new JedisCluster(jedisClusterNodes, 20000, 20000, config);
+            if (null != oldCluster)
+                oldCluster.close();
         } catch (Exception e) {
             throw new CacheException(e);
         }
         log.info("-----------------------创建JedisPool------------------------end---");
-        log.info("-----------------------创建LettucePool------------------------begin---");
-        createLettuceClientPool();
-        log.info("-----------------------创建LettucePool------------------------end---");
     }
 
     private void createLettuceClientPool() {
@@ -126,7 +173,8 @@ public class CacheClusterClient implements ICacheClient {
 
         clusterClient.setOptions(ClusterClientOptions.builder().topologyRefreshOptions(topologyRefreshOptions).build());
 
-        pool = ConnectionPoolSupport.createGenericObjectPool(() -> clusterClient.connect(), config);
+        // 不包装连接：作废连接时invalidateObject和共享连接的比较都需要原始连接
+        pool = ConnectionPoolSupport.createGenericObjectPool(() -> clusterClient.connect(), config, false);
         connection = getLettuceCnn();
     }
 
@@ -139,106 +187,73 @@ public class CacheClusterClient implements ICacheClient {
     }
 
     /**
-     * redis是否可用
-     *
-     * @return
+     * 健康探测的目标：lettuce已知的master，不重新加载拓扑；还没有取得拓扑时为配置的地址
      */
-    private boolean canConnection() {
-        try {
-            jc.get("ok");
-        } catch (Exception e) {
+    private Collection<HostAndPort> probeTargets() {
+        List<HostAndPort> masters = masters();
+        if (masters.isEmpty()) {
+            for (String host : hosts) {
+                masters.add(HostAndPort.parseString(host));
+            }
+        }
+        return masters;
+    }
 
-            return false;
+    private List<HostAndPort> masters() {
+        List<HostAndPort> masters = new ArrayList<>();
+        for (RedisClusterNode node : clusterClient.getPartitions()) {
+            if (node.is(RedisClusterNode.NodeFlag.MASTER))
+                masters.add(new HostAndPort(node.getUri().getHost(), node.getUri().getPort()));
         }
-        return true;
+        return masters;
     }
 
-    public String set(String key, String value) {
-        try {
-            return jc.set(key, value);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return set(key, value);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
+    @Override
+    public CommandExecutor<?> getCommandExecutor() {
+        return executor;
+    }
 
-            throw new CacheException(e);
-        }
+    /**
+     * 重新读取集群拓扑后的所有master
+     */
+    @Override
+    public List<HostAndPort> getMasterNodes() {
+        clusterClient.reloadPartitions();
+        return masters();
+    }
+
+    @Override
+    public Jedis connect(HostAndPort node) {
+        return NodeAware.open(node, 20000, pwd);
+    }
+
+    public String set(String key, String value) {
+        return executor.execute("set", cluster -> cluster.set(key, value));
     }
 
     public String setex(String key, int seconds, String value) {
-        try {
-            return jc.setex(key, seconds, value);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return setex(key, seconds, value);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("setex", cluster -> cluster.setex(key, seconds, value));
     }
 
     public String get(String key) {
-        try {
-            return jc.get(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return get(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        }
+        return executor.execute("get", cluster -> cluster.get(key));
     }
 
     public Long del(String key) {
-        try {
-            return jc.del(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return del(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("del", cluster -> cluster.del(key));
     }
 
     public Long del(String... keys) {
-        try {
-            return jc.del(keys);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return del(keys);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
+        return executor.execute("del", cluster -> sumBySlot(keys, RedisAdvancedClusterAsyncCommands::del));
+    }
 
-            throw new CacheException(e);
-        }
+    @Override
+    public Long unlink(String... keys) {
+        return executor.execute("unlink", cluster -> sumBySlot(keys, RedisAdvancedClusterAsyncCommands::unlink));
     }
 
     public Long expire(String key, int seconds) {
-        try {
-            return jc.expire(key, seconds);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return expire(key, seconds);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        }
+        return executor.execute("expire", cluster -> cluster.expire(key, seconds));
     }
 
     @Override
@@ -247,746 +262,229 @@ public class CacheClusterClient implements ICacheClient {
     }
 
     public Long ttl(String key) {
-        try {
-            return jc.ttl(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return ttl(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        }
+        return executor.execute("ttl", cluster -> cluster.ttl(key));
     }
 
     public boolean exists(String key) {
-        try {
-            return jc.exists(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return exists(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("exists", cluster -> cluster.exists(key));
     }
 
     public Long incr(String key) {
-        try {
-            return jc.incr(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return incr(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("incr", cluster -> cluster.incr(key));
     }
 
     public Long incrBy(String key, long increment) {
-        try {
-            return jc.incrBy(key, increment);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return incrBy(key, increment);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        }
+        return executor.execute("incrBy", cluster -> cluster.incrBy(key, increment));
     }
 
     public Long decr(String key) {
-        try {
-            return jc.decr(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return decr(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("decr", cluster -> cluster.decr(key));
     }
 
     public Long decrBy(String key, long decrement) {
-        try {
-            return jc.decrBy(key, decrement);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return decrBy(key, decrement);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        }
+        return executor.execute("decrBy", cluster -> cluster.decrBy(key, decrement));
     }
 
     public Long lpush(String key, String... strings) {
-        try {
-            return jc.lpush(key, strings);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return lpush(key, strings);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("lpush", cluster -> cluster.lpush(key, strings));
     }
 
     public Long rpush(String key, String... strings) {
-        try {
-            return jc.rpush(key, strings);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return rpush(key, strings);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("rpush", cluster -> cluster.rpush(key, strings));
     }
 
     public Long llen(String key) {
-        try {
-            return jc.llen(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return llen(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("llen", cluster -> cluster.llen(key));
     }
 
     public String lpop(String key) {
-        try {
-            return jc.lpop(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return lpop(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("lpop", cluster -> cluster.lpop(key));
     }
 
     public String rpop(String key) {
-        try {
-            return jc.rpop(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return rpop(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("rpop", cluster -> cluster.rpop(key));
     }
 
     public List<String> lrange(String key, long start, long end) {
-        try {
-            return jc.lrange(key, start, end);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return lrange(key, start, end);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("lrange", cluster -> cluster.lrange(key, start, end));
     }
 
     public List<String> lrangeAll(String key) {
-        try {
-            return jc.lrange(key, 0, -1);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return lrange(key, 0, -1);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("lrangeAll", cluster -> cluster.lrange(key, 0, -1));
     }
 
     public Long hset(String key, String field, String value) {
-        try {
-            return jc.hset(key, field, value);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return hset(key, field, value);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        }
+        return executor.execute("hset", cluster -> cluster.hset(key, field, value));
     }
 
     public Long hsetnx(String key, String field, String value) {
-        try {
-            return jc.hsetnx(key, field, value);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return hsetnx(key, field, value);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("hsetnx", cluster -> cluster.hsetnx(key, field, value));
     }
 
     public String hmset(String key, Map<String, String> hash) {
-        try {
-            return jc.hmset(key, hash);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return hmset(key, hash);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("hmset", cluster -> cluster.hmset(key, hash));
     }
 
     public String hget(String key, String field) {
-        try {
-            return jc.hget(key, field);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return hget(key, field);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("hget", cluster -> cluster.hget(key, field));
     }
 
     public List<String> hmget(final String key, final String... fields) {
-        try {
-            return jc.hmget(key, fields);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return hmget(key, fields);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("hmget", cluster -> cluster.hmget(key, fields));
     }
 
     public Boolean hexists(String key, String field) {
-        try {
-            return jc.hexists(key, field);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return hexists(key, field);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        }
+        return executor.execute("hexists", cluster -> cluster.hexists(key, field));
     }
 
     public Long hdel(String key, String... fields) {
-        try {
-            return jc.hdel(key, fields);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return hdel(key, fields);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("hdel", cluster -> cluster.hdel(key, fields));
     }
 
     public Long hlen(String key) {
-        try {
-            return jc.hlen(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return hlen(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("hlen", cluster -> cluster.hlen(key));
     }
 
     public Map<String, String> hgetAll(String key) {
-        try {
-            return jc.hgetAll(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return hgetAll(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("hgetAll", cluster -> cluster.hgetAll(key));
     }
 
     public Long sadd(String key, String... members) {
-        try {
-            return jc.sadd(key, members);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return sadd(key, members);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        }
+        return executor.execute("sadd", cluster -> cluster.sadd(key, members));
     }
 
     public Set<String> smembers(String key) {
-        try {
-            return jc.smembers(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return smembers(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        }
+        return executor.execute("smembers", cluster -> cluster.smembers(key));
     }
 
     public Long srem(String key, String... members) {
-        try {
-            return jc.srem(key, members);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return srem(key, members);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("srem", cluster -> cluster.srem(key, members));
     }
 
     public Long scard(String key) {
-        try {
-            return jc.scard(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return scard(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("scard", cluster -> cluster.scard(key));
     }
 
     public Set<String> sunion(String... keys) {
-        try {
-            return jc.sunion(keys);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return sunion(keys);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("sunion", cluster -> cluster.sunion(keys));
     }
 
     public Set<String> sdiff(String... keys) {
-        try {
-            return jc.sdiff(keys);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return sdiff(keys);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("sdiff", cluster -> cluster.sdiff(keys));
     }
 
     public Long sdiffstore(String dstkey, String... keys) {
-        try {
-            return jc.sdiffstore(dstkey, keys);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return sdiffstore(dstkey, keys);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("sdiffstore", cluster -> cluster.sdiffstore(dstkey, keys));
     }
 
     public String set(byte[] key, byte[] value) {
-        try {
-            return jc.set(key, value);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return set(key, value);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("set", cluster -> cluster.set(key, value));
     }
 
     public String setex(byte[] key, int seconds, byte[] value) {
-        try {
-            return jc.setex(key, seconds, value);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return setex(key, seconds, value);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        }
+        return executor.execute("setex", cluster -> cluster.setex(key, seconds, value));
     }
 
     public byte[] get(byte[] key) {
-        try {
-            return jc.get(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return get(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("get", cluster -> cluster.get(key));
+    }
+
+    public long getStream(byte[] key, OutputStream out) {
+        return ValueStreams.read(this, key, out);
+    }
+
+    public long setStream(byte[] key, InputStream in, int seconds) {
+        return ValueStreams.write(this, key, in, seconds,
+                (from, to) -> executor.execute("rename", cluster -> cluster.rename(from, to)));
     }
 
     public Long del(byte[] key) {
-        try {
-            return jc.del(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return del(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("del", cluster -> cluster.del(key));
     }
 
     public Long del(byte[]... keys) {
-        try {
-            return jc.del(keys);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return del(keys);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        }
+        return executor.execute("del", cluster ->
+            {
+                long count = 0;
+                for (List<byte[]> group : groupBySlot(keys, SlotHash::getSlot)) {
+                    count += cluster.del(group.toArray(new byte[group.size()][]));
+                }
+                return count;
+            });
     }
 
     public Long expire(byte[] key, int seconds) {
-        try {
-            return jc.expire(key, seconds);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return expire(key, seconds);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("expire", cluster -> cluster.expire(key, seconds));
     }
 
     @Override
     public Long expireAt(byte[] key, long seconds) {
-        try {
-            return jc.expireAt(key, seconds);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return expireAt(key, seconds);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        }
-    }
+        return executor.execute("expireAt", cluster -> cluster.expireAt(key, seconds));
+    }
 
     public Long ttl(byte[] key) {
-        try {
-            return jc.ttl(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return ttl(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        }
+        return executor.execute("ttl", cluster -> cluster.ttl(key));
     }
 
     public boolean exists(byte[] key) {
-        try {
-            return jc.exists(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return exists(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        }
+        return executor.execute("exists", cluster -> cluster.exists(key));
     }
 
     public Long incr(byte[] key) {
-        try {
-            return jc.incr(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return incr(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        }
+        return executor.execute("incr", cluster -> cluster.incr(key));
     }
 
     public Long incrBy(byte[] key, long increment) {
-        try {
-            return jc.incrBy(key, increment);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return incrBy(key, increment);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("incrBy", cluster -> cluster.incrBy(key, increment));
     }
 
     public Long decr(byte[] key) {
-        try {
-            return jc.decr(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return decr(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("decr", cluster -> cluster.decr(key));
     }
 
     public Long decrBy(byte[] key, long decrement) {
-        try {
-            return jc.decrBy(key, decrement);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return decrBy(key, decrement);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("decrBy", cluster -> cluster.decrBy(key, decrement));
     }
 
     public Long lpush(byte[] key, byte[]... strings) {
-        try {
-            return jc.lpush(key, strings);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return lpush(key, strings);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("lpush", cluster -> cluster.lpush(key, strings));
     }
 
     public Long rpush(byte[] key, byte[]... strings) {
-        try {
-            return jc.rpush(key, strings);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return rpush(key, strings);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("rpush", cluster -> cluster.rpush(key, strings));
     }
 
     public Long llen(byte[] key) {
-        try {
-            return jc.llen(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return llen(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("llen", cluster -> cluster.llen(key));
     }
 
     public byte[] lpop(byte[] key) {
-        try {
-            return jc.lpop(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return lpop(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("lpop", cluster -> cluster.lpop(key));
     }
 
     public byte[] rpop(byte[] key) {
-        try {
-            return jc.rpop(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return rpop(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("rpop", cluster -> cluster.rpop(key));
     }
 
     public List<byte[]> lrange(byte[] key, long start, long end) {
-        try {
-            return jc.lrange(key, start, end);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return lrange(key, start, end);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("lrange", cluster -> cluster.lrange(key, start, end));
     }
 
     public List<byte[]> lrangeAll(byte[] key) {
-        try {
-            return jc.lrange(key, 0, -1);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return lrange(key, 0, -1);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("lrangeAll", cluster -> cluster.lrange(key, 0, -1));
     }
 
     public Long hset(byte[] key, byte[] field, byte[] value) {
-        try {
-            return jc.hset(key, field, value);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return hset(key, field, value);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("hset", cluster -> cluster.hset(key, field, value));
     }
 
     public Long hsetnx(byte[] key, byte[] field, byte[] value) {
-        try {
-            return jc.hsetnx(key, field, value);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return hsetnx(key, field, value);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("hsetnx", cluster -> cluster.hsetnx(key, field, value));
     }
 
     @Override
     public Long setnx(byte[] key, byte[] value) {
-        try {
-            return jc.setnx(key, value);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return jc.setnx(key, value);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("setnx", cluster -> cluster.setnx(key, value));
     }
 
     @Override
@@ -995,762 +493,384 @@ public class CacheClusterClient implements ICacheClient {
     }
 
     public String hmset(byte[] key, Map<byte[], byte[]> hash) {
-        try {
-            return jc.hmset(key, hash);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return hmset(key, hash);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("hmset", cluster -> cluster.hmset(key, hash));
     }
 
     public byte[] hget(byte[] key, byte[] field) {
-        try {
-            return jc.hget(key, field);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return hget(key, field);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("hget", cluster -> cluster.hget(key, field));
     }
 
     public List<byte[]> hmget(final byte[] key, final byte[]... fields) {
-        try {
-            return jc.hmget(key, fields);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return hmget(key, fields);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("hmget", cluster -> cluster.hmget(key, fields));
     }
 
     public Boolean hexists(byte[] key, byte[] field) {
-        try {
-            return jc.hexists(key, field);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return hexists(key, field);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("hexists", cluster -> cluster.hexists(key, field));
     }
 
     public Long hdel(byte[] key, byte[]... fields) {
-        try {
-            return jc.hdel(key, fields);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return hdel(key, fields);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("hdel", cluster -> cluster.hdel(key, fields));
     }
 
     public Long hlen(byte[] key) {
-        try {
-            return jc.hlen(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return hlen(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("hlen", cluster -> cluster.hlen(key));
     }
 
     public Map<byte[], byte[]> hgetAll(byte[] key) {
-        try {
-            return jc.hgetAll(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return hgetAll(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("hgetAll", cluster -> cluster.hgetAll(key));
     }
 
     public Long sadd(byte[] key, byte[]... members) {
-        try {
-            return jc.sadd(key, members);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return sadd(key, members);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("sadd", cluster -> cluster.sadd(key, members));
     }
 
     public Set<byte[]> smembers(byte[] key) {
-        try {
-            return jc.smembers(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return smembers(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("smembers", cluster -> cluster.smembers(key));
     }
 
     public Long srem(byte[] key, byte[]... members) {
-        try {
-            return jc.srem(key, members);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return srem(key, members);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("srem", cluster -> cluster.srem(key, members));
     }
 
     public Long scard(byte[] key) {
-        try {
-            return jc.scard(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return scard(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("scard", cluster -> cluster.scard(key));
     }
 
     public Set<byte[]> sunion(byte[]... keys) {
-        try {
-            return jc.sunion(keys);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return sunion(keys);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("sunion", cluster -> cluster.sunion(keys));
     }
 
     public Set<byte[]> sdiff(byte[]... keys) {
-        try {
-            return jc.sdiff(keys);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return sdiff(keys);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("sdiff", cluster -> cluster.sdiff(keys));
     }
 
     public Long sdiffstore(byte[] dstkey, byte[]... keys) {
-        try {
-            return jc.sdiffstore(dstkey, keys);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return sdiffstore(dstkey, keys);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("sdiffstore", cluster -> cluster.sdiffstore(dstkey, keys));
     }
 
     @Override
     public Long hincrBy(String key, String field, long value) {
-        try {
-            return jc.hincrBy(key, field, value);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return hincrBy(key, field, value);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("hincrBy", cluster -> cluster.hincrBy(key, field, value));
     }
 
     @Override
     public Double incrByFloat(String key, double value) {
-        try {
-            return jc.incrByFloat(key, value);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return incrByFloat(key, value);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("incrByFloat", cluster -> cluster.incrByFloat(key, value));
     }
 
     @Override
     public Double hincrByFloat(String key, String field, double value) {
-        try {
-            return jc.hincrByFloat(key.getBytes(), field.getBytes(), value);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return hincrByFloat(key, field, value);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("hincrByFloat", cluster -> cluster.hincrByFloat(key.getBytes(), field.getBytes(), value));
     }
 
     @Override
     public Long lrem(String key, long count, String value) {
-        try {
-            return jc.lrem(key, count, value);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return lrem(key, count, value);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("lrem", cluster -> cluster.lrem(key, count, value));
     }
 
     @Override
     public Long lrem(byte[] key, long count, byte[] value) {
-        try {
-            return jc.lrem(key, count, value);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return lrem(key, count, value);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("lrem", cluster -> cluster.lrem(key, count, value));
     }
 
     @Override
     public Long zadd(String key, double score, String member) {
-        try {
-            return jc.zadd(key, score, member);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return zadd(key, score, member);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("zadd", cluster -> cluster.zadd(key, score, member));
     }
 
     @Override
     public Long zadd(final String key, final double score, final String member, final ZAddParams params) {
-        try {
-            return jc.zadd(key, score, member, params);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return zadd(key, score, member, params);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("zadd", cluster -> cluster.zadd(key, score, member, params));
     }
 
     @Override
     public Long zadd(String key, Map<String, Double> scoreMembers) {
-        try {
-            return jc.zadd(key, scoreMembers);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return zadd(key, scoreMembers);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("zadd", cluster -> cluster.zadd(key, scoreMembers));
     }
 
     @Override
     public Long zadd(final String key, final Map<String, Double> scoreMembers, final ZAddParams params) {
-        try {
-            return jc.zadd(key, scoreMembers, params);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return zadd(key, scoreMembers, params);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("zadd", cluster -> cluster.zadd(key, scoreMembers, params));
     }
 
     @Override
     public Long zcount(final String key, final double min, final double max) {
-        try {
-            return jc.zcount(key, min, max);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return zcount(key, min, max);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("zcount", cluster -> cluster.zcount(key, min, max));
     }
 
     @Override
     public Long zcount(final String key, final String min, final String max) {
-        try {
-            return jc.zcount(key, min, max);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return zcount(key, min, max);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("zcount", cluster -> cluster.zcount(key, min, max));
+    }
+
+    @Override
+    public Long zcard(final String key) {
+        return executor.execute("zcard", cluster -> cluster.zcard(key));
     }
 
     @Override
     public Double zincrby(final String key, final double score, final String member) {
-        try {
-            return jc.zincrby(key, score, member);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return zincrby(key, score, member);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("zincrby", cluster -> cluster.zincrby(key, score, member));
     }
 
     @Override
     public Double zincrby(String key, double score, String member, ZIncrByParams params) {
-        try {
-            return jc.zincrby(key, score, member, params);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return zincrby(key, score, member, params);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("zincrby", cluster -> cluster.zincrby(key, score, member, params));
     }
 
     @Override
     public Set<String> zrange(final String key, final long start, final long end) {
-        try {
-            return jc.zrange(key, start, end);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return zrange(key, start, end);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("zrange", cluster -> cluster.zrange(key, start, end));
     }
 
     @Override
     public Set<String> zrangeByScore(final String key, final double min, final double max) {
-        try {
-            return jc.zrangeByScore(key, min, max);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return zrangeByScore(key, min, max);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("zrangeByScore", cluster -> cluster.zrangeByScore(key, min, max));
     }
 
     @Override
     public Set<String> zrangeByScore(final String key, final String min, final String max) {
-        try {
-            return jc.zrangeByScore(key, min, max);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return zrangeByScore(key, min, max);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("zrangeByScore", cluster -> cluster.zrangeByScore(key, min, max));
     }
 
     @Override
     public Set<String> zrangeByScore(final String key, final double min, final double max, final int offset,
             int count) {
-        try {
-            return jc.zrangeByScore(key, min, max, offset, count);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return zrangeByScore(key, min, max, offset, count);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("zrangeByScore", cluster -> cluster.zrangeByScore(key, min, max, offset, count));
     }
 
     @Override
     public Set<String> zrevrange(final String key, final long start, final long end) {
-        try {
-            return jc.zrevrange(key, start, end);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return zrevrange(key, start, end);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("zrevrange", cluster -> cluster.zrevrange(key, start, end));
     }
 
     @Override
     public Set<String> zrevrangeByScore(final String key, final double max, final double min) {
-        try {
-            return jc.zrevrangeByScore(key, max, min);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return zrevrangeByScore(key, max, min);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("zrevrangeByScore", cluster -> cluster.zrevrangeByScore(key, max, min));
     }
 
     @Override
     public Set<String> zrevrangeByScore(final String key, final String max, final String min) {
-        try {
-            return jc.zrevrangeByScore(key, max, min);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return zrevrangeByScore(key, max, min);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("zrevrangeByScore", cluster -> cluster.zrevrangeByScore(key, max, min));
     }
 
     @Override
     public Set<String> zrevrangeByScore(final String key, final double max, final double min, final int offset,
             int count) {
-        try {
-            return jc.zrevrangeByScore(key, max, min, offset, count);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return zrevrangeByScore(key, max, min, offset, count);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("zrevrangeByScore", cluster -> cluster.zrevrangeByScore(key, max, min, offset, count));
     }
 
     @Override
     public Long zrevrank(final String key, final String member) {
-        try {
-            return jc.zrevrank(key, member);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return zrevrank(key, member);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("zrevrank", cluster -> cluster.zrevrank(key, member));
+    }
+
+    @Override
+    public Long zrem(final String key, final String... member) {
+        return executor.execute("zrem", cluster -> cluster.zrem(key, member));
+    }
+
+    @Override
+    public Long zremrangeByRank(final String key, final long start, final long end) {
+        return executor.execute("zremrangeByRank", cluster -> cluster.zremrangeByRank(key, start, end));
+    }
+
+    @Override
+    public Long zremrangeByScore(final String key, final double start, final double end) {
+        return executor.execute("zremrangeByScore", cluster -> cluster.zremrangeByScore(key, start, end));
+    }
+
+    @Override
+    public Long zremrangeByScore(final String key, final String start, final String end) {
+        return executor.execute("zremrangeByScore", cluster -> cluster.zremrangeByScore(key, start, end));
+    }
+
+    @Override
+    public String acquireLock(String lockName, long acquireTimeoutInMS, long lockTimeoutInMS) {
+        return lock.acquire(lockName, acquireTimeoutInMS, lockTimeoutInMS);
+    }
+
+    @Override
+    public boolean releaseLock(String lockName, String identifier) {
+        return lock.release(lockName, identifier);
+    }
+
+    @Override
+    public LockHandle acquireRenewableLock(String lockName, long acquireTimeoutInMS, long leaseTimeInMS) {
+        return lock.acquireRenewable(lockName, acquireTimeoutInMS, leaseTimeInMS);
+    }
+
+    @Override
+    public ICacheLock getReentrantLock(String lockName) {
+        return lock.reentrantLock(lockName);
+    }
+
+    @Override
+    public ICacheReadWriteLock getReadWriteLock(String lockName) {
+        return lock.readWriteLock(lockName);
     }
 
     @Override
-    public Long zrem(final String key, final String... member) {
-        try {
-            return jc.zrem(key, member);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return zrem(key, member);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+    public Long publish(final String channel, final String message) {
+        return executor.execute("publish", cluster -> cluster.publish(channel, message));
     }
 
     @Override
-    public Long zremrangeByRank(final String key, final long start, final long end) {
-        try {
-            return jc.zremrangeByRank(key, start, end);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return zremrangeByRank(key, start, end);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+    public void subscribe(final JedisPubSub jedisPubSub, final String... channels) {
+        executor.execute("subscribe", cluster ->
+            {
+                cluster.subscribe(jedisPubSub, channels);
+                return null;
+            });
     }
 
     @Override
-    public Long zremrangeByScore(final String key, final double start, final double end) {
-        try {
-            return jc.zremrangeByScore(key, start, end);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return zremrangeByScore(key, start, end);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+    public void psubscribe(final JedisPubSub jedisPubSub, final String... patterns) {
+        executor.execute("psubscribe", cluster ->
+            {
+                cluster.psubscribe(jedisPubSub, patterns);
+                return null;
+            });
     }
 
     @Override
-    public Long zremrangeByScore(final String key, final String start, final String end) {
-        try {
-            return jc.zremrangeByScore(key, start, end);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return zremrangeByScore(key, start, end);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+    public Object eval(final String script, final List<String> keys, final List<String> args) {
+        return executor.execute("eval", cluster -> cluster.eval(script, keys, args));
     }
 
     @Override
-    public String acquireLock(String lockName, long acquireTimeoutInMS, long lockTimeoutInMS) {
-        getCluster();
-        String retIdentifier = null;
-        try {
-            String identifier = UUID.randomUUID().toString();
-            String lockKey = "lock:" + lockName;
-            int lockExpire = (int) (lockTimeoutInMS / 1000);
-
-            long end = System.currentTimeMillis() + acquireTimeoutInMS;
-            while (System.currentTimeMillis() < end) {
-                if (jc.setnx(lockKey, identifier) == 1) {
-                    jc.expire(lockKey, lockExpire);
-                    retIdentifier = identifier;
-                }
-                if (jc.pttl(lockKey) == -1) {
-                    jc.expire(lockKey, lockExpire);
-                }
+    public Object evalsha(final String sha1, final List<String> keys, final List<String> args) {
+        return executor.execute("evalsha", cluster -> cluster.evalsha(sha1, keys, args));
+    }
 
-                try {
-                    Thread.sleep(10);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                }
-            }
-        } catch (JedisClusterException jcException) {
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
-        return retIdentifier;
+    @Override
+    public Set<String> hkeys(String key) {
+        return executor.execute("hkeys", cluster -> cluster.hkeys(key));
     }
 
     @Override
-    public boolean releaseLock(String lockName, String identifier) {
-        getCluster();
-        String lockKey = "lock:" + lockName;
-        boolean retFlag = false;
-        try {
-            /** if key had bean timeout, return true. **/
-            if (jc.pttl(lockKey) == -2) {
-                retFlag = true;
-                return retFlag;
-            }
-            if (identifier.equals(jc.get(lockKey))) {
-                jc.del(lockKey);
-                retFlag = true;
-            }
-        } catch (JedisClusterException jcException) {
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+    public List<String> hvals(String key) {
+        return executor.execute("hvals", cluster -> cluster.hvals(key));
+    }
 
-        return retFlag;
+    @Override
+    public Set<byte[]> hkeys(byte[] key) {
+        return executor.execute("hkeys", cluster -> cluster.hkeys(key));
     }
 
     @Override
-    public Long publish(final String channel, final String message) {
-        try {
-            return jc.publish(channel, message);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return publish(channel, message);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+    public Collection<byte[]> hvals(byte[] key) {
+        return executor.execute("hvals", cluster -> cluster.hvals(key));
     }
 
     @Override
-    public void subscribe(final JedisPubSub jedisPubSub, final String... channels) {
-        try {
-            jc.subscribe(jedisPubSub, channels);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                subscribe(jedisPubSub, channels);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+    public Set<String> keys(String pattern) {
+        Set<String> keys = new TreeSet<>();
+        if (StringUtil.isBlank(pattern))
+            return keys;
+        if ("*".equals(pattern))
+            return keys;
+        scan(pattern, ScanIterator.DEFAULT_COUNT).forEach(keys::add);
+        return keys;
     }
 
+    /**
+     * 每次向每个还没遍历完的主节点各发一条SCAN，各节点并行执行，结果合并为一页
+     */
     @Override
-    public void psubscribe(final JedisPubSub jedisPubSub, final String... patterns) {
-        try {
-            jc.psubscribe(jedisPubSub, patterns);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                psubscribe(jedisPubSub, patterns);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+    public Stream<String> scan(String pattern, int count) {
+        ScanArgs args = ScanArgs.Builder.limit(ScanIterator.pageSize(count));
+        if (!StringUtil.isBlank(pattern))
+            args.match(pattern);
+        return new ScanIterator<String>() {
+            private Map<String, ScanCursor> cursors;
+
+            @Override
+            protected List<String> nextPage() {
+                return executor.execute("scan", cluster ->
+                    {
+                        RedisAdvancedClusterAsyncCommands<String, String> async = lettuceAsync();
+                        if (null == cursors) {
+                            cursors = new LinkedHashMap<>();
+                            for (RedisClusterNode node : clusterClient.getPartitions()) {
+                                if (node.is(RedisClusterNode.NodeFlag.MASTER))
+                                    cursors.put(node.getNodeId(), ScanCursor.INITIAL);
+                            }
+                        }
+                        if (cursors.isEmpty())
+                            return null;
+                        Map<String, RedisFuture<KeyScanCursor<String>>> futures = new LinkedHashMap<>();
+                        for (Map.Entry<String, ScanCursor> entry : cursors.entrySet()) {
+                            futures.put(entry.getKey(),
+                                    async.getConnection(entry.getKey()).scan(entry.getValue(), args));
+                        }
+                        List<String> keys = new ArrayList<>();
+                        for (Map.Entry<String, RedisFuture<KeyScanCursor<String>>> entry : futures.entrySet()) {
+                            KeyScanCursor<String> cursor = await(async, entry.getValue());
+                            keys.addAll(cursor.getKeys());
+                            if (cursor.isFinished())
+                                cursors.remove(entry.getKey());
+                            else
+                                cursors.put(entry.getKey(), cursor);
+                        }
+                        return keys;
+                    });
+            }
+        }.stream();
     }
 
+    /**
+     * JedisCluster的String版本SCAN系列命令不能指定COUNT，使用byte[]版本再转换
+     */
     @Override
-    public Set<String> hkeys(String key) {
-        try {
-            return jc.hkeys(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return hkeys(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+    public Stream<Map.Entry<String, String>> hscan(String key, int count) {
+        return hscan(SafeEncoder.encode(key), count).map(entry -> new AbstractMap.SimpleImmutableEntry<>(
+                SafeEncoder.encode(entry.getKey()), SafeEncoder.encode(entry.getValue())));
+    }
 
+    @Override
+    public Stream<Map.Entry<byte[], byte[]>> hscan(byte[] key, int count) {
+        ScanParams params = ScanIterator.params(null, count);
+        return ScanIterator.of(cursor -> executor.execute("hscan",
+                cluster -> cluster.hscan(key, SafeEncoder.encode(cursor), params))).stream();
     }
 
     @Override
-    public List<String> hvals(String key) {
-        try {
-            return jc.hvals(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return hvals(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+    public Stream<String> sscan(String key, int count) {
+        return sscan(SafeEncoder.encode(key), count).map(SafeEncoder::encode);
+    }
 
+    @Override
+    public Stream<byte[]> sscan(byte[] key, int count) {
+        ScanParams params = ScanIterator.params(null, count);
+        return ScanIterator.of(cursor -> executor.execute("sscan",
+                cluster -> cluster.sscan(key, SafeEncoder.encode(cursor), params))).stream();
     }
 
     @Override
-    public Set<byte[]> hkeys(byte[] key) {
-        try {
-            return jc.hkeys(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return hkeys(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+    public Stream<Tuple> zscan(String key, int count) {
+        return zscan(SafeEncoder.encode(key), count);
+    }
 
+    @Override
+    public Stream<Tuple> zscan(byte[] key, int count) {
+        ScanParams params = ScanIterator.params(null, count);
+        return ScanIterator.of(cursor -> executor.execute("zscan",
+                cluster -> cluster.zscan(key, SafeEncoder.encode(cursor), params))).stream();
     }
 
     @Override
-    public Collection<byte[]> hvals(byte[] key) {
-        try {
-            return jc.hvals(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return hvals(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+    public Stream<String> lscan(String key, int count) {
+        return ScanIterator
+                .pages((start, end) -> executor.execute("lrange", cluster -> cluster.lrange(key, start, end)), count)
+                .stream();
     }
 
     @Override
-    public Set<String> keys(String pattern) {
-        // 集群模式不支持
-        return new TreeSet<>();
+    public Stream<byte[]> lscan(byte[] key, int count) {
+        return ScanIterator
+                .pages((start, end) -> executor.execute("lrange", cluster -> cluster.lrange(key, start, end)), count)
+                .stream();
     }
 
     @SuppressWarnings("rawtypes")
@@ -1763,6 +883,9 @@ public class CacheClusterClient implements ICacheClient {
 
     @Override
     public void close() {
+        if (null != healthChecker) {
+            healthChecker.close();
+        }
         if (null != jc) {
             jc.close();
         }
@@ -1770,6 +893,8 @@ public class CacheClusterClient implements ICacheClient {
             pool.close();
         if (null != clusterClient)
             clusterClient.shutdown();
+        if (null != pipelineClients)
+            pipelineClients.close();
     }
 
     @Override
@@ -1799,302 +924,321 @@ public class CacheClusterClient implements ICacheClient {
 
     @Override
     public Boolean setBit(String key, long offset, String value) {
-        try {
-            return jc.setbit(key, offset, value);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return setBit(key, offset, value);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("setBit", cluster -> cluster.setbit(key, offset, value));
     }
 
     @Override
     public Boolean getBit(String key, long offset) {
-        try {
-            return jc.getbit(key, offset);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return getBit(key, offset);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("getBit", cluster -> cluster.getbit(key, offset));
     }
 
     @Override
     public long countBit(String key, long start, long end) {
-        try {
-            return jc.bitcount(key, start, end);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return countBit(key, start, end);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("countBit", cluster -> cluster.bitcount(key, start, end));
     }
 
     @Override
     public long countBit(String key) {
-        try {
-            return jc.bitcount(key);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return countBit(key);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("countBit", cluster -> cluster.bitcount(key));
     }
 
     @Override
     public long addGeo(String key, Map<String, GeoCoordinate> memberCoordinateMap) {
-        try {
-            return jc.geoadd(key, memberCoordinateMap);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return addGeo(key, memberCoordinateMap);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("addGeo", cluster -> cluster.geoadd(key, memberCoordinateMap));
     }
 
     @Override
     public long addGeo(String key, String name, long longitude, long latitude) {
-        try {
-            return jc.geoadd(key, longitude, latitude, name);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return addGeo(key, name, longitude, latitude);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("addGeo", cluster -> cluster.geoadd(key, longitude, latitude, name));
     }
 
     @Override
     public List<GeoCoordinate> getGeo(String key, String... members) {
-        try {
-            return jc.geopos(key, members);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return getGeo(key, members);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("getGeo", cluster -> cluster.geopos(key, members));
     }
 
     @Override
     public Double getGeoDist(String key, String start, String end) {
-        try {
-            return jc.geodist(key, start, end);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return getGeoDist(key, start, end);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("getGeoDist", cluster -> cluster.geodist(key, start, end));
     }
 
     @Override
     public Double getGeoDist(String key, String start, String end, GeoUnit unit) {
-        try {
-            return jc.geodist(key, start, end, unit);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return getGeoDist(key, start, end, unit);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("getGeoDist", cluster -> cluster.geodist(key, start, end, unit));
     }
 
     @Override
     public List<GeoRadiusResponse> getGeoDist(String key, long longitude, long latitude, long radius, GeoUnit unit) {
-        try {
-            return jc.georadius(key, longitude, latitude, radius, unit);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return getGeoDist(key, longitude, latitude, radius, unit);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("getGeoDist", cluster -> cluster.georadius(key, longitude, latitude, radius, unit));
     }
 
     @Override
     public List<GeoRadiusResponse> getGeoDist(String key, double longitude, double latitude, double radius,
             GeoUnit unit, GeoRadiusParam param) {
-        try {
-            return jc.georadius(key, longitude, latitude, radius, unit, param);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return getGeoDist(key, longitude, latitude, radius, unit, param);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("getGeoDist", cluster -> cluster.georadius(key, longitude, latitude, radius, unit, param));
     }
 
     @Override
     public List<GeoRadiusResponse> getGeoDist(String key, String member, long radius, GeoUnit unit) {
-        try {
-            return jc.georadiusByMember(key, member, radius, unit);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return getGeoDist(key, member, radius, unit);
-            }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
-        }
+        return executor.execute("getGeoDist", cluster -> cluster.georadiusByMember(key, member, radius, unit));
     }
 
     @Override
     public List<GeoRadiusResponse> getGeoDist(String key, String member, double radius, GeoUnit unit,
             GeoRadiusParam param) {
+        return executor.execute("getGeoDist", cluster -> cluster.georadiusByMember(key, member, radius, unit, param));
+    }
+
+    @Override
+    public List<String> getGeoHash(String key, String... members) {
+        return executor.execute("getGeoHash", cluster -> cluster.geohash(key, members));
+    }
+
+    /**
+     * 按hash slot对key分组，同一slot的key可以用一条多key命令完成，保持key的原有顺序
+     */
+    private static <K> Collection<List<K>> groupBySlot(K[] keys, ToIntFunction<K> slotOf) {
+        Map<Integer, List<K>> groups = new LinkedHashMap<>();
+        for (K key : keys) {
+            groups.computeIfAbsent(slotOf.applyAsInt(key), slot -> new ArrayList<>()).add(key);
+        }
+        return groups.values();
+    }
+
+    /**
+     * 共享的lettuce连接，已关闭或被dropLettuceCnn作废后重新借用
+     */
+    private synchronized RedisAdvancedClusterAsyncCommands<String, String> lettuceAsync() {
+        if (null != connection && !connection.isOpen())
+            dropLettuceCnn(connection);
+        if (null == connection)
+            connection = getLettuceCnn();
+        return connection.async();
+    }
+
+    /**
+     * 作废连接失败的共享连接，其他线程已经换上新连接时不处理
+     */
+    private synchronized void dropLettuceCnn(StatefulRedisClusterConnection<String, String> failed) {
+        if (connection != failed)
+            return;
+        connection = null;
         try {
-            return jc.georadiusByMember(key, member, radius, unit, param);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return getGeoDist(key, member, radius, unit, param);
-            }
-            throw new CacheException(jcException);
+            pool.invalidateObject(failed);
         } catch (Exception e) {
+            log.warn("Failed to invalidate lettuce connection", e);
+        }
+    }
+
+    /**
+     * 共享连接上的命令连接失败或超时时作废共享连接，failover后下次使用时借用新连接
+     */
+    private <T> T await(RedisAdvancedClusterAsyncCommands<String, String> async, RedisFuture<T> future) {
+        try {
+            return await(future);
+        } catch (JedisConnectionException e) {
+            dropLettuceCnn(async.getStatefulConnection());
+            throw e;
+        }
+    }
+
+    /**
+     * 连接失败和超时转为JedisConnectionException，与jedis的命令一样由CommandExecutor重试、上报HealthChecker并计入熔断
+     */
+    private static <T> T await(RedisFuture<T> future) {
+        try {
+            return future.get(LETTUCE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new CacheException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RedisConnectionException || cause instanceof RedisCommandTimeoutException
+                    || cause instanceof IOException)
+                throw new JedisConnectionException(cause);
+            throw new CacheException(cause instanceof Exception ? (Exception) cause : e);
+        } catch (TimeoutException e) {
+            throw new JedisConnectionException(e);
         }
     }
 
-    @Override
-    public List<String> getGeoHash(String key, String... members) {
+    /**
+     * 在单独借用的连接上关闭自动flush后发出一批命令，再一次flush，每个节点的命令在一次写入中发出，相当于每个节点一个pipeline。
+     * 结果按命令的顺序返回，出错时作废这条连接，其上可能还有未读的回复
+     */
+    private <T> List<T> pipelined(
+            Function<RedisAdvancedClusterAsyncCommands<String, String>, List<RedisFuture<T>>> commands) {
+        // 关闭自动flush对连接上的所有命令生效，不能使用共享连接
+        StatefulRedisClusterConnection<String, String> pipelineConnection = getLettuceCnn();
+        boolean broken = true;
         try {
-            return jc.geohash(key, members);
-        } catch (JedisClusterException jcException) {
-            getCluster();
-            if (canConnection()) {
-                return getGeoHash(key, members);
+            RedisAdvancedClusterAsyncCommands<String, String> async = pipelineConnection.async();
+            async.setAutoFlushCommands(false);
+            List<RedisFuture<T>> futures = commands.apply(async);
+            async.flushCommands();
+            List<T> results = new ArrayList<>(futures.size());
+            for (RedisFuture<T> future : futures) {
+                results.add(await(future));
             }
-            throw new CacheException(jcException);
-        } catch (Exception e) {
-            throw new CacheException(e);
+            broken = false;
+            return results;
+        } finally {
+            releasePipelineConnection(pipelineConnection, broken);
         }
     }
 
+    /**
+     * 按slot分组后再按slot所在的主节点归并，同一节点的各组依次发出，在pipelined中随该节点的一次flush写出
+     */
+    private Collection<List<String>> groupByNode(String[] keys) {
+        Map<HostAndPort, List<List<String>>> nodes = new LinkedHashMap<>();
+        for (List<String> group : groupBySlot(keys, SlotHash::getSlot)) {
+            nodes.computeIfAbsent(nodeOfSlot(SlotHash.getSlot(group.get(0))), node -> new ArrayList<>()).add(group);
+        }
+        List<List<String>> groups = new ArrayList<>();
+        for (List<List<String>> node : nodes.values()) {
+            groups.addAll(node);
+        }
+        return groups;
+    }
+
+    /**
+     * 每个slot发一条多key命令，按节点成批发出，结果累加
+     */
+    private Long sumBySlot(String[] keys,
+            BiFunction<RedisAdvancedClusterAsyncCommands<String, String>, String[], RedisFuture<Long>> command) {
+        if (keys.length == 0)
+            return 0L;
+        List<Long> counts = pipelined(async ->
+            {
+                List<RedisFuture<Long>> futures = new ArrayList<>();
+                for (List<String> group : groupByNode(keys)) {
+                    futures.add(command.apply(async, group.toArray(new String[group.size()])));
+                }
+                return futures;
+            });
+        long count = 0;
+        for (Long n : counts) {
+            count += n;
+        }
+        return count;
+    }
+
     @Override
     public List<String> mget(String... keys) {
-        List<Object> result = pipelineGet(keys);
-        List<String> list = new ArrayList<>();
-        result.forEach(e -> list.add(Optional.ofNullable(e).map(Object::toString).orElse(null)));
-        return list;
-
+        if (keys.length == 0)
+            return new ArrayList<>();
+        return executor.execute("mget", cluster ->
+            {
+                List<List<KeyValue<String, String>>> replies = pipelined(async ->
+                    {
+                        List<RedisFuture<List<KeyValue<String, String>>>> futures = new ArrayList<>();
+                        for (List<String> group : groupByNode(keys)) {
+                            futures.add(async.mget(group.toArray(new String[group.size()])));
+                        }
+                        return futures;
+                    });
+                Map<String, String> values = new HashMap<>(keys.length * 2);
+                for (List<KeyValue<String, String>> reply : replies) {
+                    for (KeyValue<String, String> keyValue : reply) {
+                        values.put(keyValue.getKey(), keyValue.getValueOrElse(null));
+                    }
+                }
+                List<String> list = new ArrayList<>(keys.length);
+                for (String key : keys) {
+                    list.add(values.get(key));
+                }
+                return list;
+            });
     }
 
     @Override
     public void mset(Map<String, String> values) {
         Assert.notNull(values);
-        pipelineSet(values);
+        if (values.isEmpty())
+            return;
+        executor.execute("mset", cluster -> pipelined(async ->
+            {
+                List<RedisFuture<String>> futures = new ArrayList<>();
+                for (List<String> group : groupByNode(values.keySet().toArray(new String[values.size()]))) {
+                    Map<String, String> slot = new LinkedHashMap<>();
+                    for (String key : group) {
+                        slot.put(key, values.get(key));
+                    }
+                    futures.add(async.mset(slot));
+                }
+                return futures;
+            }));
     }
 
-    @SuppressWarnings("rawtypes")
     @Override
     public List<Object> pipelineGet(String... keys) {
-        long start = System.currentTimeMillis();
-        if (null == connection)
-            connection = getLettuceCnn();
-        log.info("get lettuce redis client connection used:{}", System.currentTimeMillis() - start);
-        RedisAdvancedClusterAsyncCommands<String, String> asyncCommands = connection.async();
-        start = System.currentTimeMillis();
-        asyncCommands.setAutoFlushCommands(false);
-        List<RedisFuture<?>> futures = Lists.newArrayList();
-        for (String key : keys) {
-            futures.add(asyncCommands.get(key));
-        }
-        asyncCommands.flushCommands();
-        RedisFuture[] results = new RedisFuture[futures.size()];
-        boolean result = LettuceFutures.awaitAll(5, TimeUnit.SECONDS, futures.toArray(results));
-        log.info("get pipe  used:{}", System.currentTimeMillis() - start);
-        if (result) {
-            try {
-                return assemble(results);
-            } catch (Exception e) {
-                throw new CacheException(e);
-            }
-        } else {
-            LettuceFutures.awaitAll(5, TimeUnit.SECONDS, futures.toArray(results));
-            try {
-                return assemble(results);
-            } catch (Exception e) {
-                throw new CacheException(e);
-            }
-        }
+        return executor.execute("pipelineGet", cluster -> new ArrayList<Object>(pipelined(async ->
+            {
+                List<RedisFuture<String>> futures = new ArrayList<>(keys.length);
+                for (String key : keys) {
+                    futures.add(async.get(key));
+                }
+                return futures;
+            })));
+    }
 
+    @Override
+    public void pipelineSet(Map<String, String> values) {
+        executor.execute("pipelineSet", cluster -> pipelined(async ->
+            {
+                List<RedisFuture<String>> futures = new ArrayList<>(values.size());
+                for (Map.Entry<String, String> entry : values.entrySet()) {
+                    futures.add(async.set(entry.getKey(), entry.getValue()));
+                }
+                return futures;
+            }));
     }
 
-    @SuppressWarnings("rawtypes")
-    private List<Object> assemble(RedisFuture[] results) throws Exception {
-        long start = System.currentTimeMillis();
-        List<Object> list = new ArrayList<>();
-        for (RedisFuture result : results) {
-            list.add(result.get());
+    /**
+     * 恢复自动flush后归还；出错的连接上可能残留未读的回复，作废
+     */
+    private void releasePipelineConnection(StatefulRedisClusterConnection<String, String> pipelineConnection,
+            boolean broken) {
+        pipelineConnection.setAutoFlushCommands(true);
+        try {
+            if (broken)
+                pool.invalidateObject(pipelineConnection);
+            else
+                pool.returnObject(pipelineConnection);
+        } catch (Exception e) {
+            log.warn("Failed to release lettuce pipeline connection", e);
         }
-        log.info("assemble result used:{}", System.currentTimeMillis() - start);
-        return list;
     }
 
-    @Override
-    public void pipelineSet(Map<String, String> values) {
-        long start = System.currentTimeMillis();
-        if (null == connection)
-            connection = getLettuceCnn();
-        log.info("get lettuce redis client connection used:{}", System.currentTimeMillis() - start);
-        RedisAdvancedClusterAsyncCommands<String, String> asyncCommands = connection.async();
-        start = System.currentTimeMillis();
-        asyncCommands.setAutoFlushCommands(false);
-        List<RedisFuture<?>> futures = Lists.newArrayList();
-        for (Map.Entry<String, String> entry : values.entrySet()) {
-            futures.add(asyncCommands.set(entry.getKey(), entry.getValue()));
-        }
-        asyncCommands.flushCommands();
-        LettuceFutures.awaitAll(5, TimeUnit.SECONDS, futures.toArray(new RedisFuture[futures.size()]));
-        log.info(" lettuce redis set  used:{}", System.currentTimeMillis() - start);
+    /**
+     * slot所在的节点，slot分布来自lettuce，收到MOVED后重新加载
+     */
+    private HostAndPort nodeOfSlot(int slot) {
+        RedisClusterNode node = clusterClient.getPartitions().getPartitionBySlot(slot);
+        if (null == node)
+            return null;
+        return new HostAndPort(node.getUri().getHost(), node.getUri().getPort());
     }
 
+    /**
+     * 集群pipeline只支持单key命令，命令按slot发往各节点，结果按提交顺序返回，用完需调用endPipeline
+     */
     @Override
     public Pipeline startPipeline() {
-        throw new GeneralRuntimeException("unimplemented yet!");
+        return new ClusterPipeline(this::nodeOfSlot, pipelineClients, clusterClient::reloadPartitions);
     }
 
     @Override
     public void endPipeline(Pipeline p) {
-        throw new GeneralRuntimeException("unimplemented yet!");
+        try {
+            if (null != p) {
+                p.close();
+            }
+        } catch (CacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CacheException(e);
+        }
     }
 }
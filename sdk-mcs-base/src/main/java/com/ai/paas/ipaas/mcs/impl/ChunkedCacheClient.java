@@ -0,0 +1,166 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.ai.paas.ipaas.mcs.ICacheClient;
+import com.ai.paas.ipaas.mcs.exception.CacheException;
+
+import redis.clients.jedis.util.SafeEncoder;
+
+/**
+ * 透明分块存储大value的客户端，包装已有的ICacheClient。
+ * set(byte[], byte[])、setex(byte[], int, byte[])的value不小于thresholdBytes时分块存储（见ChunkedValueStore），
+ * 避免一次传输几十MB占住连接；get(byte[])识别清单并读取各块拼接，也可以用get(byte[], OutputStream)、
+ * get(byte[], byte[], int)直接写入调用方的流或数组，不再分配整个value。
+ * 小value覆盖大value、del、unlink、expire、expireAt会先读取清单的长度（一次GETRANGE），处理旧版本的块，
+ * 所以分块存储的key应始终通过本客户端写入、删除和设置过期时间；通过pipeline、事务、脚本或其他客户端删除清单时，
+ * 没有过期时间的块不会被清除。其他方法直接转发。
+ */
+public class ChunkedCacheClient extends ForwardingCacheClient {
+
+    private final ChunkedValueConfig config;
+    private final ChunkedValueStore store;
+
+    /**
+     * @param delegate 被包装的客户端
+     * @param config   分块存储的配置
+     */
+    public ChunkedCacheClient(ICacheClient delegate, ChunkedValueConfig config) {
+        super(delegate);
+        this.config = config;
+        this.store = new ChunkedValueStore(delegate, config);
+    }
+
+    public ChunkedValueConfig getConfig() {
+        return config;
+    }
+
+    @Override
+    public String set(byte[] key, byte[] value) {
+        if (null == key || null == value || value.length < config.getThresholdBytes())
+            return store.replace(key, () -> delegate.set(key, value));
+        store.set(key, value, 0);
+        return "OK";
+    }
+
+    @Override
+    public String setex(byte[] key, int seconds, byte[] value) {
+        if (null == key || null == value || value.length < config.getThresholdBytes())
+            return store.replace(key, () -> delegate.setex(key, seconds, value));
+        store.set(key, value, seconds);
+        return "OK";
+    }
+
+    @Override
+    public byte[] get(byte[] key) {
+        return store.get(key);
+    }
+
+    /**
+     * 按块读取value写入out，同时最多持有batchChunks块。
+     * 读取期间清单被替换时，已经写出数据的读取抛出CacheException，还没写出时按新的清单重新读取
+     *
+     * @return value的长度，key不存在时返回-1
+     */
+    public long get(byte[] key, OutputStream out) {
+        return store.read(key, out);
+    }
+
+    /**
+     * 分块存储的value按块读取，同get(byte[], OutputStream)；其他value按窗口读取
+     */
+    @Override
+    public long getStream(byte[] key, OutputStream out) {
+        return null == store.manifest(key) ? delegate.getStream(key, out) : store.read(key, out);
+    }
+
+    /**
+     * 按窗口写入普通的value，原来是分块存储的value时使旧版本的块过期
+     */
+    @Override
+    public long setStream(byte[] key, InputStream in, int seconds) {
+        return store.replace(key, () -> delegate.setStream(key, in, seconds));
+    }
+
+    /**
+     * 读取value写入buffer从offset开始的位置，剩余空间不足时抛出CacheException
+     *
+     * @return value的长度，key不存在时返回-1
+     */
+    public int get(byte[] key, byte[] buffer, int offset) {
+        try {
+            return (int) store.read(key, new ChunkedValueStore.Sink() {
+                @Override
+                public void start(long length) {
+                    if (length > buffer.length - offset)
+                        throw new CacheException("Buffer too small for " + SafeEncoder.encode(key) + ": " + length
+                                + " bytes, " + (buffer.length - offset) + " available");
+                }
+
+                @Override
+                public void write(long position, byte[] bytes) {
+                    System.arraycopy(bytes, 0, buffer, offset + (int) position, bytes.length);
+                }
+            });
+        } catch (IOException e) {
+            throw new CacheException(e);
+        }
+    }
+
+    @Override
+    public Long del(byte[] key) {
+        return store.delete(key);
+    }
+
+    @Override
+    public Long del(byte[]... keys) {
+        long deleted = 0;
+        for (byte[] key : keys) {
+            Long count = store.delete(key);
+            deleted += null == count ? 0 : count;
+        }
+        return deleted;
+    }
+
+    @Override
+    public Long del(String key) {
+        return store.delete(SafeEncoder.encode(key));
+    }
+
+    @Override
+    public Long del(String... keys) {
+        return del(SafeEncoder.encodeMany(keys));
+    }
+
+    @Override
+    public Long unlink(String... keys) {
+        long deleted = 0;
+        for (String key : keys) {
+            Long count = store.unlink(SafeEncoder.encode(key));
+            deleted += null == count ? 0 : count;
+        }
+        return deleted;
+    }
+
+    @Override
+    public Long expire(byte[] key, int seconds) {
+        return store.expire(key, seconds);
+    }
+
+    @Override
+    public Long expire(String key, int seconds) {
+        return store.expire(SafeEncoder.encode(key), seconds);
+    }
+
+    @Override
+    public Long expireAt(byte[] key, long timestamp) {
+        return store.expireAt(key, timestamp);
+    }
+
+    @Override
+    public Long expireAt(String key, long timestamp) {
+        return store.expireAt(SafeEncoder.encode(key), timestamp);
+    }
+}
@@ -0,0 +1,78 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+/**
+ * 分块存储的配置，在创建ChunkedCacheClient之前设置
+ */
+public class ChunkedValueConfig {
+
+    /**
+     * set(byte[], byte[])和setex(byte[], int, byte[])的value不小于该大小时分块存储
+     */
+    private int thresholdBytes = 1024 * 1024;
+    /**
+     * 每块的字节数，也是一次GET或SET传输的最大数据量
+     */
+    private int chunkBytes = 256 * 1024;
+    /**
+     * 一次pipeline读写的块数，读取时最多同时持有这么多块
+     */
+    private int batchChunks = 8;
+    /**
+     * 被替换或删除的旧版本的块再保留的时间(s)，使正在读取旧版本的调用方能读完；为0时立即删除
+     */
+    private int graceSeconds = 10;
+    /**
+     * 读取期间清单被替换时重新读取的次数
+     */
+    private int maxRetries = 3;
+
+    public int getThresholdBytes() {
+        return thresholdBytes;
+    }
+
+    public void setThresholdBytes(int thresholdBytes) {
+        if (thresholdBytes < 1)
+            throw new IllegalArgumentException("thresholdBytes must be at least 1");
+        this.thresholdBytes = thresholdBytes;
+    }
+
+    public int getChunkBytes() {
+        return chunkBytes;
+    }
+
+    public void setChunkBytes(int chunkBytes) {
+        if (chunkBytes < 1)
+            throw new IllegalArgumentException("chunkBytes must be at least 1");
+        this.chunkBytes = chunkBytes;
+    }
+
+    public int getBatchChunks() {
+        return batchChunks;
+    }
+
+    public void setBatchChunks(int batchChunks) {
+        if (batchChunks < 1)
+            throw new IllegalArgumentException("batchChunks must be at least 1");
+        this.batchChunks = batchChunks;
+    }
+
+    public int getGraceSeconds() {
+        return graceSeconds;
+    }
+
+    public void setGraceSeconds(int graceSeconds) {
+        if (graceSeconds < 0)
+            throw new IllegalArgumentException("graceSeconds must not be negative");
+        this.graceSeconds = graceSeconds;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        if (maxRetries < 0)
+            throw new IllegalArgumentException("maxRetries must not be negative");
+        this.maxRetries = maxRetries;
+    }
+}
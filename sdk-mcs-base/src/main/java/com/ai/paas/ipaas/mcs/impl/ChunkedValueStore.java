@@ -0,0 +1,449 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import com.ai.paas.ipaas.mcs.ICacheClient;
+import com.ai.paas.ipaas.mcs.exception.CacheException;
+
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.util.JedisClusterCRC16;
+import redis.clients.jedis.util.SafeEncoder;
+
+/**
+ * 把大的byte[] value分块存储：各块写入单独的key，原key只保存清单（魔数、版本、总长度、块大小、块数）。
+ * 块的key带原key的hash tag，集群模式下与清单在同一个slot。
+ * 写入时先按批用pipeline写入新版本的所有块，再用脚本替换清单并取得被替换的清单，旧版本的块保留graceSeconds后过期。
+ * 每个版本的块的key都不同，读取时先读清单，再按清单用pipeline分批读取各块，读到的块一定属于同一个版本；
+ * 块已不存在而清单已被替换时按新的清单重新读取，不会拼接出不同版本的数据
+ */
+final class ChunkedValueStore {
+
+    private static final byte[] MAGIC = SafeEncoder.encode("\0mcs-chunked\0");
+    /**
+     * 清单的长度
+     */
+    static final int MANIFEST_BYTES = MAGIC.length + 8 + 8 + 4 + 4;
+    /**
+     * GETSET替换清单，ARGV[2]大于0时同时设置过期时间，返回被替换的value。ARGV为清单、过期时间(s)
+     */
+    static final LuaScript SWAP = new LuaScript("local old = redis.call('getset', KEYS[1], ARGV[1]) "
+            + "if tonumber(ARGV[2]) > 0 then redis.call('expire', KEYS[1], ARGV[2]) end return old");
+
+    /**
+     * 一个版本的分块，每次写入使用新的版本号，块的key中带版本号
+     */
+    static final class Manifest {
+        final long version;
+        final long length;
+        final int chunkBytes;
+        final int chunks;
+
+        Manifest(long version, long length, int chunkBytes, int chunks) {
+            this.version = version;
+            this.length = length;
+            this.chunkBytes = chunkBytes;
+            this.chunks = chunks;
+        }
+
+        byte[] encode() {
+            return ByteBuffer.allocate(MANIFEST_BYTES).put(MAGIC).putLong(version).putLong(length).putInt(chunkBytes)
+                    .putInt(chunks).array();
+        }
+
+        /**
+         * 第index块应有的长度，只有最后一块可能不满
+         */
+        long chunkLength(int index) {
+            return index < chunks - 1 ? chunkBytes : length - (long) (chunks - 1) * chunkBytes;
+        }
+    }
+
+    /**
+     * 读取的value的去处
+     */
+    interface Sink {
+        /**
+         * 开始写入一个长度为length的value，读取期间清单被替换时会以新的长度再次调用
+         */
+        void start(long length);
+
+        void write(long offset, byte[] bytes) throws IOException;
+    }
+
+    private final ICacheClient client;
+    private final ChunkedValueConfig config;
+
+    /**
+     * @param client 读写使用的客户端
+     * @param config 块大小等配置
+     */
+    ChunkedValueStore(ICacheClient client, ChunkedValueConfig config) {
+        this.client = client;
+        this.config = config;
+    }
+
+    /**
+     * 读到的value是否为清单
+     */
+    static boolean isManifest(byte[] value) {
+        if (null == value || value.length != MANIFEST_BYTES)
+            return false;
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (value[i] != MAGIC[i])
+                return false;
+        }
+        return true;
+    }
+
+    static Manifest parse(byte[] value) {
+        ByteBuffer buffer = ByteBuffer.wrap(value, MAGIC.length, MANIFEST_BYTES - MAGIC.length);
+        return new Manifest(buffer.getLong(), buffer.getLong(), buffer.getInt(), buffer.getInt());
+    }
+
+    static byte[] chunkKey(byte[] key, long version, int index) {
+        return siblingKey(key, ":chunk:" + Long.toHexString(version) + ":" + index);
+    }
+
+    /**
+     * 与key在同一slot的辅助key：原key已有hash tag时直接加后缀，否则把原key作为hash tag；
+     * 原key含有'}'而不能整个作为hash tag时，用一个落在同一slot的数字作为hash tag放在原key前面
+     */
+    static byte[] siblingKey(byte[] key, String name) {
+        byte[] suffix = SafeEncoder.encode(name);
+        if (hasHashTag(key))
+            return ByteBuffer.allocate(key.length + suffix.length).put(key).put(suffix).array();
+        byte[] tag = indexOf(key, (byte) '}', 0) < 0 ? null : tagFor(JedisClusterCRC16.getSlot(key));
+        if (null == tag)
+            return ByteBuffer.allocate(key.length + suffix.length + 2).put((byte) '{').put(key).put((byte) '}')
+                    .put(suffix).array();
+        return ByteBuffer.allocate(tag.length + key.length + suffix.length).put(tag).put(key).put(suffix).array();
+    }
+
+    /**
+     * 与redis的规则一致：第一个'{'之后有'}'且两者之间不为空时，只对两者之间的部分计算slot
+     */
+    private static boolean hasHashTag(byte[] key) {
+        int open = indexOf(key, (byte) '{', 0);
+        if (open < 0)
+            return false;
+        int close = indexOf(key, (byte) '}', open + 1);
+        return close > open + 1;
+    }
+
+    private static int indexOf(byte[] key, byte b, int from) {
+        for (int i = from; i < key.length; i++) {
+            if (key[i] == b)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * 落在slot的最小的数字hash tag，形如{123}
+     */
+    private static byte[] tagFor(int slot) {
+        for (int n = 0;; n++) {
+            byte[] tag = SafeEncoder.encode("{" + n + "}");
+            if (JedisClusterCRC16.getSlot(tag) == slot)
+                return tag;
+        }
+    }
+
+    private static String name(byte[] key) {
+        return SafeEncoder.encode(key);
+    }
+
+    /**
+     * 只读取key开头的清单长度，key不是分块存储的value或不是string时返回null
+     */
+    Manifest manifest(byte[] key) {
+        Pipeline pipeline = client.startPipeline();
+        try {
+            Response<byte[]> head = pipeline.getrange(key, 0, MANIFEST_BYTES - 1);
+            List<Object> results = pipeline.syncAndReturnAll();
+            if (results.get(0) instanceof Exception)
+                return null;
+            byte[] value = head.get();
+            return isManifest(value) ? parse(value) : null;
+        } finally {
+            client.endPipeline(pipeline);
+        }
+    }
+
+    /**
+     * 分块写入，seconds大于0时清单设置过期时间，块多保留graceSeconds
+     */
+    void set(byte[] key, byte[] value, int seconds) {
+        int chunkBytes = config.getChunkBytes();
+        int chunks = Math.max(1, (int) (((long) value.length + chunkBytes - 1) / chunkBytes));
+        Manifest manifest = new Manifest(ThreadLocalRandom.current().nextLong(), value.length, chunkBytes, chunks);
+        byte[] old;
+        try {
+            writeChunks(key, manifest, value, seconds > 0 ? seconds + config.getGraceSeconds() : 0);
+            old = swap(key, manifest, seconds);
+        } catch (RuntimeException e) {
+            deleteChunks(key, manifest);
+            throw e;
+        }
+        if (isManifest(old))
+            retire(key, parse(old));
+    }
+
+    private void writeChunks(byte[] key, Manifest manifest, byte[] value, int seconds) {
+        for (int from = 0; from < manifest.chunks; from += config.getBatchChunks()) {
+            int to = Math.min(manifest.chunks, from + config.getBatchChunks());
+            Pipeline pipeline = client.startPipeline();
+            try {
+                for (int i = from; i < to; i++) {
+                    int offset = i * manifest.chunkBytes;
+                    byte[] chunk = Arrays.copyOfRange(value, offset, offset + (int) manifest.chunkLength(i));
+                    byte[] chunkKey = chunkKey(key, manifest.version, i);
+                    if (seconds > 0)
+                        pipeline.setex(chunkKey, seconds, chunk);
+                    else
+                        pipeline.set(chunkKey, chunk);
+                }
+                failOnError(pipeline.syncAndReturnAll());
+            } finally {
+                client.endPipeline(pipeline);
+            }
+        }
+    }
+
+    /**
+     * 一条脚本替换清单并设置过期时间，读者要么看到旧的清单要么看到新的，也不会留下没有过期时间而块会过期的清单；
+     * 被替换的是普通的value时会完整返回。value是二进制数据，ICacheClient的eval只有String版本，在pipeline中执行
+     *
+     * @return 被替换的value
+     */
+    private byte[] swap(byte[] key, Manifest manifest, int seconds) {
+        Pipeline pipeline = client.startPipeline();
+        try {
+            Response<Object> replaced = pipeline.eval(SafeEncoder.encode(SWAP.getScript()), 1, key,
+                    manifest.encode(), SafeEncoder.encode(String.valueOf(seconds)));
+            failOnError(pipeline.syncAndReturnAll());
+            return (byte[]) replaced.get();
+        } finally {
+            client.endPipeline(pipeline);
+        }
+    }
+
+    /**
+     * 旧版本的块保留graceSeconds后过期，graceSeconds为0时立即删除
+     */
+    void retire(byte[] key, Manifest manifest) {
+        if (config.getGraceSeconds() == 0) {
+            deleteChunks(key, manifest);
+            return;
+        }
+        Pipeline pipeline = client.startPipeline();
+        try {
+            for (int i = 0; i < manifest.chunks; i++) {
+                pipeline.expire(chunkKey(key, manifest.version, i), config.getGraceSeconds());
+            }
+            pipeline.sync();
+        } finally {
+            client.endPipeline(pipeline);
+        }
+    }
+
+    private void deleteChunks(byte[] key, Manifest manifest) {
+        Pipeline pipeline = client.startPipeline();
+        try {
+            for (int i = 0; i < manifest.chunks; i++) {
+                pipeline.del(chunkKey(key, manifest.version, i));
+            }
+            pipeline.sync();
+        } finally {
+            client.endPipeline(pipeline);
+        }
+    }
+
+    /**
+     * 用普通的写操作覆盖或删除key，原来是分块存储的value时使旧版本的块过期
+     */
+    <T> T replace(byte[] key, Supplier<T> write) {
+        Manifest old = manifest(key);
+        T result = write.get();
+        if (null != old)
+            retire(key, old);
+        return result;
+    }
+
+    /**
+     * 删除key，是分块存储的value时使各块过期
+     */
+    Long delete(byte[] key) {
+        return replace(key, () -> client.del(key));
+    }
+
+    /**
+     * 同delete，用UNLINK删除
+     */
+    Long unlink(byte[] key) {
+        return replace(key, () -> client.unlink(SafeEncoder.encode(key)));
+    }
+
+    /**
+     * 设置过期时间，是分块存储的value时各块多保留graceSeconds
+     */
+    Long expire(byte[] key, int seconds) {
+        Manifest manifest = manifest(key);
+        if (null == manifest)
+            return client.expire(key, seconds);
+        Pipeline pipeline = client.startPipeline();
+        try {
+            for (int i = 0; i < manifest.chunks; i++) {
+                pipeline.expire(chunkKey(key, manifest.version, i), seconds + config.getGraceSeconds());
+            }
+            Response<Long> result = pipeline.expire(key, seconds);
+            failOnError(pipeline.syncAndReturnAll());
+            return result.get();
+        } finally {
+            client.endPipeline(pipeline);
+        }
+    }
+
+    /**
+     * 设置过期的时间点(s)，是分块存储的value时各块多保留graceSeconds
+     */
+    Long expireAt(byte[] key, long timestamp) {
+        Manifest manifest = manifest(key);
+        if (null == manifest)
+            return client.expireAt(key, timestamp);
+        Pipeline pipeline = client.startPipeline();
+        try {
+            for (int i = 0; i < manifest.chunks; i++) {
+                pipeline.expireAt(chunkKey(key, manifest.version, i), timestamp + config.getGraceSeconds());
+            }
+            Response<Long> result = pipeline.expireAt(key, timestamp);
+            failOnError(pipeline.syncAndReturnAll());
+            return result.get();
+        } finally {
+            client.endPipeline(pipeline);
+        }
+    }
+
+    /**
+     * 读取完整的value，普通的value直接返回
+     */
+    byte[] get(byte[] key) {
+        byte[][] value = new byte[1][];
+        try {
+            long length = read(key, new Sink() {
+                @Override
+                public void start(long length) {
+                    if (length > Integer.MAX_VALUE - 8)
+                        throw new CacheException("Chunked value " + name(key) + " too large for byte[]: " + length);
+                    value[0] = new byte[(int) length];
+                }
+
+                @Override
+                public void write(long offset, byte[] bytes) {
+                    System.arraycopy(bytes, 0, value[0], (int) offset, bytes.length);
+                }
+            });
+            return length < 0 ? null : value[0];
+        } catch (IOException e) {
+            throw new CacheException(e);
+        }
+    }
+
+    /**
+     * 读取value写入out，已经写出数据后清单被替换时抛出CacheException
+     *
+     * @return value的长度，key不存在时返回-1
+     */
+    long read(byte[] key, OutputStream out) {
+        try {
+            return read(key, new Sink() {
+                private boolean written;
+
+                @Override
+                public void start(long length) {
+                    if (written)
+                        throw new CacheException("Chunked value " + name(key) + " replaced while streaming");
+                }
+
+                @Override
+                public void write(long offset, byte[] bytes) throws IOException {
+                    written = true;
+                    out.write(bytes);
+                }
+            });
+        } catch (IOException e) {
+            throw new CacheException(e);
+        }
+    }
+
+    /**
+     * 读取value写入sink
+     *
+     * @return value的长度，key不存在时返回-1
+     */
+    long read(byte[] key, Sink sink) throws IOException {
+        byte[] value = client.get(key);
+        for (int attempt = 0;; attempt++) {
+            if (null == value)
+                return -1;
+            if (!isManifest(value)) {
+                sink.start(value.length);
+                sink.write(0, value);
+                return value.length;
+            }
+            Manifest manifest = parse(value);
+            sink.start(manifest.length);
+            if (readChunks(key, manifest, sink))
+                return manifest.length;
+            byte[] current = client.get(key);
+            // 清单没有变化，块已过期或被删除
+            if (Arrays.equals(current, value))
+                return -1;
+            if (attempt >= config.getMaxRetries())
+                throw new CacheException(
+                        "Chunked value " + name(key) + " replaced " + attempt + " times while reading");
+            value = current;
+        }
+    }
+
+    /**
+     * @return 所有块都存在且长度与清单相符
+     */
+    private boolean readChunks(byte[] key, Manifest manifest, Sink sink) throws IOException {
+        for (int from = 0; from < manifest.chunks; from += config.getBatchChunks()) {
+            int to = Math.min(manifest.chunks, from + config.getBatchChunks());
+            List<Object> chunks;
+            Pipeline pipeline = client.startPipeline();
+            try {
+                for (int i = from; i < to; i++) {
+                    pipeline.get(chunkKey(key, manifest.version, i));
+                }
+                chunks = pipeline.syncAndReturnAll();
+            } finally {
+                client.endPipeline(pipeline);
+            }
+            failOnError(chunks);
+            for (int i = from; i < to; i++) {
+                byte[] chunk = (byte[]) chunks.get(i - from);
+                if (null == chunk || chunk.length != manifest.chunkLength(i))
+                    return false;
+                sink.write((long) i * manifest.chunkBytes, chunk);
+            }
+        }
+        return true;
+    }
+
+    private static void failOnError(List<Object> results) {
+        for (Object result : results) {
+            if (result instanceof Exception)
+                throw new CacheException((Exception) result);
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ai.paas.ipaas.mcs.exception.CircuitBreakerOpenException;
+
+/**
+ * 客户端熔断器。按秒分桶的滑动窗口统计失败率与慢调用比例：
+ * <ul>
+ * <li>CLOSED：正常放行，达到阈值后转为OPEN</li>
+ * <li>OPEN：直接抛出CircuitBreakerOpenException，不占用连接、不等待超时；等待一段时间后转为HALF_OPEN</li>
+ * <li>HALF_OPEN：放行有限次数的试探调用，全部完成后根据结果转为CLOSED或重新OPEN</li>
+ * </ul>
+ * 状态变化通过Listener通知，统计数据通过getMetrics()获取。
+ */
+public class CircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * 状态变化事件监听
+     */
+    public interface Listener {
+        void onStateTransition(String name, State from, State to);
+    }
+
+    private static final class Bucket {
+        volatile long epochSecond = -1;
+        final LongAdder calls = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder slowCalls = new LongAdder();
+
+        void reset(long epochSecond) {
+            calls.reset();
+            failures.reset();
+            slowCalls.reset();
+            this.epochSecond = epochSecond;
+        }
+    }
+
+    private final String name;
+    private final CircuitBreakerConfig config;
+    private final Bucket[] buckets;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile long openedAt;
+    private final AtomicInteger halfOpenPermits = new AtomicInteger();
+    private final AtomicInteger halfOpenCalls = new AtomicInteger();
+    private final AtomicInteger halfOpenFailures = new AtomicInteger();
+    private final LongAdder notPermittedCalls = new LongAdder();
+    private final LongAdder transitions = new LongAdder();
+
+    public CircuitBreaker(String name) {
+        this(name, new CircuitBreakerConfig());
+    }
+
+    public CircuitBreaker(String name, CircuitBreakerConfig config) {
+        this.name = name;
+        this.config = config;
+        this.buckets = new Bucket[config.getSlidingWindowSeconds()];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new Bucket();
+        }
+    }
+
+    /**
+     * 执行命令前调用，熔断打开时抛出CircuitBreakerOpenException
+     */
+    public void acquirePermission() {
+        if (!config.isEnabled())
+            return;
+        State current = state.get();
+        if (current == State.CLOSED)
+            return;
+        if (current == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < config.getWaitDurationInOpenStateMillis()) {
+                reject();
+            }
+            if (transition(State.OPEN, State.HALF_OPEN)) {
+                halfOpenCalls.set(0);
+                halfOpenFailures.set(0);
+                halfOpenPermits.set(config.getPermittedCallsInHalfOpenState());
+            }
+        }
+        if (state.get() == State.HALF_OPEN) {
+            if (halfOpenPermits.getAndDecrement() <= 0)
+                reject();
+        } else if (state.get() == State.OPEN) {
+            reject();
+        }
+    }
+
+    private void reject() {
+        notPermittedCalls.increment();
+        throw new CircuitBreakerOpenException("Circuit breaker of " + name + " is " + state.get()
+                + ", call not permitted.");
+    }
+
+    /**
+     * 记录一次调用的结果
+     *
+     * @param command       命令名称
+     * @param durationNanos 耗时
+     * @param failed        是否为连接类失败
+     */
+    public void onResult(String command, long durationNanos, boolean failed) {
+        if (!config.isEnabled())
+            return;
+        boolean slow = TimeUnit.NANOSECONDS.toMillis(durationNanos) >= config.getSlowCallDurationMillis()
+                && !config.getSlowCallIgnoredCommands().contains(command);
+        State current = state.get();
+        if (current == State.HALF_OPEN) {
+            if (failed || slow)
+                halfOpenFailures.incrementAndGet();
+            int completed = halfOpenCalls.incrementAndGet();
+            int permitted = config.getPermittedCallsInHalfOpenState();
+            if (completed >= permitted) {
+                float rate = halfOpenFailures.get() * 100f / completed;
+                if (rate >= config.getFailureRateThreshold()) {
+                    open(State.HALF_OPEN);
+                } else if (transition(State.HALF_OPEN, State.CLOSED)) {
+                    resetWindow();
+                }
+            }
+            return;
+        }
+        if (current != State.CLOSED)
+            return;
+        Bucket bucket = currentBucket();
+        bucket.calls.increment();
+        if (failed)
+            bucket.failures.increment();
+        if (slow)
+            bucket.slowCalls.increment();
+        if (failed || slow)
+            checkThresholds();
+    }
+
+    private void checkThresholds() {
+        Metrics metrics = getMetrics();
+        if (metrics.getNumberOfCalls() < config.getMinimumNumberOfCalls())
+            return;
+        if (metrics.getFailureRate() >= config.getFailureRateThreshold()
+                || metrics.getSlowCallRate() >= config.getSlowCallRateThreshold()) {
+            open(State.CLOSED);
+        }
+    }
+
+    private void open(State from) {
+        openedAt = System.currentTimeMillis();
+        transition(from, State.OPEN);
+    }
+
+    private boolean transition(State from, State to) {
+        if (!state.compareAndSet(from, to))
+            return false;
+        transitions.increment();
+        if (to == State.OPEN)
+            log.warn("Circuit breaker of {} changed from {} to {}, calls will fail fast for {}ms.", name, from, to,
+                    config.getWaitDurationInOpenStateMillis());
+        else
+            log.info("Circuit breaker of {} changed from {} to {}.", name, from, to);
+        for (Listener listener : listeners) {
+            try {
+                listener.onStateTransition(name, from, to);
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
+            }
+        }
+        return true;
+    }
+
+    private Bucket currentBucket() {
+        long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        Bucket bucket = buckets[(int) (now % buckets.length)];
+        if (bucket.epochSecond != now) {
+            synchronized (bucket) {
+                if (bucket.epochSecond != now)
+                    bucket.reset(now);
+            }
+        }
+        return bucket;
+    }
+
+    private void resetWindow() {
+        for (Bucket bucket : buckets) {
+            synchronized (bucket) {
+                bucket.reset(-1);
+            }
+        }
+    }
+
+    /**
+     * 强制转为某个状态，用于运维手工干预
+     *
+     * @param to
+     */
+    public void transitionTo(State to) {
+        State from = state.get();
+        if (from == to)
+            return;
+        if (to == State.OPEN)
+            open(from);
+        else if (transition(from, to)) {
+            if (to == State.HALF_OPEN) {
+                halfOpenCalls.set(0);
+                halfOpenFailures.set(0);
+                halfOpenPermits.set(config.getPermittedCallsInHalfOpenState());
+            } else {
+                resetWindow();
+            }
+        }
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public CircuitBreakerConfig getConfig() {
+        return config;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 当前窗口内的统计
+     *
+     * @return
+     */
+    public Metrics getMetrics() {
+        long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        long calls = 0;
+        long failures = 0;
+        long slowCalls = 0;
+        for (Bucket bucket : buckets) {
+            if (now - bucket.epochSecond < buckets.length) {
+                calls += bucket.calls.sum();
+                failures += bucket.failures.sum();
+                slowCalls += bucket.slowCalls.sum();
+            }
+        }
+        return new Metrics(state.get(), calls, failures, slowCalls, notPermittedCalls.sum(), transitions.sum());
+    }
+
+    /**
+     * 熔断器统计快照
+     */
+    public static class Metrics {
+        private final State state;
+        private final long numberOfCalls;
+        private final long numberOfFailedCalls;
+        private final long numberOfSlowCalls;
+        private final long numberOfNotPermittedCalls;
+        private final long numberOfStateTransitions;
+
+        Metrics(State state, long numberOfCalls, long numberOfFailedCalls, long numberOfSlowCalls,
+                long numberOfNotPermittedCalls, long numberOfStateTransitions) {
+            this.state = state;
+            this.numberOfCalls = numberOfCalls;
+            this.numberOfFailedCalls = numberOfFailedCalls;
+            this.numberOfSlowCalls = numberOfSlowCalls;
+            this.numberOfNotPermittedCalls = numberOfNotPermittedCalls;
+            this.numberOfStateTransitions = numberOfStateTransitions;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public long getNumberOfCalls() {
+            return numberOfCalls;
+        }
+
+        public long getNumberOfFailedCalls() {
+            return numberOfFailedCalls;
+        }
+
+        public long getNumberOfSlowCalls() {
+            return numberOfSlowCalls;
+        }
+
+        /**
+         * 累计被熔断拒绝的调用次数
+         */
+        public long getNumberOfNotPermittedCalls() {
+            return numberOfNotPermittedCalls;
+        }
+
+        /**
+         * 累计状态变化次数
+         */
+        public long getNumberOfStateTransitions() {
+            return numberOfStateTransitions;
+        }
+
+        public float getFailureRate() {
+            return numberOfCalls == 0 ? 0 : numberOfFailedCalls * 100f / numberOfCalls;
+        }
+
+        public float getSlowCallRate() {
+            return numberOfCalls == 0 ? 0 : numberOfSlowCalls * 100f / numberOfCalls;
+        }
+
+        @Override
+        public String toString() {
+            return "CircuitBreakerMetrics[state=" + state + ", calls=" + numberOfCalls + ", failureRate="
+                    + getFailureRate() + "%, slowCallRate=" + getSlowCallRate() + "%, notPermitted="
+                    + numberOfNotPermittedCalls + ", transitions=" + numberOfStateTransitions + "]";
+        }
+    }
+}
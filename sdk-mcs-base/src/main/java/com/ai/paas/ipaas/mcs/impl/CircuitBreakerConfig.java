@@ -0,0 +1,132 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 熔断器配置，运行期修改立即生效
+ */
+public class CircuitBreakerConfig {
+
+    private volatile boolean enabled = true;
+    /**
+     * 失败率阈值(百分比)，达到后熔断
+     */
+    private volatile float failureRateThreshold = 50;
+    /**
+     * 慢调用比例阈值(百分比)，达到后熔断
+     */
+    private volatile float slowCallRateThreshold = 100;
+    /**
+     * 超过该时间的调用认为是慢调用
+     */
+    private volatile long slowCallDurationMillis = 2000;
+    /**
+     * 统计窗口的秒数
+     */
+    private volatile int slidingWindowSeconds = 10;
+    /**
+     * 窗口内至少有这么多次调用才计算失败率
+     */
+    private volatile int minimumNumberOfCalls = 20;
+    /**
+     * 熔断打开后多久进入半开状态
+     */
+    private volatile long waitDurationInOpenStateMillis = 5000;
+    /**
+     * 半开状态下允许试探的调用次数
+     */
+    private volatile int permittedCallsInHalfOpenState = 5;
+    /**
+     * 本身就会长时间阻塞的命令，不计入慢调用
+     */
+    private volatile Set<String> slowCallIgnoredCommands = Collections
+            .unmodifiableSet(new HashSet<>(Arrays.asList("subscribe", "psubscribe", "acquireLock")));
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public float getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(float failureRateThreshold) {
+        if (failureRateThreshold <= 0 || failureRateThreshold > 100)
+            throw new IllegalArgumentException("failureRateThreshold must be in (0, 100]");
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public float getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    public void setSlowCallRateThreshold(float slowCallRateThreshold) {
+        if (slowCallRateThreshold <= 0 || slowCallRateThreshold > 100)
+            throw new IllegalArgumentException("slowCallRateThreshold must be in (0, 100]");
+        this.slowCallRateThreshold = slowCallRateThreshold;
+    }
+
+    public long getSlowCallDurationMillis() {
+        return slowCallDurationMillis;
+    }
+
+    public void setSlowCallDurationMillis(long slowCallDurationMillis) {
+        this.slowCallDurationMillis = slowCallDurationMillis;
+    }
+
+    public int getSlidingWindowSeconds() {
+        return slidingWindowSeconds;
+    }
+
+    /**
+     * 只在创建熔断器之前设置有效
+     *
+     * @param slidingWindowSeconds
+     */
+    public void setSlidingWindowSeconds(int slidingWindowSeconds) {
+        if (slidingWindowSeconds < 1)
+            throw new IllegalArgumentException("slidingWindowSeconds must be at least 1");
+        this.slidingWindowSeconds = slidingWindowSeconds;
+    }
+
+    public int getMinimumNumberOfCalls() {
+        return minimumNumberOfCalls;
+    }
+
+    public void setMinimumNumberOfCalls(int minimumNumberOfCalls) {
+        this.minimumNumberOfCalls = minimumNumberOfCalls;
+    }
+
+    public long getWaitDurationInOpenStateMillis() {
+        return waitDurationInOpenStateMillis;
+    }
+
+    public void setWaitDurationInOpenStateMillis(long waitDurationInOpenStateMillis) {
+        this.waitDurationInOpenStateMillis = waitDurationInOpenStateMillis;
+    }
+
+    public int getPermittedCallsInHalfOpenState() {
+        return permittedCallsInHalfOpenState;
+    }
+
+    public void setPermittedCallsInHalfOpenState(int permittedCallsInHalfOpenState) {
+        if (permittedCallsInHalfOpenState < 1)
+            throw new IllegalArgumentException("permittedCallsInHalfOpenState must be at least 1");
+        this.permittedCallsInHalfOpenState = permittedCallsInHalfOpenState;
+    }
+
+    public Set<String> getSlowCallIgnoredCommands() {
+        return slowCallIgnoredCommands;
+    }
+
+    public void setSlowCallIgnoredCommands(Set<String> slowCallIgnoredCommands) {
+        this.slowCallIgnoredCommands = Collections.unmodifiableSet(new HashSet<>(slowCallIgnoredCommands));
+    }
+}
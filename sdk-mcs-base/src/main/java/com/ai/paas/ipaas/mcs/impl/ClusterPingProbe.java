@@ -0,0 +1,60 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+/**
+ * 集群的健康探测：每个master使用各自的PingProbe，不经过JedisCluster的连接池，任一master可以PING通即认为可用。
+ * master列表在每次探测前取一次，已不是master的节点的连接随即关闭
+ */
+class ClusterPingProbe implements HealthChecker.Probe, AutoCloseable {
+
+    private final Supplier<Collection<HostAndPort>> masters;
+    private final String password;
+    private final Map<HostAndPort, PingProbe> probes = new HashMap<>();
+
+    /**
+     * @param masters  探测的master
+     * @param password 密码，为空时不认证
+     */
+    ClusterPingProbe(Supplier<Collection<HostAndPort>> masters, String password) {
+        this.masters = masters;
+        this.password = password;
+    }
+
+    @Override
+    public synchronized void probe() {
+        Collection<HostAndPort> nodes = masters.get();
+        for (Iterator<Map.Entry<HostAndPort, PingProbe>> it = probes.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<HostAndPort, PingProbe> entry = it.next();
+            if (!nodes.contains(entry.getKey())) {
+                entry.getValue().close();
+                it.remove();
+            }
+        }
+        RuntimeException last = null;
+        for (HostAndPort node : nodes) {
+            try {
+                probes.computeIfAbsent(node, n -> new PingProbe(() -> n, password)).probe();
+                return;
+            } catch (RuntimeException e) {
+                last = e;
+            }
+        }
+        throw null != last ? last : new JedisConnectionException("No reachable node in cluster");
+    }
+
+    @Override
+    public synchronized void close() {
+        for (PingProbe probe : probes.values()) {
+            probe.close();
+        }
+        probes.clear();
+    }
+}
@@ -0,0 +1,356 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import org.apache.commons.pool2.BaseKeyedPooledObjectFactory;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPool;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPoolConfig;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ai.paas.ipaas.mcs.exception.CacheException;
+import com.ai.paas.util.StringUtil;
+
+import redis.clients.jedis.BuilderFactory;
+import redis.clients.jedis.Client;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Protocol.Command;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.commands.ProtocolCommand;
+import redis.clients.jedis.exceptions.JedisAskDataException;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisRedirectionException;
+import redis.clients.jedis.util.JedisClusterCRC16;
+import redis.clients.jedis.util.SafeEncoder;
+
+/**
+ * 集群模式的pipeline。每条命令按key的slot路由到所在节点，每个节点使用一条连接缓存命令，
+ * sync时先把所有节点的命令一起发出，再按提交顺序读取结果；收到MOVED/ASK的命令单独重发到目标节点，其他命令不受影响。
+ * 只支持单key命令，多key命令、无key命令以及事务会抛出CacheException。
+ */
+public class ClusterPipeline extends Pipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterPipeline.class);
+
+    private static final int MAX_REDIRECTIONS = 5;
+
+    private final IntFunction<HostAndPort> router;
+    private final GenericKeyedObjectPool<HostAndPort, NodeClient> clientPool;
+    private final Runnable onMoved;
+    private final Map<HostAndPort, NodeClient> clients = new HashMap<>();
+    private List<PendingCommand> commands = new ArrayList<>();
+    /**
+     * 读取结果的过程中出错时连接上可能残留未读的结果，不能再放回连接池
+     */
+    private boolean unread = false;
+
+    /**
+     * @param router     根据slot找到所在节点
+     * @param clientPool 各节点的连接池
+     * @param onMoved    收到MOVED时调用，用于刷新slot分布
+     */
+    ClusterPipeline(IntFunction<HostAndPort> router, GenericKeyedObjectPool<HostAndPort, NodeClient> clientPool,
+            Runnable onMoved) {
+        this.router = router;
+        this.clientPool = clientPool;
+        this.onMoved = onMoved;
+        setClient(new UnsupportedClient());
+    }
+
+    /**
+     * 创建各节点pipeline连接的连接池
+     *
+     * @param config  连接池配置
+     * @param pwd     密码
+     * @param timeout 连接和读取超时，毫秒
+     * @return
+     */
+    static GenericKeyedObjectPool<HostAndPort, NodeClient> createClientPool(
+            @SuppressWarnings("rawtypes") GenericObjectPoolConfig config, String pwd, int timeout) {
+        GenericKeyedObjectPoolConfig<NodeClient> poolConfig = new GenericKeyedObjectPoolConfig<>();
+        poolConfig.setMaxTotalPerKey(config.getMaxTotal());
+        poolConfig.setMaxIdlePerKey(config.getMaxIdle());
+        poolConfig.setMaxWaitMillis(config.getMaxWaitMillis());
+        poolConfig.setTestOnBorrow(true);
+        return new GenericKeyedObjectPool<>(new BaseKeyedPooledObjectFactory<HostAndPort, NodeClient>() {
+
+            @Override
+            public NodeClient create(HostAndPort node) {
+                NodeClient client = new NodeClient(node);
+                client.setConnectionTimeout(timeout);
+                client.setSoTimeout(timeout);
+                if (!StringUtil.isBlank(pwd))
+                    client.setPassword(pwd);
+                client.connect();
+                return client;
+            }
+
+            @Override
+            public PooledObject<NodeClient> wrap(NodeClient client) {
+                return new DefaultPooledObject<>(client);
+            }
+
+            @Override
+            public boolean validateObject(HostAndPort node, PooledObject<NodeClient> p) {
+                return p.getObject().isConnected() && !p.getObject().isBroken();
+            }
+
+            @Override
+            public void destroyObject(HostAndPort node, PooledObject<NodeClient> p) {
+                p.getObject().close();
+            }
+        }, poolConfig);
+    }
+
+    @Override
+    protected Client getClient(String key) {
+        return getClient(SafeEncoder.encode(key));
+    }
+
+    @Override
+    protected Client getClient(byte[] key) {
+        HostAndPort node = router.apply(JedisClusterCRC16.getSlot(key));
+        if (null == node)
+            throw new CacheException("No node serves the slot of key " + SafeEncoder.encode(key));
+        return clientOf(node);
+    }
+
+    private NodeClient clientOf(HostAndPort node) {
+        NodeClient client = clients.get(node);
+        if (null == client) {
+            try {
+                client = clientPool.borrowObject(node);
+            } catch (Exception e) {
+                throw new CacheException(e);
+            }
+            client.pipeline = this;
+            clients.put(node, client);
+        }
+        return client;
+    }
+
+    void onCommand(NodeClient client, ProtocolCommand cmd, byte[]... args) {
+        commands.add(new PendingCommand(client, cmd, args));
+    }
+
+    /**
+     * 脚本按第一个key路由，所有key必须在同一slot
+     */
+    @Override
+    public Response<Object> eval(String script, int keyCount, String... params) {
+        getScriptClient(keyCount, params).eval(script, keyCount, params);
+        return getResponse(BuilderFactory.EVAL_RESULT);
+    }
+
+    @Override
+    public Response<Object> evalsha(String sha1, int keyCount, String... params) {
+        getScriptClient(keyCount, params).evalsha(sha1, keyCount, params);
+        return getResponse(BuilderFactory.EVAL_RESULT);
+    }
+
+    @Override
+    public Response<Object> eval(byte[] script, int keyCount, byte[]... params) {
+        getScriptClient(keyCount, params).eval(script, keyCount, params);
+        return getResponse(BuilderFactory.EVAL_BINARY_RESULT);
+    }
+
+    @Override
+    public Response<Object> evalsha(byte[] sha1, int keyCount, byte[]... params) {
+        getScriptClient(keyCount, params).evalsha(sha1, keyCount, params);
+        return getResponse(BuilderFactory.EVAL_BINARY_RESULT);
+    }
+
+    private Client getScriptClient(int keyCount, String... params) {
+        if (keyCount < 1)
+            throw new CacheException("Scripts without keys are not supported in cluster pipeline.");
+        return getClient(params[0]);
+    }
+
+    private Client getScriptClient(int keyCount, byte[]... params) {
+        if (keyCount < 1)
+            throw new CacheException("Scripts without keys are not supported in cluster pipeline.");
+        return getClient(params[0]);
+    }
+
+    @Override
+    public Response<String> multi() {
+        throw new CacheException("Transaction is not supported in cluster pipeline.");
+    }
+
+    @Override
+    public void sync() {
+        for (Object reply : readAll()) {
+            generateResponse(reply);
+        }
+    }
+
+    @Override
+    public List<Object> syncAndReturnAll() {
+        List<Object> replies = readAll();
+        List<Object> formatted = new ArrayList<>(replies.size());
+        for (Object reply : replies) {
+            try {
+                formatted.add(generateResponse(reply).get());
+            } catch (JedisDataException e) {
+                formatted.add(e);
+            }
+        }
+        return formatted;
+    }
+
+    /**
+     * 发出所有缓存的命令，按提交顺序返回结果
+     */
+    private List<Object> readAll() {
+        if (commands.isEmpty())
+            return Collections.emptyList();
+        List<PendingCommand> pending = commands;
+        commands = new ArrayList<>();
+        unread = true;
+        for (NodeClient client : clients.values()) {
+            client.flushCommands();
+        }
+        Object[] replies = new Object[pending.size()];
+        List<Integer> redirected = new ArrayList<>();
+        for (int i = 0; i < replies.length; i++) {
+            replies[i] = read(pending.get(i).client);
+            if (replies[i] instanceof JedisRedirectionException)
+                redirected.add(i);
+        }
+        for (int attempt = 0; attempt < MAX_REDIRECTIONS && !redirected.isEmpty(); attempt++) {
+            redirected = redirect(pending, replies, redirected);
+        }
+        unread = false;
+        return Arrays.asList(replies);
+    }
+
+    /**
+     * 把收到MOVED/ASK的命令重发到目标节点，返回仍需重定向的命令
+     */
+    private List<Integer> redirect(List<PendingCommand> pending, Object[] replies, List<Integer> redirected) {
+        boolean moved = false;
+        for (int i : redirected) {
+            JedisRedirectionException e = (JedisRedirectionException) replies[i];
+            PendingCommand command = pending.get(i);
+            command.client = clientOf(e.getTargetNode());
+            command.asking = e instanceof JedisAskDataException;
+            if (command.asking)
+                command.client.resend(Command.ASKING);
+            else
+                moved = true;
+            command.client.resend(command.cmd, command.args);
+        }
+        if (moved) {
+            try {
+                onMoved.run();
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
+            }
+        }
+        List<Integer> again = new ArrayList<>();
+        for (int i : redirected) {
+            PendingCommand command = pending.get(i);
+            if (command.asking)
+                read(command.client);
+            replies[i] = read(command.client);
+            if (replies[i] instanceof JedisRedirectionException)
+                again.add(i);
+        }
+        return again;
+    }
+
+    private static Object read(NodeClient client) {
+        try {
+            return client.getOne();
+        } catch (JedisConnectionException e) {
+            throw new CacheException(e);
+        } catch (JedisDataException e) {
+            return e;
+        }
+    }
+
+    /**
+     * 发出剩余命令并把各节点连接归还连接池
+     */
+    @Override
+    public void close() {
+        try {
+            super.close();
+        } finally {
+            for (Map.Entry<HostAndPort, NodeClient> entry : clients.entrySet()) {
+                NodeClient client = entry.getValue();
+                client.pipeline = null;
+                try {
+                    if (client.isBroken() || unread)
+                        clientPool.invalidateObject(entry.getKey(), client);
+                    else
+                        clientPool.returnObject(entry.getKey(), client);
+                } catch (Exception e) {
+                    log.error(e.getMessage(), e);
+                }
+            }
+            clients.clear();
+            commands.clear();
+        }
+    }
+
+    private static class PendingCommand {
+        NodeClient client;
+        final ProtocolCommand cmd;
+        final byte[][] args;
+        boolean asking;
+
+        PendingCommand(NodeClient client, ProtocolCommand cmd, byte[][] args) {
+            this.client = client;
+            this.cmd = cmd;
+            this.args = args;
+        }
+    }
+
+    /**
+     * 单个节点的连接，在pipeline中使用时记录发出的每条命令，以便重定向时重发
+     */
+    static class NodeClient extends Client {
+        ClusterPipeline pipeline;
+
+        NodeClient(HostAndPort node) {
+            super(node.getHost(), node.getPort());
+        }
+
+        @Override
+        public void sendCommand(ProtocolCommand cmd, byte[]... args) {
+            if (null != pipeline)
+                pipeline.onCommand(this, cmd, args);
+            super.sendCommand(cmd, args);
+        }
+
+        void resend(ProtocolCommand cmd, byte[]... args) {
+            super.sendCommand(cmd, args);
+        }
+
+        void flushCommands() {
+            flush();
+        }
+    }
+
+    /**
+     * 多key命令和无key命令无法确定节点，直接拒绝
+     */
+    private static class UnsupportedClient extends Client {
+        @Override
+        public void sendCommand(ProtocolCommand cmd, byte[]... args) {
+            throw new CacheException("Only single-key commands are supported in cluster pipeline, " + cmd + " is not.");
+        }
+    }
+}
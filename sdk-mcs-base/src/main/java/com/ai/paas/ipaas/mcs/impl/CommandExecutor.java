@@ -0,0 +1,210 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ai.paas.ipaas.mcs.exception.CacheException;
+
+import redis.clients.jedis.exceptions.JedisClusterException;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+/**
+ * 统一的命令执行器，所有ICacheClient的操作都通过它执行。 负责获取/归还连接，按照RetryPolicy对连接类异常做有限次数的重试，
+ * 并把连接异常上报给HealthChecker。读超时等异常发生时命令可能已经执行，只是没有收到回复，
+ * 重复执行会再次改变数据的命令（如incr、lpush、lpop）只在获取连接或建立连接失败、命令确定没有发出时重试。请求线程不再自己探测redis或重建连接池；
+ * 当HealthChecker已经判定redis不可用时，请求只执行一次，不再重试。
+ * 每次执行前先经过CircuitBreaker，熔断打开时直接失败，不占用连接。
+ * 每次调用的耗时、错误、超时和重试记录到CommandMetrics，并按采样通知注册的CommandListener。
+ *
+ * @param <C> 连接类型，如Jedis、JedisCluster
+ */
+public class CommandExecutor<C> {
+
+    private static final Logger log = LoggerFactory.getLogger(CommandExecutor.class);
+
+    /**
+     * 不能重复执行的命令，名称与execute的command参数一致
+     */
+    private static final Set<String> NON_IDEMPOTENT = new HashSet<>(Arrays.asList("acquireLock", "decr", "decrBy",
+            "eval", "evalsha", "hincrBy", "hincrByFloat", "hsetnx", "incr", "incrBy", "incrByFloat", "lpop", "lpush",
+            "lrem", "publish", "rename", "rpop", "rpush", "setnx", "zincrby"));
+
+    /**
+     * 在一个连接上执行的命令
+     */
+    public interface Command<C, R> {
+        R execute(C connection) throws Exception;
+    }
+
+    /**
+     * 连接的获取与归还
+     */
+    public interface ConnectionProvider<C> {
+        C borrow();
+
+        void release(C connection);
+
+        static <C> ConnectionProvider<C> of(Supplier<C> borrow, Consumer<C> release) {
+            return new ConnectionProvider<C>() {
+                @Override
+                public C borrow() {
+                    return borrow.get();
+                }
+
+                @Override
+                public void release(C connection) {
+                    release.accept(connection);
+                }
+            };
+        }
+    }
+
+    private final String name;
+    private final ConnectionProvider<C> provider;
+    private final RetryPolicy retryPolicy;
+    private final HealthChecker healthChecker;
+    private final CircuitBreaker circuitBreaker;
+    private final CommandMetrics metrics;
+    private final CommandListeners listeners = new CommandListeners();
+
+    public CommandExecutor(String name, ConnectionProvider<C> provider, RetryPolicy retryPolicy,
+            HealthChecker healthChecker) {
+        this(name, provider, retryPolicy, healthChecker, new CircuitBreaker(name));
+    }
+
+    public CommandExecutor(String name, ConnectionProvider<C> provider, RetryPolicy retryPolicy,
+            HealthChecker healthChecker, CircuitBreaker circuitBreaker) {
+        this.name = name;
+        this.provider = provider;
+        this.retryPolicy = retryPolicy;
+        this.healthChecker = healthChecker;
+        this.circuitBreaker = circuitBreaker;
+        this.metrics = new CommandMetrics(name);
+    }
+
+    /**
+     * 执行一个命令
+     *
+     * @param command 命令名称，用于日志
+     * @param cmd     命令
+     * @return 命令的返回值
+     */
+    public <R> R execute(String command, Command<C, R> cmd) {
+        CommandMetrics.Stat stat = metrics.of(command);
+        long begin = System.nanoTime();
+        Throwable error = null;
+        try {
+            return executeWithRetry(command, cmd, stat);
+        } catch (RuntimeException | Error e) {
+            error = e;
+            throw e;
+        } finally {
+            long duration = System.nanoTime() - begin;
+            stat.record(duration, null != error);
+            listeners.fire(name, command, duration, error);
+        }
+    }
+
+    private <R> R executeWithRetry(String command, Command<C, R> cmd, CommandMetrics.Stat stat) {
+        int attempt = 0;
+        while (true) {
+            attempt++;
+            circuitBreaker.acquirePermission();
+            long start = System.nanoTime();
+            RuntimeException retryCause = null;
+            C connection = null;
+            try {
+                connection = provider.borrow();
+                metrics.recordBorrow(System.nanoTime() - start);
+                return cmd.execute(connection);
+            } catch (JedisConnectionException | JedisClusterException e) {
+                retryCause = e;
+                stat.attemptFailed(e);
+                healthChecker.reportFailure();
+                if (attempt >= retryPolicy.getMaxAttempts() || !healthChecker.isHealthy()
+                        || (mayHaveRun(connection, e) && NON_IDEMPOTENT.contains(command))) {
+                    log.error(name + " " + command + " failed after " + attempt + " attempt(s): " + e.getMessage(), e);
+                    throw new CacheException(e);
+                }
+            } catch (CacheException e) {
+                stat.attemptFailed(e);
+                throw e;
+            } catch (Exception e) {
+                stat.attemptFailed(e);
+                throw new CacheException(e);
+            } finally {
+                if (null != connection)
+                    provider.release(connection);
+                circuitBreaker.onResult(command, System.nanoTime() - start, null != retryCause);
+            }
+            stat.retried();
+            backoff(attempt, retryCause);
+        }
+    }
+
+    /**
+     * 命令是否可能已经发出：连接已取得，且不是建立连接时的失败（集群模式下连接在命令中建立）
+     */
+    private static boolean mayHaveRun(Object connection, Exception e) {
+        if (null == connection)
+            return false;
+        for (Throwable t = e; null != t; t = t.getCause()) {
+            if (t instanceof ConnectException || t instanceof NoRouteToHostException
+                    || t instanceof UnknownHostException)
+                return false;
+            if (t instanceof SocketTimeoutException && String.valueOf(t.getMessage()).contains("connect timed out"))
+                return false;
+        }
+        return true;
+    }
+
+    private void backoff(int attempt, Exception cause) {
+        long sleep = retryPolicy.backoffMillis(attempt);
+        if (sleep <= 0)
+            return;
+        try {
+            Thread.sleep(sleep);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new CacheException(cause);
+        }
+    }
+
+    public ConnectionProvider<C> getProvider() {
+        return provider;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    public HealthChecker getHealthChecker() {
+        return healthChecker;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public CommandMetrics getMetrics() {
+        return metrics;
+    }
+
+    public CommandListeners getListeners() {
+        return listeners;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
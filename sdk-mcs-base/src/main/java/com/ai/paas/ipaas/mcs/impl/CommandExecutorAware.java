@@ -0,0 +1,36 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+/**
+ * 通过CommandExecutor执行命令的客户端，可以取得执行器以调整重试、熔断等策略
+ */
+public interface CommandExecutorAware {
+
+    CommandExecutor<?> getCommandExecutor();
+
+    /**
+     * 熔断器，可以调整配置、注册状态变化监听、获取统计
+     *
+     * @return
+     */
+    default CircuitBreaker getCircuitBreaker() {
+        return getCommandExecutor().getCircuitBreaker();
+    }
+
+    /**
+     * 按命令统计的耗时与计数
+     *
+     * @return
+     */
+    default CommandMetrics getCommandMetrics() {
+        return getCommandExecutor().getMetrics();
+    }
+
+    /**
+     * 命令执行的监听，可以按采样和慢调用阈值注册
+     *
+     * @return
+     */
+    default CommandListeners getCommandListeners() {
+        return getCommandExecutor().getListeners();
+    }
+}
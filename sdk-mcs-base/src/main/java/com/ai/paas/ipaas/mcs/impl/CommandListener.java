@@ -0,0 +1,17 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+/**
+ * 命令执行完成的监听，用于记录耗时、慢调用告警、链路追踪等，通过CommandListeners注册并设置采样。
+ * 在执行命令的线程中同步调用（异步客户端为lettuce的IO线程），实现不要阻塞。
+ */
+public interface CommandListener {
+
+    /**
+     * @param client        客户端名称
+     * @param command       命令名称
+     * @param durationNanos 耗时，包括重试
+     * @param slow          是否达到注册时设置的慢调用阈值
+     * @param error         失败时的异常，成功时为null
+     */
+    void onCommand(String client, String command, long durationNanos, boolean slow, Throwable error);
+}
@@ -0,0 +1,80 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 一个客户端上注册的CommandListener。每个监听可以设置采样：平均每N次调用通知一次，
+ * 慢调用和失败的调用总是通知。没有注册监听时，每次调用只多一次空列表判断。
+ */
+public class CommandListeners {
+
+    private static final Logger log = LoggerFactory.getLogger(CommandListeners.class);
+
+    private static final class Registration {
+        final CommandListener listener;
+        final int sampleEvery;
+        final long slowThresholdNanos;
+
+        Registration(CommandListener listener, int sampleEvery, long slowThresholdNanos) {
+            this.listener = listener;
+            this.sampleEvery = sampleEvery;
+            this.slowThresholdNanos = slowThresholdNanos;
+        }
+    }
+
+    private final List<Registration> registrations = new CopyOnWriteArrayList<>();
+
+    /**
+     * 每次调用都通知，不区分慢调用
+     */
+    public void add(CommandListener listener) {
+        add(listener, 1, 0);
+    }
+
+    /**
+     * @param listener            监听
+     * @param sampleEvery         平均每多少次调用通知一次，1表示每次都通知，0表示只通知慢调用和失败的调用
+     * @param slowThresholdMillis 慢调用阈值(ms)，达到阈值的调用总是通知，0表示不区分慢调用
+     */
+    public void add(CommandListener listener, int sampleEvery, long slowThresholdMillis) {
+        if (sampleEvery < 0 || slowThresholdMillis < 0)
+            throw new IllegalArgumentException("sampleEvery and slowThresholdMillis must not be negative");
+        long slowThresholdNanos = slowThresholdMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis)
+                : Long.MAX_VALUE;
+        registrations.add(new Registration(listener, sampleEvery, slowThresholdNanos));
+    }
+
+    public void remove(CommandListener listener) {
+        registrations.removeIf(registration -> registration.listener == listener);
+    }
+
+    /**
+     * 通知一次调用的结果
+     */
+    void fire(String client, String command, long durationNanos, Throwable error) {
+        if (registrations.isEmpty())
+            return;
+        for (Registration registration : registrations) {
+            boolean slow = durationNanos >= registration.slowThresholdNanos;
+            if (!slow && null == error && !sampled(registration.sampleEvery))
+                continue;
+            try {
+                registration.listener.onCommand(client, command, durationNanos, slow, error);
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
+            }
+        }
+    }
+
+    private static boolean sampled(int sampleEvery) {
+        if (sampleEvery <= 1)
+            return sampleEvery == 1;
+        return ThreadLocalRandom.current().nextInt(sampleEvery) == 0;
+    }
+}
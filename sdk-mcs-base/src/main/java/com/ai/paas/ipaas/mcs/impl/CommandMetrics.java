@@ -0,0 +1,302 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.net.SocketTimeoutException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import io.lettuce.core.RedisCommandTimeoutException;
+
+/**
+ * 按命令统计的耗时直方图与计数，每个客户端实例一份。
+ * 记录时只有无锁的计数和HdrHistogram的Recorder，第一次出现某个命令之后不再分配内存，可以在生产环境常开；
+ * 直方图在snapshot()时才合并，合并和复制的开销都在读取方。
+ * 耗时为调用方看到的整个调用的耗时，包括重试和退避；另外单独统计从连接池获取连接的等待时间。
+ */
+public class CommandMetrics {
+
+    /**
+     * 直方图的精度为1微秒，最大1分钟，超过的按1分钟记录
+     */
+    private static final long LOWEST_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+    private static final long HIGHEST_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    /**
+     * 连接池等待时间在快照中的名称
+     */
+    public static final String BORROW = "(borrow)";
+
+    /**
+     * 一个命令的统计，记录方法都是无锁的
+     */
+    static final class Stat {
+        private final Recorder recorder = new Recorder(LOWEST_NANOS, HIGHEST_NANOS, SIGNIFICANT_DIGITS);
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        /**
+         * 以下两个只在snapshot时持有本对象的锁访问
+         */
+        private final Histogram total = new Histogram(LOWEST_NANOS, HIGHEST_NANOS, SIGNIFICANT_DIGITS);
+        private Histogram interval;
+
+        /**
+         * 记录一次调用
+         *
+         * @param durationNanos 耗时
+         * @param failed        是否以异常结束
+         */
+        void record(long durationNanos, boolean failed) {
+            recorder.recordValue(Math.min(Math.max(durationNanos, 0), HIGHEST_NANOS));
+            if (failed)
+                errors.increment();
+        }
+
+        /**
+         * 一次尝试失败，超时单独计数；调用最终是否失败由record记录
+         */
+        void attemptFailed(Throwable e) {
+            if (isTimeout(e))
+                timeouts.increment();
+        }
+
+        void retried() {
+            retries.increment();
+        }
+
+        synchronized CommandStats snapshot(String command, long elapsedMillis) {
+            interval = recorder.getIntervalHistogram(interval);
+            total.add(interval);
+            return new CommandStats(command, total.copy(), errors.sum(), timeouts.sum(), retries.sum(),
+                    elapsedMillis);
+        }
+
+        synchronized void reset() {
+            interval = recorder.getIntervalHistogram(interval);
+            total.reset();
+            errors.reset();
+            timeouts.reset();
+            retries.reset();
+        }
+    }
+
+    private final String name;
+    private final Map<String, Stat> stats = new ConcurrentHashMap<>();
+    private final Stat borrow = new Stat();
+    private volatile long startMillis = System.currentTimeMillis();
+
+    public CommandMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 取命令的统计，调用方在一次调用中只取一次
+     */
+    Stat of(String command) {
+        Stat stat = stats.get(command);
+        return null != stat ? stat : stats.computeIfAbsent(command, c -> new Stat());
+    }
+
+    /**
+     * 记录从连接池获取连接的耗时
+     */
+    void recordBorrow(long durationNanos) {
+        borrow.record(durationNanos, false);
+    }
+
+    static boolean isTimeout(Throwable e) {
+        for (Throwable cause = e; null != cause; cause = cause.getCause()) {
+            if (cause instanceof SocketTimeoutException || cause instanceof TimeoutException
+                    || cause instanceof RedisCommandTimeoutException)
+                return true;
+        }
+        return false;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 自创建或上次reset以来的累计统计
+     *
+     * @return
+     */
+    public Snapshot snapshot() {
+        long now = System.currentTimeMillis();
+        long elapsed = now - startMillis;
+        Map<String, CommandStats> commands = new TreeMap<>();
+        for (Map.Entry<String, Stat> entry : stats.entrySet()) {
+            commands.put(entry.getKey(), entry.getValue().snapshot(entry.getKey(), elapsed));
+        }
+        return new Snapshot(name, startMillis, now, commands, borrow.snapshot(BORROW, elapsed));
+    }
+
+    /**
+     * 清零所有统计，重新开始计时
+     */
+    public void reset() {
+        for (Stat stat : stats.values()) {
+            stat.reset();
+        }
+        borrow.reset();
+        startMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * 一个客户端的统计快照
+     */
+    public static class Snapshot {
+        private final String name;
+        private final long startMillis;
+        private final long endMillis;
+        private final Map<String, CommandStats> commands;
+        private final CommandStats borrowWait;
+
+        Snapshot(String name, long startMillis, long endMillis, Map<String, CommandStats> commands,
+                CommandStats borrowWait) {
+            this.name = name;
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+            this.commands = Collections.unmodifiableMap(commands);
+            this.borrowWait = borrowWait;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        public long getEndMillis() {
+            return endMillis;
+        }
+
+        /**
+         * 按命令名排序
+         */
+        public Map<String, CommandStats> getCommands() {
+            return commands;
+        }
+
+        /**
+         * @return 命令没有执行过时返回null
+         */
+        public CommandStats getCommand(String command) {
+            return commands.get(command);
+        }
+
+        /**
+         * 从连接池获取连接的等待时间
+         */
+        public CommandStats getBorrowWait() {
+            return borrowWait;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("CommandMetrics[").append(name).append(", ")
+                    .append(endMillis - startMillis).append("ms]");
+            for (CommandStats stats : commands.values()) {
+                sb.append("\n  ").append(stats);
+            }
+            return sb.append("\n  ").append(borrowWait).toString();
+        }
+    }
+
+    /**
+     * 一个命令的统计，耗时单位为纳秒
+     */
+    public static class CommandStats {
+        private final String command;
+        private final Histogram histogram;
+        private final long errors;
+        private final long timeouts;
+        private final long retries;
+        private final long elapsedMillis;
+
+        CommandStats(String command, Histogram histogram, long errors, long timeouts, long retries,
+                long elapsedMillis) {
+            this.command = command;
+            this.histogram = histogram;
+            this.errors = errors;
+            this.timeouts = timeouts;
+            this.retries = retries;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public String getCommand() {
+            return command;
+        }
+
+        /**
+         * 调用次数，包括失败的调用
+         */
+        public long getCount() {
+            return histogram.getTotalCount();
+        }
+
+        /**
+         * 以异常结束的调用次数，包括被熔断拒绝的调用
+         */
+        public long getErrors() {
+            return errors;
+        }
+
+        /**
+         * 超时的尝试次数，重试成功的也计入
+         */
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        public long getRetries() {
+            return retries;
+        }
+
+        /**
+         * 统计期间的平均每秒调用次数
+         */
+        public double getThroughput() {
+            return elapsedMillis <= 0 ? 0 : getCount() * 1000d / elapsedMillis;
+        }
+
+        public double getMeanNanos() {
+            return histogram.getMean();
+        }
+
+        public long getMaxNanos() {
+            return histogram.getMaxValue();
+        }
+
+        /**
+         * @param percentile 百分位，如99.9
+         * @return 耗时(ns)
+         */
+        public long getValueAtPercentile(double percentile) {
+            return histogram.getValueAtPercentile(percentile);
+        }
+
+        @Override
+        public String toString() {
+            return command + "[count=" + getCount() + ", errors=" + errors + ", timeouts=" + timeouts + ", retries="
+                    + retries + ", p50=" + micros(getValueAtPercentile(50)) + "us, p99="
+                    + micros(getValueAtPercentile(99)) + "us, p999=" + micros(getValueAtPercentile(99.9))
+                    + "us, max=" + micros(getMaxNanos()) + "us]";
+        }
+
+        private static long micros(long nanos) {
+            return TimeUnit.NANOSECONDS.toMicros(nanos);
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import com.ai.paas.ipaas.mcs.ICacheClient;
+import com.ai.paas.ipaas.mcs.ICacheLock;
+import com.ai.paas.ipaas.mcs.ICacheReadWriteLock;
+import com.ai.paas.ipaas.mcs.LockHandle;
+import com.ai.paas.ipaas.mcs.exception.CacheException;
+
+/**
+ * 基于单个key的分布式锁。加锁使用SET NX PX，毫秒级有效期；释放锁由lua脚本比较标识后删除，避免误删其他持有者的锁。
+ * 获取不到锁时不轮询：开启通知时订阅锁的释放频道，释放锁时脚本发布消息唤醒等待者；
+ * 同时以锁的剩余有效期作为等待上限，持有者未释放而锁过期时也能及时重试。
+ * 不支持发布订阅的模式（如codis）关闭通知，按剩余有效期做有上限的退避重试。
+ * 可重入锁和读写锁见ScriptLock，等待方式相同。
+ */
+public class DistributedLock {
+
+    private static final String LOCK_PREFIX = "lock:";
+    static final String CHANNEL_SUFFIX = ":released";
+
+    /**
+     * 加锁成功返回{1, fencing token}，没有传入计数器key时token为0；
+     * 否则返回{0, 锁的剩余有效期(ms)}，锁恰好过期时有效期为0；顺便为没有有效期的锁补上有效期
+     */
+    static final LuaScript ACQUIRE = new LuaScript(
+            "if redis.call('set', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then "
+                    + "if KEYS[2] then return {1, redis.call('incr', KEYS[2])} end return {1, 0} end "
+                    + "local ttl = redis.call('pttl', KEYS[1]) "
+                    + "if ttl == -2 then return {0, 0} end "
+                    + "if ttl == -1 then redis.call('pexpire', KEYS[1], ARGV[2]) ttl = tonumber(ARGV[2]) end "
+                    + "return {0, ttl}");
+
+    /**
+     * 标识一致时删除锁并通知等待者，返回1；否则返回0
+     */
+    static final LuaScript RELEASE = new LuaScript(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then redis.call('del', KEYS[1]) "
+                    + "if ARGV[2] ~= '' then redis.call('publish', ARGV[2], ARGV[1]) end "
+                    + "return 1 end return 0");
+
+    /**
+     * 等待订阅生效的最长时间
+     */
+    private static final long SUBSCRIBE_TIMEOUT = 1000;
+    private static final long MIN_BACKOFF = 10;
+    private static final long MAX_BACKOFF = 200;
+
+    private final ICacheClient client;
+    private final LockWatcher watcher;
+    /**
+     * 区分不同客户端实例的线程，用于可重入锁
+     */
+    private final String clientId = UUID.randomUUID().toString();
+    private volatile LockWatchdog watchdog;
+
+    /**
+     * 一次加锁尝试的结果，加锁脚本都返回{是否成功, 值}
+     */
+    static final class Attempt {
+        final boolean acquired;
+        /**
+         * 成功时为fencing token或可重入锁的持有次数，失败时为需要等待的时间(ms)
+         */
+        final long value;
+
+        Attempt(boolean acquired, long value) {
+            this.acquired = acquired;
+            this.value = value;
+        }
+
+        static Attempt of(Object reply) {
+            if (!(reply instanceof List) || ((List<?>) reply).size() != 2)
+                throw new CacheException("Unexpected lock script reply: " + reply);
+            List<?> values = (List<?>) reply;
+            return new Attempt(Long.valueOf(1).equals(values.get(0)), (Long) values.get(1));
+        }
+    }
+
+    /**
+     * @param client 执行脚本的客户端
+     * @param pubSub 是否通过发布订阅唤醒等待者
+     */
+    public DistributedLock(ICacheClient client, boolean pubSub) {
+        this.client = client;
+        this.watcher = pubSub ? new LockWatcher(client) : null;
+    }
+
+    /**
+     * 获取锁
+     *
+     * @param lockName           锁名称
+     * @param acquireTimeoutInMS 获取锁超时时间(ms)
+     * @param lockTimeoutInMS    锁的有效期(ms)
+     * @return 锁标识，超时或线程被中断时返回null
+     * @throws IllegalArgumentException 有效期不大于0
+     */
+    public String acquire(String lockName, long acquireTimeoutInMS, long lockTimeoutInMS) {
+        checkLease(lockTimeoutInMS);
+        String identifier = UUID.randomUUID().toString();
+        Attempt attempt = acquire(ACQUIRE, Collections.singletonList(LOCK_PREFIX + lockName),
+                Arrays.asList(identifier, String.valueOf(lockTimeoutInMS)), acquireTimeoutInMS);
+        return null == attempt ? null : identifier;
+    }
+
+    /**
+     * 获取自动续期的锁，同时生成fencing token。计数器key以锁key作为hash tag，集群模式下与锁位于同一slot
+     *
+     * @param lockName           锁名称
+     * @param acquireTimeoutInMS 获取锁超时时间(ms)
+     * @param leaseTimeInMS      租期(ms)，每隔三分之一租期续期一次
+     * @return 锁，超时或线程被中断时返回null
+     * @throws IllegalArgumentException 租期不大于0
+     */
+    public LockHandle acquireRenewable(String lockName, long acquireTimeoutInMS, long leaseTimeInMS) {
+        checkLease(leaseTimeInMS);
+        String lockKey = LOCK_PREFIX + lockName;
+        String identifier = UUID.randomUUID().toString();
+        Attempt attempt = acquire(ACQUIRE, Arrays.asList(lockKey, "{" + lockKey + "}:fence"),
+                Arrays.asList(identifier, String.valueOf(leaseTimeInMS)), acquireTimeoutInMS);
+        if (null == attempt)
+            return null;
+        RenewableLock lock = new RenewableLock(this, lockName, lockKey, identifier, attempt.value, leaseTimeInMS);
+        watchdog().watch(lock);
+        return lock;
+    }
+
+    /**
+     * 可重入锁
+     *
+     * @param lockName 锁名称
+     */
+    public ICacheLock reentrantLock(String lockName) {
+        return ScriptLock.reentrant(this, lockName);
+    }
+
+    /**
+     * 读写锁
+     *
+     * @param lockName 锁名称
+     */
+    public ICacheReadWriteLock readWriteLock(String lockName) {
+        ICacheLock readLock = ScriptLock.read(this, lockName);
+        ICacheLock writeLock = ScriptLock.write(this, lockName);
+        return new ICacheReadWriteLock() {
+
+            @Override
+            public ICacheLock readLock() {
+                return readLock;
+            }
+
+            @Override
+            public ICacheLock writeLock() {
+                return writeLock;
+            }
+        };
+    }
+
+    /**
+     * redis拒绝PX 0和负数的有效期，提前检查，不把错误留到执行脚本时
+     */
+    static void checkLease(long leaseTimeInMS) {
+        if (leaseTimeInMS <= 0)
+            throw new IllegalArgumentException("lease time must be at least 1ms, got " + leaseTimeInMS);
+    }
+
+    /**
+     * 当前线程在可重入锁中的持有者标识
+     */
+    String currentOwner() {
+        return clientId + ":" + Thread.currentThread().getId();
+    }
+
+    /**
+     * 释放通知频道，不使用通知时为空串
+     */
+    String channelOf(String lockKey) {
+        return null == watcher ? "" : lockKey + CHANNEL_SUFFIX;
+    }
+
+    Object eval(LuaScript script, List<String> keys, List<String> args) {
+        return script.eval(client, keys, args);
+    }
+
+    private LockWatchdog watchdog() {
+        if (null == watchdog) {
+            synchronized (this) {
+                if (null == watchdog)
+                    watchdog = new LockWatchdog(client);
+            }
+        }
+        return watchdog;
+    }
+
+    /**
+     * 反复执行加锁脚本直到成功，成功时返回加锁结果，超时或线程被中断时返回null。第一个key为锁key，释放通知按它订阅。
+     * 不等待时只执行一次脚本，不订阅释放通知
+     */
+    Attempt acquire(LuaScript script, List<String> keys, List<String> args, long acquireTimeoutInMS) {
+        Attempt attempt = tryAcquire(script, keys, args);
+        if (attempt.acquired)
+            return attempt;
+        if (acquireTimeoutInMS <= 0)
+            return null;
+        long end = System.currentTimeMillis() + acquireTimeoutInMS;
+        String channel = keys.get(0) + CHANNEL_SUFFIX;
+        LockWatcher.Waiters waiters = null == watcher ? null : watcher.register(channel);
+        try {
+            if (null != waiters) {
+                // 订阅生效前锁可能已经释放，订阅后再试一次
+                waiters.awaitSubscribed(Math.min(Math.max(end - System.currentTimeMillis(), 0), SUBSCRIBE_TIMEOUT));
+                attempt = tryAcquire(script, keys, args);
+                if (attempt.acquired)
+                    return attempt;
+            }
+            long backoff = MIN_BACKOFF;
+            while (true) {
+                long remaining = end - System.currentTimeMillis();
+                if (remaining <= 0)
+                    return null;
+                long wait = Math.min(attempt.value, remaining);
+                if (null != waiters) {
+                    waiters.await(wait);
+                } else if (wait > 0) {
+                    Thread.sleep(Math.min(wait, backoff));
+                    backoff = Math.min(backoff * 2, MAX_BACKOFF);
+                }
+                attempt = tryAcquire(script, keys, args);
+                if (attempt.acquired)
+                    return attempt;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            if (null != waiters)
+                watcher.unregister(channel, waiters);
+        }
+    }
+
+    /**
+     * 释放锁
+     *
+     * @param lockName   锁名称
+     * @param identifier 获取锁时返回的标识
+     * @return 锁由该标识持有并被删除时返回true，锁已过期或被他人持有时返回false
+     */
+    public boolean release(String lockName, String identifier) {
+        String lockKey = LOCK_PREFIX + lockName;
+        Object result = RELEASE.eval(client, Collections.singletonList(lockKey),
+                Arrays.asList(identifier, channelOf(lockKey)));
+        return Long.valueOf(1).equals(result);
+    }
+
+    /**
+     * 停止续期并释放锁
+     */
+    boolean release(RenewableLock lock) {
+        if (null != watchdog)
+            watchdog.unwatch(lock);
+        return release(lock.getLockName(), lock.getIdentifier());
+    }
+
+    /**
+     * 执行一次加锁脚本，子类可以覆盖以便在同一连接上执行后续命令
+     */
+    protected Attempt tryAcquire(LuaScript script, List<String> keys, List<String> args) {
+        return Attempt.of(script.eval(client, keys, args));
+    }
+}
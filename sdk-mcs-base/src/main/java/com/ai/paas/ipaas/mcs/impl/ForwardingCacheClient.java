@@ -0,0 +1,818 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import com.ai.paas.ipaas.mcs.ICacheClient;
+import com.ai.paas.ipaas.mcs.ICacheLock;
+import com.ai.paas.ipaas.mcs.ICacheReadWriteLock;
+import com.ai.paas.ipaas.mcs.LockHandle;
+
+import redis.clients.jedis.GeoCoordinate;
+import redis.clients.jedis.GeoRadiusResponse;
+import redis.clients.jedis.GeoUnit;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Transaction;
+import redis.clients.jedis.Tuple;
+import redis.clients.jedis.params.GeoRadiusParam;
+import redis.clients.jedis.params.ZAddParams;
+import redis.clients.jedis.params.ZIncrByParams;
+
+/**
+ * 把所有操作转发给另一个ICacheClient，用于在已有客户端外增加本地缓存等功能，子类只覆盖需要改变的方法
+ */
+public abstract class ForwardingCacheClient implements ICacheClient {
+
+    protected final ICacheClient delegate;
+
+    protected ForwardingCacheClient(ICacheClient delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * 被包装的客户端
+     *
+     * @return
+     */
+    public ICacheClient getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    @Override
+    public String set(String key, String value) {
+        return delegate.set(key, value);
+    }
+
+    @Override
+    public String setex(String key, int seconds, String value) {
+        return delegate.setex(key, seconds, value);
+    }
+
+    @Override
+    public String get(String key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public Long del(String key) {
+        return delegate.del(key);
+    }
+
+    @Override
+    public Long del(String... keys) {
+        return delegate.del(keys);
+    }
+
+    @Override
+    public Long unlink(String... keys) {
+        return delegate.unlink(keys);
+    }
+
+    @Override
+    public Long expire(String key, int seconds) {
+        return delegate.expire(key, seconds);
+    }
+
+    @Override
+    public Long expireAt(String key, long timestamp) {
+        return delegate.expireAt(key, timestamp);
+    }
+
+    @Override
+    public Long ttl(String key) {
+        return delegate.ttl(key);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return delegate.exists(key);
+    }
+
+    @Override
+    public Long incr(String key) {
+        return delegate.incr(key);
+    }
+
+    @Override
+    public Long incrBy(String key, long increment) {
+        return delegate.incrBy(key, increment);
+    }
+
+    @Override
+    public Long decr(String key) {
+        return delegate.decr(key);
+    }
+
+    @Override
+    public Long decrBy(String key, long decrement) {
+        return delegate.decrBy(key, decrement);
+    }
+
+    @Override
+    public Long lpush(String key, String... strings) {
+        return delegate.lpush(key, strings);
+    }
+
+    @Override
+    public Long rpush(String key, String... strings) {
+        return delegate.rpush(key, strings);
+    }
+
+    @Override
+    public Long lrem(String key, long count, String value) {
+        return delegate.lrem(key, count, value);
+    }
+
+    @Override
+    public Long llen(String key) {
+        return delegate.llen(key);
+    }
+
+    @Override
+    public String lpop(String key) {
+        return delegate.lpop(key);
+    }
+
+    @Override
+    public String rpop(String key) {
+        return delegate.rpop(key);
+    }
+
+    @Override
+    public List<String> lrange(String key, long start, long end) {
+        return delegate.lrange(key, start, end);
+    }
+
+    @Override
+    public List<String> lrangeAll(String key) {
+        return delegate.lrangeAll(key);
+    }
+
+    @Override
+    public Long hset(String key, String field, String value) {
+        return delegate.hset(key, field, value);
+    }
+
+    @Override
+    public Long hsetnx(String key, String field, String value) {
+        return delegate.hsetnx(key, field, value);
+    }
+
+    @Override
+    public String hmset(String key, Map<String, String> hash) {
+        return delegate.hmset(key, hash);
+    }
+
+    @Override
+    public String hget(String key, String field) {
+        return delegate.hget(key, field);
+    }
+
+    @Override
+    public List<String> hmget(String key, String... fields) {
+        return delegate.hmget(key, fields);
+    }
+
+    @Override
+    public Boolean hexists(String key, String field) {
+        return delegate.hexists(key, field);
+    }
+
+    @Override
+    public Long hdel(String key, String... fields) {
+        return delegate.hdel(key, fields);
+    }
+
+    @Override
+    public Long hlen(String key) {
+        return delegate.hlen(key);
+    }
+
+    @Override
+    public Map<String, String> hgetAll(String key) {
+        return delegate.hgetAll(key);
+    }
+
+    @Override
+    public Long sadd(String key, String... members) {
+        return delegate.sadd(key, members);
+    }
+
+    @Override
+    public Set<String> smembers(String key) {
+        return delegate.smembers(key);
+    }
+
+    @Override
+    public Long srem(String key, String... members) {
+        return delegate.srem(key, members);
+    }
+
+    @Override
+    public Long scard(String key) {
+        return delegate.scard(key);
+    }
+
+    @Override
+    public Set<String> sunion(String... keys) {
+        return delegate.sunion(keys);
+    }
+
+    @Override
+    public Set<String> sdiff(String... keys) {
+        return delegate.sdiff(keys);
+    }
+
+    @Override
+    public Long sdiffstore(String dstkey, String... keys) {
+        return delegate.sdiffstore(dstkey, keys);
+    }
+
+    @Override
+    public String set(byte[] key, byte[] value) {
+        return delegate.set(key, value);
+    }
+
+    @Override
+    public String setex(byte[] key, int seconds, byte[] value) {
+        return delegate.setex(key, seconds, value);
+    }
+
+    @Override
+    public byte[] get(byte[] key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public long getStream(byte[] key, OutputStream out) {
+        return delegate.getStream(key, out);
+    }
+
+    @Override
+    public long setStream(byte[] key, InputStream in, int seconds) {
+        return delegate.setStream(key, in, seconds);
+    }
+
+    @Override
+    public Long del(byte[] key) {
+        return delegate.del(key);
+    }
+
+    @Override
+    public Long del(byte[]... keys) {
+        return delegate.del(keys);
+    }
+
+    @Override
+    public Long expire(byte[] key, int seconds) {
+        return delegate.expire(key, seconds);
+    }
+
+    @Override
+    public Long expireAt(byte[] key, long timestamp) {
+        return delegate.expireAt(key, timestamp);
+    }
+
+    @Override
+    public Long ttl(byte[] key) {
+        return delegate.ttl(key);
+    }
+
+    @Override
+    public boolean exists(byte[] key) {
+        return delegate.exists(key);
+    }
+
+    @Override
+    public Long incr(byte[] key) {
+        return delegate.incr(key);
+    }
+
+    @Override
+    public Long incrBy(byte[] key, long increment) {
+        return delegate.incrBy(key, increment);
+    }
+
+    @Override
+    public Long decr(byte[] key) {
+        return delegate.decr(key);
+    }
+
+    @Override
+    public Long decrBy(byte[] key, long decrement) {
+        return delegate.decrBy(key, decrement);
+    }
+
+    @Override
+    public Long lpush(byte[] key, byte[]... strings) {
+        return delegate.lpush(key, strings);
+    }
+
+    @Override
+    public Long rpush(byte[] key, byte[]... strings) {
+        return delegate.rpush(key, strings);
+    }
+
+    @Override
+    public Long llen(byte[] key) {
+        return delegate.llen(key);
+    }
+
+    @Override
+    public Long lrem(byte[] key, long count, byte[] value) {
+        return delegate.lrem(key, count, value);
+    }
+
+    @Override
+    public byte[] lpop(byte[] key) {
+        return delegate.lpop(key);
+    }
+
+    @Override
+    public byte[] rpop(byte[] key) {
+        return delegate.rpop(key);
+    }
+
+    @Override
+    public List<byte[]> lrange(byte[] key, long start, long end) {
+        return delegate.lrange(key, start, end);
+    }
+
+    @Override
+    public List<byte[]> lrangeAll(byte[] key) {
+        return delegate.lrangeAll(key);
+    }
+
+    @Override
+    public Long hset(byte[] key, byte[] field, byte[] value) {
+        return delegate.hset(key, field, value);
+    }
+
+    @Override
+    public Long hsetnx(byte[] key, byte[] field, byte[] value) {
+        return delegate.hsetnx(key, field, value);
+    }
+
+    @Override
+    public Long setnx(byte[] key, byte[] value) {
+        return delegate.setnx(key, value);
+    }
+
+    @Override
+    public Long setnx(String key, String value) {
+        return delegate.setnx(key, value);
+    }
+
+    @Override
+    public String hmset(byte[] key, Map<byte[], byte[]> hash) {
+        return delegate.hmset(key, hash);
+    }
+
+    @Override
+    public byte[] hget(byte[] key, byte[] field) {
+        return delegate.hget(key, field);
+    }
+
+    @Override
+    public List<byte[]> hmget(byte[] key, byte[]... fields) {
+        return delegate.hmget(key, fields);
+    }
+
+    @Override
+    public Boolean hexists(byte[] key, byte[] field) {
+        return delegate.hexists(key, field);
+    }
+
+    @Override
+    public Long hdel(byte[] key, byte[]... fields) {
+        return delegate.hdel(key, fields);
+    }
+
+    @Override
+    public Long hlen(byte[] key) {
+        return delegate.hlen(key);
+    }
+
+    @Override
+    public Map<byte[], byte[]> hgetAll(byte[] key) {
+        return delegate.hgetAll(key);
+    }
+
+    @Override
+    public Long sadd(byte[] key, byte[]... members) {
+        return delegate.sadd(key, members);
+    }
+
+    @Override
+    public Set<byte[]> smembers(byte[] key) {
+        return delegate.smembers(key);
+    }
+
+    @Override
+    public Long srem(byte[] key, byte[]... members) {
+        return delegate.srem(key, members);
+    }
+
+    @Override
+    public Long scard(byte[] key) {
+        return delegate.scard(key);
+    }
+
+    @Override
+    public Set<byte[]> sunion(byte[]... keys) {
+        return delegate.sunion(keys);
+    }
+
+    @Override
+    public Set<byte[]> sdiff(byte[]... keys) {
+        return delegate.sdiff(keys);
+    }
+
+    @Override
+    public Long sdiffstore(byte[] dstkey, byte[]... keys) {
+        return delegate.sdiffstore(dstkey, keys);
+    }
+
+    @Override
+    public Long hincrBy(String key, String field, long value) {
+        return delegate.hincrBy(key, field, value);
+    }
+
+    @Override
+    public Double incrByFloat(String key, double value) {
+        return delegate.incrByFloat(key, value);
+    }
+
+    @Override
+    public Double hincrByFloat(String key, String field, double value) {
+        return delegate.hincrByFloat(key, field, value);
+    }
+
+    @Override
+    public Long zadd(String key, double score, String member) {
+        return delegate.zadd(key, score, member);
+    }
+
+    @Override
+    public Long zadd(String key, double score, String member, ZAddParams params) {
+        return delegate.zadd(key, score, member, params);
+    }
+
+    @Override
+    public Long zadd(String key, Map<String, Double> scoreMembers) {
+        return delegate.zadd(key, scoreMembers);
+    }
+
+    @Override
+    public Long zadd(String key, Map<String, Double> scoreMembers, ZAddParams params) {
+        return delegate.zadd(key, scoreMembers, params);
+    }
+
+    @Override
+    public Long zcount(String key, double min, double max) {
+        return delegate.zcount(key, min, max);
+    }
+
+    @Override
+    public Long zcount(String key, String min, String max) {
+        return delegate.zcount(key, min, max);
+    }
+
+    @Override
+    public Long zcard(String key) {
+        return delegate.zcard(key);
+    }
+
+    @Override
+    public Double zincrby(String key, double score, String member) {
+        return delegate.zincrby(key, score, member);
+    }
+
+    @Override
+    public Double zincrby(String key, double score, String member, ZIncrByParams params) {
+        return delegate.zincrby(key, score, member, params);
+    }
+
+    @Override
+    public Set<String> zrange(String key, long start, long end) {
+        return delegate.zrange(key, start, end);
+    }
+
+    @Override
+    public Set<String> zrangeByScore(String key, double min, double max) {
+        return delegate.zrangeByScore(key, min, max);
+    }
+
+    @Override
+    public Set<String> zrangeByScore(String key, String min, String max) {
+        return delegate.zrangeByScore(key, min, max);
+    }
+
+    @Override
+    public Set<String> zrangeByScore(String key, double min, double max, int offset, int count) {
+        return delegate.zrangeByScore(key, min, max, offset, count);
+    }
+
+    @Override
+    public Set<String> zrevrange(String key, long start, long end) {
+        return delegate.zrevrange(key, start, end);
+    }
+
+    @Override
+    public Set<String> zrevrangeByScore(String key, double max, double min) {
+        return delegate.zrevrangeByScore(key, max, min);
+    }
+
+    @Override
+    public Set<String> zrevrangeByScore(String key, String max, String min) {
+        return delegate.zrevrangeByScore(key, max, min);
+    }
+
+    @Override
+    public Set<String> zrevrangeByScore(String key, double max, double min, int offset, int count) {
+        return delegate.zrevrangeByScore(key, max, min, offset, count);
+    }
+
+    @Override
+    public Long zrevrank(String key, String member) {
+        return delegate.zrevrank(key, member);
+    }
+
+    @Override
+    public Long zrem(String key, String... members) {
+        return delegate.zrem(key, members);
+    }
+
+    @Override
+    public Long zremrangeByRank(String key, long start, long end) {
+        return delegate.zremrangeByRank(key, start, end);
+    }
+
+    @Override
+    public Long zremrangeByScore(String key, double start, double end) {
+        return delegate.zremrangeByScore(key, start, end);
+    }
+
+    @Override
+    public Long zremrangeByScore(String key, String start, String end) {
+        return delegate.zremrangeByScore(key, start, end);
+    }
+
+    @Override
+    public String acquireLock(String lockName, long acquireTimeoutInMS, long lockTimeoutInMS) {
+        return delegate.acquireLock(lockName, acquireTimeoutInMS, lockTimeoutInMS);
+    }
+
+    @Override
+    public boolean releaseLock(String lockName, String identifier) {
+        return delegate.releaseLock(lockName, identifier);
+    }
+
+    @Override
+    public LockHandle acquireRenewableLock(String lockName, long acquireTimeoutInMS, long leaseTimeInMS) {
+        return delegate.acquireRenewableLock(lockName, acquireTimeoutInMS, leaseTimeInMS);
+    }
+
+    @Override
+    public ICacheLock getReentrantLock(String lockName) {
+        return delegate.getReentrantLock(lockName);
+    }
+
+    @Override
+    public ICacheReadWriteLock getReadWriteLock(String lockName) {
+        return delegate.getReadWriteLock(lockName);
+    }
+
+    @Override
+    public Long publish(String channel, String message) {
+        return delegate.publish(channel, message);
+    }
+
+    @Override
+    public void subscribe(JedisPubSub jedisPubSub, String... channels) {
+        delegate.subscribe(jedisPubSub, channels);
+    }
+
+    @Override
+    public void psubscribe(JedisPubSub jedisPubSub, String... patterns) {
+        delegate.psubscribe(jedisPubSub, patterns);
+    }
+
+    @Override
+    public Object eval(String script, List<String> keys, List<String> args) {
+        return delegate.eval(script, keys, args);
+    }
+
+    @Override
+    public Object evalsha(String sha1, List<String> keys, List<String> args) {
+        return delegate.evalsha(sha1, keys, args);
+    }
+
+    @Override
+    public Set<String> hkeys(String key) {
+        return delegate.hkeys(key);
+    }
+
+    @Override
+    public List<String> hvals(String key) {
+        return delegate.hvals(key);
+    }
+
+    @Override
+    public Set<byte[]> hkeys(byte[] key) {
+        return delegate.hkeys(key);
+    }
+
+    @Override
+    public Collection<byte[]> hvals(byte[] key) {
+        return delegate.hvals(key);
+    }
+
+    @Override
+    public Set<String> keys(String pattern) {
+        return delegate.keys(pattern);
+    }
+
+    @Override
+    public Stream<String> scan(String pattern, int count) {
+        return delegate.scan(pattern, count);
+    }
+
+    @Override
+    public Stream<Map.Entry<String, String>> hscan(String key, int count) {
+        return delegate.hscan(key, count);
+    }
+
+    @Override
+    public Stream<Map.Entry<byte[], byte[]>> hscan(byte[] key, int count) {
+        return delegate.hscan(key, count);
+    }
+
+    @Override
+    public Stream<String> sscan(String key, int count) {
+        return delegate.sscan(key, count);
+    }
+
+    @Override
+    public Stream<byte[]> sscan(byte[] key, int count) {
+        return delegate.sscan(key, count);
+    }
+
+    @Override
+    public Stream<Tuple> zscan(String key, int count) {
+        return delegate.zscan(key, count);
+    }
+
+    @Override
+    public Stream<Tuple> zscan(byte[] key, int count) {
+        return delegate.zscan(key, count);
+    }
+
+    @Override
+    public Stream<String> lscan(String key, int count) {
+        return delegate.lscan(key, count);
+    }
+
+    @Override
+    public Stream<byte[]> lscan(byte[] key, int count) {
+        return delegate.lscan(key, count);
+    }
+
+    @Override
+    public Transaction startTransaction() {
+        return delegate.startTransaction();
+    }
+
+    @Override
+    public void commitTransaction(Transaction tx) {
+        delegate.commitTransaction(tx);
+    }
+
+    @Override
+    public void rollbackTransaction(Transaction tx) {
+        delegate.rollbackTransaction(tx);
+    }
+
+    @Override
+    public void watch(String... keys) {
+        delegate.watch(keys);
+    }
+
+    @Override
+    public void unwatch() {
+        delegate.unwatch();
+    }
+
+    @Override
+    public Boolean setBit(String key, long offset, String value) {
+        return delegate.setBit(key, offset, value);
+    }
+
+    @Override
+    public Boolean getBit(String key, long offset) {
+        return delegate.getBit(key, offset);
+    }
+
+    @Override
+    public long countBit(String key, long start, long end) {
+        return delegate.countBit(key, start, end);
+    }
+
+    @Override
+    public long countBit(String key) {
+        return delegate.countBit(key);
+    }
+
+    @Override
+    public long addGeo(String key, Map<String, GeoCoordinate> memberCoordinateMap) {
+        return delegate.addGeo(key, memberCoordinateMap);
+    }
+
+    @Override
+    public long addGeo(String key, String name, long longitude, long latitude) {
+        return delegate.addGeo(key, name, longitude, latitude);
+    }
+
+    @Override
+    public List<GeoCoordinate> getGeo(String key, String... members) {
+        return delegate.getGeo(key, members);
+    }
+
+    @Override
+    public Double getGeoDist(String key, String start, String end) {
+        return delegate.getGeoDist(key, start, end);
+    }
+
+    @Override
+    public Double getGeoDist(String key, String start, String end, GeoUnit unit) {
+        return delegate.getGeoDist(key, start, end, unit);
+    }
+
+    @Override
+    public List<GeoRadiusResponse> getGeoDist(String key, long longitude, long latitude, long radius, GeoUnit unit) {
+        return delegate.getGeoDist(key, longitude, latitude, radius, unit);
+    }
+
+    @Override
+    public List<GeoRadiusResponse> getGeoDist(String key, double longitude, double latitude, double radius,
+            GeoUnit unit, GeoRadiusParam param) {
+        return delegate.getGeoDist(key, longitude, latitude, radius, unit, param);
+    }
+
+    @Override
+    public List<GeoRadiusResponse> getGeoDist(String key, String member, long radius, GeoUnit unit) {
+        return delegate.getGeoDist(key, member, radius, unit);
+    }
+
+    @Override
+    public List<GeoRadiusResponse> getGeoDist(String key, String member, double radius, GeoUnit unit,
+            GeoRadiusParam param) {
+        return delegate.getGeoDist(key, member, radius, unit, param);
+    }
+
+    @Override
+    public List<String> getGeoHash(String key, String... members) {
+        return delegate.getGeoHash(key, members);
+    }
+
+    @Override
+    public List<String> mget(String... keys) {
+        return delegate.mget(keys);
+    }
+
+    @Override
+    public void mset(Map<String, String> values) {
+        delegate.mset(values);
+    }
+
+    @Override
+    public List<Object> pipelineGet(String... keys) {
+        return delegate.pipelineGet(keys);
+    }
+
+    @Override
+    public void pipelineSet(Map<String, String> values) {
+        delegate.pipelineSet(values);
+    }
+
+    @Override
+    public Pipeline startPipeline() {
+        return delegate.startPipeline();
+    }
+
+    @Override
+    public void endPipeline(Pipeline p) {
+        delegate.endPipeline(p);
+    }
+}
@@ -0,0 +1,119 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 后台健康检查。每个客户端一个守护线程，定时探测redis是否可用，并维护一个共享的"healthy"标志；
+ * 连续探测失败达到阈值时在后台线程中重建连接池。请求线程只读取标志，不做探测，也不重建连接池。
+ * 某个实例没有响应时只会拖慢它自己的探测；探测最好使用独立的短超时连接（见PingProbe），不与请求争用连接池。
+ */
+public class HealthChecker {
+
+    private static final Logger log = LoggerFactory.getLogger(HealthChecker.class);
+
+    private static final long DEFAULT_INTERVAL_MS = 1000;
+    private static final int DEFAULT_RECOVER_THRESHOLD = 3;
+
+    /**
+     * 探测动作，抛出异常表示不可用
+     */
+    public interface Probe {
+        void probe() throws Exception;
+    }
+
+    private final String name;
+    private final Probe probe;
+    private final Runnable recover;
+    private final int recoverThreshold;
+    private final AtomicBoolean healthy = new AtomicBoolean(true);
+    private final AtomicBoolean checkPending = new AtomicBoolean(false);
+    private volatile int consecutiveFailures = 0;
+    private volatile boolean closed = false;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param name    客户端名称，用于日志
+     * @param probe   探测动作
+     * @param recover 连续失败后的恢复动作（如重建连接池），可以为null
+     */
+    public HealthChecker(String name, Probe probe, Runnable recover) {
+        this(name, probe, recover, DEFAULT_INTERVAL_MS, DEFAULT_RECOVER_THRESHOLD);
+    }
+
+    public HealthChecker(String name, Probe probe, Runnable recover, long intervalMillis, int recoverThreshold) {
+        this.name = name;
+        this.probe = probe;
+        this.recover = recover;
+        this.recoverThreshold = recoverThreshold;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r ->
+            {
+                Thread t = new Thread(r, "mcs-health-checker-" + name);
+                t.setDaemon(true);
+                return t;
+            });
+        scheduler.scheduleWithFixedDelay(this::check, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * redis当前是否可用
+     *
+     * @return
+     */
+    public boolean isHealthy() {
+        return healthy.get();
+    }
+
+    /**
+     * 请求线程遇到连接异常时调用，立即安排一次后台探测，不阻塞调用者；多个线程同时上报只会触发一次探测
+     */
+    public void reportFailure() {
+        if (!closed && checkPending.compareAndSet(false, true)) {
+            scheduler.execute(this::check);
+        }
+    }
+
+    private void check() {
+        checkPending.set(false);
+        if (closed)
+            return;
+        try {
+            probe.probe();
+            consecutiveFailures = 0;
+            if (healthy.compareAndSet(false, true))
+                log.info("Redis Server {} is available again.", name);
+        } catch (Exception e) {
+            consecutiveFailures++;
+            if (healthy.compareAndSet(true, false))
+                log.error("Redis Server " + name + " is unavailable: " + e.getMessage(), e);
+            if (null != recover && consecutiveFailures % recoverThreshold == 0)
+                recover();
+        }
+    }
+
+    private void recover() {
+        log.info("Redis Server {} failed {} checks, recreate connection pool ...", name, consecutiveFailures);
+        try {
+            recover.run();
+        } catch (Exception e) {
+            log.error("Recreate connection pool for " + name + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    public void close() {
+        closed = true;
+        scheduler.shutdownNow();
+        if (probe instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) probe).close();
+            } catch (Exception e) {
+                log.warn("Close health probe of {} failed: {}", name, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+/**
+ * 探测到的一个热点key，计数已按采样率放大，是估计值
+ */
+public class HotKey {
+
+    private final String command;
+    private final String key;
+    private final long count;
+    private final long error;
+    private final long callsPerSecond;
+
+    HotKey(String command, String key, long count, long error, long callsPerSecond) {
+        this.command = command;
+        this.key = key;
+        this.count = count;
+        this.error = error;
+        this.callsPerSecond = callsPerSecond;
+    }
+
+    /**
+     * 命令名，与ICacheClient的方法名相同
+     */
+    public String getCommand() {
+        return command;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * 窗口内估计的调用次数，不考虑采样误差时只会多算不会少算
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * count可能多算的上限，实际次数在count - error和count之间
+     */
+    public long getError() {
+        return error;
+    }
+
+    /**
+     * 按count - error估计的每秒调用次数
+     */
+    public long getCallsPerSecond() {
+        return callsPerSecond;
+    }
+
+    @Override
+    public String toString() {
+        return command + " " + key + " count=" + count + " error=" + error + " callsPerSecond=" + callsPerSecond;
+    }
+}
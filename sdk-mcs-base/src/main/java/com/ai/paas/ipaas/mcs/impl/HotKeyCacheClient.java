@@ -0,0 +1,1266 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import com.ai.paas.ipaas.mcs.ICacheClient;
+
+import redis.clients.jedis.GeoCoordinate;
+import redis.clients.jedis.GeoRadiusResponse;
+import redis.clients.jedis.GeoUnit;
+import redis.clients.jedis.Tuple;
+import redis.clients.jedis.params.GeoRadiusParam;
+import redis.clients.jedis.params.ZAddParams;
+import redis.clients.jedis.params.ZIncrByParams;
+import redis.clients.jedis.util.SafeEncoder;
+
+/**
+ * 探测热点key的客户端，包装已有的ICacheClient。带单个key的命令以及mget、pipelineGet、del、unlink按采样率记录调用的key，
+ * 按命令统计滑动窗口内调用最多的key（见HotKeyConfig），可以在运行时查询；新出现的热点key打印警告日志。
+ * 配置了promoteTtlMillis时，热点key的get(String)、hgetAll(String)结果在本地保存一小段时间，
+ * 期间不访问redis，避免热点key所在的分片被打满；本客户端的写操作使本地的值失效，其他客户端的修改不会通知本地。
+ * 其他方法直接转发。
+ */
+public class HotKeyCacheClient extends ForwardingCacheClient {
+
+    /**
+     * 每个本地条目的固定开销
+     */
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private final HotKeyConfig config;
+    private final HotKeyDetector detector;
+    private final LocalCache<String, Object> promoted;
+    private final KeyVersions versions = new KeyVersions();
+    private final LongAdder promotedHits = new LongAdder();
+
+    /**
+     * @param delegate 被包装的客户端
+     * @param config   热点key探测的配置
+     */
+    public HotKeyCacheClient(ICacheClient delegate, HotKeyConfig config) {
+        super(delegate);
+        this.config = config;
+        this.detector = new HotKeyDetector(config);
+        this.promoted = config.getPromoteTtlMillis() > 0
+                ? new LocalCache<>(config.getPromoteMaxWeight(), config.getPromoteTtlMillis(),
+                        (key, value) -> ENTRY_OVERHEAD + 2 * key.length() + weigh(value))
+                : null;
+    }
+
+    public HotKeyConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * 窗口内某个命令调用最多的key，按估计的调用次数从大到小
+     *
+     * @param command ICacheClient的方法名，如get、hget
+     */
+    public List<HotKey> getTopKeys(String command) {
+        return detector.topKeys(command);
+    }
+
+    /**
+     * 窗口内每个命令调用最多的key
+     */
+    public Map<String, List<HotKey>> getTopKeys() {
+        return detector.topKeys();
+    }
+
+    /**
+     * 当前判定为热点的key，所有命令合计的调用频率达到hotCallsPerSecond，每个时间片更新一次
+     */
+    public Set<String> getHotKeys() {
+        return detector.hotKeys();
+    }
+
+    public boolean isHot(String key) {
+        return detector.isHot(key);
+    }
+
+    /**
+     * 从本地返回、没有访问redis的调用次数
+     */
+    public long getPromotedHits() {
+        return promotedHits.sum();
+    }
+
+    private static int weigh(Object value) {
+        if (value instanceof String)
+            return 2 * ((String) value).length();
+        int weight = 0;
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+            weight += ENTRY_OVERHEAD + 2 * ((String) entry.getKey()).length()
+                    + 2 * ((String) entry.getValue()).length();
+        }
+        return weight;
+    }
+
+    private boolean sampled() {
+        int every = config.getSampleEvery();
+        return every == 1 || ThreadLocalRandom.current().nextInt(every) == 0;
+    }
+
+    private void record(String command, String key) {
+        if (null != key && sampled())
+            detector.record(command, key);
+    }
+
+    private void record(String command, byte[] key) {
+        if (null != key && sampled())
+            detector.record(command, SafeEncoder.encode(key));
+    }
+
+    private void record(String command, String... keys) {
+        if (null == keys)
+            return;
+        for (String key : keys) {
+            record(command, key);
+        }
+    }
+
+    private void record(String command, byte[]... keys) {
+        if (null == keys)
+            return;
+        for (byte[] key : keys) {
+            record(command, key);
+        }
+    }
+
+    private boolean promotable(String key) {
+        return null != promoted && null != key && detector.isHot(key);
+    }
+
+    /**
+     * 读取的值在读取期间没有发生失效时才存入本地
+     */
+    private void promote(String key, Object value, long readVersion) {
+        if (null != value)
+            versions.put(promoted, key, value, readVersion);
+    }
+
+    private void invalidate(String key) {
+        if (null == promoted)
+            return;
+        versions.bump(key);
+        promoted.invalidate(key);
+    }
+
+    private void invalidate(String... keys) {
+        for (String key : keys) {
+            invalidate(key);
+        }
+    }
+
+    private void invalidate(byte[] key) {
+        if (null != promoted)
+            invalidate(SafeEncoder.encode(key));
+    }
+
+    private void invalidate(byte[]... keys) {
+        for (byte[] key : keys) {
+            invalidate(key);
+        }
+    }
+
+    private void invalidateAll(Collection<String> keys) {
+        for (String key : keys) {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public String get(String key) {
+        record("get", key);
+        if (!promotable(key))
+            return delegate.get(key);
+        Object cached = promoted.get(key);
+        if (cached instanceof String) {
+            promotedHits.increment();
+            return (String) cached;
+        }
+        long readVersion = versions.of(key);
+        String value = delegate.get(key);
+        promote(key, value, readVersion);
+        return value;
+    }
+
+    /**
+     * 本地命中时返回副本
+     */
+    @Override
+    public Map<String, String> hgetAll(String key) {
+        record("hgetAll", key);
+        if (!promotable(key))
+            return delegate.hgetAll(key);
+        Object cached = promoted.get(key);
+        if (cached instanceof Map) {
+            promotedHits.increment();
+            @SuppressWarnings("unchecked")
+            Map<String, String> copy = new HashMap<>((Map<String, String>) cached);
+            return copy;
+        }
+        long readVersion = versions.of(key);
+        Map<String, String> value = delegate.hgetAll(key);
+        if (null != value && !value.isEmpty())
+            promote(key, new HashMap<>(value), readVersion);
+        return value;
+    }
+
+    @Override
+    public String set(String key, String value) {
+        record("set", key);
+        try {
+            return delegate.set(key, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public String setex(String key, int seconds, String value) {
+        record("setex", key);
+        try {
+            return delegate.setex(key, seconds, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long del(String key) {
+        record("del", key);
+        try {
+            return delegate.del(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long del(String... keys) {
+        record("del", keys);
+        try {
+            return delegate.del(keys);
+        } finally {
+            invalidate(keys);
+        }
+    }
+
+    @Override
+    public Long unlink(String... keys) {
+        record("unlink", keys);
+        try {
+            return delegate.unlink(keys);
+        } finally {
+            invalidate(keys);
+        }
+    }
+
+    @Override
+    public Long expire(String key, int seconds) {
+        record("expire", key);
+        try {
+            return delegate.expire(key, seconds);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long expireAt(String key, long timestamp) {
+        record("expireAt", key);
+        try {
+            return delegate.expireAt(key, timestamp);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long ttl(String key) {
+        record("ttl", key);
+        return delegate.ttl(key);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        record("exists", key);
+        return delegate.exists(key);
+    }
+
+    @Override
+    public Long incr(String key) {
+        record("incr", key);
+        try {
+            return delegate.incr(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long incrBy(String key, long increment) {
+        record("incrBy", key);
+        try {
+            return delegate.incrBy(key, increment);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long decr(String key) {
+        record("decr", key);
+        try {
+            return delegate.decr(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long decrBy(String key, long decrement) {
+        record("decrBy", key);
+        try {
+            return delegate.decrBy(key, decrement);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long lpush(String key, String... strings) {
+        record("lpush", key);
+        try {
+            return delegate.lpush(key, strings);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long rpush(String key, String... strings) {
+        record("rpush", key);
+        try {
+            return delegate.rpush(key, strings);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long lrem(String key, long count, String value) {
+        record("lrem", key);
+        try {
+            return delegate.lrem(key, count, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long llen(String key) {
+        record("llen", key);
+        return delegate.llen(key);
+    }
+
+    @Override
+    public String lpop(String key) {
+        record("lpop", key);
+        try {
+            return delegate.lpop(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public String rpop(String key) {
+        record("rpop", key);
+        try {
+            return delegate.rpop(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public List<String> lrange(String key, long start, long end) {
+        record("lrange", key);
+        return delegate.lrange(key, start, end);
+    }
+
+    @Override
+    public List<String> lrangeAll(String key) {
+        record("lrangeAll", key);
+        return delegate.lrangeAll(key);
+    }
+
+    @Override
+    public Long hset(String key, String field, String value) {
+        record("hset", key);
+        try {
+            return delegate.hset(key, field, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long hsetnx(String key, String field, String value) {
+        record("hsetnx", key);
+        try {
+            return delegate.hsetnx(key, field, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public String hmset(String key, Map<String, String> hash) {
+        record("hmset", key);
+        try {
+            return delegate.hmset(key, hash);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public String hget(String key, String field) {
+        record("hget", key);
+        return delegate.hget(key, field);
+    }
+
+    @Override
+    public List<String> hmget(String key, String... fields) {
+        record("hmget", key);
+        return delegate.hmget(key, fields);
+    }
+
+    @Override
+    public Boolean hexists(String key, String field) {
+        record("hexists", key);
+        return delegate.hexists(key, field);
+    }
+
+    @Override
+    public Long hdel(String key, String... fields) {
+        record("hdel", key);
+        try {
+            return delegate.hdel(key, fields);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long hlen(String key) {
+        record("hlen", key);
+        return delegate.hlen(key);
+    }
+
+    @Override
+    public Long sadd(String key, String... members) {
+        record("sadd", key);
+        try {
+            return delegate.sadd(key, members);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Set<String> smembers(String key) {
+        record("smembers", key);
+        return delegate.smembers(key);
+    }
+
+    @Override
+    public Long srem(String key, String... members) {
+        record("srem", key);
+        try {
+            return delegate.srem(key, members);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long scard(String key) {
+        record("scard", key);
+        return delegate.scard(key);
+    }
+
+    @Override
+    public Long sdiffstore(String dstkey, String... keys) {
+        try {
+            return delegate.sdiffstore(dstkey, keys);
+        } finally {
+            invalidate(dstkey);
+        }
+    }
+
+    @Override
+    public String set(byte[] key, byte[] value) {
+        record("set", key);
+        try {
+            return delegate.set(key, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public String setex(byte[] key, int seconds, byte[] value) {
+        record("setex", key);
+        try {
+            return delegate.setex(key, seconds, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public byte[] get(byte[] key) {
+        record("get", key);
+        return delegate.get(key);
+    }
+
+    @Override
+    public long getStream(byte[] key, OutputStream out) {
+        record("getStream", key);
+        return delegate.getStream(key, out);
+    }
+
+    @Override
+    public long setStream(byte[] key, InputStream in, int seconds) {
+        record("setStream", key);
+        try {
+            return delegate.setStream(key, in, seconds);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long del(byte[] key) {
+        record("del", key);
+        try {
+            return delegate.del(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long del(byte[]... keys) {
+        record("del", keys);
+        try {
+            return delegate.del(keys);
+        } finally {
+            invalidate(keys);
+        }
+    }
+
+    @Override
+    public Long expire(byte[] key, int seconds) {
+        record("expire", key);
+        try {
+            return delegate.expire(key, seconds);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long expireAt(byte[] key, long timestamp) {
+        record("expireAt", key);
+        try {
+            return delegate.expireAt(key, timestamp);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long ttl(byte[] key) {
+        record("ttl", key);
+        return delegate.ttl(key);
+    }
+
+    @Override
+    public boolean exists(byte[] key) {
+        record("exists", key);
+        return delegate.exists(key);
+    }
+
+    @Override
+    public Long incr(byte[] key) {
+        record("incr", key);
+        try {
+            return delegate.incr(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long incrBy(byte[] key, long increment) {
+        record("incrBy", key);
+        try {
+            return delegate.incrBy(key, increment);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long decr(byte[] key) {
+        record("decr", key);
+        try {
+            return delegate.decr(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long decrBy(byte[] key, long decrement) {
+        record("decrBy", key);
+        try {
+            return delegate.decrBy(key, decrement);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long lpush(byte[] key, byte[]... strings) {
+        record("lpush", key);
+        try {
+            return delegate.lpush(key, strings);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long rpush(byte[] key, byte[]... strings) {
+        record("rpush", key);
+        try {
+            return delegate.rpush(key, strings);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long llen(byte[] key) {
+        record("llen", key);
+        return delegate.llen(key);
+    }
+
+    @Override
+    public Long lrem(byte[] key, long count, byte[] value) {
+        record("lrem", key);
+        try {
+            return delegate.lrem(key, count, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public byte[] lpop(byte[] key) {
+        record("lpop", key);
+        try {
+            return delegate.lpop(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public byte[] rpop(byte[] key) {
+        record("rpop", key);
+        try {
+            return delegate.rpop(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public List<byte[]> lrange(byte[] key, long start, long end) {
+        record("lrange", key);
+        return delegate.lrange(key, start, end);
+    }
+
+    @Override
+    public List<byte[]> lrangeAll(byte[] key) {
+        record("lrangeAll", key);
+        return delegate.lrangeAll(key);
+    }
+
+    @Override
+    public Long hset(byte[] key, byte[] field, byte[] value) {
+        record("hset", key);
+        try {
+            return delegate.hset(key, field, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long hsetnx(byte[] key, byte[] field, byte[] value) {
+        record("hsetnx", key);
+        try {
+            return delegate.hsetnx(key, field, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long setnx(byte[] key, byte[] value) {
+        record("setnx", key);
+        try {
+            return delegate.setnx(key, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long setnx(String key, String value) {
+        record("setnx", key);
+        try {
+            return delegate.setnx(key, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public String hmset(byte[] key, Map<byte[], byte[]> hash) {
+        record("hmset", key);
+        try {
+            return delegate.hmset(key, hash);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public byte[] hget(byte[] key, byte[] field) {
+        record("hget", key);
+        return delegate.hget(key, field);
+    }
+
+    @Override
+    public List<byte[]> hmget(byte[] key, byte[]... fields) {
+        record("hmget", key);
+        return delegate.hmget(key, fields);
+    }
+
+    @Override
+    public Boolean hexists(byte[] key, byte[] field) {
+        record("hexists", key);
+        return delegate.hexists(key, field);
+    }
+
+    @Override
+    public Long hdel(byte[] key, byte[]... fields) {
+        record("hdel", key);
+        try {
+            return delegate.hdel(key, fields);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long hlen(byte[] key) {
+        record("hlen", key);
+        return delegate.hlen(key);
+    }
+
+    @Override
+    public Map<byte[], byte[]> hgetAll(byte[] key) {
+        record("hgetAll", key);
+        return delegate.hgetAll(key);
+    }
+
+    @Override
+    public Long sadd(byte[] key, byte[]... members) {
+        record("sadd", key);
+        try {
+            return delegate.sadd(key, members);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Set<byte[]> smembers(byte[] key) {
+        record("smembers", key);
+        return delegate.smembers(key);
+    }
+
+    @Override
+    public Long srem(byte[] key, byte[]... members) {
+        record("srem", key);
+        try {
+            return delegate.srem(key, members);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long scard(byte[] key) {
+        record("scard", key);
+        return delegate.scard(key);
+    }
+
+    @Override
+    public Long sdiffstore(byte[] dstkey, byte[]... keys) {
+        try {
+            return delegate.sdiffstore(dstkey, keys);
+        } finally {
+            invalidate(dstkey);
+        }
+    }
+
+    @Override
+    public Long hincrBy(String key, String field, long value) {
+        record("hincrBy", key);
+        try {
+            return delegate.hincrBy(key, field, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Double incrByFloat(String key, double value) {
+        record("incrByFloat", key);
+        try {
+            return delegate.incrByFloat(key, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Double hincrByFloat(String key, String field, double value) {
+        record("hincrByFloat", key);
+        try {
+            return delegate.hincrByFloat(key, field, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long zadd(String key, double score, String member) {
+        record("zadd", key);
+        try {
+            return delegate.zadd(key, score, member);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long zadd(String key, double score, String member, ZAddParams params) {
+        record("zadd", key);
+        try {
+            return delegate.zadd(key, score, member, params);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long zadd(String key, Map<String, Double> scoreMembers) {
+        record("zadd", key);
+        try {
+            return delegate.zadd(key, scoreMembers);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long zadd(String key, Map<String, Double> scoreMembers, ZAddParams params) {
+        record("zadd", key);
+        try {
+            return delegate.zadd(key, scoreMembers, params);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long zcount(String key, double min, double max) {
+        record("zcount", key);
+        return delegate.zcount(key, min, max);
+    }
+
+    @Override
+    public Long zcount(String key, String min, String max) {
+        record("zcount", key);
+        return delegate.zcount(key, min, max);
+    }
+
+    @Override
+    public Long zcard(String key) {
+        record("zcard", key);
+        return delegate.zcard(key);
+    }
+
+    @Override
+    public Double zincrby(String key, double score, String member) {
+        record("zincrby", key);
+        try {
+            return delegate.zincrby(key, score, member);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Double zincrby(String key, double score, String member, ZIncrByParams params) {
+        record("zincrby", key);
+        try {
+            return delegate.zincrby(key, score, member, params);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Set<String> zrange(String key, long start, long end) {
+        record("zrange", key);
+        return delegate.zrange(key, start, end);
+    }
+
+    @Override
+    public Set<String> zrangeByScore(String key, double min, double max) {
+        record("zrangeByScore", key);
+        return delegate.zrangeByScore(key, min, max);
+    }
+
+    @Override
+    public Set<String> zrangeByScore(String key, String min, String max) {
+        record("zrangeByScore", key);
+        return delegate.zrangeByScore(key, min, max);
+    }
+
+    @Override
+    public Set<String> zrangeByScore(String key, double min, double max, int offset, int count) {
+        record("zrangeByScore", key);
+        return delegate.zrangeByScore(key, min, max, offset, count);
+    }
+
+    @Override
+    public Set<String> zrevrange(String key, long start, long end) {
+        record("zrevrange", key);
+        return delegate.zrevrange(key, start, end);
+    }
+
+    @Override
+    public Set<String> zrevrangeByScore(String key, double max, double min) {
+        record("zrevrangeByScore", key);
+        return delegate.zrevrangeByScore(key, max, min);
+    }
+
+    @Override
+    public Set<String> zrevrangeByScore(String key, String max, String min) {
+        record("zrevrangeByScore", key);
+        return delegate.zrevrangeByScore(key, max, min);
+    }
+
+    @Override
+    public Set<String> zrevrangeByScore(String key, double max, double min, int offset, int count) {
+        record("zrevrangeByScore", key);
+        return delegate.zrevrangeByScore(key, max, min, offset, count);
+    }
+
+    @Override
+    public Long zrevrank(String key, String member) {
+        record("zrevrank", key);
+        return delegate.zrevrank(key, member);
+    }
+
+    @Override
+    public Long zrem(String key, String... members) {
+        record("zrem", key);
+        try {
+            return delegate.zrem(key, members);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long zremrangeByRank(String key, long start, long end) {
+        record("zremrangeByRank", key);
+        try {
+            return delegate.zremrangeByRank(key, start, end);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long zremrangeByScore(String key, double start, double end) {
+        record("zremrangeByScore", key);
+        try {
+            return delegate.zremrangeByScore(key, start, end);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long zremrangeByScore(String key, String start, String end) {
+        record("zremrangeByScore", key);
+        try {
+            return delegate.zremrangeByScore(key, start, end);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Object eval(String script, List<String> keys, List<String> args) {
+        try {
+            return delegate.eval(script, keys, args);
+        } finally {
+            invalidateAll(keys);
+        }
+    }
+
+    @Override
+    public Object evalsha(String sha1, List<String> keys, List<String> args) {
+        try {
+            return delegate.evalsha(sha1, keys, args);
+        } finally {
+            invalidateAll(keys);
+        }
+    }
+
+    @Override
+    public Set<String> hkeys(String key) {
+        record("hkeys", key);
+        return delegate.hkeys(key);
+    }
+
+    @Override
+    public List<String> hvals(String key) {
+        record("hvals", key);
+        return delegate.hvals(key);
+    }
+
+    @Override
+    public Set<byte[]> hkeys(byte[] key) {
+        record("hkeys", key);
+        return delegate.hkeys(key);
+    }
+
+    @Override
+    public Collection<byte[]> hvals(byte[] key) {
+        record("hvals", key);
+        return delegate.hvals(key);
+    }
+
+    @Override
+    public Stream<Map.Entry<String, String>> hscan(String key, int count) {
+        record("hscan", key);
+        return delegate.hscan(key, count);
+    }
+
+    @Override
+    public Stream<Map.Entry<byte[], byte[]>> hscan(byte[] key, int count) {
+        record("hscan", key);
+        return delegate.hscan(key, count);
+    }
+
+    @Override
+    public Stream<String> sscan(String key, int count) {
+        record("sscan", key);
+        return delegate.sscan(key, count);
+    }
+
+    @Override
+    public Stream<byte[]> sscan(byte[] key, int count) {
+        record("sscan", key);
+        return delegate.sscan(key, count);
+    }
+
+    @Override
+    public Stream<Tuple> zscan(String key, int count) {
+        record("zscan", key);
+        return delegate.zscan(key, count);
+    }
+
+    @Override
+    public Stream<Tuple> zscan(byte[] key, int count) {
+        record("zscan", key);
+        return delegate.zscan(key, count);
+    }
+
+    @Override
+    public Stream<String> lscan(String key, int count) {
+        record("lscan", key);
+        return delegate.lscan(key, count);
+    }
+
+    @Override
+    public Stream<byte[]> lscan(byte[] key, int count) {
+        record("lscan", key);
+        return delegate.lscan(key, count);
+    }
+
+    @Override
+    public Boolean setBit(String key, long offset, String value) {
+        record("setBit", key);
+        try {
+            return delegate.setBit(key, offset, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Boolean getBit(String key, long offset) {
+        record("getBit", key);
+        return delegate.getBit(key, offset);
+    }
+
+    @Override
+    public long countBit(String key, long start, long end) {
+        record("countBit", key);
+        return delegate.countBit(key, start, end);
+    }
+
+    @Override
+    public long countBit(String key) {
+        record("countBit", key);
+        return delegate.countBit(key);
+    }
+
+    @Override
+    public long addGeo(String key, Map<String, GeoCoordinate> memberCoordinateMap) {
+        record("addGeo", key);
+        try {
+            return delegate.addGeo(key, memberCoordinateMap);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public long addGeo(String key, String name, long longitude, long latitude) {
+        record("addGeo", key);
+        try {
+            return delegate.addGeo(key, name, longitude, latitude);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public List<GeoCoordinate> getGeo(String key, String... members) {
+        record("getGeo", key);
+        return delegate.getGeo(key, members);
+    }
+
+    @Override
+    public Double getGeoDist(String key, String start, String end) {
+        record("getGeoDist", key);
+        return delegate.getGeoDist(key, start, end);
+    }
+
+    @Override
+    public Double getGeoDist(String key, String start, String end, GeoUnit unit) {
+        record("getGeoDist", key);
+        return delegate.getGeoDist(key, start, end, unit);
+    }
+
+    @Override
+    public List<GeoRadiusResponse> getGeoDist(String key, long longitude, long latitude, long radius, GeoUnit unit) {
+        record("getGeoDist", key);
+        return delegate.getGeoDist(key, longitude, latitude, radius, unit);
+    }
+
+    @Override
+    public List<GeoRadiusResponse> getGeoDist(String key, double longitude, double latitude, double radius,
+            GeoUnit unit, GeoRadiusParam param) {
+        record("getGeoDist", key);
+        return delegate.getGeoDist(key, longitude, latitude, radius, unit, param);
+    }
+
+    @Override
+    public List<GeoRadiusResponse> getGeoDist(String key, String member, long radius, GeoUnit unit) {
+        record("getGeoDist", key);
+        return delegate.getGeoDist(key, member, radius, unit);
+    }
+
+    @Override
+    public List<GeoRadiusResponse> getGeoDist(String key, String member, double radius, GeoUnit unit,
+            GeoRadiusParam param) {
+        record("getGeoDist", key);
+        return delegate.getGeoDist(key, member, radius, unit, param);
+    }
+
+    @Override
+    public List<String> getGeoHash(String key, String... members) {
+        record("getGeoHash", key);
+        return delegate.getGeoHash(key, members);
+    }
+
+    @Override
+    public List<String> mget(String... keys) {
+        record("mget", keys);
+        return delegate.mget(keys);
+    }
+
+    @Override
+    public void mset(Map<String, String> values) {
+        try {
+            delegate.mset(values);
+        } finally {
+            invalidateAll(values.keySet());
+        }
+    }
+
+    @Override
+    public List<Object> pipelineGet(String... keys) {
+        record("pipelineGet", keys);
+        return delegate.pipelineGet(keys);
+    }
+
+    @Override
+    public void pipelineSet(Map<String, String> values) {
+        try {
+            delegate.pipelineSet(values);
+        } finally {
+            invalidateAll(values.keySet());
+        }
+    }
+}
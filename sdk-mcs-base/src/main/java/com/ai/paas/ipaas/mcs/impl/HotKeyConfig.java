@@ -0,0 +1,121 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+/**
+ * 热点key探测的配置，在创建HotKeyCacheClient之前设置
+ */
+public class HotKeyConfig {
+
+    /**
+     * 每多少次调用采样一次，为1时记录每次调用；统计结果按采样率放大
+     */
+    private int sampleEvery = 16;
+    /**
+     * 每种命令保留的热点key个数
+     */
+    private int topK = 10;
+    /**
+     * 每种命令每个时间片保留的计数器个数（Space-Saving），越大误差越小，应为topK的数倍
+     */
+    private int counters = 128;
+    /**
+     * 统计的滑动窗口长度(s)
+     */
+    private int windowSeconds = 10;
+    /**
+     * 窗口分成的时间片数，每过一片丢弃最旧的一片并重新判断热点
+     */
+    private int slices = 10;
+    /**
+     * 窗口内一个key所有命令合计的估计调用频率(次/s)达到该值时视为热点
+     */
+    private long hotCallsPerSecond = 1000;
+    /**
+     * 热点key的get(String)、hgetAll(String)结果在本地保存的时间(ms)，为0时不缓存，只统计。
+     * 本地的值只被本客户端的写操作失效，其他客户端的修改最多延迟这么久才能读到
+     */
+    private long promoteTtlMillis;
+    /**
+     * 本地缓存的总权重上限，大致为key和value占用的字节数
+     */
+    private long promoteMaxWeight = 16L * 1024 * 1024;
+
+    public int getSampleEvery() {
+        return sampleEvery;
+    }
+
+    public void setSampleEvery(int sampleEvery) {
+        if (sampleEvery < 1)
+            throw new IllegalArgumentException("sampleEvery must be at least 1");
+        this.sampleEvery = sampleEvery;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    public void setTopK(int topK) {
+        if (topK < 1)
+            throw new IllegalArgumentException("topK must be at least 1");
+        this.topK = topK;
+    }
+
+    public int getCounters() {
+        return counters;
+    }
+
+    public void setCounters(int counters) {
+        if (counters < 1)
+            throw new IllegalArgumentException("counters must be at least 1");
+        this.counters = counters;
+    }
+
+    public int getWindowSeconds() {
+        return windowSeconds;
+    }
+
+    public void setWindowSeconds(int windowSeconds) {
+        if (windowSeconds < 1)
+            throw new IllegalArgumentException("windowSeconds must be at least 1");
+        this.windowSeconds = windowSeconds;
+    }
+
+    public int getSlices() {
+        return slices;
+    }
+
+    public void setSlices(int slices) {
+        if (slices < 1)
+            throw new IllegalArgumentException("slices must be at least 1");
+        this.slices = slices;
+    }
+
+    public long getHotCallsPerSecond() {
+        return hotCallsPerSecond;
+    }
+
+    public void setHotCallsPerSecond(long hotCallsPerSecond) {
+        if (hotCallsPerSecond < 1)
+            throw new IllegalArgumentException("hotCallsPerSecond must be at least 1");
+        this.hotCallsPerSecond = hotCallsPerSecond;
+    }
+
+    public long getPromoteTtlMillis() {
+        return promoteTtlMillis;
+    }
+
+    public void setPromoteTtlMillis(long promoteTtlMillis) {
+        if (promoteTtlMillis < 0)
+            throw new IllegalArgumentException("promoteTtlMillis must not be negative");
+        this.promoteTtlMillis = promoteTtlMillis;
+    }
+
+    public long getPromoteMaxWeight() {
+        return promoteMaxWeight;
+    }
+
+    public void setPromoteMaxWeight(long promoteMaxWeight) {
+        if (promoteMaxWeight < 1)
+            throw new IllegalArgumentException("promoteMaxWeight must be at least 1");
+        this.promoteMaxWeight = promoteMaxWeight;
+    }
+}
@@ -0,0 +1,230 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 按命令统计调用最多的key。窗口分成若干时间片，每片每种命令一个Space-Saving计数器组，
+ * 查询时合并窗口内各片的计数；时间片轮换时重新计算热点key的集合，供调用方快速判断。
+ * 记录的是已采样的调用，结果按采样率放大
+ */
+final class HotKeyDetector {
+
+    private static final Logger log = LoggerFactory.getLogger(HotKeyDetector.class);
+
+    /**
+     * Space-Saving：计数器已满时新key替换计数最小的key，继承其计数，被继承的部分记为误差
+     */
+    private static final class Summary {
+        /**
+         * key -> {计数, 误差}
+         */
+        private final Map<String, long[]> counters = new HashMap<>();
+        private final int capacity;
+
+        Summary(int capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized void offer(String key) {
+            long[] counter = counters.get(key);
+            if (null != counter) {
+                counter[0]++;
+                return;
+            }
+            if (counters.size() < capacity) {
+                counters.put(key, new long[] { 1, 0 });
+                return;
+            }
+            String minKey = null;
+            long min = Long.MAX_VALUE;
+            for (Map.Entry<String, long[]> entry : counters.entrySet()) {
+                if (entry.getValue()[0] < min) {
+                    min = entry.getValue()[0];
+                    minKey = entry.getKey();
+                }
+            }
+            counters.remove(minKey);
+            counters.put(key, new long[] { min + 1, min });
+        }
+
+        synchronized void addTo(Map<String, long[]> merged) {
+            for (Map.Entry<String, long[]> entry : counters.entrySet()) {
+                long[] total = merged.computeIfAbsent(entry.getKey(), k -> new long[2]);
+                total[0] += entry.getValue()[0];
+                total[1] += entry.getValue()[1];
+            }
+        }
+    }
+
+    private static final class Slice {
+        final long index;
+        final ConcurrentMap<String, Summary> commands = new ConcurrentHashMap<>();
+
+        Slice(long index) {
+            this.index = index;
+        }
+    }
+
+    private final HotKeyConfig config;
+    private final LongSupplier clock;
+    private final long sliceMillis;
+    private final AtomicReferenceArray<Slice> slices;
+    private final long startMillis;
+    private volatile Set<String> hotKeys = Collections.emptySet();
+
+    HotKeyDetector(HotKeyConfig config) {
+        this(config, System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock 当前时间(ms)，测试时替换
+     */
+    HotKeyDetector(HotKeyConfig config, LongSupplier clock) {
+        this.config = config;
+        this.clock = clock;
+        this.sliceMillis = Math.max(1, TimeUnit.SECONDS.toMillis(config.getWindowSeconds()) / config.getSlices());
+        this.slices = new AtomicReferenceArray<>(config.getSlices());
+        this.startMillis = clock.getAsLong();
+    }
+
+    /**
+     * 记录一次已采样的调用
+     */
+    void record(String command, String key) {
+        Slice slice = current(clock.getAsLong());
+        Summary summary = slice.commands.get(command);
+        if (null == summary)
+            summary = slice.commands.computeIfAbsent(command, c -> new Summary(config.getCounters()));
+        summary.offer(key);
+    }
+
+    /**
+     * 当前时间片，进入新的时间片时由替换成功的线程重新计算热点
+     */
+    private Slice current(long now) {
+        long index = now / sliceMillis;
+        int i = (int) (index % slices.length());
+        Slice slice = slices.get(i);
+        if (null != slice && slice.index >= index)
+            return slice;
+        Slice next = new Slice(index);
+        if (!slices.compareAndSet(i, slice, next))
+            return slices.get(i);
+        refresh(now);
+        return next;
+    }
+
+    private void refresh(long now) {
+        long span = span(now);
+        Set<String> hot = new HashSet<>();
+        for (Map.Entry<String, long[]> entry : merge(null, now).entrySet()) {
+            long rate = rate(entry.getValue(), span);
+            if (rate < config.getHotCallsPerSecond())
+                continue;
+            hot.add(entry.getKey());
+            if (!hotKeys.contains(entry.getKey()))
+                log.warn("Hot key detected: {} ~{} calls/s", entry.getKey(), rate);
+        }
+        hotKeys = hot.isEmpty() ? Collections.<String> emptySet() : hot;
+    }
+
+    /**
+     * 合并窗口内各时间片的计数
+     *
+     * @param command 为null时合并所有命令
+     */
+    private Map<String, long[]> merge(String command, long now) {
+        long oldest = now / sliceMillis - slices.length() + 1;
+        Map<String, long[]> merged = new HashMap<>();
+        for (int i = 0; i < slices.length(); i++) {
+            Slice slice = slices.get(i);
+            if (null == slice || slice.index < oldest)
+                continue;
+            if (null == command) {
+                for (Summary summary : slice.commands.values()) {
+                    summary.addTo(merged);
+                }
+            } else {
+                Summary summary = slice.commands.get(command);
+                if (null != summary)
+                    summary.addTo(merged);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * 窗口实际覆盖的时间(ms)，刚启动时比窗口短，至少一个时间片
+     */
+    private long span(long now) {
+        long window = (slices.length() - 1) * sliceMillis + now % sliceMillis;
+        return Math.max(sliceMillis, Math.min(window, now - startMillis));
+    }
+
+    private long rate(long[] counter, long span) {
+        return (counter[0] - counter[1]) * config.getSampleEvery() * 1000 / span;
+    }
+
+    /**
+     * 最近一次时间片轮换时判定的热点key
+     */
+    boolean isHot(String key) {
+        return hotKeys.contains(key);
+    }
+
+    Set<String> hotKeys() {
+        return Collections.unmodifiableSet(hotKeys);
+    }
+
+    /**
+     * 窗口内某个命令调用最多的key，按计数从大到小
+     */
+    List<HotKey> topKeys(String command) {
+        long now = clock.getAsLong();
+        long span = span(now);
+        List<Map.Entry<String, long[]>> entries = new ArrayList<>(merge(command, now).entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+        List<HotKey> top = new ArrayList<>(Math.min(entries.size(), config.getTopK()));
+        for (Map.Entry<String, long[]> entry : entries) {
+            if (top.size() >= config.getTopK())
+                break;
+            long[] counter = entry.getValue();
+            top.add(new HotKey(command, entry.getKey(), counter[0] * config.getSampleEvery(),
+                    counter[1] * config.getSampleEvery(), rate(counter, span)));
+        }
+        return top;
+    }
+
+    /**
+     * 窗口内每个命令调用最多的key，按命令名排序
+     */
+    Map<String, List<HotKey>> topKeys() {
+        long oldest = clock.getAsLong() / sliceMillis - slices.length() + 1;
+        Set<String> commands = new HashSet<>();
+        for (int i = 0; i < slices.length(); i++) {
+            Slice slice = slices.get(i);
+            if (null != slice && slice.index >= oldest)
+                commands.addAll(slice.commands.keySet());
+        }
+        Map<String, List<HotKey>> top = new TreeMap<>();
+        for (String command : commands) {
+            top.put(command, topKeys(command));
+        }
+        return top;
+    }
+}
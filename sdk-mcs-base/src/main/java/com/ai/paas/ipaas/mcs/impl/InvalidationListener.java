@@ -0,0 +1,334 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ai.paas.ipaas.mcs.ICacheClient;
+import com.ai.paas.ipaas.mcs.exception.CacheException;
+
+import redis.clients.jedis.Client;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.util.SafeEncoder;
+
+/**
+ * 近端缓存的失效消息订阅。在每个主节点上用一条独占连接订阅keyspace通知或CLIENT TRACKING的广播失效消息，
+ * 每条连接一个读线程，收到的key交给回调。jedis的JedisPubSub不能解析TRACKING消息中的key数组，这里直接读取原始回复。
+ * 另有一个线程定时写入探测key，测量从写入到收到失效消息的延迟，同时确认订阅仍然有效；
+ * 连接断开、订阅失败或探测超时都可能漏掉失效消息，此时先通知暂停本地缓存，再重新订阅。
+ */
+class InvalidationListener implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(InvalidationListener.class);
+
+    private static final String KEYSPACE_CHANNEL = "__keyspace@*__:";
+    private static final int KEYSPACE_PREFIX_LENGTH = "__keyspace@".length();
+    private static final String INVALIDATE_CHANNEL = "__redis__:invalidate";
+    private static final String PROBE_PREFIX = "__mcs_near_cache__:";
+    private static final int PROBE_TTL_SECONDS = 60;
+    private static final long RETRY_INTERVAL = 1000;
+
+    interface Callback {
+        /**
+         * 订阅已建立并通过探测，可以开始使用本地缓存
+         */
+        void resumed();
+
+        /**
+         * 订阅中断，停止使用并清空本地缓存
+         */
+        void suspended();
+
+        /**
+         * key已被修改
+         *
+         * @param key 为null表示清空了所有key
+         */
+        void invalidate(byte[] key);
+
+        /**
+         * 一次探测测量到的失效延迟
+         */
+        void lag(long nanos);
+    }
+
+    private final String name;
+    private final NodeAware nodes;
+    private final ICacheClient client;
+    private final NearCacheConfig config;
+    private final Callback callback;
+    private final String probeKey = PROBE_PREFIX + UUID.randomUUID();
+    private final byte[] probeKeyBytes = SafeEncoder.encode(probeKey);
+    private final List<Jedis> connections = new CopyOnWriteArrayList<>();
+    private final Semaphore probeReceived = new Semaphore(0);
+    private final Thread thread;
+    private volatile long probeSentAt;
+    private volatile boolean probePending;
+    private volatile boolean closed;
+
+    /**
+     * @param name   客户端名称，用于日志和线程名
+     * @param nodes  用于连接各个主节点
+     * @param client 用于写入探测key
+     */
+    InvalidationListener(String name, NodeAware nodes, ICacheClient client, NearCacheConfig config,
+            Callback callback) {
+        this.name = name;
+        this.nodes = nodes;
+        this.client = client;
+        this.config = config;
+        this.callback = callback;
+        thread = new Thread(this::run, "mcs-near-cache-" + name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        while (!closed) {
+            try {
+                CountDownLatch broken = subscribe();
+                probe();
+                callback.resumed();
+                log.info("Near cache of {} subscribed to invalidations.", name);
+                while (!broken.await(config.getProbeIntervalMillis(), TimeUnit.MILLISECONDS)) {
+                    probe();
+                }
+                throw new CacheException("Invalidation connection closed");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                if (!closed)
+                    log.warn("Near cache of {} lost invalidations, local cache suspended: {}", name, e.getMessage());
+            } finally {
+                callback.suspended();
+                disconnect();
+            }
+            try {
+                Thread.sleep(RETRY_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 在每个主节点上订阅，并为每条订阅连接启动读线程
+     *
+     * @return 任一订阅连接断开时计数归零
+     */
+    private CountDownLatch subscribe() {
+        List<HostAndPort> masters = nodes.getMasterNodes();
+        CountDownLatch broken = new CountDownLatch(1);
+        for (HostAndPort node : masters) {
+            Jedis subscriber = connect(node);
+            Client connection = subscriber.getClient();
+            int confirmations;
+            if (config.getInvalidation() == NearCacheConfig.Invalidation.TRACKING) {
+                connection.sendCommand(Protocol.Command.CLIENT, "ID");
+                long id = connection.getIntegerReply();
+                Client tracker = connect(node).getClient();
+                tracker.sendCommand(Protocol.Command.CLIENT, trackingArgs(id));
+                tracker.getStatusCodeReply();
+                connection.subscribe(SafeEncoder.encode(INVALIDATE_CHANNEL));
+                confirmations = 1;
+            } else {
+                enableKeyspaceEvents(subscriber, node);
+                byte[][] patterns = keyspacePatterns();
+                connection.psubscribe(patterns);
+                confirmations = patterns.length;
+            }
+            for (int i = 0; i < confirmations; i++) {
+                connection.getRawObjectMultiBulkReply();
+            }
+            connection.setTimeoutInfinite();
+            Thread reader = new Thread(() -> read(connection, broken), "mcs-near-cache-" + name + "-" + node);
+            reader.setDaemon(true);
+            reader.start();
+        }
+        return broken;
+    }
+
+    private Jedis connect(HostAndPort node) {
+        Jedis jedis = nodes.connect(node);
+        connections.add(jedis);
+        return jedis;
+    }
+
+    private void disconnect() {
+        for (Jedis jedis : connections) {
+            try {
+                jedis.close();
+            } catch (Exception e) {
+                // 连接已断开
+            }
+        }
+        connections.clear();
+    }
+
+    private String[] trackingArgs(long redirect) {
+        List<String> args = new ArrayList<>(Arrays.asList("TRACKING", "on", "REDIRECT", String.valueOf(redirect),
+                "BCAST"));
+        if (!config.getPrefixes().isEmpty()) {
+            for (String prefix : config.getPrefixes()) {
+                args.add("PREFIX");
+                args.add(prefix);
+            }
+            args.add("PREFIX");
+            args.add(probeKey);
+        }
+        return args.toArray(new String[0]);
+    }
+
+    private byte[][] keyspacePatterns() {
+        List<String> patterns = new ArrayList<>();
+        if (config.getPrefixes().isEmpty()) {
+            patterns.add(KEYSPACE_CHANNEL + "*");
+        } else {
+            for (String prefix : config.getPrefixes()) {
+                patterns.add(KEYSPACE_CHANNEL + escape(prefix) + "*");
+            }
+            patterns.add(KEYSPACE_CHANNEL + escape(probeKey));
+        }
+        byte[][] encoded = new byte[patterns.size()][];
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = SafeEncoder.encode(patterns.get(i));
+        }
+        return encoded;
+    }
+
+    /**
+     * 确认notify-keyspace-events包含K以及通用、字符串、hash、过期和淘汰事件，没有时尝试开启
+     */
+    private void enableKeyspaceEvents(Jedis jedis, HostAndPort node) {
+        try {
+            List<String> current = jedis.configGet("notify-keyspace-events");
+            String flags = current.size() > 1 ? current.get(1) : "";
+            if (flags.indexOf('K') >= 0 && (flags.indexOf('A') >= 0 || containsAll(flags, "g$hxe")))
+                return;
+            jedis.configSet("notify-keyspace-events", flags + "KA");
+            log.info("Enabled keyspace notifications on {} for near cache of {}.", node, name);
+        } catch (JedisDataException e) {
+            // 云服务等禁用了CONFIG命令时需要在服务端配置，否则探测会一直超时
+            log.warn("Check notify-keyspace-events on {} failed, it must contain K and A: {}", node, e.getMessage());
+        }
+    }
+
+    private static boolean containsAll(String flags, String required) {
+        for (int i = 0; i < required.length(); i++) {
+            if (flags.indexOf(required.charAt(i)) < 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * 转义glob的特殊字符
+     */
+    private static String escape(String text) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == ']' || c == '\\')
+                sb.append('\\');
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private void read(Client connection, CountDownLatch broken) {
+        try {
+            while (!closed) {
+                dispatch(connection.getRawObjectMultiBulkReply());
+            }
+        } catch (Exception e) {
+            if (!closed)
+                log.warn("Invalidation connection of {} broken: {}", name, e.getMessage());
+        } finally {
+            broken.countDown();
+        }
+    }
+
+    /**
+     * pmessage为keyspace通知，key在频道名中；message为TRACKING的失效消息，内容为key的数组，为空表示清空了所有key
+     */
+    private void dispatch(List<Object> message) {
+        String kind = SafeEncoder.encode((byte[]) message.get(0));
+        if ("pmessage".equals(kind)) {
+            byte[] key = keyOf((byte[]) message.get(2));
+            if (null != key)
+                invalidated(key);
+        } else if ("message".equals(kind)) {
+            Object keys = message.get(2);
+            if (null == keys) {
+                callback.invalidate(null);
+            } else if (keys instanceof byte[]) {
+                invalidated((byte[]) keys);
+            } else {
+                for (Object key : (List<?>) keys) {
+                    invalidated((byte[]) key);
+                }
+            }
+        }
+    }
+
+    /**
+     * 从__keyspace@db__:key中取出key
+     */
+    static byte[] keyOf(byte[] channel) {
+        for (int i = KEYSPACE_PREFIX_LENGTH; i + 2 < channel.length; i++) {
+            if (channel[i] == '_' && channel[i + 1] == '_' && channel[i + 2] == ':')
+                return Arrays.copyOfRange(channel, i + 3, channel.length);
+        }
+        return null;
+    }
+
+    private void invalidated(byte[] key) {
+        if (!Arrays.equals(key, probeKeyBytes)) {
+            callback.invalidate(key);
+            return;
+        }
+        if (probePending) {
+            probePending = false;
+            callback.lag(System.nanoTime() - probeSentAt);
+            probeReceived.release();
+        }
+    }
+
+    /**
+     * 写入探测key并等待它的失效消息
+     */
+    private void probe() throws InterruptedException {
+        probeReceived.drainPermits();
+        probeSentAt = System.nanoTime();
+        probePending = true;
+        client.setex(probeKey, PROBE_TTL_SECONDS, String.valueOf(System.currentTimeMillis()));
+        if (!probeReceived.tryAcquire(config.getProbeTimeoutMillis(), TimeUnit.MILLISECONDS))
+            throw new CacheException("No invalidation of probe key in " + config.getProbeTimeoutMillis() + "ms");
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+        disconnect();
+        try {
+            client.del(probeKey);
+        } catch (Exception e) {
+            log.warn("Delete probe key {} failed: {}", probeKey, e.getMessage());
+        }
+    }
+}
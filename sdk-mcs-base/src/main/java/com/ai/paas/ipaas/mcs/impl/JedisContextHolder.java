@@ -13,7 +13,7 @@ public class JedisContextHolder {
     }
 
     public static void clean() {
-        log.info("Start to clean jedis....");
+        log.debug("Start to clean jedis....");
         if (null != txJedisHolder.get()) {
             txJedisHolder.get().close();
         }
@@ -0,0 +1,59 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 本地缓存的失效版本，防止把失效之前从redis读到的旧值存进本地。
+ * 按key的hash分段计数，key失效时所在段加一，清空本地缓存时epoch加一。从redis读取前记下key的版本，
+ * 读取后没有变化才存入本地，存入后再检查一次，其间发生的失效使刚存入的条目作废。
+ * 其他key的失效不影响，持续写入无关的key时本地缓存仍能填充；两个key落在同一段时一方的失效会让另一方正在进行的读取不存入本地
+ */
+final class KeyVersions {
+
+    private static final int STRIPES = 1024;
+
+    private final AtomicLongArray stripes = new AtomicLongArray(STRIPES);
+    private final AtomicLong epoch = new AtomicLong();
+
+    private static int stripe(Object key) {
+        int h = key.hashCode();
+        return (h ^ h >>> 16) & (STRIPES - 1);
+    }
+
+    /**
+     * key当前的版本，两个计数都只增不减，和不变即两者都没有变化
+     */
+    long of(Object key) {
+        return epoch.get() + stripes.get(stripe(key));
+    }
+
+    /**
+     * key失效
+     */
+    void bump(Object key) {
+        stripes.incrementAndGet(stripe(key));
+    }
+
+    /**
+     * 所有key失效
+     */
+    void bumpAll() {
+        epoch.incrementAndGet();
+    }
+
+    /**
+     * 读取期间key没有失效时存入cache
+     *
+     * @return 读取期间已经失效、没有存入时返回false
+     */
+    <K, V> boolean put(LocalCache<K, V> cache, K key, V value, long readVersion) {
+        if (of(key) != readVersion)
+            return false;
+        cache.put(key, value);
+        // 检查与存入之间发生的失效
+        if (of(key) != readVersion)
+            cache.invalidate(key);
+        return true;
+    }
+}
@@ -0,0 +1,354 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * 进程内的缓存存储：按权重限制总大小、条目有固定存活时间，淘汰策略为W-TinyLFU。
+ * 新条目先进入占总权重1%的窗口LRU，被挤出窗口后要与主区的淘汰候选比较最近的访问频率（FrequencySketch），
+ * 频率更高才能进入主区，所以批量扫描产生的只访问一次的key不会挤掉热点条目。
+ * 主区为分段LRU：初次进入的条目在试用区，再次命中后升入占主区80%的保护区，保护区满时最久未用的降回试用区。
+ * 分成若干段，每段有自己的锁、频率统计并各占总权重的一份，读写不同段的线程互不阻塞。
+ * 存入的value应当是不可变的，读取时直接返回。
+ * 可以指定removalListener，value因淘汰、未被接纳、过期、失效或被替换而移出时调用，用于释放value持有的资源
+ */
+class LocalCache<K, V> {
+
+    /**
+     * 每段至少1M的权重，总权重较小时减少段数，保证淘汰顺序接近全局的策略
+     */
+    private static final long MIN_SEGMENT_WEIGHT = 1024 * 1024;
+    private static final int MAX_SEGMENTS = 16;
+    private static final double WINDOW_RATIO = 0.01;
+    private static final double PROTECTED_RATIO = 0.8;
+    /**
+     * 候选条目的频率超过该值而又不高于淘汰候选时，仍以1/128的概率接纳，防止攻击者制造hash碰撞抬高淘汰候选的频率
+     */
+    private static final int ADMIT_HASHDOS_THRESHOLD = 5;
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private static final class Node<K, V> {
+        final K key;
+        V value;
+        int weight;
+        long expireAt;
+        int queue;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * 带哨兵的双向链表，头部为最久未用
+     */
+    private static final class Queue<K, V> {
+        private final Node<K, V> head = new Node<>(null);
+        long weight;
+
+        Queue() {
+            head.prev = head;
+            head.next = head;
+        }
+
+        Node<K, V> first() {
+            return head.next == head ? null : head.next;
+        }
+
+        void add(Node<K, V> node) {
+            node.prev = head.prev;
+            node.next = head;
+            head.prev.next = node;
+            head.prev = node;
+            weight += node.weight;
+        }
+
+        void remove(Node<K, V> node) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+            weight -= node.weight;
+        }
+
+        void clear() {
+            head.prev = head;
+            head.next = head;
+            weight = 0;
+        }
+    }
+
+    private static final class Segment<K, V> {
+        private final Map<K, Node<K, V>> map = new HashMap<>();
+        @SuppressWarnings("unchecked")
+        private final Queue<K, V>[] queues = (Queue<K, V>[]) new Queue<?, ?>[] { new Queue<K, V>(), new Queue<K, V>(),
+                new Queue<K, V>() };
+        private final FrequencySketch sketch = new FrequencySketch(16);
+        private final long windowMax;
+        private final long mainMax;
+        private final long protectedMax;
+        private final LongAdder evictions;
+        private final Consumer<V> removalListener;
+
+        Segment(long maxWeight, LongAdder evictions, Consumer<V> removalListener) {
+            this.windowMax = (long) (maxWeight * WINDOW_RATIO);
+            this.mainMax = maxWeight - windowMax;
+            this.protectedMax = (long) (mainMax * PROTECTED_RATIO);
+            this.evictions = evictions;
+            this.removalListener = removalListener;
+        }
+
+        synchronized V get(K key, long now) {
+            Node<K, V> node = map.get(key);
+            if (null == node)
+                return null;
+            if (node.expireAt - now <= 0) {
+                unlink(node);
+                return null;
+            }
+            sketch.increment(key);
+            onHit(node);
+            return node.value;
+        }
+
+        synchronized void put(K key, V value, int weight, long expireAt) {
+            sketch.increment(key);
+            Node<K, V> node = map.get(key);
+            if (null != node) {
+                Queue<K, V> queue = queues[node.queue];
+                queue.weight += weight - node.weight;
+                if (node.value != value)
+                    removed(node.value);
+                node.value = value;
+                node.weight = weight;
+                node.expireAt = expireAt;
+                onHit(node);
+            } else {
+                node = new Node<>(key);
+                node.value = value;
+                node.weight = weight;
+                node.expireAt = expireAt;
+                node.queue = WINDOW;
+                map.put(key, node);
+                queues[WINDOW].add(node);
+                if (map.size() > sketch.capacity())
+                    sketch.ensureCapacity(map.size() * 2);
+            }
+            evict();
+        }
+
+        private void onHit(Node<K, V> node) {
+            Queue<K, V> queue = queues[node.queue];
+            queue.remove(node);
+            if (node.queue == PROBATION) {
+                node.queue = PROTECTED;
+                queue = queues[PROTECTED];
+            }
+            queue.add(node);
+            Queue<K, V> protect = queues[PROTECTED];
+            while (protect.weight > protectedMax) {
+                Node<K, V> demoted = protect.first();
+                protect.remove(demoted);
+                demoted.queue = PROBATION;
+                queues[PROBATION].add(demoted);
+            }
+        }
+
+        /**
+         * 窗口超出时把最久未用的条目依次移出，与主区的淘汰候选比较后决定保留哪一个
+         */
+        private void evict() {
+            Queue<K, V> window = queues[WINDOW];
+            while (window.weight > windowMax) {
+                Node<K, V> candidate = window.first();
+                window.remove(candidate);
+                admit(candidate);
+            }
+            // 替换导致主区变大时按LRU淘汰
+            while (mainWeight() > mainMax) {
+                Node<K, V> victim = victim();
+                unlink(victim);
+                evictions.increment();
+            }
+        }
+
+        private void admit(Node<K, V> candidate) {
+            while (mainWeight() + candidate.weight > mainMax) {
+                Node<K, V> victim = victim();
+                if (null == victim || !winsAgainst(candidate, victim)) {
+                    map.remove(candidate.key);
+                    removed(candidate.value);
+                    evictions.increment();
+                    return;
+                }
+                unlink(victim);
+                evictions.increment();
+            }
+            candidate.queue = PROBATION;
+            queues[PROBATION].add(candidate);
+        }
+
+        private boolean winsAgainst(Node<K, V> candidate, Node<K, V> victim) {
+            int candidateFrequency = sketch.frequency(candidate.key);
+            int victimFrequency = sketch.frequency(victim.key);
+            if (candidateFrequency > victimFrequency)
+                return true;
+            if (candidateFrequency <= ADMIT_HASHDOS_THRESHOLD)
+                return false;
+            return (ThreadLocalRandom.current().nextInt() & 127) == 0;
+        }
+
+        private Node<K, V> victim() {
+            Node<K, V> victim = queues[PROBATION].first();
+            return null != victim ? victim : queues[PROTECTED].first();
+        }
+
+        private long mainWeight() {
+            return queues[PROBATION].weight + queues[PROTECTED].weight;
+        }
+
+        private void unlink(Node<K, V> node) {
+            map.remove(node.key);
+            queues[node.queue].remove(node);
+            removed(node.value);
+        }
+
+        private void removed(V value) {
+            if (null != removalListener)
+                removalListener.accept(value);
+        }
+
+        /**
+         * @return 移出的value，没有时返回null
+         */
+        synchronized V remove(Object key) {
+            Node<K, V> node = map.get(key);
+            if (null == node)
+                return null;
+            unlink(node);
+            return node.value;
+        }
+
+        synchronized void clear() {
+            for (Node<K, V> node : map.values()) {
+                removed(node.value);
+            }
+            map.clear();
+            for (Queue<K, V> queue : queues) {
+                queue.clear();
+            }
+        }
+
+        synchronized int size() {
+            return map.size();
+        }
+
+        synchronized long weight() {
+            return queues[WINDOW].weight + mainWeight();
+        }
+    }
+
+    private final Segment<K, V>[] segments;
+    private final long segmentWeight;
+    private final long ttlNanos;
+    private final ToIntBiFunction<K, V> weigher;
+    private final LongAdder evictions = new LongAdder();
+    private final Consumer<V> removalListener;
+
+    /**
+     * @param maxWeight 总权重上限
+     * @param ttlMillis 条目存活时间(ms)
+     * @param weigher   计算条目的权重
+     */
+    LocalCache(long maxWeight, long ttlMillis, ToIntBiFunction<K, V> weigher) {
+        this(maxWeight, ttlMillis, weigher, null);
+    }
+
+    /**
+     * @param maxWeight       总权重上限
+     * @param ttlMillis       条目存活时间(ms)
+     * @param weigher         计算条目的权重
+     * @param removalListener value移出时调用，在段的锁内执行，不能再访问本缓存
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    LocalCache(long maxWeight, long ttlMillis, ToIntBiFunction<K, V> weigher, Consumer<V> removalListener) {
+        int count = (int) Math.min(MAX_SEGMENTS, Math.max(1, maxWeight / MIN_SEGMENT_WEIGHT));
+        count = Integer.highestOneBit(count);
+        this.segments = new Segment[count];
+        this.segmentWeight = maxWeight / count;
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<>(segmentWeight, evictions, removalListener);
+        }
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.weigher = weigher;
+        this.removalListener = removalListener;
+    }
+
+    private Segment<K, V> segmentFor(Object key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return segments[h & (segments.length - 1)];
+    }
+
+    V get(K key) {
+        return segmentFor(key).get(key, System.nanoTime());
+    }
+
+    /**
+     * 存入或替换，权重超过一段的上限的条目不缓存
+     */
+    void put(K key, V value) {
+        int weight = weigher.applyAsInt(key, value);
+        Segment<K, V> segment = segmentFor(key);
+        if (weight > segmentWeight) {
+            // 原条目就是value时已在移出时通知过，与替换时一样不再通知
+            if (segment.remove(key) != value && null != removalListener)
+                removalListener.accept(value);
+            return;
+        }
+        segment.put(key, value, weight, System.nanoTime() + ttlNanos);
+    }
+
+    void invalidate(Object key) {
+        segmentFor(key).remove(key);
+    }
+
+    void invalidateAll() {
+        for (Segment<K, V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    long size() {
+        long size = 0;
+        for (Segment<K, V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    long weight() {
+        long weight = 0;
+        for (Segment<K, V> segment : segments) {
+            weight += segment.weight();
+        }
+        return weight;
+    }
+
+    /**
+     * 因超出权重上限被淘汰或未被接纳的条目数，不包括过期和失效
+     */
+    long evictions() {
+        return evictions.sum();
+    }
+}
@@ -0,0 +1,159 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ai.paas.ipaas.mcs.ICacheClient;
+
+import redis.clients.jedis.Pipeline;
+
+/**
+ * 锁续期。一个客户端一个后台线程，每次只在最早需要续期的时间醒来，把所有到期和即将到期的锁放在一个pipeline中续期，
+ * 持有大量锁时每个周期也只有一次往返。
+ */
+class LockWatchdog {
+
+    private static final Logger log = LoggerFactory.getLogger(LockWatchdog.class);
+
+    /**
+     * 标识一致时延长有效期，返回1；否则返回0
+     */
+    static final LuaScript RENEW = new LuaScript("if redis.call('get', KEYS[1]) == ARGV[1] then "
+            + "return redis.call('pexpire', KEYS[1], ARGV[2]) end return 0");
+
+    private final ICacheClient client;
+    private final Set<RenewableLock> locks = ConcurrentHashMap.newKeySet();
+    private final ScheduledThreadPoolExecutor scheduler;
+    private ScheduledFuture<?> next;
+    private long nextTickAt;
+
+    LockWatchdog(ICacheClient client) {
+        this.client = client;
+        scheduler = new ScheduledThreadPoolExecutor(1, r ->
+            {
+                Thread t = new Thread(r, "mcs-lock-watchdog");
+                t.setDaemon(true);
+                return t;
+            });
+        scheduler.setKeepAliveTime(60, TimeUnit.SECONDS);
+        scheduler.allowCoreThreadTimeOut(true);
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    void watch(RenewableLock lock) {
+        locks.add(lock);
+        schedule(lock.getRenewAt());
+    }
+
+    void unwatch(RenewableLock lock) {
+        locks.remove(lock);
+    }
+
+    private synchronized void schedule(long at) {
+        if (null != next && nextTickAt <= at)
+            return;
+        if (null != next)
+            next.cancel(false);
+        nextTickAt = at;
+        next = scheduler.schedule(this::tick, Math.max(at - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+    }
+
+    private void tick() {
+        synchronized (this) {
+            next = null;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            List<RenewableLock> due = new ArrayList<>();
+            for (RenewableLock lock : locks) {
+                if (lock.isDue(now))
+                    due.add(lock);
+            }
+            if (!due.isEmpty())
+                renew(due, now);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        } finally {
+            long at = Long.MAX_VALUE;
+            for (RenewableLock lock : locks) {
+                at = Math.min(at, lock.getRenewAt());
+            }
+            if (at != Long.MAX_VALUE)
+                schedule(at);
+        }
+    }
+
+    /**
+     * 在一个pipeline中续期所有到期的锁
+     */
+    void renew(List<RenewableLock> due, long now) {
+        List<Object> replies;
+        Pipeline p = null;
+        try {
+            p = client.startPipeline();
+            for (RenewableLock lock : due) {
+                p.evalsha(RENEW.getSha1(), Collections.singletonList(lock.getLockKey()), args(lock));
+            }
+            replies = p.syncAndReturnAll();
+        } catch (Exception e) {
+            log.warn("Renew {} locks failed: {}", due.size(), e.getMessage());
+            for (RenewableLock lock : due) {
+                failed(lock, now);
+            }
+            return;
+        } finally {
+            if (null != p) {
+                try {
+                    client.endPipeline(p);
+                } catch (Exception e) {
+                    log.warn("End renew pipeline failed: {}", e.getMessage());
+                }
+            }
+        }
+        for (int i = 0; i < due.size(); i++) {
+            RenewableLock lock = due.get(i);
+            if (!locks.contains(lock))
+                continue;
+            Object reply = replies.get(i);
+            if (reply instanceof Throwable && LuaScript.isNoScript((Throwable) reply)) {
+                // 脚本缓存被清空，单独执行一次，同时重新缓存脚本
+                try {
+                    reply = RENEW.eval(client, Collections.singletonList(lock.getLockKey()), args(lock));
+                } catch (Exception e) {
+                    reply = e;
+                }
+            }
+            if (reply instanceof Throwable) {
+                log.warn("Renew lock {} failed: {}", lock, ((Throwable) reply).getMessage());
+                failed(lock, now);
+            } else if (Long.valueOf(1).equals(reply)) {
+                lock.renewed(now);
+            } else {
+                log.warn("Lock {} is no longer held, stop renewing.", lock);
+                lock.lost();
+                locks.remove(lock);
+            }
+        }
+    }
+
+    private void failed(RenewableLock lock, long now) {
+        if (lock.renewFailed(now)) {
+            log.warn("Lock {} expired before it could be renewed.", lock);
+            locks.remove(lock);
+        }
+    }
+
+    private static List<String> args(RenewableLock lock) {
+        return Arrays.asList(lock.getIdentifier(), String.valueOf(lock.getLeaseTimeInMS()));
+    }
+}
@@ -0,0 +1,175 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ai.paas.ipaas.mcs.ICacheClient;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
+
+/**
+ * 锁释放通知。等待锁的线程按锁订阅释放频道，释放锁时脚本向该频道发布消息，唤醒一个等待线程重新竞争。
+ * 一个客户端共用一条订阅连接，由后台线程维持；只要有线程在等待，断线后就会重连并重新订阅。
+ * 订阅连接在第一次等待锁时建立，之后一直保持。客户端能直接连接主节点（NodeAware）时新建一条独立连接，
+ * 不占用连接池；否则从连接池借用一条连接长期占用，连接池的maxTotal需要为此多留一条。
+ */
+class LockWatcher extends JedisPubSub {
+
+    private static final Logger log = LoggerFactory.getLogger(LockWatcher.class);
+
+    /**
+     * 常驻订阅的频道，保证动态退订其他频道后订阅连接不会结束
+     */
+    private static final String KEEPALIVE_CHANNEL = "mcs:lock:keepalive";
+
+    private static final long RECONNECT_INTERVAL = 1000;
+
+    static final String WAKE_ALL = "*";
+
+    private final ICacheClient client;
+    private final Map<String, Waiters> waiters = new ConcurrentHashMap<>();
+    private Thread thread;
+
+    static final class Waiters {
+        final Semaphore permits = new Semaphore(0);
+        final CountDownLatch subscribed = new CountDownLatch(1);
+        int count;
+
+        /**
+         * 等待订阅生效，订阅生效前的释放通知会丢失
+         */
+        void awaitSubscribed(long timeoutInMS) throws InterruptedException {
+            subscribed.await(timeoutInMS, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * 等待释放通知
+         *
+         * @return 是否收到通知
+         */
+        boolean await(long timeoutInMS) throws InterruptedException {
+            return permits.tryAcquire(timeoutInMS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    LockWatcher(ICacheClient client) {
+        this.client = client;
+    }
+
+    synchronized Waiters register(String channel) {
+        Waiters w = waiters.get(channel);
+        if (null == w) {
+            w = new Waiters();
+            waiters.put(channel, w);
+            if (null == thread) {
+                start();
+            } else if (isSubscribed()) {
+                try {
+                    subscribe(channel);
+                } catch (Exception e) {
+                    // 订阅连接已断开，重连后会重新订阅
+                    log.warn("Subscribe {} failed: {}", channel, e.getMessage());
+                }
+            }
+        }
+        w.count++;
+        return w;
+    }
+
+    synchronized void unregister(String channel, Waiters w) {
+        if (--w.count > 0)
+            return;
+        waiters.remove(channel);
+        if (isSubscribed()) {
+            try {
+                unsubscribe(channel);
+            } catch (Exception e) {
+                log.warn("Unsubscribe {} failed: {}", channel, e.getMessage());
+            }
+        }
+    }
+
+    private void start() {
+        thread = new Thread(this::run, "mcs-lock-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        while (true) {
+            try {
+                subscribe();
+            } catch (Exception e) {
+                log.warn("Lock watcher subscription broken: {}", e.getMessage());
+            }
+            synchronized (this) {
+                if (waiters.isEmpty()) {
+                    thread = null;
+                    return;
+                }
+            }
+            try {
+                Thread.sleep(RECONNECT_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                synchronized (this) {
+                    thread = null;
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * 订阅常驻频道，直到连接断开才返回。集群中任一主节点都会收到所有节点上发布的消息
+     */
+    private void subscribe() {
+        if (client instanceof NodeAware) {
+            NodeAware nodes = (NodeAware) client;
+            try (Jedis jedis = nodes.connect(nodes.getMasterNodes().get(0))) {
+                jedis.subscribe(this, KEEPALIVE_CHANNEL);
+            }
+        } else {
+            client.subscribe(this, KEEPALIVE_CHANNEL);
+        }
+    }
+
+    @Override
+    public void onSubscribe(String channel, int subscribedChannels) {
+        if (KEEPALIVE_CHANNEL.equals(channel)) {
+            // 连接建立后订阅所有正在等待的锁
+            synchronized (this) {
+                if (!waiters.isEmpty())
+                    subscribe(waiters.keySet().toArray(new String[0]));
+            }
+            return;
+        }
+        Waiters w = waiters.get(channel);
+        if (null != w)
+            w.subscribed.countDown();
+    }
+
+    /**
+     * 互斥锁释放时唤醒一个等待者；读写锁释放时发布*，唤醒所有等待者，读锁可以同时获得
+     */
+    @Override
+    public void onMessage(String channel, String message) {
+        Waiters w = waiters.get(channel);
+        if (null == w)
+            return;
+        if (WAKE_ALL.equals(message)) {
+            synchronized (this) {
+                w.permits.release(Math.max(w.count, 1));
+            }
+        } else {
+            w.permits.release();
+        }
+    }
+}
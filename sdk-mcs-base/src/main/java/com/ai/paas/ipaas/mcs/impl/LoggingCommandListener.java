@@ -0,0 +1,26 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 把命令耗时写到日志：采样到的调用为INFO，慢调用和失败的调用为WARN。
+ * 通常与采样一起注册，例如 getCommandListeners().add(new LoggingCommandListener(), 1000, 100)
+ */
+public class LoggingCommandListener implements CommandListener {
+
+    private static final Logger log = LoggerFactory.getLogger(LoggingCommandListener.class);
+
+    @Override
+    public void onCommand(String client, String command, long durationNanos, boolean slow, Throwable error) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(durationNanos);
+        if (null != error)
+            log.warn("{} {} failed after {}us: {}", client, command, micros, error.getMessage());
+        else if (slow)
+            log.warn("{} {} is slow, used {}us", client, command, micros);
+        else
+            log.info("{} {} used {}us", client, command, micros);
+    }
+}
@@ -0,0 +1,76 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+import com.ai.paas.ipaas.mcs.ICacheClient;
+import com.ai.paas.ipaas.mcs.exception.CacheException;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+
+/**
+ * lua脚本，优先用EVALSHA执行，只传摘要；redis中还没有缓存该脚本时改用EVAL
+ */
+public class LuaScript {
+
+    private final String script;
+    private final String sha1;
+
+    public LuaScript(String script) {
+        this.script = script;
+        this.sha1 = sha1Hex(script);
+    }
+
+    public Object eval(ICacheClient client, List<String> keys, List<String> args) {
+        try {
+            return client.evalsha(sha1, keys, args);
+        } catch (CacheException e) {
+            if (!isNoScript(e))
+                throw e;
+            return client.eval(script, keys, args);
+        }
+    }
+
+    /**
+     * 在指定连接上执行，用于脚本和后续命令需要使用同一连接的场景
+     */
+    public Object eval(Jedis jedis, List<String> keys, List<String> args) {
+        try {
+            return jedis.evalsha(sha1, keys, args);
+        } catch (JedisNoScriptException e) {
+            return jedis.eval(script, keys, args);
+        }
+    }
+
+    public String getScript() {
+        return script;
+    }
+
+    public String getSha1() {
+        return sha1;
+    }
+
+    static boolean isNoScript(Throwable e) {
+        for (Throwable t = e; null != t; t = t.getCause()) {
+            if (t instanceof JedisNoScriptException || (null != t.getMessage() && t.getMessage().startsWith("NOSCRIPT")))
+                return true;
+        }
+        return false;
+    }
+
+    private static String sha1Hex(String script) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(script.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new CacheException(e);
+        }
+    }
+}
@@ -0,0 +1,1136 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ai.paas.ipaas.mcs.ICacheClient;
+import com.ai.paas.ipaas.mcs.exception.CacheException;
+
+import redis.clients.jedis.GeoCoordinate;
+import redis.clients.jedis.params.ZAddParams;
+import redis.clients.jedis.params.ZIncrByParams;
+import redis.clients.jedis.util.SafeEncoder;
+
+/**
+ * 带近端缓存（进程内的一级缓存）的客户端，包装已有的ICacheClient，适合少量读多写少的key，如配置、商品目录。
+ * get、hget、mget在本地条目有效时直接返回，不访问redis；本地缓存按权重限制大小、按存活时间过期。
+ * 其他客户端的修改通过keyspace通知或CLIENT TRACKING广播（见NearCacheConfig.Invalidation）使本地条目失效，
+ * 本客户端的写操作在返回前使本地条目失效，保证自己写入后能读到新值；
+ * 事务和pipeline中的写操作、以及未被覆盖的命令只依靠失效消息。
+ * 失效订阅未建立或中断期间不使用本地缓存，所有读取直接访问redis。
+ * 配置了offHeapMaxBytes时，get(byte[])和hget(byte[], byte[])读到的较大value存放在堆外（见OffHeapStore），
+ * 堆上只保留句柄；getView/hgetView返回不复制的只读视图。
+ */
+public class NearCacheClient extends ForwardingCacheClient {
+
+    /**
+     * 每个本地条目的固定开销
+     */
+    private static final int ENTRY_OVERHEAD = 64;
+    /**
+     * 堆外value在堆上的句柄的大小
+     */
+    private static final int OFF_HEAP_HANDLE = 32;
+
+    /**
+     * 不存在的key或field
+     */
+    private static final Object NULL = new Object();
+
+    /**
+     * byte[]的key或field，按内容比较
+     */
+    private static final class BinaryKey {
+        final byte[] bytes;
+        private final int hash;
+
+        BinaryKey(byte[] bytes) {
+            this.bytes = bytes;
+            this.hash = Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof BinaryKey && Arrays.equals(bytes, ((BinaryKey) obj).bytes);
+        }
+    }
+
+    /**
+     * hash中已缓存的field，增加field时原地修改，读取不加锁。对其中的每个堆外value持有一次引用，移出本地缓存时释放
+     */
+    private static final class Fields {
+        final Map<Object, Object> values = new ConcurrentHashMap<>();
+        volatile int weight;
+        private boolean released;
+
+        /**
+         * 增加或替换一个field，被替换的堆外value随即释放
+         *
+         * @return 已经移出本地缓存、释放过时不增加，返回false
+         */
+        synchronized boolean add(Object field, Object value) {
+            if (released)
+                return false;
+            Object replaced = values.put(field, value);
+            int delta = weigh(field) + weigh(value);
+            if (null != replaced) {
+                delta -= weigh(field) + weigh(replaced);
+                if (replaced instanceof OffHeapStore.Value)
+                    ((OffHeapStore.Value) replaced).release();
+            }
+            weight += delta;
+            return true;
+        }
+
+        synchronized void release() {
+            if (released)
+                return;
+            released = true;
+            for (Object value : values.values()) {
+                if (value instanceof OffHeapStore.Value)
+                    ((OffHeapStore.Value) value).release();
+            }
+        }
+    }
+
+    /**
+     * 没有缓存field时共用的空实例，不能修改
+     */
+    private static final Fields NO_FIELDS = new Fields();
+
+    private final NearCacheConfig config;
+    private final LocalCache<Object, Object> cache;
+    private final OffHeapStore offHeap;
+    private final NearCacheStats stats = new NearCacheStats();
+    private final KeyVersions versions = new KeyVersions();
+    private final InvalidationListener listener;
+    private volatile boolean active;
+
+    /**
+     * @param delegate 被包装的客户端，使用KEYSPACE或TRACKING失效时需要实现NodeAware
+     * @param config   近端缓存配置
+     */
+    public NearCacheClient(ICacheClient delegate, NearCacheConfig config) {
+        super(delegate);
+        this.config = config;
+        this.cache = new LocalCache<>(config.getMaxWeight(), config.getTtlMillis(),
+                (key, value) -> ENTRY_OVERHEAD + weigh(key) + weigh(value), NearCacheClient::released);
+        this.offHeap = config.getOffHeapMaxBytes() > 0
+                ? new OffHeapStore(config.getOffHeapMaxBytes(), config.getOffHeapSlabBytes(), cache::invalidate)
+                : null;
+        if (config.getInvalidation() == NearCacheConfig.Invalidation.NONE) {
+            listener = null;
+            active = true;
+            return;
+        }
+        if (!(delegate instanceof NodeAware))
+            throw new CacheException(delegate.getClass().getSimpleName()
+                    + " can not subscribe invalidations, use Invalidation.NONE instead");
+        String name = delegate instanceof CommandExecutorAware
+                ? ((CommandExecutorAware) delegate).getCommandExecutor().getName()
+                : delegate.getClass().getSimpleName();
+        listener = new InvalidationListener(name, (NodeAware) delegate, delegate, config,
+                new InvalidationListener.Callback() {
+                    @Override
+                    public void resumed() {
+                        cache.invalidateAll();
+                        active = true;
+                    }
+
+                    @Override
+                    public void suspended() {
+                        active = false;
+                        versions.bumpAll();
+                        cache.invalidateAll();
+                    }
+
+                    @Override
+                    public void invalidate(byte[] key) {
+                        if (null == key) {
+                            versions.bumpAll();
+                            cache.invalidateAll();
+                            return;
+                        }
+                        NearCacheClient.this.invalidate(key);
+                    }
+
+                    @Override
+                    public void lag(long nanos) {
+                        stats.recordLag(nanos);
+                    }
+                });
+    }
+
+    private static int weigh(Object item) {
+        if (item instanceof String)
+            return ((String) item).length() * 2;
+        if (item instanceof byte[])
+            return ((byte[]) item).length;
+        if (item instanceof BinaryKey)
+            return ((BinaryKey) item).bytes.length;
+        if (item instanceof Fields)
+            return ((Fields) item).weight;
+        if (item instanceof OffHeapStore.Value)
+            return OFF_HEAP_HANDLE;
+        return 0;
+    }
+
+    /**
+     * 本地条目移出时释放其持有的堆外value
+     */
+    private static void released(Object value) {
+        if (value instanceof OffHeapStore.Value)
+            ((OffHeapStore.Value) value).release();
+        else if (value instanceof Fields)
+            ((Fields) value).release();
+    }
+
+    /**
+     * 本地缓存中字节数据的副本
+     *
+     * @return 未命中时返回null，不存在的key或field返回NULL
+     */
+    private static Object copyOf(Object cached) {
+        if (cached == NULL)
+            return NULL;
+        if (cached instanceof byte[])
+            return ((byte[]) cached).clone();
+        if (cached instanceof OffHeapStore.Value) {
+            OffHeapStore.Value value = (OffHeapStore.Value) cached;
+            if (value.retain()) {
+                try {
+                    return value.toArray();
+                } finally {
+                    value.release();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 本地缓存是否生效。使用失效订阅时，订阅建立并通过探测之后才生效
+     *
+     * @return
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    public NearCacheConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * 命中率、淘汰、失效次数与失效延迟
+     *
+     * @return
+     */
+    public NearCacheStats.Snapshot getStats() {
+        return stats.snapshot(cache.evictions(), cache.size(), cache.weight(),
+                null == offHeap ? 0 : offHeap.used(), null == offHeap ? 0 : offHeap.evictions());
+    }
+
+    /**
+     * 清空本地缓存
+     */
+    public void invalidateAll() {
+        versions.bumpAll();
+        cache.invalidateAll();
+    }
+
+    private boolean cacheable(String key) {
+        return active && null != key && config.matches(key);
+    }
+
+    private boolean cacheable(byte[] key) {
+        return active && null != key && config.matches(SafeEncoder.encode(key));
+    }
+
+    /**
+     * 读取的值在读取期间没有发生失效时才存入本地
+     */
+    private void store(Object key, Object value, long readVersion) {
+        if (null == value && !config.isCacheNulls())
+            return;
+        if ((!active || !versions.put(cache, key, null == value ? NULL : value, readVersion))
+                && value instanceof OffHeapStore.Value)
+            ((OffHeapStore.Value) value).release();
+    }
+
+    /**
+     * 读到的字节数据存入本地前复制一份，达到阈值的复制到堆外，堆外没有空间时不缓存
+     *
+     * @return 本地存放的value，为null时不缓存
+     */
+    private Object toLocal(BinaryKey key, byte[] value, long readVersion) {
+        if (null == offHeap || value.length < config.getOffHeapThreshold())
+            return value.clone();
+        if (value.length > offHeap.maxValueBytes() || versions.of(key) != readVersion || !active)
+            return null;
+        return offHeap.put(key, value);
+    }
+
+    private void invalidateLocal(Object key) {
+        versions.bump(key);
+        cache.invalidate(key);
+        stats.invalidated();
+    }
+
+    private void invalidate(String key) {
+        invalidateLocal(key);
+    }
+
+    private void invalidate(String... keys) {
+        for (String key : keys) {
+            invalidateLocal(key);
+        }
+    }
+
+    /**
+     * 同一个key可能分别以String和byte[]缓存，两者都失效
+     */
+    private void invalidate(byte[] key) {
+        String text = SafeEncoder.encode(key);
+        versions.bump(text);
+        cache.invalidate(text);
+        invalidateLocal(new BinaryKey(key));
+    }
+
+    private void invalidate(byte[]... keys) {
+        for (byte[] key : keys) {
+            invalidate(key);
+        }
+    }
+
+    private void invalidateAll(Collection<String> keys) {
+        for (String key : keys) {
+            invalidateLocal(key);
+        }
+    }
+
+    @Override
+    public String get(String key) {
+        if (!cacheable(key))
+            return delegate.get(key);
+        Object cached = cache.get(key);
+        if (cached instanceof String || cached == NULL) {
+            stats.hit();
+            return cached == NULL ? null : (String) cached;
+        }
+        stats.miss();
+        long readVersion = versions.of(key);
+        String value = delegate.get(key);
+        store(key, value, readVersion);
+        return value;
+    }
+
+    /**
+     * 返回本地缓存中value的副本，本地缓存也只保存key和value的副本
+     */
+    @Override
+    public byte[] get(byte[] key) {
+        if (!cacheable(key))
+            return delegate.get(key);
+        Object copy = copyOf(cache.get(new BinaryKey(key)));
+        if (null != copy) {
+            stats.hit();
+            return copy == NULL ? null : (byte[]) copy;
+        }
+        stats.miss();
+        BinaryKey local = new BinaryKey(key.clone());
+        long readVersion = versions.of(local);
+        byte[] value = delegate.get(key);
+        if (null == value) {
+            store(local, null, readVersion);
+        } else {
+            Object stored = toLocal(local, value, readVersion);
+            if (null != stored)
+                store(local, stored, readVersion);
+        }
+        return value;
+    }
+
+    /**
+     * 与get(byte[])相同，但本地命中时返回指向本地value的只读视图，不复制；未命中时视图指向从redis读到的数组。
+     * 视图使用完必须关闭
+     *
+     * @return key不存在时返回null
+     */
+    public ValueView getView(byte[] key) {
+        if (cacheable(key)) {
+            Object cached = cache.get(new BinaryKey(key));
+            if (cached == NULL) {
+                stats.hit();
+                return null;
+            }
+            ValueView view = ValueView.of(cached);
+            if (null != view) {
+                stats.hit();
+                return view;
+            }
+        }
+        return ValueView.of(get(key));
+    }
+
+    @Override
+    public List<String> mget(String... keys) {
+        if (!active)
+            return delegate.mget(keys);
+        List<String> values = new ArrayList<>(Arrays.asList(new String[keys.length]));
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < keys.length; i++) {
+            Object cached = cacheable(keys[i]) ? cache.get(keys[i]) : null;
+            if (cached instanceof String || cached == NULL) {
+                stats.hit();
+                values.set(i, cached == NULL ? null : (String) cached);
+            } else {
+                missing.add(i);
+            }
+        }
+        if (missing.isEmpty())
+            return values;
+        String[] missingKeys = new String[missing.size()];
+        long[] readVersions = new long[missingKeys.length];
+        for (int i = 0; i < missingKeys.length; i++) {
+            missingKeys[i] = keys[missing.get(i)];
+            if (null != missingKeys[i])
+                readVersions[i] = versions.of(missingKeys[i]);
+        }
+        List<String> loaded = delegate.mget(missingKeys);
+        for (int i = 0; i < missingKeys.length; i++) {
+            values.set(missing.get(i), loaded.get(i));
+            if (cacheable(missingKeys[i])) {
+                stats.miss();
+                store(missingKeys[i], loaded.get(i), readVersions[i]);
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public String hget(String key, String field) {
+        if (!cacheable(key))
+            return delegate.hget(key, field);
+        Object cached = cache.get(key);
+        Fields fields = cached instanceof Fields ? (Fields) cached : NO_FIELDS;
+        Object value = fields.values.get(field);
+        if (null != value) {
+            stats.hit();
+            return value == NULL ? null : (String) value;
+        }
+        stats.miss();
+        long readVersion = versions.of(key);
+        String loaded = delegate.hget(key, field);
+        storeField(key, fields, field, loaded, readVersion);
+        return loaded;
+    }
+
+    /**
+     * 返回本地缓存中value的副本
+     */
+    @Override
+    public byte[] hget(byte[] key, byte[] field) {
+        if (!cacheable(key))
+            return delegate.hget(key, field);
+        BinaryKey local = new BinaryKey(key.clone());
+        Fields fields = cachedFields(local);
+        Object copy = copyOf(fields.values.get(new BinaryKey(field)));
+        if (null != copy) {
+            stats.hit();
+            return copy == NULL ? null : (byte[]) copy;
+        }
+        stats.miss();
+        long readVersion = versions.of(local);
+        byte[] loaded = delegate.hget(key, field);
+        if (null == loaded) {
+            storeField(local, fields, new BinaryKey(field.clone()), null, readVersion);
+        } else {
+            Object stored = toLocal(local, loaded, readVersion);
+            if (null != stored)
+                storeField(local, fields, new BinaryKey(field.clone()), stored, readVersion);
+        }
+        return loaded;
+    }
+
+    /**
+     * 与hget(byte[], byte[])相同，但本地命中时返回指向本地value的只读视图，不复制。视图使用完必须关闭
+     *
+     * @return field不存在时返回null
+     */
+    public ValueView hgetView(byte[] key, byte[] field) {
+        if (cacheable(key)) {
+            Object cached = cachedFields(new BinaryKey(key)).values.get(new BinaryKey(field));
+            if (cached == NULL) {
+                stats.hit();
+                return null;
+            }
+            ValueView view = ValueView.of(cached);
+            if (null != view) {
+                stats.hit();
+                return view;
+            }
+        }
+        return ValueView.of(hget(key, field));
+    }
+
+    private Fields cachedFields(Object key) {
+        Object cached = cache.get(key);
+        return cached instanceof Fields ? (Fields) cached : NO_FIELDS;
+    }
+
+    /**
+     * 在已缓存的Fields上增加field后重新存入，使本地缓存按新的权重计算；还没有缓存field时新建
+     */
+    private void storeField(Object key, Fields fields, Object field, Object value, long readVersion) {
+        if (null == value && !config.isCacheNulls())
+            return;
+        if (versions.of(key) != readVersion || !active) {
+            if (value instanceof OffHeapStore.Value)
+                ((OffHeapStore.Value) value).release();
+            return;
+        }
+        Object local = null == value ? NULL : value;
+        Fields target = fields == NO_FIELDS ? new Fields() : fields;
+        if (!target.add(field, local)) {
+            target = new Fields();
+            target.add(field, local);
+        }
+        if (!versions.put(cache, key, target, readVersion)) {
+            // 已缓存的Fields已经原地修改，连同新建的一起作废
+            cache.invalidate(key);
+            target.release();
+        }
+    }
+
+    @Override
+    public void close() {
+        active = false;
+        if (null != listener)
+            listener.close();
+        cache.invalidateAll();
+        delegate.close();
+    }
+
+    @Override
+    public String set(String key, String value) {
+        try {
+            return delegate.set(key, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public String setex(String key, int seconds, String value) {
+        try {
+            return delegate.setex(key, seconds, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long del(String key) {
+        try {
+            return delegate.del(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long del(String... keys) {
+        try {
+            return delegate.del(keys);
+        } finally {
+            invalidate(keys);
+        }
+    }
+
+    @Override
+    public Long unlink(String... keys) {
+        try {
+            return delegate.unlink(keys);
+        } finally {
+            invalidate(keys);
+        }
+    }
+
+    @Override
+    public Long expire(String key, int seconds) {
+        try {
+            return delegate.expire(key, seconds);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long expireAt(String key, long timestamp) {
+        try {
+            return delegate.expireAt(key, timestamp);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long incr(String key) {
+        try {
+            return delegate.incr(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long incrBy(String key, long increment) {
+        try {
+            return delegate.incrBy(key, increment);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long decr(String key) {
+        try {
+            return delegate.decr(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long decrBy(String key, long decrement) {
+        try {
+            return delegate.decrBy(key, decrement);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long lpush(String key, String... strings) {
+        try {
+            return delegate.lpush(key, strings);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long rpush(String key, String... strings) {
+        try {
+            return delegate.rpush(key, strings);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long lrem(String key, long count, String value) {
+        try {
+            return delegate.lrem(key, count, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public String lpop(String key) {
+        try {
+            return delegate.lpop(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public String rpop(String key) {
+        try {
+            return delegate.rpop(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long hset(String key, String field, String value) {
+        try {
+            return delegate.hset(key, field, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long hsetnx(String key, String field, String value) {
+        try {
+            return delegate.hsetnx(key, field, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public String hmset(String key, Map<String, String> hash) {
+        try {
+            return delegate.hmset(key, hash);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long hdel(String key, String... fields) {
+        try {
+            return delegate.hdel(key, fields);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long sadd(String key, String... members) {
+        try {
+            return delegate.sadd(key, members);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long srem(String key, String... members) {
+        try {
+            return delegate.srem(key, members);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long sdiffstore(String dstkey, String... keys) {
+        try {
+            return delegate.sdiffstore(dstkey, keys);
+        } finally {
+            invalidate(dstkey);
+        }
+    }
+
+    @Override
+    public long setStream(byte[] key, InputStream in, int seconds) {
+        try {
+            return delegate.setStream(key, in, seconds);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public String set(byte[] key, byte[] value) {
+        try {
+            return delegate.set(key, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public String setex(byte[] key, int seconds, byte[] value) {
+        try {
+            return delegate.setex(key, seconds, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long del(byte[] key) {
+        try {
+            return delegate.del(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long del(byte[]... keys) {
+        try {
+            return delegate.del(keys);
+        } finally {
+            invalidate(keys);
+        }
+    }
+
+    @Override
+    public Long expire(byte[] key, int seconds) {
+        try {
+            return delegate.expire(key, seconds);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long expireAt(byte[] key, long timestamp) {
+        try {
+            return delegate.expireAt(key, timestamp);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long incr(byte[] key) {
+        try {
+            return delegate.incr(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long incrBy(byte[] key, long increment) {
+        try {
+            return delegate.incrBy(key, increment);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long decr(byte[] key) {
+        try {
+            return delegate.decr(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long decrBy(byte[] key, long decrement) {
+        try {
+            return delegate.decrBy(key, decrement);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long lpush(byte[] key, byte[]... strings) {
+        try {
+            return delegate.lpush(key, strings);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long rpush(byte[] key, byte[]... strings) {
+        try {
+            return delegate.rpush(key, strings);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long lrem(byte[] key, long count, byte[] value) {
+        try {
+            return delegate.lrem(key, count, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public byte[] lpop(byte[] key) {
+        try {
+            return delegate.lpop(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public byte[] rpop(byte[] key) {
+        try {
+            return delegate.rpop(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long hset(byte[] key, byte[] field, byte[] value) {
+        try {
+            return delegate.hset(key, field, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long hsetnx(byte[] key, byte[] field, byte[] value) {
+        try {
+            return delegate.hsetnx(key, field, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long setnx(byte[] key, byte[] value) {
+        try {
+            return delegate.setnx(key, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long setnx(String key, String value) {
+        try {
+            return delegate.setnx(key, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public String hmset(byte[] key, Map<byte[], byte[]> hash) {
+        try {
+            return delegate.hmset(key, hash);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long hdel(byte[] key, byte[]... fields) {
+        try {
+            return delegate.hdel(key, fields);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long sadd(byte[] key, byte[]... members) {
+        try {
+            return delegate.sadd(key, members);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long srem(byte[] key, byte[]... members) {
+        try {
+            return delegate.srem(key, members);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long sdiffstore(byte[] dstkey, byte[]... keys) {
+        try {
+            return delegate.sdiffstore(dstkey, keys);
+        } finally {
+            invalidate(dstkey);
+        }
+    }
+
+    @Override
+    public Long hincrBy(String key, String field, long value) {
+        try {
+            return delegate.hincrBy(key, field, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Double incrByFloat(String key, double value) {
+        try {
+            return delegate.incrByFloat(key, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Double hincrByFloat(String key, String field, double value) {
+        try {
+            return delegate.hincrByFloat(key, field, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long zadd(String key, double score, String member) {
+        try {
+            return delegate.zadd(key, score, member);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long zadd(String key, double score, String member, ZAddParams params) {
+        try {
+            return delegate.zadd(key, score, member, params);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long zadd(String key, Map<String, Double> scoreMembers) {
+        try {
+            return delegate.zadd(key, scoreMembers);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long zadd(String key, Map<String, Double> scoreMembers, ZAddParams params) {
+        try {
+            return delegate.zadd(key, scoreMembers, params);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Double zincrby(String key, double score, String member) {
+        try {
+            return delegate.zincrby(key, score, member);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Double zincrby(String key, double score, String member, ZIncrByParams params) {
+        try {
+            return delegate.zincrby(key, score, member, params);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long zrem(String key, String... members) {
+        try {
+            return delegate.zrem(key, members);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long zremrangeByRank(String key, long start, long end) {
+        try {
+            return delegate.zremrangeByRank(key, start, end);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long zremrangeByScore(String key, double start, double end) {
+        try {
+            return delegate.zremrangeByScore(key, start, end);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long zremrangeByScore(String key, String start, String end) {
+        try {
+            return delegate.zremrangeByScore(key, start, end);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Object eval(String script, List<String> keys, List<String> args) {
+        try {
+            return delegate.eval(script, keys, args);
+        } finally {
+            invalidateAll(keys);
+        }
+    }
+
+    @Override
+    public Object evalsha(String sha1, List<String> keys, List<String> args) {
+        try {
+            return delegate.evalsha(sha1, keys, args);
+        } finally {
+            invalidateAll(keys);
+        }
+    }
+
+    @Override
+    public Boolean setBit(String key, long offset, String value) {
+        try {
+            return delegate.setBit(key, offset, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public long addGeo(String key, Map<String, GeoCoordinate> memberCoordinateMap) {
+        try {
+            return delegate.addGeo(key, memberCoordinateMap);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public long addGeo(String key, String name, long longitude, long latitude) {
+        try {
+            return delegate.addGeo(key, name, longitude, latitude);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public void mset(Map<String, String> values) {
+        try {
+            delegate.mset(values);
+        } finally {
+            invalidateAll(values.keySet());
+        }
+    }
+
+    @Override
+    public void pipelineSet(Map<String, String> values) {
+        try {
+            delegate.pipelineSet(values);
+        } finally {
+            invalidateAll(values.keySet());
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 近端缓存配置，在创建NearCacheClient之前设置
+ */
+public class NearCacheConfig {
+
+    /**
+     * 本地缓存的失效方式
+     */
+    public enum Invalidation {
+        /**
+         * 订阅各主节点的keyspace通知，需要notify-keyspace-events包含K和对应的事件类型，没有开启时尝试用CONFIG SET开启
+         */
+        KEYSPACE,
+        /**
+         * redis 6的CLIENT TRACKING广播模式，按前缀接收失效消息，不需要修改服务端配置
+         */
+        TRACKING,
+        /**
+         * 不订阅失效消息，只依靠本地过期时间，适用于codis等不支持订阅的部署
+         */
+        NONE
+    }
+
+    /**
+     * 本地缓存的总权重上限，约等于key和value占用的堆内存字节数，堆外的value只计其句柄
+     */
+    private long maxWeight = 64L * 1024 * 1024;
+    /**
+     * 本地条目的最长存活时间，也是失效消息丢失时可能读到旧值的最长时间
+     */
+    private long ttlMillis = 60000;
+    /**
+     * 只缓存以这些前缀开头的key，为空时缓存所有key
+     */
+    private Set<String> prefixes = Collections.emptySet();
+    private Invalidation invalidation = Invalidation.KEYSPACE;
+    /**
+     * 写入探测key的间隔，用于测量失效延迟和确认订阅连接可用
+     */
+    private long probeIntervalMillis = 1000;
+    /**
+     * 探测key的失效消息超过该时间没有收到，认为订阅已中断，清空本地缓存并重新订阅
+     */
+    private long probeTimeoutMillis = 5000;
+    /**
+     * 是否缓存不存在的key或field
+     */
+    private boolean cacheNulls = true;
+    /**
+     * 堆外存储的上限，为0时不使用堆外存储。需要-XX:MaxDirectMemorySize不小于该值
+     */
+    private long offHeapMaxBytes;
+    /**
+     * get(byte[])和hget(byte[], byte[])读到的value不小于该大小时存放在堆外，小的仍在堆上
+     */
+    private int offHeapThreshold = 8 * 1024;
+    /**
+     * 堆外内存按该大小分块申请，也是能存放在堆外的最大value，更大的value不缓存
+     */
+    private int offHeapSlabBytes = 4 * 1024 * 1024;
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public void setMaxWeight(long maxWeight) {
+        if (maxWeight < 1)
+            throw new IllegalArgumentException("maxWeight must be at least 1");
+        this.maxWeight = maxWeight;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    public void setTtlMillis(long ttlMillis) {
+        if (ttlMillis < 1)
+            throw new IllegalArgumentException("ttlMillis must be at least 1");
+        this.ttlMillis = ttlMillis;
+    }
+
+    public Set<String> getPrefixes() {
+        return prefixes;
+    }
+
+    public void setPrefixes(String... prefixes) {
+        this.prefixes = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(prefixes)));
+    }
+
+    public Invalidation getInvalidation() {
+        return invalidation;
+    }
+
+    public void setInvalidation(Invalidation invalidation) {
+        this.invalidation = invalidation;
+    }
+
+    public long getProbeIntervalMillis() {
+        return probeIntervalMillis;
+    }
+
+    public void setProbeIntervalMillis(long probeIntervalMillis) {
+        if (probeIntervalMillis < 1)
+            throw new IllegalArgumentException("probeIntervalMillis must be at least 1");
+        this.probeIntervalMillis = probeIntervalMillis;
+    }
+
+    public long getProbeTimeoutMillis() {
+        return probeTimeoutMillis;
+    }
+
+    public void setProbeTimeoutMillis(long probeTimeoutMillis) {
+        if (probeTimeoutMillis < 1)
+            throw new IllegalArgumentException("probeTimeoutMillis must be at least 1");
+        this.probeTimeoutMillis = probeTimeoutMillis;
+    }
+
+    public boolean isCacheNulls() {
+        return cacheNulls;
+    }
+
+    public void setCacheNulls(boolean cacheNulls) {
+        this.cacheNulls = cacheNulls;
+    }
+
+    public long getOffHeapMaxBytes() {
+        return offHeapMaxBytes;
+    }
+
+    public void setOffHeapMaxBytes(long offHeapMaxBytes) {
+        if (offHeapMaxBytes < 0)
+            throw new IllegalArgumentException("offHeapMaxBytes must not be negative");
+        this.offHeapMaxBytes = offHeapMaxBytes;
+    }
+
+    public int getOffHeapThreshold() {
+        return offHeapThreshold;
+    }
+
+    public void setOffHeapThreshold(int offHeapThreshold) {
+        if (offHeapThreshold < 1)
+            throw new IllegalArgumentException("offHeapThreshold must be at least 1");
+        this.offHeapThreshold = offHeapThreshold;
+    }
+
+    public int getOffHeapSlabBytes() {
+        return offHeapSlabBytes;
+    }
+
+    public void setOffHeapSlabBytes(int offHeapSlabBytes) {
+        if (offHeapSlabBytes < 1024)
+            throw new IllegalArgumentException("offHeapSlabBytes must be at least 1024");
+        this.offHeapSlabBytes = offHeapSlabBytes;
+    }
+
+    /**
+     * key是否在缓存范围内
+     */
+    boolean matches(String key) {
+        if (prefixes.isEmpty())
+            return true;
+        for (String prefix : prefixes) {
+            if (key.startsWith(prefix))
+                return true;
+        }
+        return false;
+    }
+}
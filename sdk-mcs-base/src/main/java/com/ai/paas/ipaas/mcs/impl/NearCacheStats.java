@@ -0,0 +1,164 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * 近端缓存的统计：命中、未命中、失效的次数，以及失效延迟，即从写入探测key到收到它的失效消息的时间。
+ * 淘汰次数、当前大小和堆外存储的占用由本地存储提供，在取快照时一起返回
+ */
+public class NearCacheStats {
+
+    private static final long LOWEST_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+    private static final long HIGHEST_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final Recorder lag = new Recorder(LOWEST_NANOS, HIGHEST_NANOS, SIGNIFICANT_DIGITS);
+    /**
+     * 以下两个只在snapshot时持有本对象的锁访问
+     */
+    private final Histogram totalLag = new Histogram(LOWEST_NANOS, HIGHEST_NANOS, SIGNIFICANT_DIGITS);
+    private Histogram intervalLag;
+
+    void hit() {
+        hits.increment();
+    }
+
+    void miss() {
+        misses.increment();
+    }
+
+    void invalidated() {
+        invalidations.increment();
+    }
+
+    void recordLag(long nanos) {
+        lag.recordValue(Math.min(Math.max(nanos, 0), HIGHEST_NANOS));
+    }
+
+    synchronized Snapshot snapshot(long evictions, long size, long weight, long offHeapBytes, long offHeapEvictions) {
+        intervalLag = lag.getIntervalHistogram(intervalLag);
+        totalLag.add(intervalLag);
+        return new Snapshot(hits.sum(), misses.sum(), evictions, invalidations.sum(), size, weight, offHeapBytes,
+                offHeapEvictions, totalLag.copy());
+    }
+
+    /**
+     * 自创建以来的累计统计
+     */
+    public static class Snapshot {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long invalidations;
+        private final long size;
+        private final long weight;
+        private final long offHeapBytes;
+        private final long offHeapEvictions;
+        private final Histogram lag;
+
+        Snapshot(long hits, long misses, long evictions, long invalidations, long size, long weight,
+                long offHeapBytes, long offHeapEvictions, Histogram lag) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.invalidations = invalidations;
+            this.size = size;
+            this.weight = weight;
+            this.offHeapBytes = offHeapBytes;
+            this.offHeapEvictions = offHeapEvictions;
+            this.lag = lag;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * 未命中的次数，不包括不在缓存范围内的key和订阅中断期间的读取
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        public double getHitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        /**
+         * 因超出权重上限被淘汰的条目数
+         */
+        public long getEvictions() {
+            return evictions;
+        }
+
+        /**
+         * 收到的失效消息和本客户端写入引起的失效次数，按key计
+         */
+        public long getInvalidations() {
+            return invalidations;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getWeight() {
+            return weight;
+        }
+
+        /**
+         * 堆外value占用的字节数，按分配的block大小计
+         */
+        public long getOffHeapBytes() {
+            return offHeapBytes;
+        }
+
+        /**
+         * 堆外存储空间不足时淘汰的value个数
+         */
+        public long getOffHeapEvictions() {
+            return offHeapEvictions;
+        }
+
+        /**
+         * 测量到的失效延迟的次数
+         */
+        public long getLagCount() {
+            return lag.getTotalCount();
+        }
+
+        /**
+         * @param percentile 百分位，如99
+         * @return 失效延迟(ns)
+         */
+        public long getLagAtPercentile(double percentile) {
+            return lag.getValueAtPercentile(percentile);
+        }
+
+        public long getMaxLag() {
+            return lag.getMaxValue();
+        }
+
+        @Override
+        public String toString() {
+            return "NearCache[hits=" + hits + ", misses=" + misses + ", hitRatio="
+                    + String.format("%.4f", getHitRatio()) + ", evictions=" + evictions + ", invalidations="
+                    + invalidations + ", size=" + size + ", weight=" + weight + ", offHeapBytes=" + offHeapBytes
+                    + ", offHeapEvictions=" + offHeapEvictions + ", lagP50="
+                    + micros(getLagAtPercentile(50)) + "us, lagP99=" + micros(getLagAtPercentile(99)) + "us, lagMax="
+                    + micros(getMaxLag()) + "us]";
+        }
+
+        private static long micros(long nanos) {
+            return TimeUnit.NANOSECONDS.toMicros(nanos);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.util.List;
+
+import com.ai.paas.util.StringUtil;
+
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+
+/**
+ * 可以直接连接到各个主节点的客户端。用于订阅失效通知等需要独占一条长连接、不能经过连接池的场景
+ */
+public interface NodeAware {
+
+    /**
+     * 当前的主节点，主从切换或集群拓扑变化后返回新的结果
+     *
+     * @return
+     */
+    List<HostAndPort> getMasterNodes();
+
+    /**
+     * 新建到节点的连接，已完成认证，不属于任何连接池，由调用方关闭
+     */
+    Jedis connect(HostAndPort node);
+
+    /**
+     * 新建一条连接，密码为空时不认证
+     */
+    static Jedis open(HostAndPort node, int timeout, String password) {
+        Jedis jedis = new Jedis(node.getHost(), node.getPort(), timeout);
+        try {
+            if (!StringUtil.isBlank(password))
+                jedis.auth(password);
+            return jedis;
+        } catch (RuntimeException e) {
+            jedis.close();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 近端缓存中大value的堆外存储，按slab分配：堆外内存按slabBytes分成若干块直接内存，按需创建，
+ * 每块slab第一次使用时归属一个大小级别并切成等长的block。级别从1K起按1.25倍递增，value存放在能容纳它的最小级别中。
+ * 某个级别没有空闲block且不能再创建slab时，按CLOCK（二次机会）淘汰该级别中的value，通过evictor使其所属的本地条目失效。
+ * value有引用计数：本地缓存持有一次，每个读取中的线程或未关闭的视图各持有一次，计数归零后block才回收，
+ * 所以读取不需要加锁，也不会读到被复用的block。
+ * slab归属级别后不再调整，value大小的分布变化较大时部分级别可能分配不到block
+ */
+final class OffHeapStore {
+
+    private static final int MIN_BLOCK = 1024;
+    private static final double GROWTH_FACTOR = 1.25;
+    private static final int ALIGNMENT = 64;
+    /**
+     * 一次分配最多淘汰的value个数，仍没有空闲block时放弃，value不缓存
+     */
+    private static final int MAX_EVICTIONS_PER_ALLOCATION = 16;
+
+    /**
+     * slab中的一个block
+     */
+    private static final class Block {
+        final ByteBuffer slab;
+        final int offset;
+
+        Block(ByteBuffer slab, int offset) {
+            this.slab = slab;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * 一个大小级别：空闲block的回收不加锁，分配和淘汰在store的锁内
+     */
+    private static final class SizeClass {
+        final int blockSize;
+        final Queue<Block> free = new ConcurrentLinkedQueue<>();
+        final ArrayDeque<Value> clock = new ArrayDeque<>();
+        int blocks;
+
+        SizeClass(int blockSize) {
+            this.blockSize = blockSize;
+        }
+    }
+
+    /**
+     * 存放在堆外的一个value
+     */
+    final class Value {
+        private final Block block;
+        private final SizeClass sizeClass;
+        private final int length;
+        private final Object owner;
+        private final AtomicInteger refs = new AtomicInteger(1);
+        private volatile boolean referenced;
+
+        Value(Block block, SizeClass sizeClass, int length, Object owner) {
+            this.block = block;
+            this.sizeClass = sizeClass;
+            this.length = length;
+            this.owner = owner;
+        }
+
+        int length() {
+            return length;
+        }
+
+        /**
+         * 增加一次引用，value已被回收时返回false
+         */
+        boolean retain() {
+            for (;;) {
+                int current = refs.get();
+                if (current <= 0)
+                    return false;
+                if (refs.compareAndSet(current, current + 1)) {
+                    referenced = true;
+                    return true;
+                }
+            }
+        }
+
+        void release() {
+            if (refs.decrementAndGet() == 0)
+                free(this);
+        }
+
+        boolean isReleased() {
+            return refs.get() <= 0;
+        }
+
+        /**
+         * 复制到堆上，调用方需持有引用
+         */
+        byte[] toArray() {
+            byte[] bytes = new byte[length];
+            ByteBuffer view = block.slab.duplicate();
+            view.position(block.offset);
+            view.get(bytes);
+            return bytes;
+        }
+
+        /**
+         * 只读视图，不复制，调用方需持有引用直到不再使用
+         */
+        ByteBuffer buffer() {
+            ByteBuffer view = block.slab.duplicate();
+            view.limit(block.offset + length).position(block.offset);
+            return view.slice().asReadOnlyBuffer();
+        }
+    }
+
+    private final int slabBytes;
+    private final int maxSlabs;
+    private final SizeClass[] classes;
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private final Consumer<Object> evictor;
+    private final AtomicLong used = new AtomicLong();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxBytes  堆外内存上限，向下取整为slabBytes的整数倍
+     * @param slabBytes 每块slab的大小，也是能存放的最大value
+     * @param evictor   淘汰value时调用，参数为value所属的本地缓存key
+     */
+    OffHeapStore(long maxBytes, int slabBytes, Consumer<Object> evictor) {
+        if (slabBytes < MIN_BLOCK)
+            throw new IllegalArgumentException("slabBytes must be at least " + MIN_BLOCK);
+        this.slabBytes = slabBytes;
+        this.maxSlabs = (int) Math.min(Integer.MAX_VALUE, maxBytes / slabBytes);
+        this.evictor = evictor;
+        List<SizeClass> sizes = new ArrayList<>();
+        for (long size = MIN_BLOCK; size < slabBytes; size = align((long) (size * GROWTH_FACTOR))) {
+            sizes.add(new SizeClass((int) size));
+        }
+        sizes.add(new SizeClass(slabBytes));
+        this.classes = sizes.toArray(new SizeClass[0]);
+    }
+
+    private static long align(long size) {
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    /**
+     * 能存放的最大value
+     */
+    int maxValueBytes() {
+        return slabBytes;
+    }
+
+    /**
+     * 复制value到堆外
+     *
+     * @param owner value所属的本地缓存key，被淘汰时传给evictor
+     * @return 没有可用空间或value超过slab大小时返回null
+     */
+    Value put(Object owner, byte[] bytes) {
+        SizeClass sizeClass = classOf(bytes.length);
+        if (null == sizeClass)
+            return null;
+        Block block = allocate(sizeClass);
+        if (null == block)
+            return null;
+        ByteBuffer view = block.slab.duplicate();
+        view.position(block.offset);
+        view.put(bytes);
+        Value value = new Value(block, sizeClass, bytes.length, owner);
+        synchronized (this) {
+            sizeClass.clock.add(value);
+            // 已回收的value只在淘汰时跳过，积累过多时清理一次
+            if (sizeClass.clock.size() > 2 * sizeClass.blocks + 16)
+                sizeClass.clock.removeIf(Value::isReleased);
+        }
+        return value;
+    }
+
+    private SizeClass classOf(int length) {
+        for (SizeClass sizeClass : classes) {
+            if (sizeClass.blockSize >= length)
+                return sizeClass;
+        }
+        return null;
+    }
+
+    private Block allocate(SizeClass sizeClass) {
+        Block block = sizeClass.free.poll();
+        if (null != block) {
+            used.addAndGet(sizeClass.blockSize);
+            return block;
+        }
+        synchronized (this) {
+            if (slabs.size() < maxSlabs) {
+                ByteBuffer slab = ByteBuffer.allocateDirect(slabBytes);
+                slabs.add(slab);
+                int count = slabBytes / sizeClass.blockSize;
+                for (int i = 1; i < count; i++) {
+                    sizeClass.free.add(new Block(slab, i * sizeClass.blockSize));
+                }
+                sizeClass.blocks += count;
+                used.addAndGet(sizeClass.blockSize);
+                return new Block(slab, 0);
+            }
+            int evicted = 0;
+            while (evicted < MAX_EVICTIONS_PER_ALLOCATION) {
+                Value victim = sizeClass.clock.poll();
+                if (null == victim)
+                    break;
+                if (victim.isReleased())
+                    continue;
+                if (victim.referenced) {
+                    victim.referenced = false;
+                    sizeClass.clock.add(victim);
+                    continue;
+                }
+                // 本地条目失效后引用计数归零，block回到空闲队列；仍在被读取的，读完后回收
+                evictor.accept(victim.owner);
+                evictions.increment();
+                evicted++;
+                block = sizeClass.free.poll();
+                if (null != block) {
+                    used.addAndGet(sizeClass.blockSize);
+                    return block;
+                }
+            }
+            return null;
+        }
+    }
+
+    private void free(Value value) {
+        used.addAndGet(-value.sizeClass.blockSize);
+        value.sizeClass.free.add(value.block);
+    }
+
+    /**
+     * 已分配给value的字节数，按block大小计
+     */
+    long used() {
+        return used.get();
+    }
+
+    /**
+     * 已创建的slab占用的直接内存
+     */
+    synchronized long reserved() {
+        return (long) slabs.size() * slabBytes;
+    }
+
+    long evictions() {
+        return evictions.sum();
+    }
+}
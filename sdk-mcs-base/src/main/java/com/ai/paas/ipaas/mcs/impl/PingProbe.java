@@ -0,0 +1,55 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.util.function.Supplier;
+
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+
+/**
+ * 在独立连接上PING，连接和读取超时都很短，不经过连接池：连接池耗尽或redis没有响应时也能很快得出结果。
+ * 连接在探测之间复用，出错或节点变化（如主从切换）后关闭，下次探测时重新建立
+ */
+class PingProbe implements HealthChecker.Probe, AutoCloseable {
+
+    static final int TIMEOUT_MS = 2000;
+
+    private final Supplier<HostAndPort> node;
+    private final String password;
+    private HostAndPort connected;
+    private Jedis jedis;
+
+    /**
+     * @param node     探测的节点，每次探测前取一次
+     * @param password 密码，为空时不认证
+     */
+    PingProbe(Supplier<HostAndPort> node, String password) {
+        this.node = node;
+        this.password = password;
+    }
+
+    @Override
+    public synchronized void probe() {
+        HostAndPort target = node.get();
+        if (!target.equals(connected))
+            close();
+        if (null == jedis) {
+            jedis = NodeAware.open(target, TIMEOUT_MS, password);
+            connected = target;
+        }
+        try {
+            jedis.ping();
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (null != jedis) {
+            jedis.close();
+            jedis = null;
+            connected = null;
+        }
+    }
+}
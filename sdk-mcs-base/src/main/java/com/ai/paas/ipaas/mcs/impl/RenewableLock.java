@@ -0,0 +1,118 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import com.ai.paas.ipaas.mcs.LockHandle;
+
+/**
+ * 由LockWatchdog续期的锁
+ */
+class RenewableLock implements LockHandle {
+
+    private final DistributedLock lock;
+    private final String lockName;
+    private final String lockKey;
+    private final String identifier;
+    private final long fencingToken;
+    private final long leaseTimeInMS;
+    /**
+     * 下次续期的时间
+     */
+    private volatile long renewAt;
+    /**
+     * 最近一次续期成功后锁的过期时间，按发出续期请求的时间计算
+     */
+    private volatile long expireAt;
+    private volatile boolean held = true;
+    private volatile boolean released = false;
+
+    RenewableLock(DistributedLock lock, String lockName, String lockKey, String identifier, long fencingToken,
+            long leaseTimeInMS) {
+        this.lock = lock;
+        this.lockName = lockName;
+        this.lockKey = lockKey;
+        this.identifier = identifier;
+        this.fencingToken = fencingToken;
+        this.leaseTimeInMS = leaseTimeInMS;
+        renewed(System.currentTimeMillis());
+    }
+
+    void renewed(long sentAt) {
+        expireAt = sentAt + leaseTimeInMS;
+        renewAt = sentAt + Math.max(leaseTimeInMS / 3, 1);
+    }
+
+    /**
+     * 续期请求失败，锁可能仍然有效，下个周期重试
+     *
+     * @return 锁是否已经过期
+     */
+    boolean renewFailed(long now) {
+        if (now >= expireAt) {
+            held = false;
+            return true;
+        }
+        renewAt = now + Math.max(Math.min(leaseTimeInMS / 10, expireAt - now), 1);
+        return false;
+    }
+
+    /**
+     * 是否需要续期。即将到期的锁提前续期，以便和其他锁合并在同一个pipeline中
+     */
+    boolean isDue(long now) {
+        return now >= renewAt - leaseTimeInMS / 6;
+    }
+
+    void lost() {
+        held = false;
+    }
+
+    String getLockKey() {
+        return lockKey;
+    }
+
+    long getLeaseTimeInMS() {
+        return leaseTimeInMS;
+    }
+
+    long getRenewAt() {
+        return renewAt;
+    }
+
+    @Override
+    public String getLockName() {
+        return lockName;
+    }
+
+    @Override
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    @Override
+    public long getFencingToken() {
+        return fencingToken;
+    }
+
+    @Override
+    public boolean isHeld() {
+        return held && System.currentTimeMillis() < expireAt;
+    }
+
+    @Override
+    public synchronized boolean release() {
+        if (released)
+            return false;
+        released = true;
+        held = false;
+        return lock.release(this);
+    }
+
+    @Override
+    public void close() {
+        release();
+    }
+
+    @Override
+    public String toString() {
+        return lockKey + "#" + fencingToken;
+    }
+}
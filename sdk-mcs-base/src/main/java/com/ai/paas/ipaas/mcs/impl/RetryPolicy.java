@@ -0,0 +1,73 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 命令重试策略：有限次数重试，指数退避并加随机抖动(full jitter)，
+ * 避免大量请求线程在同一时刻重试
+ */
+public class RetryPolicy {
+
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+    private static final long DEFAULT_BASE_BACKOFF_MS = 20;
+    private static final long DEFAULT_MAX_BACKOFF_MS = 500;
+
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+
+    public RetryPolicy(int maxAttempts, long baseBackoffMillis, long maxBackoffMillis) {
+        if (maxAttempts < 1)
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        if (baseBackoffMillis < 0 || maxBackoffMillis < baseBackoffMillis)
+            throw new IllegalArgumentException("invalid backoff: " + baseBackoffMillis + "~" + maxBackoffMillis);
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    public static RetryPolicy defaultPolicy() {
+        return new RetryPolicy(DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_BACKOFF_MS, DEFAULT_MAX_BACKOFF_MS);
+    }
+
+    /**
+     * 不重试，只执行一次
+     *
+     * @return
+     */
+    public static RetryPolicy noRetry() {
+        return new RetryPolicy(1, 0, 0);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getBaseBackoffMillis() {
+        return baseBackoffMillis;
+    }
+
+    public long getMaxBackoffMillis() {
+        return maxBackoffMillis;
+    }
+
+    /**
+     * 第attempt次失败后，下次重试前需要等待的时间
+     *
+     * @param attempt 已经执行的次数，从1开始
+     * @return 等待的毫秒数，在[0, min(max, base * 2^(attempt-1))]之间随机
+     */
+    public long backoffMillis(int attempt) {
+        if (baseBackoffMillis == 0)
+            return 0;
+        int shift = Math.min(Math.max(attempt - 1, 0), 20);
+        long ceiling = Math.min(maxBackoffMillis, baseBackoffMillis << shift);
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy[maxAttempts=" + maxAttempts + ", backoff=" + baseBackoffMillis + "~" + maxBackoffMillis
+                + "ms]";
+    }
+}
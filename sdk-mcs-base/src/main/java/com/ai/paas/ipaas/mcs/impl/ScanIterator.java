@@ -0,0 +1,120 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.ai.paas.util.StringUtil;
+
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+
+/**
+ * 按页读取的迭代器，当前页用完才读取下一页，内存中只保留一页结果。每页单独借用连接，遍历过程中不占用连接
+ */
+abstract class ScanIterator<T> implements Iterator<T> {
+
+    /**
+     * 默认每页数量
+     */
+    static final int DEFAULT_COUNT = 1000;
+    /**
+     * 每页数量上限，避免单页过大
+     */
+    static final int MAX_COUNT = 10000;
+
+    private Iterator<T> page = Collections.emptyIterator();
+    private boolean finished = false;
+
+    /**
+     * 读取下一页，可以返回空页
+     *
+     * @return 没有更多数据时返回null
+     */
+    protected abstract List<T> nextPage();
+
+    @Override
+    public boolean hasNext() {
+        while (!page.hasNext() && !finished) {
+            List<T> next = nextPage();
+            if (null == next)
+                finished = true;
+            else
+                page = next.iterator();
+        }
+        return page.hasNext();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        return page.next();
+    }
+
+    Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.NONNULL), false);
+    }
+
+    /**
+     * 基于SCAN系列命令游标的迭代器
+     *
+     * @param scanner 根据游标读取一页
+     */
+    static <T> ScanIterator<T> of(Function<String, ScanResult<T>> scanner) {
+        return new ScanIterator<T>() {
+            private String cursor = ScanParams.SCAN_POINTER_START;
+
+            @Override
+            protected List<T> nextPage() {
+                if (null == cursor)
+                    return null;
+                ScanResult<T> result = scanner.apply(cursor);
+                cursor = ScanParams.SCAN_POINTER_START.equals(result.getCursor()) ? null : result.getCursor();
+                return result.getResult();
+            }
+        };
+    }
+
+    /**
+     * 按LRANGE分页读取list，某一页不满时结束。遍历期间list头部有插入或删除时元素会重复或遗漏
+     *
+     * @param range 根据起止下标读取一页
+     */
+    static <T> ScanIterator<T> pages(BiFunction<Long, Long, List<T>> range, int count) {
+        int size = pageSize(count);
+        return new ScanIterator<T>() {
+            private long start = 0;
+
+            @Override
+            protected List<T> nextPage() {
+                if (start < 0)
+                    return null;
+                List<T> page = range.apply(start, start + size - 1);
+                start = page.size() < size ? -1 : start + size;
+                return page;
+            }
+        };
+    }
+
+    /**
+     * 每页数量，不大于0时取默认值，超过上限时取上限
+     */
+    static int pageSize(int count) {
+        return count <= 0 ? DEFAULT_COUNT : Math.min(count, MAX_COUNT);
+    }
+
+    static ScanParams params(String pattern, int count) {
+        ScanParams params = new ScanParams().count(pageSize(count));
+        if (!StringUtil.isBlank(pattern))
+            params.match(pattern);
+        return params;
+    }
+}
@@ -0,0 +1,188 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ai.paas.ipaas.mcs.ICacheLock;
+import com.ai.paas.ipaas.mcs.exception.CacheException;
+
+/**
+ * 基于hash的可重入锁，每次加锁、解锁都是一次脚本调用。持有者为客户端实例加线程，hash的field记录每个持有者的加锁次数。
+ * 读写锁的hash中mode为read或write；读锁持有者另外记录在一个zset中，score为各自的过期时间，
+ * 每次执行脚本时先清理已过期的读锁，某个读锁持有者宕机不会因为其他读者不断续期而一直阻塞写锁。
+ */
+class ScriptLock implements ICacheLock {
+
+    private static final String REENTRANT_PREFIX = "rlock:";
+    private static final String RW_PREFIX = "rwlock:";
+
+    /**
+     * 无人持有或当前持有者已持有时计数加一并延长有效期，返回{1, 持有次数}；否则返回{0, 剩余有效期}
+     */
+    static final LuaScript REENTRANT_ACQUIRE = new LuaScript(
+            "if redis.call('exists', KEYS[1]) == 0 or redis.call('hexists', KEYS[1], ARGV[1]) == 1 then "
+                    + "local n = redis.call('hincrby', KEYS[1], ARGV[1], 1) "
+                    + "redis.call('pexpire', KEYS[1], ARGV[2]) return {1, n} end "
+                    + "local ttl = redis.call('pttl', KEYS[1]) "
+                    + "if ttl == -1 then redis.call('pexpire', KEYS[1], ARGV[2]) ttl = tonumber(ARGV[2]) end "
+                    + "return {0, math.max(ttl, 0)}");
+
+    /**
+     * 计数减一，减到0时删除并通知等待者。返回剩余持有次数，未持有时返回-1
+     */
+    static final LuaScript REENTRANT_RELEASE = new LuaScript(
+            "if redis.call('hexists', KEYS[1], ARGV[1]) == 0 then return -1 end "
+                    + "local n = redis.call('hincrby', KEYS[1], ARGV[1], -1) "
+                    + "if n > 0 then return n end "
+                    + "redis.call('del', KEYS[1]) "
+                    + "if ARGV[2] ~= '' then redis.call('publish', ARGV[2], ARGV[1]) end "
+                    + "return 0");
+
+    /**
+     * 读写锁脚本的公共开头：取当前时间，清理已过期的读锁，读锁全部过期时删除锁
+     */
+    private static final String RW_PRELUDE = "redis.replicate_commands() "
+            + "local t = redis.call('time') local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000) "
+            + "for _, o in ipairs(redis.call('zrangebyscore', KEYS[2], '-inf', now)) do "
+            + "redis.call('hdel', KEYS[1], o) end "
+            + "redis.call('zremrangebyscore', KEYS[2], '-inf', now) "
+            + "local mode = redis.call('hget', KEYS[1], 'mode') "
+            + "if mode == 'read' and redis.call('zcard', KEYS[2]) == 0 then "
+            + "redis.call('del', KEYS[1]) mode = false end ";
+
+    /**
+     * 无人持有、读模式、或当前持有者持有写锁时加读锁，读锁过期时间记入zset，锁的有效期取所有持有者中最晚的；
+     * 否则返回写锁剩余有效期
+     */
+    static final LuaScript READ_ACQUIRE = new LuaScript(RW_PRELUDE
+            + "if mode == false or mode == 'read' or redis.call('hget', KEYS[1], 'writer') == ARGV[1] then "
+            + "if mode == false then redis.call('hset', KEYS[1], 'mode', 'read') end "
+            + "local n = redis.call('hincrby', KEYS[1], ARGV[1], 1) "
+            + "redis.call('zadd', KEYS[2], now + tonumber(ARGV[2]), ARGV[1]) "
+            + "local ttl = math.max(redis.call('pttl', KEYS[1]), tonumber(ARGV[2])) "
+            + "redis.call('pexpire', KEYS[1], ttl) redis.call('pexpire', KEYS[2], ttl) "
+            + "return {1, n} end "
+            + "return {0, math.max(redis.call('pttl', KEYS[1]), 0)}");
+
+    /**
+     * 读锁计数减一，减到0时移出zset；没有读锁也没有写锁时删除并通知等待者
+     */
+    static final LuaScript READ_RELEASE = new LuaScript(RW_PRELUDE
+            + "if redis.call('hexists', KEYS[1], ARGV[1]) == 0 then return -1 end "
+            + "local n = redis.call('hincrby', KEYS[1], ARGV[1], -1) "
+            + "if n > 0 then return n end "
+            + "redis.call('hdel', KEYS[1], ARGV[1]) redis.call('zrem', KEYS[2], ARGV[1]) "
+            + "if mode == 'read' and redis.call('zcard', KEYS[2]) == 0 then "
+            + "redis.call('del', KEYS[1], KEYS[2]) "
+            + "if ARGV[2] ~= '' then redis.call('publish', ARGV[2], '*') end end "
+            + "return 0");
+
+    /**
+     * 无人持有或当前持有者已持有写锁时加写锁；否则返回需要等待的时间：读模式下为最晚一个读锁的过期时间
+     */
+    static final LuaScript WRITE_ACQUIRE = new LuaScript(RW_PRELUDE
+            + "if mode == false then "
+            + "redis.call('hmset', KEYS[1], 'mode', 'write', 'writer', ARGV[1], 'wcount', 1) "
+            + "redis.call('pexpire', KEYS[1], ARGV[2]) return {1, 1} end "
+            + "if mode == 'write' and redis.call('hget', KEYS[1], 'writer') == ARGV[1] then "
+            + "local n = redis.call('hincrby', KEYS[1], 'wcount', 1) "
+            + "redis.call('pexpire', KEYS[1], math.max(redis.call('pttl', KEYS[1]), tonumber(ARGV[2]))) "
+            + "return {1, n} end "
+            + "if mode == 'read' then "
+            + "local last = redis.call('zrange', KEYS[2], -1, -1, 'withscores') "
+            + "return {0, math.max(tonumber(last[2]) - now, 0)} end "
+            + "return {0, math.max(redis.call('pttl', KEYS[1]), 0)}");
+
+    /**
+     * 写锁计数减一，减到0时还有读锁（降级）则转为读模式，否则删除；两种情况都通知等待者
+     */
+    static final LuaScript WRITE_RELEASE = new LuaScript(RW_PRELUDE
+            + "if mode ~= 'write' or redis.call('hget', KEYS[1], 'writer') ~= ARGV[1] then return -1 end "
+            + "local n = redis.call('hincrby', KEYS[1], 'wcount', -1) "
+            + "if n > 0 then return n end "
+            + "redis.call('hdel', KEYS[1], 'writer', 'wcount') "
+            + "if redis.call('zcard', KEYS[2]) > 0 then redis.call('hset', KEYS[1], 'mode', 'read') "
+            + "else redis.call('del', KEYS[1], KEYS[2]) end "
+            + "if ARGV[2] ~= '' then redis.call('publish', ARGV[2], '*') end "
+            + "return 0");
+
+    private final DistributedLock engine;
+    private final List<String> keys;
+    private final LuaScript acquireScript;
+    private final LuaScript releaseScript;
+    /**
+     * 各线程的本地持有次数
+     */
+    private final Map<Long, Integer> holds = new ConcurrentHashMap<>();
+
+    private ScriptLock(DistributedLock engine, List<String> keys, LuaScript acquireScript,
+            LuaScript releaseScript) {
+        this.engine = engine;
+        this.keys = keys;
+        this.acquireScript = acquireScript;
+        this.releaseScript = releaseScript;
+    }
+
+    static ScriptLock reentrant(DistributedLock engine, String lockName) {
+        return new ScriptLock(engine, Collections.singletonList(REENTRANT_PREFIX + lockName), REENTRANT_ACQUIRE,
+                REENTRANT_RELEASE);
+    }
+
+    static ScriptLock read(DistributedLock engine, String lockName) {
+        return new ScriptLock(engine, rwKeys(lockName), READ_ACQUIRE, READ_RELEASE);
+    }
+
+    static ScriptLock write(DistributedLock engine, String lockName) {
+        return new ScriptLock(engine, rwKeys(lockName), WRITE_ACQUIRE, WRITE_RELEASE);
+    }
+
+    /**
+     * 读锁zset以锁key作为hash tag，集群模式下与锁位于同一slot
+     */
+    private static List<String> rwKeys(String lockName) {
+        String lockKey = RW_PREFIX + lockName;
+        return Arrays.asList(lockKey, "{" + lockKey + "}:readers");
+    }
+
+    @Override
+    public boolean tryLock(long acquireTimeoutInMS, long leaseTimeInMS) {
+        DistributedLock.checkLease(leaseTimeInMS);
+        DistributedLock.Attempt attempt = engine.acquire(acquireScript, keys,
+                Arrays.asList(engine.currentOwner(), String.valueOf(leaseTimeInMS)), acquireTimeoutInMS);
+        if (null == attempt)
+            return false;
+        holds.put(Thread.currentThread().getId(), (int) attempt.value);
+        return true;
+    }
+
+    @Override
+    public void unlock() {
+        long thread = Thread.currentThread().getId();
+        if (!holds.containsKey(thread))
+            throw new CacheException("Lock " + keys.get(0) + " is not held by current thread.");
+        Object result = engine.eval(releaseScript, keys,
+                Arrays.asList(engine.currentOwner(), engine.channelOf(keys.get(0))));
+        long remaining = null == result ? -1 : (Long) result;
+        if (remaining > 0) {
+            holds.put(thread, (int) remaining);
+            return;
+        }
+        holds.remove(thread);
+        if (remaining < 0)
+            throw new CacheException("Lock " + keys.get(0) + " has expired before unlock.");
+    }
+
+    @Override
+    public boolean isHeldByCurrentThread() {
+        return holds.containsKey(Thread.currentThread().getId());
+    }
+
+    @Override
+    public int getHoldCount() {
+        Integer count = holds.get(Thread.currentThread().getId());
+        return null == count ? 0 : count;
+    }
+}
@@ -1,12 +1,16 @@
 package com.ai.paas.ipaas.mcs.impl;
 
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.stream.Stream;
 
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import org.slf4j.LoggerFactory;
@@ -14,25 +18,32 @@ import org.slf4j.LoggerFactory;
 import redis.clients.jedis.GeoCoordinate;
 import redis.clients.jedis.GeoRadiusResponse;
 import redis.clients.jedis.GeoUnit;
+import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPubSub;
 import redis.clients.jedis.JedisSentinelPool;
 import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.ScanParams;
 import redis.clients.jedis.Transaction;
+import redis.clients.jedis.Tuple;
 import redis.clients.jedis.exceptions.JedisConnectionException;
 import redis.clients.jedis.params.GeoRadiusParam;
 import redis.clients.jedis.params.ZAddParams;
 import redis.clients.jedis.params.ZIncrByParams;
+import redis.clients.jedis.util.SafeEncoder;
 
 import com.ai.paas.ipaas.mcs.ICacheClient;
+import com.ai.paas.ipaas.mcs.ICacheLock;
+import com.ai.paas.ipaas.mcs.ICacheReadWriteLock;
+import com.ai.paas.ipaas.mcs.LockHandle;
 import com.ai.paas.ipaas.mcs.exception.CacheException;
 import com.ai.paas.util.Assert;
 import com.ai.paas.util.StringUtil;
 
-public class SentinelClient implements ICacheClient {
+public class SentinelClient implements ICacheClient, CommandExecutorAware, NodeAware {
 
     private static final org.slf4j.Logger log = LoggerFactory.getLogger(CacheClient.class);
-    private JedisSentinelPool pool;
+    private volatile JedisSentinelPool pool;
     @SuppressWarnings("rawtypes")
     private GenericObjectPoolConfig config;
     private static final int TIMEOUT_KEY = 15000;
@@ -40,12 +51,16 @@ public class SentinelClient implements ICacheClient {
     private String pwd;
     private boolean isRedisNeedAuth = false;
     private String clusterName = "mymaster";
+    private HealthChecker healthChecker;
+    private CommandExecutor<Jedis> executor;
+    private SentinelLock lock;
 
     @SuppressWarnings("rawtypes")
     public SentinelClient(GenericObjectPoolConfig config, String host) {
         this.config = config;
         this.host = host;
         createPool();
+        createExecutor();
     }
 
     public SentinelClient(@SuppressWarnings("rawtypes") GenericObjectPoolConfig config, String host, String pwd) {
@@ -56,6 +71,7 @@ public class SentinelClient implements ICacheClient {
             isRedisNeedAuth = true;
         }
         createPool();
+        createExecutor();
     }
 
     public SentinelClient(@SuppressWarnings("rawtypes") GenericObjectPoolConfig config, String clusterName, String host,
@@ -68,50 +84,49 @@ public class SentinelClient implements ICacheClient {
             isRedisNeedAuth = true;
         }
         createPool();
+        createExecutor();
     }
 
+    /**
+     * 创建连接池，构造时调用，以及由HealthChecker在后台线程中调用重建，请求线程不会调用
+     */
     private synchronized void createPool() {
-        if (!canConnection()) {
-            log.info("Create JedisPool Begin ...");
-            try {
-                if (config.getMaxWaitMillis() < 20000)
-                    config.setMaxWaitMillis(20000);
-
-                Set<String> sentinels = new HashSet<>(Arrays.asList(host.split(";|,")));
-                if (isRedisNeedAuth)
-                    pool = new JedisSentinelPool(clusterName, sentinels, config, TIMEOUT_KEY, pwd);
-                else
-                    pool = new JedisSentinelPool(clusterName, sentinels, config, TIMEOUT_KEY);
-                if (canConnection())
-                    log.info("Redis Server Info:{}", host);
-                log.info("Create JedisPool Done ...");
-            } catch (Exception e) {
-                throw new CacheException(e);
-            }
+        log.info("Create JedisPool Begin ...");
+        try {
+            if (config.getMaxWaitMillis() < 20000)
+                config.setMaxWaitMillis(20000);
+
+            Set<String> sentinels = new HashSet<>(Arrays.asList(host.split(";|,")));
+            JedisSentinelPool oldPool = pool;
+            if (isRedisNeedAuth)
+                pool = new JedisSentinelPool(clusterName, sentinels, config, TIMEOUT_KEY, pwd);
+            else
+                pool = new JedisSentinelPool(clusterName, sentinels, config, TIMEOUT_KEY);
+            if (null != oldPool)
+                oldPool.destroy();
+            log.info("Redis Server Info:{}", host);
+            log.info("Create JedisPool Done ...");
+        } catch (Exception e) {
+            throw new CacheException(e);
         }
     }
 
+    private void createExecutor() {
+        healthChecker = new HealthChecker(clusterName + "@" + host, new PingProbe(() -> getMasterNodes().get(0), pwd),
+                this::createPool);
+        executor = new CommandExecutor<>(clusterName + "@" + host, CommandExecutor.ConnectionProvider.of(
+                this::getJedis, this::returnResource), RetryPolicy.defaultPolicy(), healthChecker);
+        lock = new SentinelLock(this, executor);
+    }
+
     /**
-     * redis是否可用
+     * 设置加锁时需要确认的从节点数，主从切换时已确认的锁不会丢失；默认不等待
      *
-     * @return
+     * @param replicas    从节点数，0表示不等待
+     * @param timeoutInMS 等待确认的最长时间(ms)
      */
-    private boolean canConnection() {
-        if (pool == null)
-            return false;
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            jedis.connect();
-            jedis.get("ok");
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
-        return true;
+    public void setLockReplicaAck(int replicas, long timeoutInMS) {
+        lock.setReplicaAck(replicas, timeoutInMS);
     }
 
     private Jedis getJedis() {
@@ -122,211 +137,74 @@ public class SentinelClient implements ICacheClient {
         jedis.close();
     }
 
+    @Override
+    public CommandExecutor<?> getCommandExecutor() {
+        return executor;
+    }
+
+    /**
+     * sentinel当前报告的master
+     */
+    @Override
+    public List<HostAndPort> getMasterNodes() {
+        return Collections.singletonList(pool.getCurrentHostMaster());
+    }
+
+    @Override
+    public Jedis connect(HostAndPort node) {
+        return NodeAware.open(node, TIMEOUT_KEY, pwd);
+    }
+
     public void destroyPool() {
+        if (null != healthChecker) {
+            healthChecker.close();
+        }
         if (null != pool) {
             pool.destroy();
         }
     }
 
     public String set(String key, String value) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.set(key, value);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return set(key, value);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
-
+        return executor.execute("set", jedis -> jedis.set(key, value));
     }
 
     public String setex(String key, int seconds, String value) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.setex(key, seconds, value);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return setex(key, seconds, value);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("setex", jedis -> jedis.setex(key, seconds, value));
     }
 
     public String get(String key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.get(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return get(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("get", jedis -> jedis.get(key));
     }
 
     public Long del(String key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.del(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return del(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("del", jedis -> jedis.del(key));
     }
 
     public Long hincrBy(String key, String field, long value) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.hincrBy(key, field, value);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return hincrBy(key, field, value);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("hincrBy", jedis -> jedis.hincrBy(key, field, value));
     }
 
     @Override
     public Double incrByFloat(String key, double value) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.incrByFloat(key, value);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return incrByFloat(key, value);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("incrByFloat", jedis -> jedis.incrByFloat(key, value));
     }
 
     @Override
     public Double hincrByFloat(String key, String field, double value) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.hincrByFloat(key, field, value);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return hincrByFloat(key, field, value);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("hincrByFloat", jedis -> jedis.hincrByFloat(key, field, value));
     }
 
     public Long del(String... keys) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.del(keys);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return del(keys);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
+        return executor.execute("del", jedis -> jedis.del(keys));
+    }
 
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+    @Override
+    public Long unlink(String... keys) {
+        return executor.execute("unlink", jedis -> jedis.unlink(keys));
     }
 
     public Long expire(String key, int seconds) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.expire((key), seconds);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return expire(key, seconds);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("expire", jedis -> jedis.expire((key), seconds));
     }
 
     @Override
@@ -335,1149 +213,222 @@ public class SentinelClient implements ICacheClient {
     }
 
     public Long ttl(String key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.ttl(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return ttl(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("ttl", jedis -> jedis.ttl(key));
     }
 
     public boolean exists(String key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.exists(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return exists(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("exists", jedis -> jedis.exists(key));
     }
 
     public Long incr(String key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.incr(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return incr(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("incr", jedis -> jedis.incr(key));
     }
 
     public Long incrBy(String key, long increment) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.incrBy(key, increment);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return incrBy(key, increment);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("incrBy", jedis -> jedis.incrBy(key, increment));
     }
 
     public Long decr(String key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.decr(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return decr(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("decr", jedis -> jedis.decr(key));
     }
 
     public Long decrBy(String key, long decrement) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.decrBy(key, decrement);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return decrBy(key, decrement);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("decrBy", jedis -> jedis.decrBy(key, decrement));
     }
 
     public Long lpush(String key, String... strings) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.lpush(key, strings);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return lpush(key, strings);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("lpush", jedis -> jedis.lpush(key, strings));
     }
 
     public Long rpush(String key, String... strings) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.rpush(key, strings);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return rpush(key, strings);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("rpush", jedis -> jedis.rpush(key, strings));
     }
 
     public Long llen(String key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.llen(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return llen(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("llen", jedis -> jedis.llen(key));
     }
 
     public String lpop(String key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.lpop(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return lpop(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("lpop", jedis -> jedis.lpop(key));
     }
 
     public String rpop(String key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.rpop(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return rpop(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("rpop", jedis -> jedis.rpop(key));
     }
 
     public List<String> lrange(String key, long start, long end) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.lrange(key, start, end);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return lrange(key, start, end);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("lrange", jedis -> jedis.lrange(key, start, end));
     }
 
     public List<String> lrangeAll(String key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.lrange(key, 0, -1);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return lrangeAll(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("lrangeAll", jedis -> jedis.lrange(key, 0, -1));
     }
 
     public Long hset(String key, String field, String value) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.hset(key, field, value);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return hset(key, field, value);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("hset", jedis -> jedis.hset(key, field, value));
     }
 
     public Long hsetnx(String key, String field, String value) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.hsetnx(key, field, value);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return hsetnx(key, field, value);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("hsetnx", jedis -> jedis.hsetnx(key, field, value));
     }
 
     public String hmset(String key, Map<String, String> hash) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.hmset(key, hash);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return hmset(key, hash);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("hmset", jedis -> jedis.hmset(key, hash));
     }
 
     public String hget(String key, String field) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.hget(key, field);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return hget(key, field);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("hget", jedis -> jedis.hget(key, field));
     }
 
     public List<String> hmget(final String key, final String... fields) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.hmget(key, fields);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return hmget(key, fields);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("hmget", jedis -> jedis.hmget(key, fields));
     }
 
     public Boolean hexists(String key, String field) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.hexists(key, field);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return hexists(key, field);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("hexists", jedis -> jedis.hexists(key, field));
     }
 
     public Long hdel(String key, String... fields) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.hdel(key, fields);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return hdel(key, fields);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("hdel", jedis -> jedis.hdel(key, fields));
     }
 
     public Long hlen(String key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.hlen(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return hlen(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("hlen", jedis -> jedis.hlen(key));
     }
 
     public Map<String, String> hgetAll(String key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.hgetAll(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return hgetAll(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("hgetAll", jedis -> jedis.hgetAll(key));
     }
 
     public Long sadd(String key, String... members) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.sadd(key, members);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return sadd(key, members);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("sadd", jedis -> jedis.sadd(key, members));
     }
 
     public Set<String> smembers(String key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.smembers(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return smembers(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("smembers", jedis -> jedis.smembers(key));
     }
 
     public Long srem(String key, String... members) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.srem(key, members);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return srem(key, members);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("srem", jedis -> jedis.srem(key, members));
     }
 
     public Long scard(String key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.scard(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return scard(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("scard", jedis -> jedis.scard(key));
     }
 
     public Set<String> sunion(String... keys) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.sunion(keys);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return sunion(keys);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("sunion", jedis -> jedis.sunion(keys));
     }
 
     public Set<String> sdiff(String... keys) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.sdiff(keys);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return sdiff(keys);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("sdiff", jedis -> jedis.sdiff(keys));
     }
 
     public Long sdiffstore(String dstkey, String... keys) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.sdiffstore(dstkey, keys);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return sdiffstore(dstkey, keys);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("sdiffstore", jedis -> jedis.sdiffstore(dstkey, keys));
     }
 
     public String set(byte[] key, byte[] value) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.set(key, value);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return set(key, value);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("set", jedis -> jedis.set(key, value));
     }
 
     public String setex(byte[] key, int seconds, byte[] value) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.setex(key, seconds, value);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return setex(key, seconds, value);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("setex", jedis -> jedis.setex(key, seconds, value));
     }
 
     public byte[] get(byte[] key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.get(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return get(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
+        return executor.execute("get", jedis -> jedis.get(key));
+    }
 
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+    public long getStream(byte[] key, OutputStream out) {
+        return ValueStreams.read(this, key, out);
     }
 
-    public Long del(byte[] key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.del(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return del(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
+    public long setStream(byte[] key, InputStream in, int seconds) {
+        return ValueStreams.write(this, key, in, seconds,
+                (from, to) -> executor.execute("rename", jedis -> jedis.rename(from, to)));
+    }
 
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+    public Long del(byte[] key) {
+        return executor.execute("del", jedis -> jedis.del(key));
     }
 
     public Long del(byte[]... keys) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.del(keys);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return del(keys);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("del", jedis -> jedis.del(keys));
     }
 
     public Long expire(byte[] key, int seconds) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.expire(key, seconds);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return expire(key, seconds);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("expire", jedis -> jedis.expire(key, seconds));
     }
 
     @Override
     public Long expireAt(byte[] key, long seconds) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.expireAt(key, seconds);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return expireAt(key, seconds);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("expireAt", jedis -> jedis.expireAt(key, seconds));
     }
 
     public Long ttl(byte[] key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.ttl(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return ttl(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("ttl", jedis -> jedis.ttl(key));
     }
 
     public boolean exists(byte[] key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.exists(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return exists(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("exists", jedis -> jedis.exists(key));
     }
 
     public Long incr(byte[] key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.incr(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return incr(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("incr", jedis -> jedis.incr(key));
     }
 
     public Long incrBy(byte[] key, long increment) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.incrBy(key, increment);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return incrBy(key, increment);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("incrBy", jedis -> jedis.incrBy(key, increment));
     }
 
     public Long decr(byte[] key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.decr(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return decr(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("decr", jedis -> jedis.decr(key));
     }
 
     public Long decrBy(byte[] key, long decrement) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.decrBy(key, decrement);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return decrBy(key, decrement);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("decrBy", jedis -> jedis.decrBy(key, decrement));
     }
 
     public Long lpush(byte[] key, byte[]... strings) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.lpush(key, strings);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return lpush(key, strings);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("lpush", jedis -> jedis.lpush(key, strings));
     }
 
     public Long rpush(byte[] key, byte[]... strings) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.rpush(key, strings);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return rpush(key, strings);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("rpush", jedis -> jedis.rpush(key, strings));
     }
 
     public Long llen(byte[] key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.llen(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return llen(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("llen", jedis -> jedis.llen(key));
     }
 
     public byte[] lpop(byte[] key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.lpop(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return lpop(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("lpop", jedis -> jedis.lpop(key));
     }
 
     public byte[] rpop(byte[] key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.rpop(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return rpop(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("rpop", jedis -> jedis.rpop(key));
     }
 
     public List<byte[]> lrange(byte[] key, long start, long end) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.lrange(key, start, end);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return lrange(key, start, end);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("lrange", jedis -> jedis.lrange(key, start, end));
     }
 
     public List<byte[]> lrangeAll(byte[] key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.lrange(key, 0, -1);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return lrangeAll(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("lrangeAll", jedis -> jedis.lrange(key, 0, -1));
     }
 
     public Long hset(byte[] key, byte[] field, byte[] value) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.hset(key, field, value);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return hset(key, field, value);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("hset", jedis -> jedis.hset(key, field, value));
     }
 
     public Long hsetnx(byte[] key, byte[] field, byte[] value) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.hsetnx(key, field, value);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return hsetnx(key, field, value);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("hsetnx", jedis -> jedis.hsetnx(key, field, value));
     }
 
     @Override
     public Long setnx(byte[] key, byte[] value) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.setnx(key, value);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return setnx(key, value);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("setnx", jedis -> jedis.setnx(key, value));
     }
 
     @Override
@@ -1486,1041 +437,329 @@ public class SentinelClient implements ICacheClient {
     }
 
     public String hmset(byte[] key, Map<byte[], byte[]> hash) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.hmset(key, hash);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return hmset(key, hash);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("hmset", jedis -> jedis.hmset(key, hash));
     }
 
     public byte[] hget(byte[] key, byte[] field) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.hget(key, field);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return hget(key, field);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("hget", jedis -> jedis.hget(key, field));
     }
 
     public List<byte[]> hmget(final byte[] key, final byte[]... fields) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.hmget(key, fields);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return hmget(key, fields);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("hmget", jedis -> jedis.hmget(key, fields));
     }
 
     public Boolean hexists(byte[] key, byte[] field) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.hexists(key, field);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return hexists(key, field);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("hexists", jedis -> jedis.hexists(key, field));
     }
 
     public Long hdel(byte[] key, byte[]... fields) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.hdel(key, fields);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return hdel(key, fields);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("hdel", jedis -> jedis.hdel(key, fields));
     }
 
     public Long hlen(byte[] key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.hlen(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return hlen(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("hlen", jedis -> jedis.hlen(key));
     }
 
     public Map<byte[], byte[]> hgetAll(byte[] key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.hgetAll(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return hgetAll(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("hgetAll", jedis -> jedis.hgetAll(key));
     }
 
     public Long sadd(byte[] key, byte[]... members) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.sadd(key, members);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return sadd(key, members);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("sadd", jedis -> jedis.sadd(key, members));
     }
 
     public Set<byte[]> smembers(byte[] key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.smembers(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return smembers(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("smembers", jedis -> jedis.smembers(key));
     }
-
-    public Long srem(byte[] key, byte[]... members) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.srem(key, members);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return srem(key, members);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+
+    public Long srem(byte[] key, byte[]... members) {
+        return executor.execute("srem", jedis -> jedis.srem(key, members));
     }
 
     public Long scard(byte[] key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.scard(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return scard(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("scard", jedis -> jedis.scard(key));
     }
 
     public Set<byte[]> sunion(byte[]... keys) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.sunion(keys);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return sunion(keys);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("sunion", jedis -> jedis.sunion(keys));
     }
 
     public Set<byte[]> sdiff(byte[]... keys) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.sdiff(keys);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return sdiff(keys);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("sdiff", jedis -> jedis.sdiff(keys));
     }
 
     public Long sdiffstore(byte[] dstkey, byte[]... keys) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.sdiffstore(dstkey, keys);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return sdiffstore(dstkey, keys);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("sdiffstore", jedis -> jedis.sdiffstore(dstkey, keys));
     }
 
     @Override
     public Long lrem(String key, long count, String value) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.lrem(key, count, value);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return lrem(key, count, value);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("lrem", jedis -> jedis.lrem(key, count, value));
     }
 
     @Override
     public Long lrem(byte[] key, long count, byte[] value) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.lrem(key, count, value);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return lrem(key, count, value);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("lrem", jedis -> jedis.lrem(key, count, value));
     }
 
     @Override
     public Long zadd(String key, double score, String member) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.zadd(key, score, member);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return zadd(key, score, member);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("zadd", jedis -> jedis.zadd(key, score, member));
     }
 
     @Override
     public Long zadd(final String key, final double score, final String member, final ZAddParams params) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.zadd(key, score, member, params);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return zadd(key, score, member, params);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("zadd", jedis -> jedis.zadd(key, score, member, params));
     }
 
     @Override
     public Long zadd(String key, Map<String, Double> scoreMembers) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.zadd(key, scoreMembers);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return zadd(key, scoreMembers);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("zadd", jedis -> jedis.zadd(key, scoreMembers));
     }
 
     @Override
     public Long zadd(final String key, final Map<String, Double> scoreMembers, final ZAddParams params) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.zadd(key, scoreMembers, params);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return zadd(key, scoreMembers, params);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("zadd", jedis -> jedis.zadd(key, scoreMembers, params));
     }
 
     @Override
     public Long zcount(final String key, final double min, final double max) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.zcount(key, min, max);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return zcount(key, min, max);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("zcount", jedis -> jedis.zcount(key, min, max));
     }
 
     @Override
     public Long zcount(final String key, final String min, final String max) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.zcount(key, min, max);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return zcount(key, min, max);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
+        return executor.execute("zcount", jedis -> jedis.zcount(key, min, max));
+    }
 
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+    @Override
+    public Long zcard(final String key) {
+        return executor.execute("zcard", jedis -> jedis.zcard(key));
     }
 
     @Override
     public Double zincrby(final String key, final double score, final String member) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.zincrby(key, score, member);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return zincrby(key, score, member);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("zincrby", jedis -> jedis.zincrby(key, score, member));
     }
 
     @Override
     public Double zincrby(String key, double score, String member, ZIncrByParams params) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.zincrby(key, score, member, params);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return zincrby(key, score, member, params);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("zincrby", jedis -> jedis.zincrby(key, score, member, params));
     }
 
     @Override
     public Set<String> zrange(final String key, final long start, final long end) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.zrange(key, start, end);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return zrange(key, start, end);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("zrange", jedis -> jedis.zrange(key, start, end));
     }
 
     @Override
     public Set<String> zrangeByScore(final String key, final double min, final double max) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.zrangeByScore(key, min, max);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return zrangeByScore(key, min, max);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("zrangeByScore", jedis -> jedis.zrangeByScore(key, min, max));
     }
 
     @Override
     public Set<String> zrangeByScore(final String key, final String min, final String max) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.zrangeByScore(key, min, max);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return zrangeByScore(key, min, max);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("zrangeByScore", jedis -> jedis.zrangeByScore(key, min, max));
     }
 
     @Override
     public Set<String> zrangeByScore(final String key, final double min, final double max, final int offset,
             int count) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.zrangeByScore(key, min, max, offset, count);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return zrangeByScore(key, min, max, offset, count);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("zrangeByScore", jedis -> jedis.zrangeByScore(key, min, max, offset, count));
     }
 
     @Override
     public Set<String> zrevrange(final String key, final long start, final long end) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.zrevrange(key, start, end);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return zrevrange(key, start, end);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("zrevrange", jedis -> jedis.zrevrange(key, start, end));
     }
 
     @Override
     public Set<String> zrevrangeByScore(final String key, final double max, final double min) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.zrevrangeByScore(key, max, min);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return zrevrangeByScore(key, max, min);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("zrevrangeByScore", jedis -> jedis.zrevrangeByScore(key, max, min));
     }
 
     @Override
     public Set<String> zrevrangeByScore(final String key, final String max, final String min) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.zrevrangeByScore(key, max, min);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return zrevrangeByScore(key, max, min);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("zrevrangeByScore", jedis -> jedis.zrevrangeByScore(key, max, min));
     }
 
     @Override
     public Set<String> zrevrangeByScore(final String key, final double max, final double min, final int offset,
             int count) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.zrevrangeByScore(key, max, min, offset, count);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return zrevrangeByScore(key, max, min, offset, count);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("zrevrangeByScore", jedis -> jedis.zrevrangeByScore(key, max, min, offset, count));
     }
 
     @Override
     public Long zrevrank(final String key, final String member) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.zrevrank(key, member);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return zrevrank(key, member);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("zrevrank", jedis -> jedis.zrevrank(key, member));
     }
 
     @Override
     public Long zrem(final String key, final String... member) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.zrem(key, member);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return zrem(key, member);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("zrem", jedis -> jedis.zrem(key, member));
     }
 
     @Override
     public Long zremrangeByRank(final String key, final long start, final long end) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.zremrangeByRank(key, start, end);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return zremrangeByRank(key, start, end);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("zremrangeByRank", jedis -> jedis.zremrangeByRank(key, start, end));
     }
 
     @Override
     public Long zremrangeByScore(final String key, final double start, final double end) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.zremrangeByScore(key, start, end);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return zremrangeByScore(key, start, end);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("zremrangeByScore", jedis -> jedis.zremrangeByScore(key, start, end));
     }
 
     @Override
     public Long zremrangeByScore(final String key, final String start, final String end) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.zremrangeByScore(key, start, end);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return zremrangeByScore(key, start, end);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("zremrangeByScore", jedis -> jedis.zremrangeByScore(key, start, end));
     }
 
     @Override
-    public Long publish(final String channel, final String message) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.publish(channel, message);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return publish(channel, message);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+    public Long publish(final String channel, final String message) {
+        return executor.execute("publish", jedis -> jedis.publish(channel, message));
     }
 
     @Override
     public void subscribe(final JedisPubSub jedisPubSub, final String... channels) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            jedis.subscribe(jedisPubSub, channels);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                subscribe(jedisPubSub, channels);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        executor.execute("subscribe", jedis ->
+            {
+                jedis.subscribe(jedisPubSub, channels);
+                return null;
+            });
     }
 
     @Override
     public void psubscribe(final JedisPubSub jedisPubSub, final String... patterns) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            jedis.psubscribe(jedisPubSub, patterns);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                psubscribe(jedisPubSub, patterns);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
+        executor.execute("psubscribe", jedis ->
+            {
+                jedis.psubscribe(jedisPubSub, patterns);
+                return null;
+            });
+    }
 
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+    @Override
+    public Object eval(final String script, final List<String> keys, final List<String> args) {
+        return executor.execute("eval", jedis -> jedis.eval(script, keys, args));
+    }
+
+    @Override
+    public Object evalsha(final String sha1, final List<String> keys, final List<String> args) {
+        return executor.execute("evalsha", jedis -> jedis.evalsha(sha1, keys, args));
     }
 
     @Override
     public String acquireLock(String lockName, long acquireTimeoutInMS, long lockTimeoutInMS) {
-        throw new CacheException("sentinel mode is no surpport lock.");
+        return lock.acquire(lockName, acquireTimeoutInMS, lockTimeoutInMS);
     }
 
     @Override
     public boolean releaseLock(String lockName, String identifier) {
-        throw new CacheException("sentinel mode is no surpport lock.");
+        return lock.release(lockName, identifier);
     }
 
     @Override
-    public Set<String> hkeys(String key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.hkeys(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return hkeys(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
+    public LockHandle acquireRenewableLock(String lockName, long acquireTimeoutInMS, long leaseTimeInMS) {
+        return lock.acquireRenewable(lockName, acquireTimeoutInMS, leaseTimeInMS);
+    }
 
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+    @Override
+    public ICacheLock getReentrantLock(String lockName) {
+        return lock.reentrantLock(lockName);
     }
 
     @Override
-    public List<String> hvals(String key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.hvals(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return hvals(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
+    public ICacheReadWriteLock getReadWriteLock(String lockName) {
+        return lock.readWriteLock(lockName);
+    }
 
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+    @Override
+    public Set<String> hkeys(String key) {
+        return executor.execute("hkeys", jedis -> jedis.hkeys(key));
     }
 
     @Override
-    public Set<byte[]> hkeys(byte[] key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.hkeys(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return hkeys(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
+    public List<String> hvals(String key) {
+        return executor.execute("hvals", jedis -> jedis.hvals(key));
+    }
 
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+    @Override
+    public Set<byte[]> hkeys(byte[] key) {
+        return executor.execute("hkeys", jedis -> jedis.hkeys(key));
     }
 
     @Override
     public List<byte[]> hvals(byte[] key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.hvals(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return hvals(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("hvals", jedis -> jedis.hvals(key));
     }
 
     @Override
     public Set<String> keys(String pattern) {
-        Jedis jedis = null;
         Set<String> keys = new TreeSet<>();
-        try {
-            if (StringUtil.isBlank(pattern))
-                return keys;
-            if ("*".equals(pattern))
-                return keys;
-            jedis = getJedis();
-            return jedis.keys(pattern);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return keys(pattern);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
+        if (StringUtil.isBlank(pattern))
+            return keys;
+        if ("*".equals(pattern))
+            return keys;
+        scan(pattern, ScanIterator.DEFAULT_COUNT).forEach(keys::add);
+        return keys;
+    }
 
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+    @Override
+    public Stream<String> scan(String pattern, int count) {
+        ScanParams params = ScanIterator.params(pattern, count);
+        return ScanIterator.of(cursor -> executor.execute("scan", jedis -> jedis.scan(cursor, params))).stream();
+    }
+
+    @Override
+    public Stream<Map.Entry<String, String>> hscan(String key, int count) {
+        ScanParams params = ScanIterator.params(null, count);
+        return ScanIterator.of(cursor -> executor.execute("hscan", jedis -> jedis.hscan(key, cursor, params))).stream();
+    }
+
+    @Override
+    public Stream<Map.Entry<byte[], byte[]>> hscan(byte[] key, int count) {
+        ScanParams params = ScanIterator.params(null, count);
+        return ScanIterator.of(cursor -> executor.execute("hscan",
+                jedis -> jedis.hscan(key, SafeEncoder.encode(cursor), params))).stream();
+    }
+
+    @Override
+    public Stream<String> sscan(String key, int count) {
+        ScanParams params = ScanIterator.params(null, count);
+        return ScanIterator.of(cursor -> executor.execute("sscan", jedis -> jedis.sscan(key, cursor, params))).stream();
+    }
+
+    @Override
+    public Stream<byte[]> sscan(byte[] key, int count) {
+        ScanParams params = ScanIterator.params(null, count);
+        return ScanIterator.of(cursor -> executor.execute("sscan",
+                jedis -> jedis.sscan(key, SafeEncoder.encode(cursor), params))).stream();
+    }
+
+    @Override
+    public Stream<Tuple> zscan(String key, int count) {
+        ScanParams params = ScanIterator.params(null, count);
+        return ScanIterator.of(cursor -> executor.execute("zscan", jedis -> jedis.zscan(key, cursor, params))).stream();
+    }
+
+    @Override
+    public Stream<Tuple> zscan(byte[] key, int count) {
+        ScanParams params = ScanIterator.params(null, count);
+        return ScanIterator.of(cursor -> executor.execute("zscan",
+                jedis -> jedis.zscan(key, SafeEncoder.encode(cursor), params))).stream();
+    }
+
+    @Override
+    public Stream<String> lscan(String key, int count) {
+        return ScanIterator
+                .pages((start, end) -> executor.execute("lrange", jedis -> jedis.lrange(key, start, end)), count)
+                .stream();
+    }
+
+    @Override
+    public Stream<byte[]> lscan(byte[] key, int count) {
+        return ScanIterator
+                .pages((start, end) -> executor.execute("lrange", jedis -> jedis.lrange(key, start, end)), count)
+                .stream();
     }
 
     @Override
@@ -2535,13 +774,10 @@ public class SentinelClient implements ICacheClient {
             // 先存下来
             return jedis.multi();
         } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return startTransaction();
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
+            JedisContextHolder.clean();
+            healthChecker.reportFailure();
+            log.error(jedisConnectionException.getMessage(), jedisConnectionException);
+            throw new CacheException(jedisConnectionException);
         } catch (Exception e) {
 
             throw new CacheException(e);
@@ -2628,422 +864,122 @@ public class SentinelClient implements ICacheClient {
 
     @Override
     public Boolean setBit(String key, long offset, String value) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.setbit(key, offset, value);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return setBit(key, offset, value);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("setBit", jedis -> jedis.setbit(key, offset, value));
     }
 
     @Override
     public Boolean getBit(String key, long offset) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.getbit(key, offset);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return getBit(key, offset);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("getBit", jedis -> jedis.getbit(key, offset));
     }
 
     @Override
     public long countBit(String key, long start, long end) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.bitcount(key, start, end);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return countBit(key, start, end);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("countBit", jedis -> jedis.bitcount(key, start, end));
     }
 
     @Override
     public long countBit(String key) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.bitcount(key);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return countBit(key);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("countBit", jedis -> jedis.bitcount(key));
     }
 
     @Override
     public long addGeo(String key, Map<String, GeoCoordinate> memberCoordinateMap) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.geoadd(key, memberCoordinateMap);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return addGeo(key, memberCoordinateMap);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("addGeo", jedis -> jedis.geoadd(key, memberCoordinateMap));
     }
 
     @Override
     public long addGeo(String key, String name, long longitude, long latitude) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.geoadd(key, longitude, latitude, name);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return addGeo(key, name, longitude, latitude);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("addGeo", jedis -> jedis.geoadd(key, longitude, latitude, name));
     }
 
     @Override
     public List<GeoCoordinate> getGeo(String key, String... members) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.geopos(key, members);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return getGeo(key, members);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("getGeo", jedis -> jedis.geopos(key, members));
     }
 
     @Override
     public Double getGeoDist(String key, String start, String end) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.geodist(key, start, end);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return getGeoDist(key, start, end);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("getGeoDist", jedis -> jedis.geodist(key, start, end));
     }
 
     @Override
     public Double getGeoDist(String key, String start, String end, GeoUnit unit) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.geodist(key, start, end, unit);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return getGeoDist(key, start, end, unit);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("getGeoDist", jedis -> jedis.geodist(key, start, end, unit));
     }
 
     @Override
     public List<GeoRadiusResponse> getGeoDist(String key, long longitude, long latitude, long radius, GeoUnit unit) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.georadius(key, longitude, latitude, radius, unit);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return getGeoDist(key, longitude, latitude, radius, unit);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("getGeoDist", jedis -> jedis.georadius(key, longitude, latitude, radius, unit));
     }
 
     @Override
     public List<GeoRadiusResponse> getGeoDist(String key, double longitude, double latitude, double radius,
             GeoUnit unit, GeoRadiusParam param) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.georadius(key, longitude, latitude, radius, unit, param);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return getGeoDist(key, longitude, latitude, radius, unit, param);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("getGeoDist", jedis -> jedis.georadius(key, longitude, latitude, radius, unit, param));
     }
 
     @Override
     public List<GeoRadiusResponse> getGeoDist(String key, String member, long radius, GeoUnit unit) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.georadiusByMember(key, member, radius, unit);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return getGeoDist(key, member, radius, unit);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("getGeoDist", jedis -> jedis.georadiusByMember(key, member, radius, unit));
     }
 
     @Override
     public List<GeoRadiusResponse> getGeoDist(String key, String member, double radius, GeoUnit unit,
             GeoRadiusParam param) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.georadiusByMember(key, member, radius, unit, param);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return getGeoDist(key, member, radius, unit, param);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("getGeoDist", jedis -> jedis.georadiusByMember(key, member, radius, unit, param));
     }
 
     @Override
     public List<String> getGeoHash(String key, String... members) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.geohash(key, members);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return getGeoHash(key, members);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("getGeoHash", jedis -> jedis.geohash(key, members));
     }
 
     @Override
     public List<String> mget(String... keys) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            return jedis.mget(keys);
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return mget(keys);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("mget", jedis -> jedis.mget(keys));
     }
 
     @Override
     public void mset(Map<String, String> values) {
         Assert.notNull(values);
-        Jedis jedis = null;
-        try {
-            // 先组装
-            final List<String> list = new ArrayList<>();
-            values.forEach((k, v) ->
-                {
-                    list.add(k);
-                    list.add(v);
-                });
-            jedis = getJedis();
-            jedis.mset(list.toArray(new String[list.size()]));
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                mset(values);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
-
+        // 先组装
+        final List<String> list = new ArrayList<>();
+        values.forEach((k, v) ->
+            {
+                list.add(k);
+                list.add(v);
+            });
+        executor.execute("mset", jedis ->
+            {
+                jedis.mset(list.toArray(new String[list.size()]));
+                return null;
+            });
     }
 
     @Override
     public List<Object> pipelineGet(String... keys) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            Pipeline pipeline = jedis.pipelined();
-            for (String key : keys) {
-                pipeline.get(key);
-            }
-            return pipeline.syncAndReturnAll();
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                return pipelineGet(keys);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
+        return executor.execute("pipelineGet", jedis ->
+            {
+                Pipeline pipeline = jedis.pipelined();
+                for (String key : keys) {
+                    pipeline.get(key);
+                }
+                return pipeline.syncAndReturnAll();
+            });
     }
 
     @Override
     public void pipelineSet(Map<String, String> values) {
-        Jedis jedis = null;
-        try {
-            jedis = getJedis();
-            Pipeline pipeline = jedis.pipelined();
-            for (Map.Entry<String, String> entry : values.entrySet()) {
-                pipeline.set(entry.getKey(), entry.getValue());
-            }
-            pipeline.sync();
-            pipeline.close();
-        } catch (JedisConnectionException jedisConnectionException) {
-            createPool();
-            if (canConnection()) {
-                pipelineSet(values);
-            } else {
-                log.error(jedisConnectionException.getMessage(), jedisConnectionException);
-                throw new CacheException(jedisConnectionException);
-            }
-        } catch (Exception e) {
-            throw new CacheException(e);
-        } finally {
-            if (jedis != null)
-                returnResource(jedis);
-        }
-
+        executor.execute("pipelineSet", jedis ->
+            {
+                Pipeline pipeline = jedis.pipelined();
+                for (Map.Entry<String, String> entry : values.entrySet()) {
+                    pipeline.set(entry.getKey(), entry.getValue());
+                }
+                pipeline.sync();
+                pipeline.close();
+                return null;
+            });
     }
 
     @Override
@@ -0,0 +1,61 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.ai.paas.ipaas.mcs.ICacheClient;
+import com.ai.paas.ipaas.mcs.exception.CacheException;
+
+import redis.clients.jedis.Jedis;
+
+/**
+ * 哨兵模式的分布式锁。主从复制是异步的，主节点加锁后未同步到从节点就发生切换时，新的主节点上没有这把锁。
+ * 设置了需要确认的从节点数时，加锁脚本执行后在同一连接上用WAIT等待从节点确认，确认数不足则释放锁并抛出CacheException。
+ * 只对互斥锁（acquireLock和acquireRenewableLock）生效。
+ */
+class SentinelLock extends DistributedLock {
+
+    private final CommandExecutor<Jedis> executor;
+    private volatile int replicas = 0;
+    private volatile long replicaTimeoutInMS = 100;
+
+    SentinelLock(ICacheClient client, CommandExecutor<Jedis> executor) {
+        super(client, true);
+        this.executor = executor;
+    }
+
+    /**
+     * 设置加锁时需要确认的从节点数
+     *
+     * @param replicas    从节点数，0表示不等待
+     * @param timeoutInMS 等待确认的最长时间(ms)
+     */
+    void setReplicaAck(int replicas, long timeoutInMS) {
+        this.replicas = replicas;
+        this.replicaTimeoutInMS = timeoutInMS;
+    }
+
+    @Override
+    protected Attempt tryAcquire(LuaScript script, List<String> keys, List<String> args) {
+        int required = replicas;
+        if (required <= 0 || script != ACQUIRE)
+            return super.tryAcquire(script, keys, args);
+        long timeout = replicaTimeoutInMS;
+        String lockKey = keys.get(0);
+        return executor.execute("acquireLock", jedis ->
+            {
+                Attempt attempt = Attempt.of(ACQUIRE.eval(jedis, keys, args));
+                if (!attempt.acquired)
+                    return attempt;
+                long acked = jedis.waitReplicas(required, timeout);
+                if (acked < required) {
+                    RELEASE.eval(jedis, Collections.singletonList(lockKey),
+                            Arrays.asList(args.get(0), lockKey + CHANNEL_SUFFIX));
+                    throw new CacheException("Lock " + lockKey + " acknowledged by " + acked + " of " + required
+                            + " replicas in " + timeout + "ms, released.");
+                }
+                return attempt;
+            });
+    }
+}
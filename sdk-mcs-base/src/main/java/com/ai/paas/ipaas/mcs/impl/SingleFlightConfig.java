@@ -0,0 +1,79 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+/**
+ * SingleFlightLoader的配置，在创建之前设置
+ */
+public class SingleFlightConfig {
+
+    /**
+     * 加载租约的时长，应大于加载一次的时间；持有租约的进程异常退出时，其他进程最多等这么久再加载
+     */
+    private long leaseMillis = 5000;
+    /**
+     * 其他进程持有租约且没有旧值时，等待其写入的最长时间，超时后自己加载
+     */
+    private long waitMillis = 3000;
+    /**
+     * 旧值比value多保存的时间，value过期后加载期间其他进程返回旧值而不是等待，为0时不保存。
+     * getOrLoad另存一份为key:stale（key没有hash tag时为{key}:stale，与key在同一slot），getOrRefresh保存在同一个hash中
+     */
+    private int staleSeconds;
+    /**
+     * XFetch的系数，大于1时更早刷新，小于1时更晚
+     */
+    private double beta = 1.0;
+    /**
+     * getOrRefresh后台刷新的线程数
+     */
+    private int refreshThreads = 2;
+
+    public long getLeaseMillis() {
+        return leaseMillis;
+    }
+
+    public void setLeaseMillis(long leaseMillis) {
+        if (leaseMillis < 1)
+            throw new IllegalArgumentException("leaseMillis must be at least 1");
+        this.leaseMillis = leaseMillis;
+    }
+
+    public long getWaitMillis() {
+        return waitMillis;
+    }
+
+    public void setWaitMillis(long waitMillis) {
+        if (waitMillis < 0)
+            throw new IllegalArgumentException("waitMillis must not be negative");
+        this.waitMillis = waitMillis;
+    }
+
+    public int getStaleSeconds() {
+        return staleSeconds;
+    }
+
+    public void setStaleSeconds(int staleSeconds) {
+        if (staleSeconds < 0)
+            throw new IllegalArgumentException("staleSeconds must not be negative");
+        this.staleSeconds = staleSeconds;
+    }
+
+    public double getBeta() {
+        return beta;
+    }
+
+    public void setBeta(double beta) {
+        if (beta <= 0)
+            throw new IllegalArgumentException("beta must be positive");
+        this.beta = beta;
+    }
+
+    public int getRefreshThreads() {
+        return refreshThreads;
+    }
+
+    public void setRefreshThreads(int refreshThreads) {
+        if (refreshThreads < 1)
+            throw new IllegalArgumentException("refreshThreads must be at least 1");
+        this.refreshThreads = refreshThreads;
+    }
+}
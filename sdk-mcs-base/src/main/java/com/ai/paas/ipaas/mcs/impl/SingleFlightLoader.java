@@ -0,0 +1,470 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ai.paas.ipaas.mcs.ICacheClient;
+import com.ai.paas.ipaas.mcs.exception.CacheException;
+
+import redis.clients.jedis.util.SafeEncoder;
+
+/**
+ * 缓存未命中时只加载一次，防止热点key过期时大量请求同时回源（缓存击穿）。
+ * 进程内：同一个key同时只有一个线程执行loader，其他线程等待它的结果。
+ * 进程间：加载前先用acquireLock取得该key的加载租约，没取到的进程有旧值时直接返回旧值，否则等待持有租约的进程写入，
+ * 等待超时后自己加载。loader返回null时不写入缓存。
+ * getOrRefresh另外按XFetch算法提前刷新：value和加载耗时、过期时间一起存在hash中，
+ * 每次读取时以随距过期越近、加载越慢而越大的概率在后台重新加载，当前调用仍立即返回现有的value，
+ * 使同时写入的热点key的重新加载分散开，而不是在同一时刻过期后一起回源。
+ */
+public class SingleFlightLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(SingleFlightLoader.class);
+
+    private static final String LEASE_PREFIX = "mcs:load:";
+    private static final String STALE_SUFFIX = ":stale";
+    private static final long MIN_POLL = 10;
+    private static final long MAX_POLL = 100;
+    private static final int MAX_PENDING_REFRESHES = 1024;
+
+    /**
+     * getOrRefresh使用的hash中的field：value、加载耗时(ms)、逻辑过期时间(ms)
+     */
+    private static final String VALUE_FIELD = "v";
+    private static final String DELTA_FIELD = "d";
+    private static final String EXPIRY_FIELD = "e";
+
+    /**
+     * 写入getOrRefresh的hash并设置实际过期时间，两者在一个脚本中执行，不会留下没有过期时间的hash
+     */
+    static final LuaScript WRITE_ENVELOPE = new LuaScript("redis.call('hmset', KEYS[1], '" + VALUE_FIELD
+            + "', ARGV[1], '" + DELTA_FIELD + "', ARGV[2], '" + EXPIRY_FIELD + "', ARGV[3]) "
+            + "return redis.call('expire', KEYS[1], ARGV[4])");
+
+    /**
+     * 写入getOrLoad的value和旧值副本，两者在一个脚本中执行，旧值副本总是与value一致。ARGV为value、两者的过期时间(s)
+     */
+    static final LuaScript WRITE_WITH_STALE = new LuaScript("redis.call('setex', KEYS[1], ARGV[2], ARGV[1]) "
+            + "return redis.call('setex', KEYS[2], ARGV[3], ARGV[1])");
+
+    private static final AtomicInteger IDS = new AtomicInteger();
+
+    /**
+     * value的读写方式，getOrLoad为普通字符串，getOrRefresh为带加载耗时的hash
+     */
+    private interface Storage {
+        /**
+         * @return 不存在或已过期时返回null
+         */
+        String read(String key);
+
+        /**
+         * @return 过期后保留的旧值
+         */
+        String readStale(String key);
+
+        void write(String key, int ttlSeconds, String value, long computeMillis);
+    }
+
+    /**
+     * getOrRefresh读到的hash
+     */
+    private static final class Envelope {
+        final String value;
+        final long delta;
+        final long expireAt;
+
+        Envelope(String value, long delta, long expireAt) {
+            this.value = value;
+            this.delta = delta;
+            this.expireAt = expireAt;
+        }
+
+        boolean expired(long now) {
+            return now >= expireAt;
+        }
+    }
+
+    private final ICacheClient client;
+    private final SingleFlightConfig config;
+    private final ConcurrentMap<String, CompletableFuture<String>> loading = new ConcurrentHashMap<>();
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor refresher;
+    private final Storage plain = new Storage() {
+        @Override
+        public String read(String key) {
+            return client.get(key);
+        }
+
+        @Override
+        public String readStale(String key) {
+            return client.get(staleKey(key));
+        }
+
+        @Override
+        public void write(String key, int ttlSeconds, String value, long computeMillis) {
+            if (config.getStaleSeconds() == 0) {
+                client.setex(key, ttlSeconds, value);
+                return;
+            }
+            WRITE_WITH_STALE.eval(client, Arrays.asList(key, staleKey(key)), Arrays.asList(value,
+                    String.valueOf(ttlSeconds), String.valueOf(ttlSeconds + config.getStaleSeconds())));
+        }
+    };
+    private final Storage envelope = new Storage() {
+        @Override
+        public String read(String key) {
+            Envelope read = readEnvelope(key);
+            return null == read || read.expired(System.currentTimeMillis()) ? null : read.value;
+        }
+
+        @Override
+        public String readStale(String key) {
+            Envelope read = readEnvelope(key);
+            return null == read ? null : read.value;
+        }
+
+        /**
+         * 旧值保存在同一个hash中，实际过期时间比逻辑过期时间晚staleSeconds
+         */
+        @Override
+        public void write(String key, int ttlSeconds, String value, long computeMillis) {
+            long expireAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ttlSeconds);
+            WRITE_ENVELOPE.eval(client, Collections.singletonList(key), Arrays.asList(value,
+                    String.valueOf(computeMillis), String.valueOf(expireAt),
+                    String.valueOf(ttlSeconds + config.getStaleSeconds())));
+        }
+    };
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder leaseWaits = new LongAdder();
+    private final LongAdder leaseTimeouts = new LongAdder();
+    private final LongAdder staleServed = new LongAdder();
+    private final LongAdder earlyRefreshes = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+
+    public SingleFlightLoader(ICacheClient client) {
+        this(client, new SingleFlightConfig());
+    }
+
+    public SingleFlightLoader(ICacheClient client, SingleFlightConfig config) {
+        this.client = client;
+        this.config = config;
+        String name = "mcs-refresh-" + IDS.incrementAndGet();
+        AtomicInteger threads = new AtomicInteger();
+        this.refresher = new ThreadPoolExecutor(config.getRefreshThreads(), config.getRefreshThreads(), 60,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<>(MAX_PENDING_REFRESHES), r ->
+                    {
+                        Thread t = new Thread(r, name + "-" + threads.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+        refresher.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 读取key，不存在时加载并写入
+     *
+     * @param key        缓存key
+     * @param ttlSeconds 写入的过期时间(s)
+     * @param loader     加载value，如查询数据库；抛出的异常传给所有等待的调用方，并且不写入缓存
+     * @return 缓存中的value、加载的value，或者其他进程加载期间的旧值
+     */
+    public String getOrLoad(String key, int ttlSeconds, Callable<String> loader) {
+        String value = client.get(key);
+        if (null != value) {
+            hits.increment();
+            return value;
+        }
+        return flight(key, ttlSeconds, loader, plain);
+    }
+
+    /**
+     * 与getOrLoad相同，但value存为hash（value、加载耗时、过期时间），只能通过本方法读取。
+     * 命中时按XFetch判断是否提前刷新：now - delta * beta * ln(random) >= expiry时在后台重新加载，
+     * 同一个key在本进程中同时只有一个刷新，进程间取得加载租约的才刷新
+     *
+     * @param key        缓存key
+     * @param ttlSeconds 写入的过期时间(s)
+     * @param loader     加载value；后台刷新时抛出的异常只记录日志，现有的value不受影响
+     * @return 缓存中的value或加载的value
+     */
+    public String getOrRefresh(String key, int ttlSeconds, Callable<String> loader) {
+        Envelope read = readEnvelope(key);
+        long now = System.currentTimeMillis();
+        if (null != read && !read.expired(now)) {
+            hits.increment();
+            double gap = -read.delta * config.getBeta() * Math.log(1 - ThreadLocalRandom.current().nextDouble());
+            if (now + gap >= read.expireAt)
+                refreshAsync(key, ttlSeconds, loader);
+            return read.value;
+        }
+        return flight(key, ttlSeconds, loader, envelope);
+    }
+
+    private Envelope readEnvelope(String key) {
+        List<String> fields = client.hmget(key, VALUE_FIELD, DELTA_FIELD, EXPIRY_FIELD);
+        if (null == fields || null == fields.get(0))
+            return null;
+        try {
+            return new Envelope(fields.get(0), Long.parseLong(fields.get(1)), Long.parseLong(fields.get(2)));
+        } catch (NumberFormatException e) {
+            // 不是本类写入的hash，按已过期处理
+            return new Envelope(fields.get(0), 0, 0);
+        }
+    }
+
+    private void refreshAsync(String key, int ttlSeconds, Callable<String> loader) {
+        if (!refreshing.add(key))
+            return;
+        try {
+            refresher.execute(() ->
+                {
+                    try {
+                        String lease = client.acquireLock(LEASE_PREFIX + key, 0, config.getLeaseMillis());
+                        if (null == lease)
+                            return;
+                        try {
+                            earlyRefreshes.increment();
+                            load(key, ttlSeconds, loader, envelope);
+                        } finally {
+                            client.releaseLock(LEASE_PREFIX + key, lease);
+                        }
+                    } catch (RuntimeException e) {
+                        refreshFailures.increment();
+                        log.warn("Early refresh of {} failed: {}", key, e.getMessage());
+                    } finally {
+                        refreshing.remove(key);
+                    }
+                });
+        } catch (RejectedExecutionException e) {
+            // 等待刷新的key过多，这次不刷新
+            refreshing.remove(key);
+        }
+    }
+
+    private String flight(String key, int ttlSeconds, Callable<String> loader, Storage storage) {
+        CompletableFuture<String> flight = new CompletableFuture<>();
+        CompletableFuture<String> existing = loading.putIfAbsent(key, flight);
+        if (null != existing) {
+            coalesced.increment();
+            return await(existing);
+        }
+        try {
+            flight.complete(loadOnce(key, ttlSeconds, loader, storage));
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+        } finally {
+            loading.remove(key, flight);
+        }
+        return await(flight);
+    }
+
+    /**
+     * 旧值副本的key，与key在同一slot，可以和value在同一个脚本中写入
+     */
+    private static String staleKey(String key) {
+        return SafeEncoder.encode(ChunkedValueStore.siblingKey(SafeEncoder.encode(key), STALE_SUFFIX));
+    }
+
+    private String loadOnce(String key, int ttlSeconds, Callable<String> loader, Storage storage) {
+        String lease = client.acquireLock(LEASE_PREFIX + key, 0, config.getLeaseMillis());
+        if (null != lease) {
+            try {
+                // 取得租约之前其他进程可能刚写入
+                String value = storage.read(key);
+                if (null == value)
+                    return load(key, ttlSeconds, loader, storage);
+                hits.increment();
+                return value;
+            } finally {
+                client.releaseLock(LEASE_PREFIX + key, lease);
+            }
+        }
+        if (config.getStaleSeconds() > 0) {
+            String stale = storage.readStale(key);
+            if (null != stale) {
+                staleServed.increment();
+                return stale;
+            }
+        }
+        long deadline = System.currentTimeMillis() + config.getWaitMillis();
+        long poll = MIN_POLL;
+        try {
+            while (System.currentTimeMillis() < deadline) {
+                Thread.sleep(Math.min(poll, Math.max(deadline - System.currentTimeMillis(), 1)));
+                poll = Math.min(poll * 2, MAX_POLL);
+                String value = storage.read(key);
+                if (null != value) {
+                    leaseWaits.increment();
+                    return value;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CacheException(e);
+        }
+        leaseTimeouts.increment();
+        return load(key, ttlSeconds, loader, storage);
+    }
+
+    private String load(String key, int ttlSeconds, Callable<String> loader, Storage storage) {
+        loads.increment();
+        long start = System.nanoTime();
+        String value;
+        try {
+            value = loader.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CacheException(e);
+        }
+        if (null == value)
+            return null;
+        storage.write(key, ttlSeconds, value, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return value;
+    }
+
+    private static String await(CompletableFuture<String> flight) {
+        try {
+            return flight.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new CacheException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CacheException(e);
+        }
+    }
+
+    public SingleFlightConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * 自创建以来的累计统计
+     */
+    public Stats getStats() {
+        return new Stats(hits.sum(), loads.sum(), coalesced.sum(), leaseWaits.sum(), leaseTimeouts.sum(),
+                staleServed.sum(), earlyRefreshes.sum(), refreshFailures.sum());
+    }
+
+    /**
+     * 停止后台刷新，不关闭client
+     */
+    public void close() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * 统计。每次调用计入hits、loads、coalesced、leaseWaits、staleServed之一，leaseTimeouts同时计入loads，
+     * 后台刷新计入earlyRefreshes和loads
+     */
+    public static class Stats {
+        private final long hits;
+        private final long loads;
+        private final long coalesced;
+        private final long leaseWaits;
+        private final long leaseTimeouts;
+        private final long staleServed;
+        private final long earlyRefreshes;
+        private final long refreshFailures;
+
+        Stats(long hits, long loads, long coalesced, long leaseWaits, long leaseTimeouts, long staleServed,
+                long earlyRefreshes, long refreshFailures) {
+            this.hits = hits;
+            this.loads = loads;
+            this.coalesced = coalesced;
+            this.leaseWaits = leaseWaits;
+            this.leaseTimeouts = leaseTimeouts;
+            this.staleServed = staleServed;
+            this.earlyRefreshes = earlyRefreshes;
+            this.refreshFailures = refreshFailures;
+        }
+
+        /**
+         * 缓存中已有value
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * 执行loader的次数，包括等待租约超时后的加载
+         */
+        public long getLoads() {
+            return loads;
+        }
+
+        /**
+         * 等待本进程中其他线程加载的次数
+         */
+        public long getCoalesced() {
+            return coalesced;
+        }
+
+        /**
+         * 等到其他进程加载完成的次数
+         */
+        public long getLeaseWaits() {
+            return leaseWaits;
+        }
+
+        /**
+         * 等待其他进程超时、自己加载的次数
+         */
+        public long getLeaseTimeouts() {
+            return leaseTimeouts;
+        }
+
+        /**
+         * 其他进程加载期间返回旧值的次数
+         */
+        public long getStaleServed() {
+            return staleServed;
+        }
+
+        /**
+         * getOrRefresh在后台提前刷新的次数，也计入loads
+         */
+        public long getEarlyRefreshes() {
+            return earlyRefreshes;
+        }
+
+        /**
+         * 后台刷新失败的次数
+         */
+        public long getRefreshFailures() {
+            return refreshFailures;
+        }
+
+        @Override
+        public String toString() {
+            return "SingleFlight[hits=" + hits + ", loads=" + loads + ", coalesced=" + coalesced + ", leaseWaits="
+                    + leaseWaits + ", leaseTimeouts=" + leaseTimeouts + ", staleServed=" + staleServed
+                    + ", earlyRefreshes=" + earlyRefreshes + ", refreshFailures=" + refreshFailures + "]";
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import com.ai.paas.ipaas.mcs.ICacheClient;
+import com.ai.paas.ipaas.mcs.exception.CacheException;
+
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.util.SafeEncoder;
+
+/**
+ * 按窗口流式读写string value，内存中最多保留一批窗口，与value的大小无关。
+ * 读取时先用STRLEN取得长度，再按窗口用GETRANGE读取，每批窗口在一个pipeline中发出；
+ * 写入时第一个窗口用SET、之后的窗口用APPEND，同样按批发出。
+ * 支持RENAME时先写入同一slot的临时key，写完后RENAME替换原key，读者不会看到写了一半的value。
+ * 读取没有版本可以校验，只能发现长度的变化：读取期间value被等长的value覆盖（包括RENAME替换）时，
+ * 读到的是新旧value拼接的数据，需要一致性的调用方应自行在value中带上版本或校验和
+ */
+final class ValueStreams {
+
+    /**
+     * 每个窗口的字节数，即一条GETRANGE或APPEND传输的最大数据量
+     */
+    static final int WINDOW_BYTES = 64 * 1024;
+    /**
+     * 一个pipeline中的窗口数
+     */
+    static final int BATCH_WINDOWS = 8;
+    /**
+     * 写入期间临时key的过期时间(s)，每批写入后刷新，写入中断时临时key自动清除
+     */
+    static final int TEMP_SECONDS = 600;
+
+    private ValueStreams() {
+    }
+
+    /**
+     * 读取key的value写入out。窗口的长度与开始时的STRLEN不符时抛出CacheException，等长的覆盖无法发现
+     *
+     * @return value的长度，key不存在时返回-1
+     */
+    static long read(ICacheClient client, byte[] key, OutputStream out) {
+        List<Object> head = pipelined(client, pipeline ->
+            {
+                pipeline.exists(key);
+                pipeline.strlen(key);
+                pipeline.getrange(key, 0, WINDOW_BYTES - 1);
+            });
+        if (!Boolean.TRUE.equals(head.get(0)))
+            return -1;
+        long length = (Long) head.get(1);
+        try {
+            long offset = write(out, key, (byte[]) head.get(2), 0, length);
+            while (offset < length) {
+                long from = offset;
+                long to = Math.min(length, from + (long) WINDOW_BYTES * BATCH_WINDOWS);
+                List<Object> windows = pipelined(client, pipeline ->
+                    {
+                        for (long start = from; start < to; start += WINDOW_BYTES) {
+                            pipeline.getrange(key, start, Math.min(start + WINDOW_BYTES, to) - 1);
+                        }
+                    });
+                for (Object window : windows) {
+                    offset = write(out, key, (byte[]) window, offset, length);
+                }
+            }
+        } catch (IOException e) {
+            throw new CacheException(e);
+        }
+        return length;
+    }
+
+    /**
+     * 窗口的长度与读取开始时的STRLEN不符说明value在读取期间被修改
+     */
+    private static long write(OutputStream out, byte[] key, byte[] window, long offset, long length)
+            throws IOException {
+        long expected = Math.min(WINDOW_BYTES, length - offset);
+        if (window.length != expected)
+            throw new CacheException("Value of " + SafeEncoder.encode(key) + " changed while streaming: expected "
+                    + expected + " bytes at offset " + offset + ", got " + window.length);
+        out.write(window);
+        return offset + window.length;
+    }
+
+    /**
+     * 读取in直到结束，写入key。
+     * 出错时删除临时key，原key不变；renamer为null时，第一批窗口发出之前出错不改动原key，
+     * 之后出错时原value已被第一个窗口的SET覆盖，删除写了一半的key，原value丢失
+     *
+     * @param seconds 大于0时设置过期时间
+     * @param renamer 执行RENAME，为null时直接写入key，写入期间读者可能看到不完整的value
+     * @return 写入的字节数
+     */
+    static long write(ICacheClient client, byte[] key, InputStream in, int seconds,
+            BiConsumer<byte[], byte[]> renamer) {
+        String temp = ":stream:" + Long.toHexString(ThreadLocalRandom.current().nextLong());
+        byte[] target = null == renamer ? key : ChunkedValueStore.siblingKey(key, temp);
+        long length = 0;
+        boolean sent = false;
+        try {
+            boolean first = true;
+            boolean end = false;
+            while (!end) {
+                // 先读完一批窗口再发出，读取in出错时这一批不会有命令发出
+                List<byte[]> batch = new ArrayList<>(BATCH_WINDOWS);
+                for (int i = 0; i < BATCH_WINDOWS && !end; i++) {
+                    byte[] window = readWindow(in);
+                    end = window.length < WINDOW_BYTES;
+                    batch.add(window);
+                }
+                sent = true;
+                Pipeline pipeline = client.startPipeline();
+                try {
+                    for (byte[] window : batch) {
+                        if (first)
+                            pipeline.set(target, window);
+                        else if (window.length > 0)
+                            pipeline.append(target, window);
+                        first = false;
+                        length += window.length;
+                    }
+                    if (end && seconds > 0)
+                        pipeline.expire(target, seconds);
+                    else if (end && null != renamer)
+                        pipeline.persist(target);
+                    else if (null != renamer)
+                        pipeline.expire(target, TEMP_SECONDS);
+                    failOnError(pipeline.syncAndReturnAll());
+                } finally {
+                    client.endPipeline(pipeline);
+                }
+            }
+            // RENAME连同过期时间一起替换原key
+            if (null != renamer)
+                renamer.accept(target, key);
+            return length;
+        } catch (IOException e) {
+            if (sent || null != renamer)
+                discard(client, target, e);
+            throw new CacheException(e);
+        } catch (RuntimeException e) {
+            if (sent || null != renamer)
+                discard(client, target, e);
+            throw e;
+        }
+    }
+
+    private static byte[] readWindow(InputStream in) throws IOException {
+        byte[] window = new byte[WINDOW_BYTES];
+        int read = 0;
+        for (int n; read < window.length && (n = in.read(window, read, window.length - read)) >= 0;) {
+            read += n;
+        }
+        return read == window.length ? window : Arrays.copyOf(window, read);
+    }
+
+    /**
+     * 写入失败时删除写了一半的value，删除失败的异常附在原异常上
+     */
+    private static void discard(ICacheClient client, byte[] target, Exception cause) {
+        try {
+            client.del(target);
+        } catch (RuntimeException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    private static List<Object> pipelined(ICacheClient client, Consumer<Pipeline> commands) {
+        Pipeline pipeline = client.startPipeline();
+        try {
+            commands.accept(pipeline);
+            List<Object> results = pipeline.syncAndReturnAll();
+            failOnError(results);
+            return results;
+        } finally {
+            client.endPipeline(pipeline);
+        }
+    }
+
+    private static void failOnError(List<Object> results) {
+        for (Object result : results) {
+            if (result instanceof Exception)
+                throw new CacheException((Exception) result);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * NearCacheClient.getView/hgetView返回的value只读视图，直接指向本地缓存中的value，不复制。
+ * 来自堆外存储时视图持有value的引用，关闭之前该value占用的内存不会被复用，所以使用完必须关闭，关闭后不能再访问buffer
+ */
+public final class ValueView implements AutoCloseable {
+
+    private final ByteBuffer buffer;
+    private final OffHeapStore.Value offHeap;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private ValueView(ByteBuffer buffer, OffHeapStore.Value offHeap) {
+        this.buffer = buffer;
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * @param value 本地缓存中的byte[]或堆外value，或从redis读到的byte[]
+     * @return value为null、不是字节数据或堆外value已回收时返回null
+     */
+    static ValueView of(Object value) {
+        if (value instanceof byte[])
+            return new ValueView(ByteBuffer.wrap((byte[]) value).asReadOnlyBuffer(), null);
+        if (value instanceof OffHeapStore.Value) {
+            OffHeapStore.Value offHeap = (OffHeapStore.Value) value;
+            if (offHeap.retain())
+                return new ValueView(offHeap.buffer(), offHeap);
+        }
+        return null;
+    }
+
+    /**
+     * 只读的buffer，position为0，limit为value的长度
+     */
+    public ByteBuffer buffer() {
+        return buffer;
+    }
+
+    public int length() {
+        return buffer.limit();
+    }
+
+    /**
+     * 复制到新的数组
+     */
+    public byte[] toArray() {
+        byte[] bytes = new byte[buffer.limit()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * 是否直接指向堆外内存
+     */
+    public boolean isOffHeap() {
+        return null != offHeap;
+    }
+
+    @Override
+    public void close() {
+        if (null != offHeap && closed.compareAndSet(false, true))
+            offHeap.release();
+    }
+}
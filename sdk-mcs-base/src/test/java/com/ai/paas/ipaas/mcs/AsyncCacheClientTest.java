@@ -0,0 +1,117 @@
+package com.ai.paas.ipaas.mcs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.ai.paas.ipaas.mcs.exception.CacheException;
+import com.ai.paas.ipaas.mcs.exception.CircuitBreakerOpenException;
+import com.ai.paas.ipaas.mcs.impl.AbstractAsyncCacheClient;
+import com.ai.paas.ipaas.mcs.impl.CircuitBreaker.State;
+
+import io.lettuce.core.RedisConnectionException;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.output.IntegerOutput;
+import io.lettuce.core.output.StatusOutput;
+import io.lettuce.core.protocol.AsyncCommand;
+import io.lettuce.core.protocol.Command;
+import io.lettuce.core.protocol.CommandType;
+
+public class AsyncCacheClientTest {
+
+    private static class TestClient extends AbstractAsyncCacheClient {
+        final AtomicInteger calls = new AtomicInteger();
+        final RedisClusterAsyncCommands<String, String> commands;
+
+        TestClient(RedisClusterAsyncCommands<String, String> commands) {
+            super("test");
+            this.commands = commands;
+        }
+
+        @Override
+        protected RedisClusterAsyncCommands<String, String> commands() {
+            calls.incrementAndGet();
+            if (null == commands)
+                throw new RedisConnectionException("down");
+            return commands;
+        }
+
+        @Override
+        protected RedisClusterAsyncCommands<byte[], byte[]> binaryCommands() {
+            throw new RedisConnectionException("down");
+        }
+
+        @Override
+        public void close() {
+            // nothing
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RedisClusterAsyncCommands<String, String> stub() {
+        return (RedisClusterAsyncCommands<String, String>) Proxy.newProxyInstance(
+                AsyncCacheClientTest.class.getClassLoader(), new Class<?>[] { RedisClusterAsyncCommands.class },
+                (proxy, method, args) ->
+                    {
+                        if ("set".equals(method.getName())) {
+                            Command<String, String, String> command = new Command<>(CommandType.SET,
+                                    new StatusOutput<>(StringCodec.UTF8));
+                            command.getOutput().set(ByteBuffer.wrap("OK".getBytes()));
+                            AsyncCommand<String, String, String> future = new AsyncCommand<>(command);
+                            future.complete();
+                            return future;
+                        }
+                        if ("exists".equals(method.getName())) {
+                            Command<String, String, Long> command = new Command<>(CommandType.EXISTS,
+                                    new IntegerOutput<>(StringCodec.UTF8));
+                            command.getOutput().set(1L);
+                            AsyncCommand<String, String, Long> future = new AsyncCommand<>(command);
+                            future.complete();
+                            return future;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    });
+    }
+
+    @Test
+    public void testResult() throws Exception {
+        TestClient client = new TestClient(stub());
+        assertEquals("OK", client.set("k", "v").get());
+        assertTrue(client.exists("k").get());
+        assertEquals(2, client.getCircuitBreaker().getMetrics().getNumberOfCalls());
+    }
+
+    @Test
+    public void testFailure() throws InterruptedException {
+        TestClient client = new TestClient(null);
+        try {
+            client.get("k").get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof CacheException);
+            assertTrue(e.getCause().getCause() instanceof RedisConnectionException);
+        }
+        assertEquals(1, client.getCircuitBreaker().getMetrics().getNumberOfFailedCalls());
+    }
+
+    @Test
+    public void testCircuitBreakerOpen() throws InterruptedException {
+        TestClient client = new TestClient(null);
+        client.getCircuitBreaker().transitionTo(State.OPEN);
+        try {
+            client.get("k").get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof CircuitBreakerOpenException);
+        }
+        assertEquals(0, client.calls.get());
+    }
+}
@@ -0,0 +1,167 @@
+package com.ai.paas.ipaas.mcs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.junit.Test;
+
+import com.ai.paas.ipaas.mcs.exception.CacheException;
+import com.ai.paas.ipaas.mcs.impl.AutoBatchingCacheClient;
+import com.ai.paas.ipaas.mcs.impl.AutoBatchingConfig;
+import com.ai.paas.ipaas.mcs.impl.CacheClient;
+import com.ai.paas.ipaas.mcs.impl.CacheClusterClient;
+import com.ai.paas.ipaas.mcs.server.RespCluster;
+import com.ai.paas.ipaas.mcs.server.RespServer;
+
+public class AutoBatchingCacheClientTest {
+
+    private static final int THREADS = 32;
+    private static final int CALLS = 100;
+
+    @SuppressWarnings("rawtypes")
+    private static GenericObjectPoolConfig poolConfig() {
+        return new GenericObjectPoolConfig();
+    }
+
+    private static AutoBatchingConfig config() {
+        AutoBatchingConfig config = new AutoBatchingConfig();
+        config.setWindowMicros(2000);
+        config.setMaxInFlightBatches(2);
+        return config;
+    }
+
+    /**
+     * 多个线程同时调用，每个线程检查自己的结果
+     */
+    private static void concurrently(Callable<Void> task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(pool.submit(task));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void verifyGets(AutoBatchingCacheClient client, ICacheClient writer) throws Exception {
+        for (int i = 0; i < 50; i++) {
+            writer.set("k" + i, "v" + i);
+        }
+        concurrently(() ->
+            {
+                for (int i = 0; i < CALLS; i++) {
+                    int n = (int) (Math.random() * 60);
+                    assertEquals(n < 50 ? "v" + n : null, client.get("k" + n));
+                }
+                return null;
+            });
+        assertEquals(THREADS * CALLS, client.getBatchedRequestCount());
+        assertTrue(client.getBatchCount() < client.getBatchedRequestCount() / 2);
+    }
+
+    @Test
+    public void testCoalescesGets() throws Exception {
+        try (RespServer server = new RespServer()) {
+            AutoBatchingCacheClient client = new AutoBatchingCacheClient(
+                    new CacheClient(poolConfig(), server.getAddress()), config());
+            verifyGets(client, client);
+            client.close();
+        }
+    }
+
+    @Test
+    public void testCoalescesAcrossClusterSlots() throws Exception {
+        try (RespCluster cluster = new RespCluster(3)) {
+            AutoBatchingCacheClient client = new AutoBatchingCacheClient(
+                    new CacheClusterClient(poolConfig(), cluster.getAddresses()), config());
+            verifyGets(client, client);
+            // hget和exists走集群pipeline
+            client.hset("h", "f", "x");
+            concurrently(() ->
+                {
+                    for (int i = 0; i < CALLS; i++) {
+                        assertEquals("x", client.hget("h", "f"));
+                        assertTrue(client.exists("k1"));
+                        assertFalse(client.exists("missing"));
+                    }
+                    return null;
+                });
+            client.close();
+        }
+    }
+
+    @Test
+    public void testBatchedGetOnWrongType() throws Exception {
+        try (RespServer server = new RespServer()) {
+            AutoBatchingCacheClient client = new AutoBatchingCacheClient(
+                    new CacheClient(poolConfig(), server.getAddress()), config());
+            client.set("s", "v");
+            client.hset("h", "f", "x");
+            // 只有get的一批，与不合并时一样报WRONGTYPE而不是返回null
+            concurrently(() ->
+                {
+                    for (int i = 0; i < 20; i++) {
+                        try {
+                            client.get("h");
+                            fail();
+                        } catch (CacheException e) {
+                            assertTrue(e.getCause().getMessage().contains("WRONGTYPE"));
+                        }
+                        assertEquals("v", client.get("s"));
+                        assertNull(client.get("missing"));
+                    }
+                    return null;
+                });
+            assertTrue(client.getBatchCount() < client.getBatchedRequestCount());
+            client.close();
+        }
+    }
+
+    @Test
+    public void testErrorOnlyFailsItsCaller() throws Exception {
+        try (RespServer server = new RespServer()) {
+            AutoBatchingCacheClient client = new AutoBatchingCacheClient(
+                    new CacheClient(poolConfig(), server.getAddress()), config());
+            client.set("s", "v");
+            client.hset("h", "f", "x");
+            concurrently(() ->
+                {
+                    for (int i = 0; i < 20; i++) {
+                        assertEquals("x", client.hget("h", "f"));
+                        assertNull(client.hget("h", "missing"));
+                        try {
+                            client.hget("s", "f");
+                            fail();
+                        } catch (CacheException e) {
+                            assertTrue(e.getCause().getMessage().contains("WRONGTYPE"));
+                        }
+                        assertEquals("v", client.get("s"));
+                    }
+                    return null;
+                });
+            client.close();
+            try {
+                client.get("s");
+                fail();
+            } catch (CacheException e) {
+                // 已关闭
+            }
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.ai.paas.ipaas.mcs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.junit.Test;
+
+import com.ai.paas.ipaas.mcs.exception.CacheException;
+import com.ai.paas.ipaas.mcs.impl.BigKey;
+import com.ai.paas.ipaas.mcs.impl.BigKeyConfig;
+import com.ai.paas.ipaas.mcs.impl.BigKeyGuardClient;
+import com.ai.paas.ipaas.mcs.impl.BigKeyReport;
+import com.ai.paas.ipaas.mcs.impl.CacheClient;
+import com.ai.paas.ipaas.mcs.impl.CacheClusterClient;
+import com.ai.paas.ipaas.mcs.server.RespCluster;
+import com.ai.paas.ipaas.mcs.server.RespServer;
+
+public class BigKeyGuardClientTest {
+
+    @SuppressWarnings("rawtypes")
+    private static GenericObjectPoolConfig poolConfig() {
+        return new GenericObjectPoolConfig();
+    }
+
+    private static BigKeyConfig config(BigKeyConfig.Action action) {
+        BigKeyConfig config = new BigKeyConfig();
+        config.setMaxValueBytes(1000);
+        config.setMaxCardinality(10);
+        config.setSampleEvery(1);
+        config.setChunkBytes(300);
+        config.setAction(action);
+        return config;
+    }
+
+    private static String text(int length) {
+        char[] chars = new char[length];
+        Arrays.fill(chars, 'x');
+        return new String(chars);
+    }
+
+    private static byte[] bytes(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) ('a' + i % 26);
+        }
+        return bytes;
+    }
+
+    private static String[] members(int count) {
+        String[] members = new String[count];
+        for (int i = 0; i < count; i++) {
+            members[i] = "m" + i;
+        }
+        return members;
+    }
+
+    @Test
+    public void testWarnRecordsBigKeys() throws Exception {
+        try (RespServer server = new RespServer()) {
+            BigKeyGuardClient client = new BigKeyGuardClient(new CacheClient(poolConfig(), server.getAddress()),
+                    config(BigKeyConfig.Action.WARN));
+            client.set("small", "v");
+            client.set("big", text(2000));
+            client.sadd("members", members(20));
+            client.rpush("list", members(30));
+            assertEquals(text(2000), client.get("big"));
+            client.lrange("list", 0, 1);
+            assertEquals(3, client.getOversizedWrites());
+            assertEquals(0, client.getRejectedWrites());
+
+            List<BigKey> keys = client.getBigKeys();
+            assertEquals(3, keys.size());
+            assertEquals("big", keys.get(0).getKey());
+            assertEquals(2000, keys.get(0).getBytes());
+            for (BigKey key : keys) {
+                if ("list".equals(key.getKey()))
+                    assertEquals(30, key.getCardinality());
+            }
+            client.close();
+        }
+    }
+
+    /**
+     * 长度按UTF-8字节数计算；set和zset的元素个数分别用SCARD、ZCARD抽样
+     */
+    @Test
+    public void testUtf8LengthsAndSetSampling() throws Exception {
+        try (RespServer server = new RespServer()) {
+            ICacheClient raw = new CacheClient(poolConfig(), server.getAddress());
+            BigKeyGuardClient client = new BigKeyGuardClient(new CacheClient(poolConfig(), server.getAddress()),
+                    config(BigKeyConfig.Action.WARN));
+            char[] chinese = new char[400];
+            Arrays.fill(chinese, '中');
+            client.set("cjk", new String(chinese));
+            StringBuilder emoji = new StringBuilder();
+            for (int i = 0; i < 300; i++) {
+                emoji.appendCodePoint(0x1F600);
+            }
+            client.hset("emoji", "f", emoji.toString());
+            client.set("ascii", text(999));
+            assertEquals(2, client.getOversizedWrites());
+
+            raw.sadd("set", members(20));
+            raw.sadd("set2", members(15));
+            raw.zadd("zset", 1, "m0");
+            for (String member : members(12)) {
+                raw.zadd("zset", 1, member);
+            }
+            client.srem("set", "m0");
+            assertEquals(Long.valueOf(15), client.scard("set2"));
+            client.zrange("zset", 0, 1);
+
+            List<BigKey> keys = client.getBigKeys();
+            assertEquals(5, keys.size());
+            for (BigKey key : keys) {
+                if ("cjk".equals(key.getKey()))
+                    assertEquals(1200, key.getBytes());
+                else if ("emoji".equals(key.getKey()))
+                    assertEquals(1201, key.getBytes());
+                else if ("set".equals(key.getKey()))
+                    assertEquals(20, key.getCardinality());
+                else if ("set2".equals(key.getKey()))
+                    assertEquals(15, key.getCardinality());
+                else
+                    assertEquals(12, key.getCardinality());
+            }
+            raw.close();
+            client.close();
+        }
+    }
+
+    @Test
+    public void testRejectOversizedWrites() throws Exception {
+        try (RespServer server = new RespServer()) {
+            ICacheClient raw = new CacheClient(poolConfig(), server.getAddress());
+            BigKeyGuardClient client = new BigKeyGuardClient(new CacheClient(poolConfig(), server.getAddress()),
+                    config(BigKeyConfig.Action.REJECT));
+            try {
+                client.set("big".getBytes(), bytes(2000));
+                fail();
+            } catch (CacheException e) {
+                assertTrue(e.getMessage().contains("2000 bytes"));
+            }
+            assertNull(raw.get("big"));
+            try {
+                client.sadd("members", members(20));
+                fail();
+            } catch (CacheException e) {
+                assertTrue(e.getMessage().contains("20 members"));
+            }
+            client.sadd("members", members(5));
+
+            // 其他客户端写入的大集合，读取时发现后不能再增加成员
+            raw.hmset("hash", Collections.singletonMap("f", "v"));
+            for (String member : members(20)) {
+                raw.hset("hash", member, "v");
+            }
+            client.hget("hash", "f");
+            try {
+                client.hset("hash", "g", "v");
+                fail();
+            } catch (CacheException e) {
+                assertTrue(e.getMessage().contains("already 21 members"));
+            }
+            assertEquals(3, client.getRejectedWrites());
+            raw.close();
+            client.close();
+        }
+    }
+
+    /**
+     * 已被替换、等待过期的块数
+     */
+    private static long retired(ICacheClient raw) {
+        return raw.keys("*:chunk:*").stream().filter(key ->
+            {
+                long ttl = raw.ttl(key);
+                return ttl > 0 && ttl <= 10;
+            }).count();
+    }
+
+    private static void verifyChunks(ICacheClient raw, BigKeyGuardClient client) {
+        byte[] key = "blob".getBytes();
+        byte[] value = bytes(2500);
+        client.set(key, value);
+        assertEquals(1, client.getChunkedWrites());
+        assertArrayEquals(value, client.get(key));
+        // 原key只保存清单，共9块
+        assertTrue(raw.get(key).length < 100);
+        assertEquals(10, raw.keys("*blob*").size());
+
+        byte[] other = bytes(1200);
+        client.setex(key, 60, other);
+        assertArrayEquals(other, client.get(key));
+        assertEquals(14, raw.keys("*blob*").size());
+        assertEquals(9, retired(raw));
+
+        client.set(key, "small".getBytes());
+        assertArrayEquals("small".getBytes(), client.get(key));
+        assertEquals(13, retired(raw));
+
+        client.set(key, value);
+        client.del(key);
+        assertNull(client.get(key));
+        assertEquals(22, retired(raw));
+        assertEquals(22, raw.keys("*blob*").size());
+    }
+
+    @Test
+    public void testChunkLargeValues() throws Exception {
+        try (RespServer server = new RespServer()) {
+            ICacheClient raw = new CacheClient(poolConfig(), server.getAddress());
+            BigKeyGuardClient client = new BigKeyGuardClient(new CacheClient(poolConfig(), server.getAddress()),
+                    config(BigKeyConfig.Action.CHUNK));
+            verifyChunks(raw, client);
+            raw.close();
+            client.close();
+        }
+    }
+
+    @Test
+    public void testChunkLargeValuesInCluster() throws Exception {
+        try (RespCluster cluster = new RespCluster(3)) {
+            ICacheClient raw = new CacheClusterClient(poolConfig(), cluster.getAddresses());
+            BigKeyGuardClient client = new BigKeyGuardClient(
+                    new CacheClusterClient(poolConfig(), cluster.getAddresses()), config(BigKeyConfig.Action.CHUNK));
+            verifyChunks(raw, client);
+            raw.close();
+            client.close();
+        }
+    }
+
+    @Test
+    public void testReport() throws Exception {
+        try (RespServer server = new RespServer()) {
+            CacheClient client = new CacheClient(poolConfig(), server.getAddress());
+            client.set("small", "v");
+            client.set("big", text(5000));
+            client.sadd("members", members(50));
+            client.hset("hash", "f", text(2000));
+            for (int i = 0; i < 100; i++) {
+                client.set("k" + i, "v");
+            }
+            BigKeyConfig config = config(BigKeyConfig.Action.WARN);
+            config.setReportScanCount(7);
+            List<BigKey> keys = new BigKeyReport(client, config).run(null);
+            assertEquals(3, keys.size());
+            assertEquals("big", keys.get(0).getKey());
+            assertEquals("string", keys.get(0).getType());
+            assertEquals(5000, keys.get(0).getCardinality());
+            assertEquals("hash", keys.get(1).getKey());
+            assertEquals(1, keys.get(1).getCardinality());
+            assertEquals("members", keys.get(2).getKey());
+            assertEquals("set", keys.get(2).getType());
+            assertEquals(50, keys.get(2).getCardinality());
+
+            assertEquals(1, new BigKeyReport(client, config).run("h*").size());
+            client.close();
+        }
+    }
+}
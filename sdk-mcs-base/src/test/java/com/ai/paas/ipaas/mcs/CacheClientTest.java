@@ -1,11 +1,19 @@
 package com.ai.paas.ipaas.mcs;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
@@ -13,27 +21,38 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.ai.paas.ipaas.mcs.exception.CacheException;
 import com.ai.paas.ipaas.mcs.impl.CacheClient;
+import com.ai.paas.ipaas.mcs.server.RespServer;
 
 import redis.clients.jedis.Pipeline;
 
 public class CacheClientTest {
     private static ICacheClient client = null;
+    private static RespServer server = null;
     private static final Logger log = LoggerFactory.getLogger(CacheClientTest.class);
 
     @SuppressWarnings("rawtypes")
     @BeforeClass
     public static void setUpBeforeClass() {
         GenericObjectPoolConfig config = new GenericObjectPoolConfig();
-        String host = "10.15.16.130:9801";
-        client = new CacheClient(config, host, "asc123");
+        server = new RespServer().requirePassword("asc123");
+        client = new CacheClient(config, server.getAddress(), "asc123");
+    }
+
+    @AfterClass
+    public static void tearDownAfterClass() {
+        client.close();
+        server.close();
     }
 
     @Test
@@ -212,6 +231,65 @@ public class CacheClientTest {
         client.del("push");
     }
 
+    @Test
+    public void testLscanString() {
+        String[] values = { "A", "B", "C", "A", "B", "C", "D" };
+        client.rpush("push", values);
+        List<String> list = client.lscan("push", 3).collect(Collectors.toList());
+        assertEquals(Arrays.asList(values), list);
+        client.del("push");
+    }
+
+    private static byte[] bytes(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * 31);
+        }
+        return bytes;
+    }
+
+    @Test
+    public void testStream() {
+        byte[] key = "report".getBytes();
+        byte[] value = bytes(64 * 1024 * 10 + 123);
+        assertEquals(value.length, client.setStream(key, new ByteArrayInputStream(value), 60));
+        assertTrue(client.ttl("report") > 0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(value.length, client.getStream(key, out));
+        assertArrayEquals(value, out.toByteArray());
+        assertArrayEquals(value, client.get(key));
+
+        // 覆盖后清除过期时间，不留下临时key
+        assertEquals(0, client.setStream(key, new ByteArrayInputStream(new byte[0]), 0));
+        assertEquals(Long.valueOf(-1), client.ttl("report"));
+        assertEquals(0, client.getStream(key, out));
+        assertEquals(1, client.keys("*report*").size());
+        client.del(key);
+        assertEquals(-1, client.getStream(key, new ByteArrayOutputStream()));
+    }
+
+    @Test
+    public void testStreamFailure() {
+        byte[] key = "report".getBytes();
+        client.set(key, "old".getBytes());
+        InputStream in = new SequenceInputStream(new ByteArrayInputStream(bytes(64 * 1024 * 9)), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("broken");
+            }
+        });
+        try {
+            client.setStream(key, in, 0);
+            fail();
+        } catch (CacheException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        // 写入失败时原value不变，临时key被删除
+        assertArrayEquals("old".getBytes(), client.get(key));
+        assertEquals(1, client.keys("*report*").size());
+        client.del(key);
+    }
+
     @Test
     public void testHsetStringStringString() {
         client.hset("first", "second", "123456");
@@ -303,6 +381,18 @@ public class CacheClientTest {
         client.del("firset");
     }
 
+    @Test
+    public void testHscanString() {
+        Map<String, String> map = new HashMap<>();
+        for (int i = 0; i < 100; i++)
+            map.put("field" + i, String.valueOf(i));
+        client.hmset("firset", map);
+        Map<String, String> scanned = client.hscan("firset", 10)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        assertEquals(map, scanned);
+        client.del("firset");
+    }
+
     @Test
     public void testSaddStringStringArray() {
         String[] members = { "one", "two", "three" };
@@ -320,6 +410,15 @@ public class CacheClientTest {
         client.del("set");
     }
 
+    @Test
+    public void testSscanString() {
+        for (int i = 0; i < 100; i++)
+            client.sadd("set", "member" + i);
+        Set<String> sets = client.sscan("set", 10).collect(Collectors.toSet());
+        assertTrue(100 == sets.size());
+        client.del("set");
+    }
+
     @Test
     public void testSremStringStringArray() {
         String[] members = { "one", "two", "three", "three" };
@@ -2,23 +2,32 @@ package com.ai.paas.ipaas.mcs;
 
 
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import com.ai.paas.ipaas.mcs.impl.CacheClient;
+import com.ai.paas.ipaas.mcs.server.RespServer;
 
 import redis.clients.jedis.Transaction;
 
 public class CacheClientTrandTest {
 
 	private static ICacheClient client = null;
+	private static RespServer server = null;
 
 	@SuppressWarnings("rawtypes")
     @BeforeClass
 	public static void setUpBeforeClass()  {
 		GenericObjectPoolConfig config = new GenericObjectPoolConfig();
-		String host = "10.15.16.130:9801";
-		client = new CacheClient(config, host, "asc123");
+		server = new RespServer().requirePassword("asc123");
+		client = new CacheClient(config, server.getAddress(), "asc123");
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() {
+		client.close();
+		server.close();
 	}
 
 
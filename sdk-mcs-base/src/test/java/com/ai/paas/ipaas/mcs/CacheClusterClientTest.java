@@ -1,11 +1,16 @@
 package com.ai.paas.ipaas.mcs;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
@@ -15,6 +20,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.slf4j.Logger;
@@ -22,9 +28,15 @@ import org.slf4j.LoggerFactory;
 
 import com.ai.paas.ipaas.mcs.exception.CacheException;
 import com.ai.paas.ipaas.mcs.impl.CacheClusterClient;
+import com.ai.paas.ipaas.mcs.server.RespCluster;
+import com.ai.paas.ipaas.mcs.server.RespServer;
+
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 
 public class CacheClusterClientTest {
     private static ICacheClient client = null;
+    private static RespCluster cluster = null;
 
     private static final Logger log = LoggerFactory.getLogger(CacheClusterClientTest.class);
 
@@ -32,9 +44,37 @@ public class CacheClusterClientTest {
     @BeforeClass
     public static void setUpBeforeClass() {
         GenericObjectPoolConfig config = new GenericObjectPoolConfig();
-        String host = "10.12.2.144:11000,10.12.2.144:11001,10.12.2.145:11000,10.12.2.145:11001,10.12.2.146:11000,10.12.2.146:11001";
-        String[] hosts = host.split(",");
-        client = new CacheClusterClient(config, hosts, "QAZ234WSx");
+        cluster = new RespCluster(3);
+        for (RespServer node : cluster.getNodes()) {
+            node.requirePassword("QAZ234WSx");
+        }
+        client = new CacheClusterClient(config, cluster.getAddresses(), "QAZ234WSx");
+    }
+
+    @AfterClass
+    public static void tearDownAfterClass() {
+        client.close();
+        cluster.close();
+    }
+
+    @Test
+    public void testStream() {
+        byte[] value = new byte[64 * 1024 * 10 + 123];
+        for (int i = 0; i < value.length; i++) {
+            value[i] = (byte) (i * 31);
+        }
+        // 空的{}不是hash tag，含有'}'的key不能整个作为临时key的hash tag
+        for (String name : new String[] { "report", "{user}:report", "{}report", "re}port" }) {
+            byte[] key = name.getBytes();
+            assertEquals(value.length, client.setStream(key, new ByteArrayInputStream(value), 60));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals(value.length, client.getStream(key, out));
+            assertArrayEquals(value, out.toByteArray());
+            assertTrue(client.ttl(name) > 0);
+            client.del(key);
+            assertEquals(-1, client.getStream(key, out));
+        }
+        assertTrue(client.keys("*report*").isEmpty());
     }
 
     @Test
@@ -67,16 +107,66 @@ public class CacheClusterClientTest {
         assertNotEquals("123456", client.get("123"));
     }
 
-    @Test(expected = CacheException.class)
+    @Test
     public void testDelStringArray() {
         client.set("123", "123456");
         client.set("dxf", "123456");
         String[] keys = { "123", "dxf" };
-        client.del(keys);
+        assertEquals(2L, (long) client.del(keys));
         assertNotEquals("123456", client.get("123"));
         assertNotEquals("123456", client.get("dxf"));
     }
 
+    @Test
+    public void testPipeline() {
+        Pipeline p = client.startPipeline();
+        List<Response<String>> responses = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            p.set("pipeline:" + i, "v" + i);
+            responses.add(p.get("pipeline:" + i));
+        }
+        p.sync();
+        client.endPipeline(p);
+        for (int i = 0; i < 100; i++) {
+            assertEquals("v" + i, responses.get(i).get());
+        }
+    }
+
+    @Test
+    public void testMgetMset() {
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < 500; i++) {
+            values.put("product:" + i, "p" + i);
+        }
+        client.mset(values);
+        List<String> result = client.mget("product:499", "not-exists", "product:0", "product:250");
+        assertEquals("p499", result.get(0));
+        assertNull(result.get(1));
+        assertEquals("p0", result.get(2));
+        assertEquals("p250", result.get(3));
+        assertEquals(500L, (long) client.unlink(values.keySet().toArray(new String[values.size()])));
+    }
+
+    /**
+     * 出错的pipeline连接不再归还，之后的批量命令不会读到残留的回复
+     */
+    @Test
+    public void testPipelineGetError() {
+        client.set("pipeline:a", "a");
+        client.hset("pipeline:hash", "f", "v");
+        for (int i = 0; i < 3; i++) {
+            try {
+                client.pipelineGet("pipeline:hash", "pipeline:a");
+                fail();
+            } catch (CacheException e) {
+                assertTrue(e.getCause().getMessage().contains("WRONGTYPE"));
+            }
+            assertEquals(Arrays.asList("a", null), client.pipelineGet("pipeline:a", "pipeline:missing"));
+            assertEquals(Arrays.asList("a", null), client.mget("pipeline:a", "pipeline:missing"));
+        }
+        client.del("pipeline:a", "pipeline:hash");
+    }
+
     @Test
     public void testExpireStringInt() throws InterruptedException {
         client.set("dxf", "123456");
@@ -0,0 +1,94 @@
+package com.ai.paas.ipaas.mcs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.ai.paas.ipaas.mcs.exception.CacheException;
+import com.ai.paas.ipaas.mcs.impl.CacheCodisClient;
+import com.ai.paas.ipaas.mcs.server.RespCodis;
+
+public class CacheCodisClientTest {
+    private static ICacheClient client = null;
+    private static RespCodis codis = null;
+
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        codis = new RespCodis("/jodis/test");
+        client = new CacheCodisClient(codis.getZkAddress(), "/jodis/test");
+    }
+
+    @AfterClass
+    public static void tearDownAfterClass() {
+        client.close();
+        codis.close();
+    }
+
+    private static byte[] bytes(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * 31);
+        }
+        return bytes;
+    }
+
+    /**
+     * 读完length字节后抛出IOException
+     */
+    private static InputStream failingAfter(int length) {
+        return new SequenceInputStream(new ByteArrayInputStream(bytes(length)), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("broken");
+            }
+        });
+    }
+
+    private static void setStreamFails(byte[] key, InputStream in) {
+        try {
+            client.setStream(key, in, 0);
+            fail();
+        } catch (CacheException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void testStream() {
+        byte[] key = "report".getBytes();
+        byte[] value = bytes(64 * 1024 * 10 + 123);
+        assertEquals(value.length, client.setStream(key, new ByteArrayInputStream(value), 60));
+        assertTrue(client.ttl("report") > 0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(value.length, client.getStream(key, out));
+        assertArrayEquals(value, out.toByteArray());
+        client.del(key);
+    }
+
+    /**
+     * 没有临时key：第一批窗口发出前失败时原value不变，之后失败时原value已被覆盖，写了一半的key被删除
+     */
+    @Test
+    public void testStreamFailure() {
+        byte[] key = "report".getBytes();
+        client.set(key, "old".getBytes());
+        setStreamFails(key, failingAfter(64 * 1024 * 3));
+        assertArrayEquals("old".getBytes(), client.get(key));
+
+        setStreamFails(key, failingAfter(64 * 1024 * 9));
+        assertNull(client.get(key));
+        assertTrue(client.keys("*report*").isEmpty());
+    }
+}
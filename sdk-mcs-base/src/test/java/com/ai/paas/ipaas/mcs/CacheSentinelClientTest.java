@@ -2,8 +2,10 @@ package com.ai.paas.ipaas.mcs;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.util.Calendar;
 import java.util.Date;
@@ -14,20 +16,33 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.ai.paas.ipaas.mcs.exception.CacheException;
 import com.ai.paas.ipaas.mcs.impl.SentinelClient;
+import com.ai.paas.ipaas.mcs.server.RespServer;
 
 public class CacheSentinelClientTest {
     private static ICacheClient client = null;
+    private static RespServer master = null;
+    private static RespServer sentinel = null;
 
     @SuppressWarnings("rawtypes")
     @BeforeClass
     public static void setUpBeforeClass() throws Exception {
         GenericObjectPoolConfig config = new GenericObjectPoolConfig();
-        String host = "10.15.16.130:12002";
-        client = new SentinelClient(config, host, "asc123");
+        master = new RespServer().requirePassword("asc123");
+        sentinel = new RespServer().monitor("mymaster", master);
+        client = new SentinelClient(config, sentinel.getAddress(), "asc123");
+    }
+
+    @AfterClass
+    public static void tearDownAfterClass() {
+        client.close();
+        sentinel.close();
+        master.close();
     }
 
     @Test
@@ -761,4 +776,43 @@ public class CacheSentinelClientTest {
         client.del("dxf");
     }
 
+    @Test
+    public void testLockReplicaAck() {
+        SentinelClient sentinelClient = (SentinelClient) client;
+        sentinelClient.setLockReplicaAck(1, 100);
+        try {
+            // 从节点确认后加锁成功
+            master.replicaAcks(1);
+            String id = client.acquireLock("ack", 100, 10000);
+            assertNotNull(id);
+            assertEquals(id, master.getKeyspace().get("lock:ack"));
+            assertTrue(client.releaseLock("ack", id));
+
+            // 确认数不足时释放锁并抛出异常，锁不会留在主节点上
+            master.replicaAcks(0);
+            try {
+                client.acquireLock("ack", 100, 10000);
+                fail();
+            } catch (CacheException e) {
+                assertTrue(e.getMessage().contains("acknowledged by 0 of 1 replicas"));
+            }
+            assertNull(master.getKeyspace().get("lock:ack"));
+            try {
+                client.acquireRenewableLock("ack", 100, 10000);
+                fail();
+            } catch (CacheException e) {
+                assertTrue(e.getMessage().contains("released"));
+            }
+            assertNull(master.getKeyspace().get("lock:ack"));
+
+            // 不要求确认时不受影响
+            sentinelClient.setLockReplicaAck(0, 100);
+            id = client.acquireLock("ack", 100, 10000);
+            assertEquals(id, master.getKeyspace().get("lock:ack"));
+            assertTrue(client.releaseLock("ack", id));
+        } finally {
+            sentinelClient.setLockReplicaAck(0, 100);
+            master.replicaAcks(0);
+        }
+    }
 }
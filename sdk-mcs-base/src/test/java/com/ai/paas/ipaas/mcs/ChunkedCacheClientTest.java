@@ -0,0 +1,200 @@
+package com.ai.paas.ipaas.mcs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.junit.Test;
+
+import com.ai.paas.ipaas.mcs.exception.CacheException;
+import com.ai.paas.ipaas.mcs.impl.CacheClient;
+import com.ai.paas.ipaas.mcs.impl.CacheClusterClient;
+import com.ai.paas.ipaas.mcs.impl.ChunkedCacheClient;
+import com.ai.paas.ipaas.mcs.impl.ChunkedValueConfig;
+import com.ai.paas.ipaas.mcs.server.RespCluster;
+import com.ai.paas.ipaas.mcs.server.RespServer;
+
+public class ChunkedCacheClientTest {
+
+    @SuppressWarnings("rawtypes")
+    private static GenericObjectPoolConfig poolConfig() {
+        return new GenericObjectPoolConfig();
+    }
+
+    private static ChunkedValueConfig config() {
+        ChunkedValueConfig config = new ChunkedValueConfig();
+        config.setThresholdBytes(1000);
+        config.setChunkBytes(300);
+        config.setBatchChunks(2);
+        return config;
+    }
+
+    private static byte[] bytes(int length, int seed) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * 31 + seed);
+        }
+        return bytes;
+    }
+
+    private static void verify(ICacheClient raw, ChunkedCacheClient client) {
+        byte[] key = "blob".getBytes();
+        byte[] value = bytes(2500, 1);
+        assertEquals("OK", client.set(key, value));
+        assertArrayEquals(value, client.get(key));
+        // 原key只保存清单，共9块
+        assertTrue(raw.get(key).length < 100);
+        assertEquals(10, raw.keys("*blob*").size());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(2500, client.get(key, out));
+        assertArrayEquals(value, out.toByteArray());
+        byte[] buffer = new byte[2600];
+        assertEquals(2500, client.get(key, buffer, 100));
+        for (int i = 0; i < value.length; i++) {
+            assertEquals(value[i], buffer[100 + i]);
+        }
+        try {
+            client.get(key, new byte[2500], 1);
+            fail();
+        } catch (CacheException e) {
+            assertTrue(e.getMessage().contains("2499 available"));
+        }
+
+        // 覆盖后旧版本的块在过期前仍然存在
+        byte[] other = bytes(1200, 2);
+        client.setex(key, 60, other);
+        assertArrayEquals(other, client.get(key));
+        assertEquals(14, raw.keys("*blob*").size());
+        assertTrue(raw.ttl(key) > 10);
+
+        client.set(key, "small".getBytes());
+        assertArrayEquals("small".getBytes(), client.get(key));
+        out.reset();
+        assertEquals(5, client.get(key, out));
+        assertArrayEquals("small".getBytes(), out.toByteArray());
+
+        client.set(key, value);
+        assertEquals(Long.valueOf(1), client.expire(key, 30));
+        assertTrue(raw.ttl(key) <= 30);
+        assertEquals(Long.valueOf(1), client.del(key));
+        assertNull(client.get(key));
+        assertEquals(-1, client.get(key, new ByteArrayOutputStream()));
+    }
+
+    @Test
+    public void testChunkedValues() throws Exception {
+        try (RespServer server = new RespServer()) {
+            ICacheClient raw = new CacheClient(poolConfig(), server.getAddress());
+            ChunkedCacheClient client = new ChunkedCacheClient(new CacheClient(poolConfig(), server.getAddress()),
+                    config());
+            verify(raw, client);
+            raw.close();
+            client.close();
+        }
+    }
+
+    @Test
+    public void testChunkedValuesInCluster() throws Exception {
+        try (RespCluster cluster = new RespCluster(3)) {
+            ICacheClient raw = new CacheClusterClient(poolConfig(), cluster.getAddresses());
+            ChunkedCacheClient client = new ChunkedCacheClient(
+                    new CacheClusterClient(poolConfig(), cluster.getAddresses()), config());
+            verify(raw, client);
+            raw.close();
+            client.close();
+        }
+    }
+
+    /**
+     * 各块的剩余时间都在(min, max]之间
+     */
+    private static void assertChunkTtl(ICacheClient raw, long min, long max) {
+        for (String chunk : raw.keys("*:chunk:*")) {
+            long ttl = raw.ttl(chunk);
+            assertTrue(chunk + " ttl " + ttl, ttl > min && ttl <= max);
+        }
+    }
+
+    /**
+     * String版本的删除和过期命令同样处理各块，不会留下没有过期时间的块
+     */
+    @Test
+    public void testStringKeyCommands() throws Exception {
+        try (RespServer server = new RespServer()) {
+            ICacheClient raw = new CacheClient(poolConfig(), server.getAddress());
+            ChunkedCacheClient client = new ChunkedCacheClient(new CacheClient(poolConfig(), server.getAddress()),
+                    config());
+            byte[] key = "blob".getBytes();
+            client.set(key, bytes(2000, 4));
+            assertChunkTtl(raw, -2, -1);
+            assertEquals(Long.valueOf(1), client.expireAt("blob", System.currentTimeMillis() / 1000 + 100));
+            assertChunkTtl(raw, 100, 111);
+            assertTrue(raw.ttl("blob") <= 100);
+            assertEquals(Long.valueOf(1), client.expire("blob", 50));
+            assertChunkTtl(raw, 50, 60);
+            assertEquals(Long.valueOf(1), client.del("blob"));
+            assertChunkTtl(raw, 0, 10);
+
+            client.set(key, bytes(2000, 5));
+            client.set("other".getBytes(), bytes(2000, 6));
+            assertEquals(Long.valueOf(2), client.unlink("blob", "other", "missing"));
+            assertChunkTtl(raw, 0, 10);
+            client.set(key, bytes(2000, 7));
+            assertEquals(Long.valueOf(1), client.del("blob", "missing"));
+            assertChunkTtl(raw, 0, 10);
+            assertTrue(raw.keys("*").stream().allMatch(k -> k.contains(":chunk:")));
+            raw.close();
+            client.close();
+        }
+    }
+
+    /**
+     * 替换清单失败时原value和过期时间不变，新版本的块被删除
+     */
+    @Test
+    public void testSwapFailure() throws Exception {
+        try (RespServer server = new RespServer()) {
+            ICacheClient raw = new CacheClient(poolConfig(), server.getAddress());
+            ChunkedCacheClient client = new ChunkedCacheClient(new CacheClient(poolConfig(), server.getAddress()),
+                    config());
+            byte[] key = "blob".getBytes();
+            byte[] value = bytes(2000, 8);
+            client.setex(key, 60, value);
+            server.faults().fail("EVAL", "ERR injected", 1);
+            try {
+                client.setex(key, 30, bytes(2000, 9));
+                fail();
+            } catch (CacheException e) {
+                // 注入的错误
+            }
+            server.faults().clear();
+            assertArrayEquals(value, client.get(key));
+            assertTrue(raw.ttl(key) > 30);
+            assertEquals(8, raw.keys("*blob*").size());
+            raw.close();
+            client.close();
+        }
+    }
+
+    @Test
+    public void testMissingChunks() throws Exception {
+        try (RespServer server = new RespServer()) {
+            ICacheClient raw = new CacheClient(poolConfig(), server.getAddress());
+            ChunkedCacheClient client = new ChunkedCacheClient(new CacheClient(poolConfig(), server.getAddress()),
+                    config());
+            byte[] key = "blob".getBytes();
+            client.set(key, bytes(2000, 3));
+            // 清单没变而块已不存在，视为key不存在
+            raw.del(raw.keys("*:chunk:*").iterator().next());
+            assertNull(client.get(key));
+            raw.close();
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.ai.paas.ipaas.mcs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.ai.paas.ipaas.mcs.exception.CircuitBreakerOpenException;
+import com.ai.paas.ipaas.mcs.impl.CircuitBreaker;
+import com.ai.paas.ipaas.mcs.impl.CircuitBreaker.State;
+import com.ai.paas.ipaas.mcs.impl.CircuitBreakerConfig;
+
+public class CircuitBreakerTest {
+
+    private static CircuitBreakerConfig config() {
+        CircuitBreakerConfig config = new CircuitBreakerConfig();
+        config.setMinimumNumberOfCalls(10);
+        config.setFailureRateThreshold(50);
+        config.setWaitDurationInOpenStateMillis(100);
+        config.setPermittedCallsInHalfOpenState(2);
+        return config;
+    }
+
+    @Test
+    public void testOpenOnFailureRate() {
+        CircuitBreaker breaker = new CircuitBreaker("test", config());
+        List<String> events = new ArrayList<>();
+        breaker.addListener((name, from, to) -> events.add(from + "->" + to));
+        for (int i = 0; i < 5; i++) {
+            breaker.acquirePermission();
+            breaker.onResult("get", 0, false);
+        }
+        for (int i = 0; i < 5; i++) {
+            breaker.acquirePermission();
+            breaker.onResult("get", 0, true);
+        }
+        assertEquals(State.OPEN, breaker.getState());
+        try {
+            breaker.acquirePermission();
+            fail();
+        } catch (CircuitBreakerOpenException e) {
+            assertEquals(1, breaker.getMetrics().getNumberOfNotPermittedCalls());
+        }
+        assertEquals("CLOSED->OPEN", events.get(0));
+    }
+
+    @Test
+    public void testHalfOpenThenClose() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker("test", config());
+        breaker.transitionTo(State.OPEN);
+        Thread.sleep(150);
+        breaker.acquirePermission();
+        assertEquals(State.HALF_OPEN, breaker.getState());
+        breaker.acquirePermission();
+        try {
+            breaker.acquirePermission();
+            fail();
+        } catch (CircuitBreakerOpenException e) {
+            // 只允许2次试探
+        }
+        breaker.onResult("get", 0, false);
+        breaker.onResult("get", 0, false);
+        assertEquals(State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testHalfOpenThenReopen() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker("test", config());
+        breaker.transitionTo(State.OPEN);
+        Thread.sleep(150);
+        breaker.acquirePermission();
+        breaker.acquirePermission();
+        breaker.onResult("get", 0, true);
+        breaker.onResult("get", 0, false);
+        assertEquals(State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testSlowCalls() {
+        CircuitBreakerConfig config = config();
+        config.setSlowCallDurationMillis(10);
+        config.setSlowCallRateThreshold(80);
+        CircuitBreaker breaker = new CircuitBreaker("test", config);
+        for (int i = 0; i < 10; i++) {
+            breaker.onResult("subscribe", TimeUnit.SECONDS.toNanos(1), false);
+        }
+        assertEquals(State.CLOSED, breaker.getState());
+        for (int i = 0; i < 10; i++) {
+            breaker.onResult("get", TimeUnit.SECONDS.toNanos(1), false);
+        }
+        assertEquals(State.CLOSED, breaker.getState());
+        for (int i = 0; i < 60; i++) {
+            breaker.onResult("get", TimeUnit.SECONDS.toNanos(1), false);
+        }
+        assertEquals(State.OPEN, breaker.getState());
+    }
+}
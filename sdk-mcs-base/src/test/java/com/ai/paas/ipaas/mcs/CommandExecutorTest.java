@@ -0,0 +1,229 @@
+package com.ai.paas.ipaas.mcs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.junit.Test;
+
+import com.ai.paas.ipaas.mcs.exception.CacheException;
+import com.ai.paas.ipaas.mcs.impl.CacheClient;
+import com.ai.paas.ipaas.mcs.impl.CacheClusterClient;
+import com.ai.paas.ipaas.mcs.impl.CommandExecutor;
+import com.ai.paas.ipaas.mcs.impl.HealthChecker;
+import com.ai.paas.ipaas.mcs.impl.RetryPolicy;
+import com.ai.paas.ipaas.mcs.server.RespCluster;
+import com.ai.paas.ipaas.mcs.server.RespServer;
+
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+public class CommandExecutorTest {
+
+    private static CommandExecutor<String> executor(AtomicInteger borrowed, AtomicInteger released,
+            HealthChecker checker, RetryPolicy policy) {
+        return new CommandExecutor<>("test", CommandExecutor.ConnectionProvider.of(() ->
+            {
+                borrowed.incrementAndGet();
+                return "conn";
+            }, c -> released.incrementAndGet()), policy, checker);
+    }
+
+    @Test
+    public void testRetryThenSuccess() {
+        AtomicInteger borrowed = new AtomicInteger();
+        AtomicInteger released = new AtomicInteger();
+        HealthChecker checker = new HealthChecker("test", () ->
+            {
+            }, null);
+        AtomicInteger calls = new AtomicInteger();
+        String result = executor(borrowed, released, checker, new RetryPolicy(3, 1, 5)).execute("get", c ->
+            {
+                if (calls.incrementAndGet() < 3)
+                    throw new JedisConnectionException("broken");
+                return "ok";
+            });
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+        assertEquals(borrowed.get(), released.get());
+        checker.close();
+    }
+
+    @Test
+    public void testBoundedAttempts() {
+        AtomicInteger borrowed = new AtomicInteger();
+        AtomicInteger released = new AtomicInteger();
+        HealthChecker checker = new HealthChecker("test", () ->
+            {
+            }, null);
+        AtomicInteger calls = new AtomicInteger();
+        try {
+            executor(borrowed, released, checker, new RetryPolicy(2, 1, 5)).execute("get", c ->
+                {
+                    calls.incrementAndGet();
+                    throw new JedisConnectionException("down");
+                });
+            fail();
+        } catch (CacheException e) {
+            assertTrue(e.getCause() instanceof JedisConnectionException);
+        }
+        assertEquals(2, calls.get());
+        assertEquals(borrowed.get(), released.get());
+        checker.close();
+    }
+
+    @Test
+    public void testNoRetryWhenUnhealthy() throws InterruptedException {
+        AtomicInteger probes = new AtomicInteger();
+        HealthChecker checker = new HealthChecker("test", () ->
+            {
+                probes.incrementAndGet();
+                throw new JedisConnectionException("down");
+            }, null, 10, 3);
+        Thread.sleep(100);
+        assertTrue(!checker.isHealthy());
+        AtomicInteger calls = new AtomicInteger();
+        try {
+            executor(new AtomicInteger(), new AtomicInteger(), checker, new RetryPolicy(5, 1, 5)).execute("get",
+                    c ->
+                        {
+                            calls.incrementAndGet();
+                            throw new JedisConnectionException("down");
+                        });
+            fail();
+        } catch (CacheException e) {
+            assertEquals(1, calls.get());
+        }
+        assertTrue(probes.get() > 0);
+        checker.close();
+    }
+
+    @Test
+    public void testBackoffIsBounded() {
+        RetryPolicy policy = new RetryPolicy(10, 10, 100);
+        for (int attempt = 1; attempt < 10; attempt++) {
+            long sleep = policy.backoffMillis(attempt);
+            assertTrue(sleep >= 0 && sleep <= 100);
+        }
+    }
+
+    @Test
+    public void testNonIdempotentRetry() {
+        HealthChecker checker = new HealthChecker("test", () ->
+            {
+            }, null);
+        AtomicInteger borrowed = new AtomicInteger();
+        CommandExecutor<String> executor = executor(borrowed, new AtomicInteger(), checker,
+                new RetryPolicy(3, 1, 5));
+        // 读超时时incr可能已经执行，不重试
+        AtomicInteger calls = new AtomicInteger();
+        try {
+            executor.execute("incr", c ->
+                {
+                    calls.incrementAndGet();
+                    throw new JedisConnectionException(new SocketTimeoutException("Read timed out"));
+                });
+            fail();
+        } catch (CacheException e) {
+            assertEquals(1, calls.get());
+        }
+        // 建立连接失败时命令没有发出，可以重试
+        calls.set(0);
+        assertEquals("ok", executor.execute("incr", c ->
+            {
+                if (calls.incrementAndGet() < 3)
+                    throw new JedisConnectionException(new ConnectException("Connection refused"));
+                return "ok";
+            }));
+        // 其他命令照常重试
+        calls.set(0);
+        assertEquals("ok", executor.execute("get", c ->
+            {
+                if (calls.incrementAndGet() < 3)
+                    throw new JedisConnectionException(new SocketTimeoutException("Read timed out"));
+                return "ok";
+            }));
+        checker.close();
+    }
+
+    @Test
+    public void testNonIdempotentRetryOnBorrowFailure() {
+        HealthChecker checker = new HealthChecker("test", () ->
+            {
+            }, null);
+        AtomicInteger borrows = new AtomicInteger();
+        CommandExecutor<String> executor = new CommandExecutor<>("test", CommandExecutor.ConnectionProvider.of(() ->
+            {
+                if (borrows.incrementAndGet() < 3)
+                    throw new JedisConnectionException("Could not get a resource from the pool");
+                return "conn";
+            }, c ->
+                {
+                }), new RetryPolicy(3, 1, 5), checker);
+        // 没有取得连接，命令肯定没有发出
+        assertEquals("ok", executor.execute("lpush", c -> "ok"));
+        assertEquals(3, borrows.get());
+        checker.close();
+    }
+
+    @Test
+    public void testHungProbeIsIsolated() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        HealthChecker hung = new HealthChecker("hung", () -> release.await(), null, 10, 3);
+        AtomicInteger probes = new AtomicInteger();
+        HealthChecker other = new HealthChecker("other", probes::incrementAndGet, null, 10, 3);
+        // 一个实例的探测卡住，不影响其他客户端的探测
+        Thread.sleep(200);
+        assertTrue(probes.get() > 5);
+        release.countDown();
+        hung.close();
+        other.close();
+    }
+
+    @Test
+    public void testProbeTimesOutOnHungServer() throws InterruptedException {
+        try (RespServer server = new RespServer()) {
+            CacheClient client = new CacheClient(new GenericObjectPoolConfig<>(), server.getAddress());
+            HealthChecker checker = client.getCommandExecutor().getHealthChecker();
+            assertTrue(checker.isHealthy());
+            // 探测使用独立的短超时连接，不等连接池里150s的读超时
+            server.faults().blackhole(true);
+            long deadline = System.currentTimeMillis() + 8000;
+            while (checker.isHealthy()) {
+                assertTrue(System.currentTimeMillis() < deadline);
+                Thread.sleep(50);
+            }
+            server.faults().blackhole(false);
+            client.close();
+        }
+    }
+
+    /**
+     * 集群的探测同样使用独立的短超时连接，所有master没有响应时很快标记为不可用
+     */
+    @Test
+    public void testClusterProbeTimesOutOnHungServer() throws InterruptedException {
+        try (RespCluster cluster = new RespCluster(3)) {
+            CacheClusterClient client = new CacheClusterClient(new GenericObjectPoolConfig<>(), cluster.getAddresses());
+            HealthChecker checker = client.getCommandExecutor().getHealthChecker();
+            assertTrue(checker.isHealthy());
+            for (RespServer node : cluster.getNodes()) {
+                node.faults().blackhole(true);
+            }
+            long deadline = System.currentTimeMillis() + 15000;
+            while (checker.isHealthy()) {
+                assertTrue(System.currentTimeMillis() < deadline);
+                Thread.sleep(50);
+            }
+            for (RespServer node : cluster.getNodes()) {
+                node.faults().blackhole(false);
+            }
+            client.close();
+        }
+    }
+}
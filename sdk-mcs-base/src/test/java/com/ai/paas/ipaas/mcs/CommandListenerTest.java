@@ -0,0 +1,114 @@
+package com.ai.paas.ipaas.mcs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ai.paas.ipaas.mcs.exception.CacheException;
+import com.ai.paas.ipaas.mcs.impl.CommandExecutor;
+import com.ai.paas.ipaas.mcs.impl.CommandListener;
+import com.ai.paas.ipaas.mcs.impl.HealthChecker;
+import com.ai.paas.ipaas.mcs.impl.RetryPolicy;
+
+public class CommandListenerTest {
+
+    private static final class Event {
+        final String command;
+        final boolean slow;
+        final Throwable error;
+
+        Event(String command, boolean slow, Throwable error) {
+            this.command = command;
+            this.slow = slow;
+            this.error = error;
+        }
+    }
+
+    private HealthChecker checker;
+    private CommandExecutor<String> executor;
+    private final List<Event> events = new CopyOnWriteArrayList<>();
+    private final CommandListener listener = (client, command, durationNanos, slow, error) -> events
+            .add(new Event(command, slow, error));
+
+    @Before
+    public void setUp() {
+        checker = new HealthChecker("test", () ->
+            {
+            }, null);
+        executor = new CommandExecutor<>("test", CommandExecutor.ConnectionProvider.of(() -> "conn", c ->
+            {
+            }), new RetryPolicy(1, 1, 5), checker);
+    }
+
+    @After
+    public void tearDown() {
+        checker.close();
+    }
+
+    @Test
+    public void testSlowAndFailedCallsAlwaysNotified() {
+        // 不采样，只通知慢调用和失败的调用
+        executor.getListeners().add(listener, 0, 20);
+        for (int i = 0; i < 100; i++) {
+            executor.execute("get", c -> c);
+        }
+        assertTrue(events.isEmpty());
+
+        executor.execute("slow", c ->
+            {
+                Thread.sleep(25);
+                return c;
+            });
+        try {
+            executor.execute("del", c ->
+                {
+                    throw new IllegalStateException("broken");
+                });
+            fail();
+        } catch (CacheException e) {
+            // 命令失败
+        }
+        assertEquals(2, events.size());
+        assertEquals("slow", events.get(0).command);
+        assertTrue(events.get(0).slow);
+        assertNull(events.get(0).error);
+        assertEquals("del", events.get(1).command);
+        assertFalse(events.get(1).slow);
+        assertNotNull(events.get(1).error);
+    }
+
+    @Test
+    public void testSampling() {
+        executor.getListeners().add(listener, 100, 0);
+        for (int i = 0; i < 100000; i++) {
+            executor.execute("get", c -> c);
+        }
+        // 期望1000次，标准差约31
+        assertTrue("sampled " + events.size(), events.size() > 800 && events.size() < 1200);
+
+        executor.getListeners().remove(listener);
+        events.clear();
+        executor.execute("get", c -> c);
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void testEveryCall() {
+        executor.getListeners().add(listener);
+        for (int i = 0; i < 10; i++) {
+            executor.execute("get", c -> c);
+        }
+        assertEquals(10, events.size());
+        assertFalse(events.get(0).slow);
+    }
+}
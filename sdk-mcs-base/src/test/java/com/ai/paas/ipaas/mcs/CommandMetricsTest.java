@@ -0,0 +1,114 @@
+package com.ai.paas.ipaas.mcs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ai.paas.ipaas.mcs.exception.CacheException;
+import com.ai.paas.ipaas.mcs.impl.CommandExecutor;
+import com.ai.paas.ipaas.mcs.impl.CommandMetrics;
+import com.ai.paas.ipaas.mcs.impl.HealthChecker;
+import com.ai.paas.ipaas.mcs.impl.RetryPolicy;
+
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+public class CommandMetricsTest {
+
+    private HealthChecker checker;
+    private CommandExecutor<String> executor;
+
+    @Before
+    public void setUp() {
+        checker = new HealthChecker("test", () ->
+            {
+            }, null);
+        executor = new CommandExecutor<>("test", CommandExecutor.ConnectionProvider.of(() -> "conn", c ->
+            {
+            }), new RetryPolicy(3, 1, 5), checker);
+    }
+
+    @After
+    public void tearDown() {
+        checker.close();
+    }
+
+    @Test
+    public void testCountsErrorsTimeoutsAndRetries() {
+        AtomicInteger calls = new AtomicInteger();
+        assertEquals("ok", executor.execute("get", c ->
+            {
+                if (calls.incrementAndGet() < 3)
+                    throw new JedisConnectionException(new SocketTimeoutException("Read timed out"));
+                return "ok";
+            }));
+        try {
+            executor.execute("del", c ->
+                {
+                    throw new IllegalStateException("broken");
+                });
+            fail();
+        } catch (CacheException e) {
+            // 非连接异常不重试
+        }
+
+        CommandMetrics.Snapshot snapshot = executor.getMetrics().snapshot();
+        CommandMetrics.CommandStats get = snapshot.getCommand("get");
+        assertEquals(1, get.getCount());
+        assertEquals(0, get.getErrors());
+        assertEquals(2, get.getTimeouts());
+        assertEquals(2, get.getRetries());
+        CommandMetrics.CommandStats del = snapshot.getCommand("del");
+        assertEquals(1, del.getCount());
+        assertEquals(1, del.getErrors());
+        assertEquals(0, del.getRetries());
+        assertEquals(4, snapshot.getBorrowWait().getCount());
+        assertNull(snapshot.getCommand("set"));
+    }
+
+    @Test
+    public void testLatencyPercentiles() {
+        for (int i = 0; i < 10; i++) {
+            executor.execute("slow", c ->
+                {
+                    Thread.sleep(5);
+                    return null;
+                });
+        }
+        CommandMetrics.CommandStats slow = executor.getMetrics().snapshot().getCommand("slow");
+        assertEquals(10, slow.getCount());
+        assertTrue(slow.getValueAtPercentile(50) >= TimeUnit.MILLISECONDS.toNanos(5));
+        assertTrue(slow.getMaxNanos() >= slow.getValueAtPercentile(99.9));
+        assertTrue(slow.getThroughput() > 0);
+
+        executor.getMetrics().reset();
+        assertEquals(0, executor.getMetrics().snapshot().getCommand("slow").getCount());
+    }
+
+    @Test
+    public void testRecordingDoesNotAllocate() {
+        CommandExecutor.Command<String, String> command = c -> c;
+        for (int i = 0; i < 20000; i++) {
+            executor.execute("get", command);
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100000; i++) {
+            executor.execute("get", command);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+        assertEquals(120000, executor.getMetrics().snapshot().getCommand("get").getCount());
+    }
+}
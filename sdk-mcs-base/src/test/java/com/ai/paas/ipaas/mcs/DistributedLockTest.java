@@ -0,0 +1,417 @@
+package com.ai.paas.ipaas.mcs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ai.paas.ipaas.mcs.exception.CacheException;
+import com.ai.paas.ipaas.mcs.impl.CacheClient;
+import com.ai.paas.ipaas.mcs.impl.DistributedLock;
+import com.ai.paas.ipaas.mcs.impl.ForwardingCacheClient;
+import com.ai.paas.ipaas.mcs.server.RespServer;
+
+import redis.clients.jedis.Pipeline;
+
+public class DistributedLockTest {
+
+    /**
+     * 统计脚本调用和pipeline的次数
+     */
+    private static class CountingClient extends ForwardingCacheClient {
+        final AtomicInteger evals = new AtomicInteger();
+        final AtomicInteger pipelines = new AtomicInteger();
+
+        CountingClient(ICacheClient delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Object eval(String script, List<String> keys, List<String> args) {
+            evals.incrementAndGet();
+            return super.eval(script, keys, args);
+        }
+
+        @Override
+        public Object evalsha(String sha1, List<String> keys, List<String> args) {
+            evals.incrementAndGet();
+            return super.evalsha(sha1, keys, args);
+        }
+
+        @Override
+        public Pipeline startPipeline() {
+            pipelines.incrementAndGet();
+            return super.startPipeline();
+        }
+    }
+
+    private RespServer server;
+    private ICacheClient raw;
+    private CountingClient redis;
+
+    @SuppressWarnings("rawtypes")
+    private static GenericObjectPoolConfig poolConfig() {
+        return new GenericObjectPoolConfig();
+    }
+
+    @Before
+    public void setUp() {
+        server = new RespServer();
+        raw = new CacheClient(poolConfig(), server.getAddress());
+        redis = new CountingClient(new CacheClient(poolConfig(), server.getAddress()));
+    }
+
+    @After
+    public void tearDown() {
+        raw.close();
+        redis.close();
+        server.close();
+    }
+
+    @Test
+    public void testAcquireRelease() {
+        DistributedLock lock = new DistributedLock(redis, false);
+        String id = lock.acquire("test", 100, 10000);
+        assertNotNull(id);
+        assertNull(lock.acquire("test", 100, 10000));
+        assertFalse(lock.release("test", "other"));
+        assertTrue(lock.release("test", id));
+        assertFalse(lock.release("test", id));
+    }
+
+    @Test
+    public void testAcquireAfterExpire() {
+        DistributedLock lock = new DistributedLock(redis, false);
+        assertNotNull(lock.acquire("test", 100, 300));
+        long start = System.currentTimeMillis();
+        assertNotNull(lock.acquire("test", 2000, 300));
+        assertTrue(System.currentTimeMillis() - start < 1000);
+    }
+
+    @Test
+    public void testBackoff() {
+        DistributedLock lock = new DistributedLock(redis, false);
+        assertNotNull(lock.acquire("test", 100, 10000));
+        redis.evals.set(0);
+        assertNull(lock.acquire("test", 1000, 10000));
+        // 退避重试，而不是每10ms轮询一次
+        assertTrue(redis.evals.get() < 20);
+        assertTrue(raw.exists("lock:test"));
+    }
+
+    @Test
+    public void testRenewal() throws InterruptedException {
+        DistributedLock lock = new DistributedLock(redis, false);
+        LockHandle first = lock.acquireRenewable("test", 100, 300);
+        LockHandle second = lock.acquireRenewable("other", 100, 300);
+        assertEquals(1, first.getFencingToken());
+        Thread.sleep(1000);
+        // 租期已过了三倍多，续期让锁一直有效
+        assertTrue(first.isHeld());
+        assertTrue(raw.exists("lock:test"));
+        assertTrue(raw.exists("lock:other"));
+        assertNull(lock.acquire("test", 50, 300));
+        // 两把锁合并续期，每个周期一次pipeline
+        assertTrue(redis.pipelines.get() <= 12);
+
+        assertTrue(first.release());
+        assertFalse(first.isHeld());
+        assertFalse(raw.exists("lock:test"));
+        LockHandle again = lock.acquireRenewable("test", 100, 300);
+        assertEquals(2, again.getFencingToken());
+        again.close();
+        second.close();
+        Thread.sleep(200);
+        assertFalse(raw.exists("lock:test"));
+    }
+
+    @Test
+    public void testReentrant() throws Exception {
+        DistributedLock engine = new DistributedLock(redis, false);
+        ICacheLock lock = engine.reentrantLock("test");
+        assertTrue(lock.tryLock(100, 10000));
+        assertTrue(lock.tryLock(100, 10000));
+        assertEquals(2, lock.getHoldCount());
+
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        try {
+            assertFalse(other.submit(() -> lock.tryLock(100, 10000)).get());
+            lock.unlock();
+            assertTrue(lock.isHeldByCurrentThread());
+            assertFalse(other.submit(() -> lock.tryLock(100, 10000)).get());
+            lock.unlock();
+            assertFalse(lock.isHeldByCurrentThread());
+            assertTrue(other.submit(() -> lock.tryLock(100, 10000)).get());
+            assertTrue(other.submit(lock::isHeldByCurrentThread).get());
+        } finally {
+            other.shutdown();
+        }
+        try {
+            lock.unlock();
+            fail();
+        } catch (CacheException e) {
+            // 当前线程没有持有锁
+        }
+    }
+
+    @Test
+    public void testLost() throws InterruptedException {
+        DistributedLock lock = new DistributedLock(redis, false);
+        LockHandle handle = lock.acquireRenewable("test", 100, 300);
+        raw.set("lock:test", "other");
+        Thread.sleep(300);
+        assertFalse(handle.isHeld());
+        assertFalse(handle.release());
+    }
+
+    @Test
+    public void testLeaseMustBePositive() {
+        DistributedLock lock = new DistributedLock(redis, false);
+        for (long lease : new long[] { 0, -1 }) {
+            try {
+                lock.acquire("test", 100, lease);
+                fail();
+            } catch (IllegalArgumentException e) {
+                // PX 0会被redis拒绝
+            }
+            try {
+                lock.acquireRenewable("test", 100, lease);
+                fail();
+            } catch (IllegalArgumentException e) {
+                // 同上
+            }
+            try {
+                lock.reentrantLock("test").tryLock(100, lease);
+                fail();
+            } catch (IllegalArgumentException e) {
+                // 同上
+            }
+        }
+    }
+
+    private static void awaitSubscribers(RespServer server, String channel) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (server.subscriberCount(channel) == 0) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testWakeOnRelease() throws Exception {
+        // 订阅使用独立连接，连接池只有一条连接时释放锁也不会等不到连接
+        GenericObjectPoolConfig<?> config = new GenericObjectPoolConfig<>();
+        config.setMaxTotal(1);
+        ICacheClient client = new CacheClient(config, server.getAddress());
+        DistributedLock lock = new DistributedLock(client, true);
+        String id = lock.acquire("test", 100, 30000);
+        assertNotNull(id);
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> waiter = other.submit(() -> lock.acquire("test", 20000, 30000));
+            awaitSubscribers(server, "lock:test:released");
+            long start = System.currentTimeMillis();
+            assertTrue(lock.release("test", id));
+            // 锁剩余有效期近30s，等待者靠释放通知而不是到期重试
+            assertNotNull(waiter.get(5, TimeUnit.SECONDS));
+            assertTrue(System.currentTimeMillis() - start < 1000);
+        } finally {
+            other.shutdown();
+            client.close();
+        }
+    }
+
+    @Test
+    public void testReleaseBeforeSubscribe() throws Exception {
+        DistributedLock holder = new DistributedLock(raw, true);
+        String id = holder.acquire("test", 100, 30000);
+        AtomicBoolean armed = new AtomicBoolean();
+        // 等待者第一次加锁失败后、订阅生效前释放锁，这次释放通知没有订阅者
+        ICacheClient client = new ForwardingCacheClient(redis) {
+
+            private Object released(Object reply) {
+                if (armed.compareAndSet(true, false))
+                    assertTrue(holder.release("test", id));
+                return reply;
+            }
+
+            @Override
+            public Object eval(String script, List<String> keys, List<String> args) {
+                return released(super.eval(script, keys, args));
+            }
+
+            @Override
+            public Object evalsha(String sha1, List<String> keys, List<String> args) {
+                return released(super.evalsha(sha1, keys, args));
+            }
+        };
+        DistributedLock lock = new DistributedLock(client, true);
+        armed.set(true);
+        long start = System.currentTimeMillis();
+        assertNotNull(lock.acquire("test", 20000, 30000));
+        assertFalse(armed.get());
+        // 订阅后重试一次，不会一直等到锁过期或超时
+        assertTrue(System.currentTimeMillis() - start < 2000);
+    }
+
+    /**
+     * 不等待的加锁失败时只执行一次脚本，不启动订阅
+     */
+    @Test
+    public void testNoSubscribeWithoutTimeout() throws Exception {
+        DistributedLock holder = new DistributedLock(raw, true);
+        String id = holder.acquire("test", 100, 30000);
+        assertNotNull(id);
+        ICacheLock held = holder.reentrantLock("test");
+        assertTrue(held.tryLock(0, 30000));
+        DistributedLock lock = new DistributedLock(redis, true);
+        int evals = redis.evals.get();
+        assertNull(lock.acquire("test", 0, 30000));
+        assertEquals(evals + 1, redis.evals.get());
+        assertFalse(lock.reentrantLock("test").tryLock(0, 30000));
+        assertEquals(evals + 2, redis.evals.get());
+        Thread.sleep(100);
+        assertEquals(0, server.subscriberCount("mcs:lock:keepalive"));
+        assertEquals(0, server.subscriberCount("lock:test:released"));
+        assertTrue(holder.release("test", id));
+        held.unlock();
+    }
+
+    private static <T> T on(ExecutorService thread, Callable<T> task) throws Exception {
+        return thread.submit(task).get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testReadWriteExclusion() throws Exception {
+        ICacheReadWriteLock lock = new DistributedLock(redis, false).readWriteLock("test");
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        try {
+            // 读锁可以同时持有，写锁与读锁互斥
+            assertTrue(lock.readLock().tryLock(100, 10000));
+            assertTrue(on(reader, () -> lock.readLock().tryLock(100, 10000)));
+            assertFalse(on(writer, () -> lock.writeLock().tryLock(100, 10000)));
+            lock.readLock().unlock();
+            assertFalse(on(writer, () -> lock.writeLock().tryLock(100, 10000)));
+            on(reader, () ->
+                {
+                    lock.readLock().unlock();
+                    return null;
+                });
+            assertFalse(raw.exists("rwlock:test"));
+
+            // 写锁与读锁、写锁都互斥，持有者自己可以重入
+            assertTrue(on(writer, () -> lock.writeLock().tryLock(100, 10000)));
+            assertTrue(on(writer, () -> lock.writeLock().tryLock(100, 10000)));
+            assertFalse(lock.readLock().tryLock(100, 10000));
+            assertFalse(lock.writeLock().tryLock(100, 10000));
+            assertEquals(Integer.valueOf(1), on(writer, () ->
+                {
+                    lock.writeLock().unlock();
+                    return lock.writeLock().getHoldCount();
+                }));
+            assertFalse(lock.readLock().tryLock(100, 10000));
+            on(writer, () ->
+                {
+                    lock.writeLock().unlock();
+                    return null;
+                });
+            assertFalse(raw.exists("rwlock:test"));
+            assertTrue(lock.readLock().tryLock(100, 10000));
+            lock.readLock().unlock();
+        } finally {
+            reader.shutdown();
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    public void testDowngrade() throws Exception {
+        ICacheReadWriteLock lock = new DistributedLock(redis, false).readWriteLock("test");
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        try {
+            // 持有写锁时加读锁，再释放写锁，降级为读锁
+            assertTrue(lock.writeLock().tryLock(100, 10000));
+            assertTrue(lock.readLock().tryLock(100, 10000));
+            assertFalse(on(other, () -> lock.readLock().tryLock(100, 10000)));
+            lock.writeLock().unlock();
+            assertEquals("read", raw.hget("rwlock:test", "mode"));
+            assertTrue(lock.readLock().isHeldByCurrentThread());
+            assertTrue(on(other, () -> lock.readLock().tryLock(100, 10000)));
+            on(other, () ->
+                {
+                    lock.readLock().unlock();
+                    return null;
+                });
+            assertFalse(on(other, () -> lock.writeLock().tryLock(100, 10000)));
+            lock.readLock().unlock();
+            assertTrue(on(other, () -> lock.writeLock().tryLock(100, 10000)));
+        } finally {
+            other.shutdown();
+        }
+    }
+
+    @Test
+    public void testDeadReaderExpires() throws Exception {
+        ICacheReadWriteLock lock = new DistributedLock(redis, false).readWriteLock("test");
+        ExecutorService dead = Executors.newSingleThreadExecutor();
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        try {
+            // 一个读者持有200ms后宕机不再解锁，另一个读者把锁的有效期延长到了10s
+            assertTrue(on(dead, () -> lock.readLock().tryLock(100, 200)));
+            assertTrue(lock.readLock().tryLock(100, 10000));
+            lock.readLock().unlock();
+            assertTrue(raw.ttl("rwlock:test") > 5);
+            assertEquals(1, raw.zrange("{rwlock:test}:readers", 0, -1).size());
+
+            // 过期的读者被清理，写锁不必等到锁的有效期结束
+            long start = System.currentTimeMillis();
+            assertTrue(on(writer, () -> lock.writeLock().tryLock(3000, 10000)));
+            assertTrue(System.currentTimeMillis() - start < 2000);
+            assertEquals("write", raw.hget("rwlock:test", "mode"));
+            assertFalse(raw.exists("{rwlock:test}:readers"));
+        } finally {
+            dead.shutdown();
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    public void testWakeAllReaders() throws Exception {
+        ICacheReadWriteLock lock = new DistributedLock(redis, true).readWriteLock("test");
+        ExecutorService readers = Executors.newFixedThreadPool(2);
+        try {
+            assertTrue(lock.writeLock().tryLock(100, 30000));
+            Callable<Boolean> read = () -> lock.readLock().tryLock(20000, 10000);
+            Future<Boolean> first = readers.submit(read);
+            Future<Boolean> second = readers.submit(read);
+            awaitSubscribers(server, "rwlock:test:released");
+            Thread.sleep(200);
+            long start = System.currentTimeMillis();
+            // 释放写锁时唤醒所有等待者，两个读者都能拿到读锁，而不是一个等到写锁过期
+            lock.writeLock().unlock();
+            assertTrue(first.get(5, TimeUnit.SECONDS));
+            assertTrue(second.get(5, TimeUnit.SECONDS));
+            assertTrue(System.currentTimeMillis() - start < 1000);
+            assertEquals(2, raw.zrange("{rwlock:test}:readers", 0, -1).size());
+        } finally {
+            readers.shutdown();
+        }
+    }
+}
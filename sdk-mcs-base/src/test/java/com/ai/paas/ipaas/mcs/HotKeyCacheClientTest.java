@@ -0,0 +1,189 @@
+package com.ai.paas.ipaas.mcs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.junit.Test;
+
+import com.ai.paas.ipaas.mcs.impl.CacheClient;
+import com.ai.paas.ipaas.mcs.impl.ForwardingCacheClient;
+import com.ai.paas.ipaas.mcs.impl.HotKey;
+import com.ai.paas.ipaas.mcs.impl.HotKeyCacheClient;
+import com.ai.paas.ipaas.mcs.impl.HotKeyConfig;
+import com.ai.paas.ipaas.mcs.server.RespServer;
+
+public class HotKeyCacheClientTest {
+
+    @SuppressWarnings("rawtypes")
+    private static GenericObjectPoolConfig poolConfig() {
+        return new GenericObjectPoolConfig();
+    }
+
+    /**
+     * 不采样，100ms一个时间片
+     */
+    private static HotKeyConfig config() {
+        HotKeyConfig config = new HotKeyConfig();
+        config.setSampleEvery(1);
+        config.setTopK(3);
+        config.setWindowSeconds(1);
+        config.setSlices(10);
+        config.setHotCallsPerSecond(100);
+        return config;
+    }
+
+    /**
+     * 等待进入下一个时间片，下一次调用时重新判断热点
+     */
+    private static void nextSlice(ICacheClient client) throws InterruptedException {
+        Thread.sleep(150);
+        client.exists("tick");
+    }
+
+    @Test
+    public void testTopKeysPerCommand() throws Exception {
+        try (RespServer server = new RespServer()) {
+            HotKeyCacheClient client = new HotKeyCacheClient(new CacheClient(poolConfig(), server.getAddress()),
+                    config());
+            client.set("hot", "v");
+            client.hset("h", "f", "x");
+            for (int i = 0; i < 200; i++) {
+                client.get("hot");
+            }
+            for (int i = 0; i < 100; i++) {
+                client.get(("cold" + i).getBytes());
+            }
+            for (int i = 0; i < 30; i++) {
+                client.hget("h", "f");
+            }
+            List<HotKey> top = client.getTopKeys("get");
+            assertEquals(3, top.size());
+            assertEquals("hot", top.get(0).getKey());
+            // 计数器足够时没有误差
+            assertEquals(200, top.get(0).getCount());
+            assertEquals(0, top.get(0).getError());
+            assertEquals(1, top.get(1).getCount());
+
+            Map<String, List<HotKey>> all = client.getTopKeys();
+            assertEquals(30, all.get("hget").get(0).getCount());
+            assertEquals("h", all.get("hget").get(0).getKey());
+            assertTrue(all.containsKey("set"));
+
+            client.del("a", "b");
+            client.del("a".getBytes(), "c".getBytes());
+            client.unlink("a");
+            assertEquals("a", client.getTopKeys("del").get(0).getKey());
+            assertEquals(2, client.getTopKeys("del").get(0).getCount());
+            assertEquals(1, client.getTopKeys("unlink").get(0).getCount());
+
+            nextSlice(client);
+            assertTrue(client.isHot("hot"));
+            assertFalse(client.isHot("cold1"));
+            assertEquals(0, client.getPromotedHits());
+            client.close();
+        }
+    }
+
+    @Test
+    public void testSpaceSavingBoundsError() throws Exception {
+        try (RespServer server = new RespServer()) {
+            HotKeyConfig config = config();
+            config.setCounters(8);
+            HotKeyCacheClient client = new HotKeyCacheClient(new CacheClient(poolConfig(), server.getAddress()),
+                    config);
+            for (int i = 0; i < 100; i++) {
+                client.exists("hot");
+                client.exists("k" + i);
+            }
+            HotKey top = client.getTopKeys("exists").get(0);
+            assertEquals("hot", top.getKey());
+            assertTrue(top.getCount() >= 100);
+            assertTrue(top.getCount() - top.getError() <= 100);
+            client.close();
+        }
+    }
+
+    @Test
+    public void testPromotesHotKeys() throws Exception {
+        try (RespServer server = new RespServer()) {
+            HotKeyConfig config = config();
+            config.setPromoteTtlMillis(60000);
+            HotKeyCacheClient client = new HotKeyCacheClient(new CacheClient(poolConfig(), server.getAddress()),
+                    config);
+            ICacheClient writer = new CacheClient(poolConfig(), server.getAddress());
+            client.set("hot", "v1");
+            client.hset("h", "f", "x");
+            client.set("cold", "c1");
+            for (int i = 0; i < 300; i++) {
+                assertEquals("v1", client.get("hot"));
+                assertEquals("x", client.hgetAll("h").get("f"));
+            }
+            client.get("cold");
+            nextSlice(client);
+            assertTrue(client.isHot("hot"));
+            assertTrue(client.isHot("h"));
+
+            assertEquals("v1", client.get("hot"));
+            assertEquals("x", client.hgetAll("h").get("f"));
+            // 其他客户端的修改在本地过期前读不到
+            writer.set("hot", "v2");
+            writer.hset("h", "f", "y");
+            writer.set("cold", "c2");
+            assertEquals("v1", client.get("hot"));
+            assertEquals("x", client.hgetAll("h").get("f"));
+            assertEquals("c2", client.get("cold"));
+            assertTrue(client.getPromotedHits() >= 2);
+            // 返回的是副本
+            client.hgetAll("h").put("f", "z");
+            assertEquals("x", client.hgetAll("h").get("f"));
+
+            // 本客户端的写操作使本地的值失效
+            client.set("hot", "v3");
+            assertEquals("v3", client.get("hot"));
+            client.hset("h", "g", "1");
+            assertEquals("y", client.hgetAll("h").get("f"));
+            client.del("hot".getBytes());
+            assertEquals(null, client.get("hot"));
+            writer.close();
+            client.close();
+        }
+    }
+
+    /**
+     * 读取期间其他key的写入不影响热点key存入本地
+     */
+    @Test
+    public void testUnrelatedWritesDuringPromotion() throws Exception {
+        try (RespServer server = new RespServer()) {
+            HotKeyConfig config = config();
+            config.setPromoteTtlMillis(60000);
+            HotKeyCacheClient[] hot = new HotKeyCacheClient[1];
+            HotKeyCacheClient client = hot[0] = new HotKeyCacheClient(
+                    new ForwardingCacheClient(new CacheClient(poolConfig(), server.getAddress())) {
+                        @Override
+                        public String get(String key) {
+                            String value = super.get(key);
+                            hot[0].set("other", "x");
+                            return value;
+                        }
+                    }, config);
+            server.getKeyspace().put("hot", "v1");
+            for (int i = 0; i < 200; i++) {
+                client.get("hot");
+            }
+            nextSlice(client);
+            assertTrue(client.isHot("hot"));
+            assertEquals("v1", client.get("hot"));
+            long hits = client.getPromotedHits();
+            server.getKeyspace().put("hot", "v2");
+            assertEquals("v1", client.get("hot"));
+            assertEquals(hits + 1, client.getPromotedHits());
+            client.close();
+        }
+    }
+}
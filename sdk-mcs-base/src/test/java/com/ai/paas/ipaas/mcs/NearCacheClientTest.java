@@ -0,0 +1,317 @@
+package com.ai.paas.ipaas.mcs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ai.paas.ipaas.mcs.impl.CacheClient;
+import com.ai.paas.ipaas.mcs.impl.ForwardingCacheClient;
+import com.ai.paas.ipaas.mcs.impl.NearCacheClient;
+import com.ai.paas.ipaas.mcs.impl.NearCacheConfig;
+import com.ai.paas.ipaas.mcs.impl.NearCacheStats;
+import com.ai.paas.ipaas.mcs.impl.ValueView;
+import com.ai.paas.ipaas.mcs.server.RespServer;
+
+public class NearCacheClientTest {
+
+    private RespServer server;
+    private ICacheClient writer;
+    private NearCacheClient client;
+
+    @SuppressWarnings("rawtypes")
+    private static GenericObjectPoolConfig poolConfig() {
+        return new GenericObjectPoolConfig();
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline)
+                fail("condition not met in 10s");
+            Thread.sleep(20);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        server = new RespServer();
+        writer = new CacheClient(poolConfig(), server.getAddress());
+    }
+
+    @After
+    public void tearDown() {
+        if (null != client)
+            client.close();
+        writer.close();
+        server.close();
+    }
+
+    private NearCacheClient nearCache(NearCacheConfig.Invalidation invalidation) throws InterruptedException {
+        NearCacheConfig config = new NearCacheConfig();
+        config.setInvalidation(invalidation);
+        config.setPrefixes("conf:");
+        config.setProbeIntervalMillis(100);
+        client = new NearCacheClient(new CacheClient(poolConfig(), server.getAddress()), config);
+        waitFor(client::isActive);
+        return client;
+    }
+
+    /**
+     * 直接修改服务端数据不产生通知，读到旧值说明由本地缓存返回
+     */
+    private void verifyInvalidation(NearCacheClient client) throws InterruptedException {
+        writer.set("conf:a", "v1");
+        writer.hset("conf:h", "f", "x1");
+        // 读取期间收到失效消息时不存入本地，先等这两次写入的消息到达
+        waitFor(() -> client.getStats().getInvalidations() >= 2);
+        assertEquals("v1", client.get("conf:a"));
+        assertEquals("x1", client.hget("conf:h", "f"));
+        assertNull(client.get("conf:missing"));
+        server.getKeyspace().put("conf:a", "stale");
+        assertEquals("v1", client.get("conf:a"));
+        assertEquals(Arrays.asList("v1", null), client.mget("conf:a", "conf:missing"));
+
+        writer.set("conf:a", "v2");
+        writer.hset("conf:h", "f", "x2");
+        writer.set("conf:missing", "now");
+        waitFor(() -> "v2".equals(client.get("conf:a")) && "x2".equals(client.hget("conf:h", "f"))
+                && "now".equals(client.get("conf:missing")));
+
+        NearCacheStats.Snapshot stats = client.getStats();
+        assertTrue(stats.getHits() >= 3);
+        assertTrue(stats.getInvalidations() >= 5);
+        assertTrue(stats.getLagCount() > 0);
+        assertTrue(stats.getHitRatio() > 0);
+    }
+
+    @Test
+    public void testKeyspaceNotifications() throws InterruptedException {
+        verifyInvalidation(nearCache(NearCacheConfig.Invalidation.KEYSPACE));
+    }
+
+    @Test
+    public void testTrackingBroadcast() throws InterruptedException {
+        verifyInvalidation(nearCache(NearCacheConfig.Invalidation.TRACKING));
+    }
+
+    @Test
+    public void testOwnWritesAndPrefixes() throws InterruptedException {
+        NearCacheClient client = nearCache(NearCacheConfig.Invalidation.KEYSPACE);
+        client.set("conf:a", "v1");
+        assertEquals("v1", client.get("conf:a"));
+        client.set("conf:a", "v2");
+        assertEquals("v2", client.get("conf:a"));
+        client.del("conf:a");
+        assertNull(client.get("conf:a"));
+
+        byte[] key = "conf:bin".getBytes();
+        client.set(key, new byte[] { 1, 2 });
+        assertArrayEquals(new byte[] { 1, 2 }, client.get(key));
+        client.get(key)[0] = 9;
+        assertArrayEquals(new byte[] { 1, 2 }, client.get(key));
+
+        // 前缀以外的key不缓存
+        client.set("other", "v1");
+        assertEquals("v1", client.get("other"));
+        server.getKeyspace().put("other", "v2");
+        assertEquals("v2", client.get("other"));
+    }
+
+    @Test
+    public void testSuspendedWhileSubscriptionBroken() throws InterruptedException {
+        NearCacheClient client = nearCache(NearCacheConfig.Invalidation.KEYSPACE);
+        writer.set("conf:a", "v1");
+        assertEquals("v1", client.get("conf:a"));
+        server.disconnectAll();
+        waitFor(() -> !client.isActive());
+        // 中断期间直接读取redis
+        server.getKeyspace().put("conf:a", "v2");
+        assertEquals("v2", client.get("conf:a"));
+        waitFor(client::isActive);
+        assertEquals("v2", client.get("conf:a"));
+    }
+
+    @Test
+    public void testWeightBoundAndEviction() {
+        NearCacheConfig config = new NearCacheConfig();
+        config.setInvalidation(NearCacheConfig.Invalidation.NONE);
+        config.setMaxWeight(10000);
+        client = new NearCacheClient(new CacheClient(poolConfig(), server.getAddress()), config);
+        char[] value = new char[500];
+        Arrays.fill(value, 'x');
+        writer.set("hot", new String(value));
+        for (int i = 0; i < 5; i++) {
+            client.get("hot");
+        }
+        for (int i = 0; i < 100; i++) {
+            writer.set("k" + i, new String(value));
+            client.get("k" + i);
+        }
+        NearCacheStats.Snapshot stats = client.getStats();
+        assertTrue(stats.getWeight() <= 10000);
+        assertTrue(stats.getEvictions() > 0);
+        assertEquals(101, stats.getMisses());
+        // 只读一次的key扫过之后，频繁读取的key仍在本地
+        server.getKeyspace().put("hot", "changed");
+        assertFalse("changed".equals(client.get("hot")));
+        // 缓存满后只读一次的key不会被接纳
+        server.getKeyspace().put("k99", "changed");
+        assertEquals("changed", client.get("k99"));
+    }
+
+    /**
+     * 读取期间其他key的写入不影响本次读到的值存入本地
+     */
+    @Test
+    public void testUnrelatedWritesDuringRead() {
+        NearCacheConfig config = new NearCacheConfig();
+        config.setInvalidation(NearCacheConfig.Invalidation.NONE);
+        NearCacheClient[] near = new NearCacheClient[1];
+        client = near[0] = new NearCacheClient(
+                new ForwardingCacheClient(new CacheClient(poolConfig(), server.getAddress())) {
+                    @Override
+                    public String get(String key) {
+                        String value = super.get(key);
+                        near[0].set("other:" + key, "x");
+                        return value;
+                    }
+
+                    @Override
+                    public String hget(String key, String field) {
+                        String value = super.hget(key, field);
+                        near[0].set("other:" + key, "x");
+                        return value;
+                    }
+                }, config);
+        writer.set("a", "v1");
+        for (int i = 0; i < 100; i++) {
+            writer.hset("h", "f" + i, "x" + i);
+        }
+        assertEquals("v1", client.get("a"));
+        for (int i = 0; i < 100; i++) {
+            assertEquals("x" + i, client.hget("h", "f" + i));
+        }
+        server.getKeyspace().put("a", "changed");
+        writer.del("h");
+        assertEquals("v1", client.get("a"));
+        for (int i = 0; i < 100; i++) {
+            assertEquals("x" + i, client.hget("h", "f" + i));
+        }
+        assertEquals(101, client.getStats().getHits());
+
+        // 自己对同一个key的写入仍使本地条目失效
+        client.hset("h", "f0", "y0");
+        assertEquals("y0", client.hget("h", "f0"));
+        assertNull(client.hget("h", "f1"));
+    }
+
+    private static byte[] blob(int seed, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) ('a' + (seed + i) % 26);
+        }
+        return bytes;
+    }
+
+    @Test
+    public void testOffHeapValues() {
+        NearCacheConfig config = new NearCacheConfig();
+        config.setInvalidation(NearCacheConfig.Invalidation.NONE);
+        config.setOffHeapThreshold(1024);
+        config.setOffHeapSlabBytes(64 * 1024);
+        config.setOffHeapMaxBytes(128 * 1024);
+        client = new NearCacheClient(new CacheClient(poolConfig(), server.getAddress()), config);
+        byte[] key = "blob:0".getBytes();
+        byte[] value = blob(0, 10000);
+        writer.set(key, value);
+        writer.hset("blob:h".getBytes(), "f".getBytes(), value);
+        writer.set("blob:small".getBytes(), "tiny".getBytes());
+
+        assertArrayEquals(value, client.get(key));
+        assertArrayEquals(value, client.get(key));
+        assertArrayEquals(value, client.hget("blob:h".getBytes(), "f".getBytes()));
+        assertArrayEquals("tiny".getBytes(), client.get("blob:small".getBytes()));
+        NearCacheStats.Snapshot stats = client.getStats();
+        assertEquals(1, stats.getHits());
+        assertTrue(stats.getOffHeapBytes() >= 2 * 10000);
+
+        ValueView view = client.getView(key);
+        assertTrue(view.isOffHeap());
+        assertTrue(view.buffer().isReadOnly());
+        assertEquals(ByteBuffer.wrap(value), view.buffer());
+        try (ValueView field = client.hgetView("blob:h".getBytes(), "f".getBytes())) {
+            assertTrue(field.isOffHeap());
+            assertArrayEquals(value, field.toArray());
+        }
+        try (ValueView small = client.getView("blob:small".getBytes())) {
+            assertFalse(small.isOffHeap());
+        }
+        assertNull(client.getView("blob:missing".getBytes()));
+
+        // 堆外空间不足时淘汰，未关闭的视图仍指向原来的内容
+        for (int i = 1; i <= 30; i++) {
+            writer.set(("blob:" + i).getBytes(), blob(i, 10000));
+            assertArrayEquals(blob(i, 10000), client.get(("blob:" + i).getBytes()));
+        }
+        stats = client.getStats();
+        assertTrue(stats.getOffHeapEvictions() > 0);
+        assertTrue(stats.getOffHeapBytes() <= 128 * 1024);
+        assertArrayEquals(value, view.toArray());
+        view.close();
+        assertArrayEquals(value, client.get(key));
+
+        // 自己的写入使堆外value失效
+        byte[] changed = blob(1, 20000);
+        client.set(key, changed);
+        assertArrayEquals(changed, client.get(key));
+        assertArrayEquals(changed, client.get(key));
+    }
+
+    /**
+     * hash增加field后超过一段的权重上限而移出本地时，每个堆外value只释放一次，未关闭的视图仍持有引用
+     */
+    @Test
+    public void testOversizeFieldsReleaseOnce() {
+        NearCacheConfig config = new NearCacheConfig();
+        config.setInvalidation(NearCacheConfig.Invalidation.NONE);
+        config.setMaxWeight(2000);
+        config.setOffHeapThreshold(1024);
+        config.setOffHeapSlabBytes(64 * 1024);
+        config.setOffHeapMaxBytes(128 * 1024);
+        client = new NearCacheClient(new CacheClient(poolConfig(), server.getAddress()), config);
+        byte[] key = "blob:h".getBytes();
+        byte[] value = blob(0, 10000);
+        writer.hset(key, "f".getBytes(), value);
+        for (int i = 0; i < 5; i++) {
+            writer.hset(key, ("g" + i).getBytes(), blob(i, 500));
+        }
+        assertArrayEquals(value, client.hget(key, "f".getBytes()));
+        ValueView view = client.hgetView(key, "f".getBytes());
+        assertTrue(view.isOffHeap());
+        long used = client.getStats().getOffHeapBytes();
+        assertTrue(used >= 10000);
+
+        for (int i = 0; i < 5; i++) {
+            assertArrayEquals(blob(i, 500), client.hget(key, ("g" + i).getBytes()));
+        }
+        // hash已经移出本地缓存，视图的引用使堆外value保留
+        assertEquals(used, client.getStats().getOffHeapBytes());
+        writer.set("blob:other".getBytes(), blob(7, 10000));
+        assertArrayEquals(blob(7, 10000), client.get("blob:other".getBytes()));
+        assertArrayEquals(value, view.toArray());
+        view.close();
+        assertEquals(used, client.getStats().getOffHeapBytes());
+    }
+}
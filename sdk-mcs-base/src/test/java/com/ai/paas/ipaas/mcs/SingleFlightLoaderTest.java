@@ -0,0 +1,233 @@
+package com.ai.paas.ipaas.mcs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ai.paas.ipaas.mcs.exception.CacheException;
+import com.ai.paas.ipaas.mcs.impl.CacheClient;
+import com.ai.paas.ipaas.mcs.impl.SingleFlightConfig;
+import com.ai.paas.ipaas.mcs.impl.SingleFlightLoader;
+import com.ai.paas.ipaas.mcs.server.RespServer;
+
+public class SingleFlightLoaderTest {
+
+    private RespServer server;
+    private ICacheClient node1;
+    private ICacheClient node2;
+    private ExecutorService pool;
+
+    @SuppressWarnings("rawtypes")
+    private static GenericObjectPoolConfig poolConfig() {
+        return new GenericObjectPoolConfig();
+    }
+
+    @Before
+    public void setUp() {
+        server = new RespServer();
+        // 两个客户端模拟两个进程
+        node1 = new CacheClient(poolConfig(), server.getAddress());
+        node2 = new CacheClient(poolConfig(), server.getAddress());
+        pool = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+        node1.close();
+        node2.close();
+        server.close();
+    }
+
+    @Test
+    public void testConcurrentMissesLoadOnce() throws Exception {
+        SingleFlightLoader loader = new SingleFlightLoader(node1);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            results.add(pool.submit(() ->
+                {
+                    start.await();
+                    return loader.getOrLoad("hot", 60, () ->
+                        {
+                            calls.incrementAndGet();
+                            Thread.sleep(200);
+                            return "loaded";
+                        });
+                }));
+        }
+        start.countDown();
+        for (Future<String> result : results) {
+            assertEquals("loaded", result.get());
+        }
+        assertEquals(1, calls.get());
+        assertEquals("loaded", node1.get("hot"));
+        SingleFlightLoader.Stats stats = loader.getStats();
+        assertEquals(1, stats.getLoads());
+        assertEquals(32, stats.getLoads() + stats.getCoalesced() + stats.getHits());
+        assertTrue(stats.getCoalesced() > 0);
+    }
+
+    @Test
+    public void testOtherProcessWaitsForLease() throws Exception {
+        SingleFlightLoader loader1 = new SingleFlightLoader(node1);
+        SingleFlightLoader loader2 = new SingleFlightLoader(node2);
+        CountDownLatch loading = new CountDownLatch(1);
+        Future<String> first = pool.submit(() -> loader1.getOrLoad("k", 60, () ->
+            {
+                loading.countDown();
+                Thread.sleep(300);
+                return "v1";
+            }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        assertEquals("v1", loader2.getOrLoad("k", 60, () ->
+            {
+                fail("loaded twice");
+                return null;
+            }));
+        assertEquals("v1", first.get());
+        assertEquals(1, loader2.getStats().getLeaseWaits());
+    }
+
+    @Test
+    public void testServesStaleWhileAnotherProcessLoads() throws Exception {
+        SingleFlightConfig config = new SingleFlightConfig();
+        config.setStaleSeconds(60);
+        SingleFlightLoader loader1 = new SingleFlightLoader(node1, config);
+        SingleFlightLoader loader2 = new SingleFlightLoader(node2, config);
+        assertEquals("v1", loader1.getOrLoad("k", 60, () -> "v1"));
+        // 模拟过期
+        server.getKeyspace().remove("k");
+
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> refresh = pool.submit(() -> loader1.getOrLoad("k", 60, () ->
+            {
+                loading.countDown();
+                release.await();
+                return "v2";
+            }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        assertEquals("v1", loader2.getOrLoad("k", 60, () -> "unexpected"));
+        assertEquals(1, loader2.getStats().getStaleServed());
+        release.countDown();
+        assertEquals("v2", refresh.get());
+        assertEquals("v2", loader2.getOrLoad("k", 60, () -> "unexpected"));
+    }
+
+    /**
+     * value和旧值副本在一个脚本中写入，写入失败时两者都不存在
+     */
+    @Test
+    public void testStaleCopyWrittenWithValue() {
+        SingleFlightConfig config = new SingleFlightConfig();
+        config.setStaleSeconds(60);
+        SingleFlightLoader loader = new SingleFlightLoader(node1, config);
+        assertEquals("v1", loader.getOrLoad("k", 60, () -> "v1"));
+        assertEquals("v1", node1.get("{k}:stale"));
+        assertTrue(node1.ttl("k") <= 60);
+        assertTrue(node1.ttl("{k}:stale") > 60);
+
+        server.faults().fail("EVALSHA", "ERR injected", 1);
+        try {
+            loader.getOrLoad("other", 60, () -> "v2");
+            fail();
+        } catch (CacheException e) {
+            // 注入的错误
+        }
+        assertFalse(node1.exists("other"));
+        assertFalse(node1.exists("{other}:stale"));
+    }
+
+    @Test
+    public void testLoaderFailureIsSharedAndNotCached() throws Exception {
+        SingleFlightLoader loader = new SingleFlightLoader(node1);
+        try {
+            loader.getOrLoad("k", 60, () ->
+                {
+                    throw new IllegalStateException("db down");
+                });
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("db down", e.getMessage());
+        }
+        assertNull(node1.get("k"));
+        assertNull(loader.getOrLoad("k", 60, () -> null));
+        assertEquals("v", loader.getOrLoad("k", 60, () -> "v"));
+        assertEquals(3, loader.getStats().getLoads());
+    }
+
+    @Test
+    public void testLoaderErrorIsRethrown() {
+        SingleFlightLoader loader = new SingleFlightLoader(node1);
+        try {
+            loader.getOrLoad("k", 60, () ->
+                {
+                    throw new OutOfMemoryError("heap");
+                });
+            fail();
+        } catch (OutOfMemoryError e) {
+            assertEquals("heap", e.getMessage());
+        }
+        assertNull(node1.get("k"));
+    }
+
+    @Test
+    public void testEarlyRefreshInBackground() throws Exception {
+        SingleFlightConfig config = new SingleFlightConfig();
+        config.setBeta(100);
+        SingleFlightLoader loader = new SingleFlightLoader(node1, config);
+        AtomicInteger version = new AtomicInteger();
+        Callable<String> slowLoader = () ->
+            {
+                Thread.sleep(50);
+                return "v" + version.incrementAndGet();
+            };
+        assertEquals("v1", loader.getOrRefresh("k", 1, slowLoader));
+        // 加载耗时50ms，beta=100时剩余时间不到约5s就可能刷新，读取仍立即返回现有的value
+        long start = System.nanoTime();
+        assertEquals("v1", loader.getOrRefresh("k", 1, slowLoader));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 50);
+        long deadline = System.currentTimeMillis() + 5000;
+        while ("v1".equals(loader.getOrRefresh("k", 1, slowLoader))) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        assertTrue(loader.getStats().getEarlyRefreshes() > 0);
+        assertEquals(0, loader.getStats().getRefreshFailures());
+        loader.close();
+    }
+
+    @Test
+    public void testNoEarlyRefreshFarFromExpiry() {
+        SingleFlightLoader loader = new SingleFlightLoader(node1);
+        assertEquals("v", loader.getOrRefresh("k", 3600, () -> "v"));
+        // 实际过期时间与hash一起写入
+        assertTrue(node1.ttl("k") > 3500);
+        for (int i = 0; i < 100; i++) {
+            assertEquals("v", loader.getOrRefresh("k", 3600, () -> "other"));
+        }
+        assertEquals(1, loader.getStats().getLoads());
+        assertEquals(0, loader.getStats().getEarlyRefreshes());
+        assertEquals(100, loader.getStats().getHits());
+        loader.close();
+    }
+}
@@ -0,0 +1,1213 @@
+package com.ai.paas.ipaas.mcs.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * 命令表。每条命令记录参数个数以及key的位置，集群模式按key检查slot
+ */
+final class Commands {
+
+    interface Handler {
+        Object handle(Session session, List<String> args);
+    }
+
+    static final class Command {
+        final Handler handler;
+        /**
+         * 参数个数（含命令名），负数表示至少多少个
+         */
+        final int arity;
+        /**
+         * 第一个、最后一个key的下标及间隔，与redis的命令表一致；firstKey为0表示没有key，为-1表示EVAL式的numkeys
+         */
+        final int firstKey;
+        final int lastKey;
+        final int step;
+        /**
+         * 订阅状态下允许执行
+         */
+        boolean pubSub;
+        /**
+         * 事务中不排队，直接执行
+         */
+        boolean transactional;
+        /**
+         * 只读命令，执行后不发送keyspace通知和失效消息
+         */
+        boolean readOnly;
+
+        Command(Handler handler, int arity, int firstKey, int lastKey, int step) {
+            this.handler = handler;
+            this.arity = arity;
+            this.firstKey = firstKey;
+            this.lastKey = lastKey;
+            this.step = step;
+        }
+
+        boolean accepts(int argc) {
+            return arity >= 0 ? argc == arity : argc >= -arity;
+        }
+
+        List<String> keys(List<String> args) {
+            if (firstKey == 0)
+                return Collections.emptyList();
+            if (firstKey < 0) {
+                int numKeys = (int) parseLong(args.get(2));
+                if (numKeys < 0 || numKeys > args.size() - 3)
+                    throw new RespException("ERR Number of keys can't be greater than number of args");
+                return args.subList(3, 3 + numKeys);
+            }
+            int last = lastKey < 0 ? args.size() + lastKey : lastKey;
+            List<String> keys = new ArrayList<>();
+            for (int i = firstKey; i <= last && i < args.size(); i += step) {
+                keys.add(args.get(i));
+            }
+            return keys;
+        }
+    }
+
+    private static final Map<String, Command> COMMANDS = new HashMap<>();
+
+    private static final String[] READ_ONLY = { "EXISTS", "TYPE", "PTTL", "TTL", "MEMORY", "GET", "MGET", "STRLEN",
+            "GETRANGE", "GETBIT", "BITCOUNT", "HGET", "HMGET", "HGETALL", "HKEYS", "HVALS", "HLEN", "HEXISTS", "HSCAN",
+            "SMEMBERS", "SCARD", "SISMEMBER", "SSCAN", "ZSCORE", "ZCARD", "ZCOUNT", "ZRANGE", "ZREVRANGE",
+            "ZRANGEBYSCORE", "ZREVRANGEBYSCORE", "ZSCAN", "LLEN", "LINDEX", "LRANGE", "WATCH" };
+
+    private Commands() {
+    }
+
+    static Command get(String name) {
+        return COMMANDS.get(name);
+    }
+
+    private static Command register(String name, int arity, int firstKey, int lastKey, int step, Handler handler) {
+        Command command = new Command(handler, arity, firstKey, lastKey, step);
+        COMMANDS.put(name, command);
+        return command;
+    }
+
+    private static Command keyless(String name, int arity, Handler handler) {
+        return register(name, arity, 0, 0, 0, handler);
+    }
+
+    private static Command single(String name, int arity, Handler handler) {
+        return register(name, arity, 1, 1, 1, handler);
+    }
+
+    private static Command multi(String name, int arity, Handler handler) {
+        return register(name, arity, 1, -1, 1, handler);
+    }
+
+    static {
+        registerConnection();
+        registerKeys();
+        registerStrings();
+        registerBits();
+        registerHashes();
+        registerSets();
+        registerSortedSets();
+        registerLists();
+        registerScripts();
+        registerTopology();
+        for (String name : READ_ONLY) {
+            COMMANDS.get(name).readOnly = true;
+        }
+    }
+
+    private static void registerConnection() {
+        keyless("PING", -1, (s, a) ->
+            {
+                if (s.subscribed())
+                    return Arrays.asList("pong", a.size() > 1 ? a.get(1) : "");
+                return a.size() > 1 ? a.get(1) : Reply.PONG;
+            }).pubSub = true;
+        keyless("ECHO", 2, (s, a) -> a.get(1));
+        keyless("QUIT", 1, (s, a) ->
+            {
+                s.quit = true;
+                return Reply.OK;
+            }).pubSub = true;
+        keyless("AUTH", -2, (s, a) ->
+            {
+                if (null == s.server.password())
+                    throw new RespException("ERR Client sent AUTH, but no password is set");
+                if (!s.server.password().equals(a.get(a.size() - 1)))
+                    throw new RespException("ERR invalid password");
+                s.authenticated = true;
+                return Reply.OK;
+            });
+        keyless("SELECT", 2, (s, a) -> Reply.OK);
+        keyless("ASKING", 1, (s, a) ->
+            {
+                s.asking = true;
+                return Reply.OK;
+            });
+        keyless("READONLY", 1, (s, a) -> Reply.OK);
+        keyless("READWRITE", 1, (s, a) -> Reply.OK);
+        keyless("CLIENT", -2, (s, a) ->
+            {
+                switch (a.get(1).toUpperCase(Locale.ROOT)) {
+                case "LIST":
+                    StringBuilder list = new StringBuilder();
+                    for (int i = 0; i < s.server.sessionCount(); i++) {
+                        list.append("id=").append(i + 1).append(" addr=").append(RespServer.HOST).append(" cmd=client\n");
+                    }
+                    return list.toString();
+                case "GETNAME":
+                    return null;
+                case "ID":
+                    return s.id;
+                case "TRACKING":
+                    return tracking(s, a);
+                default:
+                    return Reply.OK;
+                }
+            });
+        keyless("INFO", -1, (s, a) -> "# Server\r\nredis_version:5.0.0\r\nredis_mode:"
+                + (null == s.server.cluster ? "standalone" : "cluster") + "\r\n# Keyspace\r\ndb0:keys="
+                + s.keyspace().size() + "\r\n");
+        keyless("TIME", 1, (s, a) ->
+            {
+                long micros = System.currentTimeMillis() * 1000;
+                return Arrays.asList(String.valueOf(micros / 1000000), String.valueOf(micros % 1000000));
+            });
+        keyless("WAIT", 3, (s, a) -> (long) s.server.replicaAcks());
+        keyless("COMMAND", -1, (s, a) -> Collections.emptyList());
+        keyless("CONFIG", -2, (s, a) ->
+            {
+                boolean events = a.size() > 2 && "notify-keyspace-events".equalsIgnoreCase(a.get(2));
+                if ("GET".equalsIgnoreCase(a.get(1)))
+                    return events ? Arrays.asList(a.get(2), s.server.notifyKeyspaceEvents)
+                            : Collections.emptyList();
+                if ("SET".equalsIgnoreCase(a.get(1)) && events && a.size() > 3)
+                    s.server.notifyKeyspaceEvents = a.get(3);
+                return Reply.OK;
+            });
+        keyless("DBSIZE", 1, (s, a) -> (long) s.keyspace().size());
+        keyless("FLUSHDB", -1, (s, a) ->
+            {
+                s.keyspace().clear();
+                return Reply.OK;
+            });
+        keyless("FLUSHALL", -1, (s, a) ->
+            {
+                s.keyspace().clear();
+                return Reply.OK;
+            });
+
+        keyless("MULTI", 1, (s, a) ->
+            {
+                if (null != s.transaction)
+                    throw new RespException("ERR MULTI calls can not be nested");
+                s.transaction = new ArrayList<>();
+                return Reply.OK;
+            }).transactional = true;
+        keyless("EXEC", 1, (s, a) ->
+            {
+                if (null == s.transaction)
+                    throw new RespException("ERR EXEC without MULTI");
+                List<List<String>> queued = s.transaction;
+                s.transaction = null;
+                List<Object> replies = new ArrayList<>();
+                for (List<String> command : queued) {
+                    replies.add(s.server.dispatch(s, command));
+                }
+                return replies;
+            }).transactional = true;
+        keyless("DISCARD", 1, (s, a) ->
+            {
+                if (null == s.transaction)
+                    throw new RespException("ERR DISCARD without MULTI");
+                s.transaction = null;
+                return Reply.OK;
+            }).transactional = true;
+        multi("WATCH", -2, (s, a) -> Reply.OK).transactional = true;
+        keyless("UNWATCH", 1, (s, a) -> Reply.OK).transactional = true;
+
+        keyless("SUBSCRIBE", -2, (s, a) ->
+            {
+                for (String channel : a.subList(1, a.size())) {
+                    s.send(Arrays.asList("subscribe", channel, (long) s.server.subscribe(s, channel)));
+                }
+                return Reply.NONE;
+            }).pubSub = true;
+        keyless("UNSUBSCRIBE", -1, (s, a) ->
+            {
+                List<String> channels = a.size() > 1 ? a.subList(1, a.size()) : new ArrayList<>(s.subscriptions);
+                if (channels.isEmpty())
+                    s.send(Arrays.asList("unsubscribe", null, 0L));
+                for (String channel : channels) {
+                    s.send(Arrays.asList("unsubscribe", channel, (long) s.server.unsubscribe(s, channel)));
+                }
+                return Reply.NONE;
+            }).pubSub = true;
+        keyless("PSUBSCRIBE", -2, (s, a) ->
+            {
+                for (String pattern : a.subList(1, a.size())) {
+                    s.send(Arrays.asList("psubscribe", pattern, (long) s.server.psubscribe(s, pattern)));
+                }
+                return Reply.NONE;
+            }).pubSub = true;
+        keyless("PUNSUBSCRIBE", -1, (s, a) ->
+            {
+                List<String> patterns = a.size() > 1 ? a.subList(1, a.size()) : new ArrayList<>(s.patterns);
+                if (patterns.isEmpty())
+                    s.send(Arrays.asList("punsubscribe", null, 0L));
+                for (String pattern : patterns) {
+                    s.send(Arrays.asList("punsubscribe", pattern, (long) s.server.punsubscribe(s, pattern)));
+                }
+                return Reply.NONE;
+            }).pubSub = true;
+        keyless("PUBLISH", 3, (s, a) -> (long) s.server.publishNow(a.get(1), a.get(2)));
+    }
+
+    private static void registerKeys() {
+        multi("DEL", -2, (s, a) -> count(a.subList(1, a.size()), key -> s.keyspace().remove(key)));
+        multi("UNLINK", -2, (s, a) -> count(a.subList(1, a.size()), key -> s.keyspace().remove(key)));
+        multi("EXISTS", -2, (s, a) -> count(a.subList(1, a.size()), key -> null != s.keyspace().get(key)));
+        single("TYPE", 2, (s, a) -> Reply.status(typeOf(s.keyspace().get(a.get(1)))));
+        single("EXPIRE", 3, (s, a) -> s.keyspace().expireAt(a.get(1),
+                System.currentTimeMillis() + parseLong(a.get(2)) * 1000));
+        single("PEXPIRE", 3, (s, a) -> s.keyspace().expireAt(a.get(1), System.currentTimeMillis() + parseLong(a.get(2))));
+        single("EXPIREAT", 3, (s, a) -> s.keyspace().expireAt(a.get(1), parseLong(a.get(2)) * 1000));
+        single("PEXPIREAT", 3, (s, a) -> s.keyspace().expireAt(a.get(1), parseLong(a.get(2))));
+        single("PERSIST", 2, (s, a) -> s.keyspace().persist(a.get(1)));
+        register("RENAME", 3, 1, 2, 1, (s, a) ->
+            {
+                if (!s.keyspace().rename(a.get(1), a.get(2)))
+                    throw new RespException("ERR no such key");
+                return Reply.OK;
+            });
+        single("PTTL", 2, (s, a) -> s.keyspace().pttl(a.get(1)));
+        single("TTL", 2, (s, a) ->
+            {
+                long pttl = s.keyspace().pttl(a.get(1));
+                return pttl < 0 ? pttl : (pttl + 500) / 1000;
+            });
+        register("MEMORY", -3, 2, 2, 1, (s, a) ->
+            {
+                if (!"USAGE".equalsIgnoreCase(a.get(1)))
+                    throw new RespException("ERR unknown subcommand '" + a.get(1) + "'");
+                Object value = s.keyspace().get(a.get(2));
+                return null == value ? null : memoryOf(value);
+            });
+        keyless("KEYS", 2, (s, a) ->
+            {
+                List<String> keys = new ArrayList<>();
+                for (String key : s.keyspace().keys()) {
+                    if (globMatch(a.get(1), key))
+                        keys.add(key);
+                }
+                return keys;
+            });
+        keyless("SCAN", -2, (s, a) ->
+            {
+                List<String> keys = s.keyspace().keys();
+                Collections.sort(keys);
+                List<List<String>> items = new ArrayList<>();
+                for (String key : keys) {
+                    items.add(Collections.singletonList(key));
+                }
+                return scan(items, a, 2);
+            });
+        keyless("SLOTSSCAN", -3, (s, a) ->
+            {
+                long slot = parseLong(a.get(1));
+                List<String> keys = s.keyspace().keys();
+                Collections.sort(keys);
+                List<List<String>> items = new ArrayList<>();
+                for (String key : keys) {
+                    if (codisSlotOf(key) == slot)
+                        items.add(Collections.singletonList(key));
+                }
+                return scan(items, a, 3);
+            });
+    }
+
+    /**
+     * codis的slot：key（有hash tag时取tag）的crc32对1024取模
+     */
+    static int codisSlotOf(String key) {
+        int open = key.indexOf('{');
+        if (open >= 0) {
+            int close = key.indexOf('}', open + 1);
+            if (close > open + 1)
+                key = key.substring(open + 1, close);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(key.getBytes(RespServer.CHARSET));
+        return (int) (crc.getValue() % 1024);
+    }
+
+    private static void registerStrings() {
+        single("GET", 2, (s, a) -> s.keyspace().get(a.get(1), String.class));
+        single("SET", -3, (s, a) ->
+            {
+                boolean nx = false;
+                boolean xx = false;
+                long ttl = -1;
+                for (int i = 3; i < a.size(); i++) {
+                    String option = a.get(i).toUpperCase(Locale.ROOT);
+                    if ("NX".equals(option)) {
+                        nx = true;
+                    } else if ("XX".equals(option)) {
+                        xx = true;
+                    } else if (("EX".equals(option) || "PX".equals(option)) && i + 1 < a.size()) {
+                        ttl = parseLong(a.get(++i)) * ("EX".equals(option) ? 1000 : 1);
+                        if (ttl <= 0)
+                            throw new RespException("ERR invalid expire time in set");
+                    } else {
+                        throw new RespException("ERR syntax error");
+                    }
+                }
+                boolean exists = null != s.keyspace().get(a.get(1));
+                if ((nx && exists) || (xx && !exists))
+                    return null;
+                s.keyspace().put(a.get(1), a.get(2));
+                if (ttl > 0)
+                    s.keyspace().expireAt(a.get(1), System.currentTimeMillis() + ttl);
+                return Reply.OK;
+            });
+        single("SETEX", 4, (s, a) -> setWithTtl(s, a.get(1), a.get(3), parseLong(a.get(2)) * 1000));
+        single("PSETEX", 4, (s, a) -> setWithTtl(s, a.get(1), a.get(3), parseLong(a.get(2))));
+        single("SETNX", 3, (s, a) ->
+            {
+                if (null != s.keyspace().get(a.get(1)))
+                    return 0L;
+                s.keyspace().put(a.get(1), a.get(2));
+                return 1L;
+            });
+        single("GETSET", 3, (s, a) ->
+            {
+                String old = s.keyspace().get(a.get(1), String.class);
+                s.keyspace().put(a.get(1), a.get(2));
+                return old;
+            });
+        multi("MGET", -2, (s, a) ->
+            {
+                List<Object> values = new ArrayList<>();
+                for (String key : a.subList(1, a.size())) {
+                    Object value = s.keyspace().get(key);
+                    values.add(value instanceof Keyspace.Bitmap ? s.keyspace().get(key, String.class)
+                            : value instanceof String ? value : null);
+                }
+                return values;
+            });
+        register("MSET", -3, 1, -1, 2, (s, a) ->
+            {
+                if (a.size() % 2 == 0)
+                    throw new RespException("ERR wrong number of arguments for MSET");
+                for (int i = 1; i < a.size(); i += 2) {
+                    s.keyspace().put(a.get(i), a.get(i + 1));
+                }
+                return Reply.OK;
+            });
+        single("INCR", 2, (s, a) -> incrBy(s, a.get(1), 1));
+        single("DECR", 2, (s, a) -> incrBy(s, a.get(1), -1));
+        single("INCRBY", 3, (s, a) -> incrBy(s, a.get(1), parseLong(a.get(2))));
+        single("DECRBY", 3, (s, a) -> incrBy(s, a.get(1), -parseLong(a.get(2))));
+        single("INCRBYFLOAT", 3, (s, a) ->
+            {
+                String old = s.keyspace().get(a.get(1), String.class);
+                double value = (null == old ? 0 : parseDouble(old)) + parseDouble(a.get(2));
+                String text = Reply.formatDouble(value);
+                keepTtl(s, a.get(1), text);
+                return text;
+            });
+        single("APPEND", 3, (s, a) ->
+            {
+                String old = s.keyspace().get(a.get(1), String.class);
+                String value = (null == old ? "" : old) + a.get(2);
+                keepTtl(s, a.get(1), value);
+                return (long) value.length();
+            });
+        single("GETRANGE", 4, (s, a) ->
+            {
+                String value = s.keyspace().get(a.get(1), String.class);
+                if (null == value)
+                    return "";
+                long start = parseLong(a.get(2));
+                long end = parseLong(a.get(3));
+                if (start < 0)
+                    start = Math.max(0, value.length() + start);
+                if (end < 0)
+                    end = value.length() + end;
+                end = Math.min(end, value.length() - 1);
+                return start > end ? "" : value.substring((int) start, (int) end + 1);
+            });
+        single("STRLEN", 2, (s, a) ->
+            {
+                String value = s.keyspace().get(a.get(1), String.class);
+                return null == value ? 0L : (long) value.length();
+            });
+    }
+
+    private static void registerBits() {
+        single("SETBIT", 4, (s, a) ->
+            {
+                long offset = parseLong(a.get(2));
+                if (offset < 0 || offset >= 1L << 32 || !("0".equals(a.get(3)) || "1".equals(a.get(3))))
+                    throw new RespException("ERR bit offset is not an integer or out of range");
+                return s.keyspace().bitmap(a.get(1), true).set(offset, "1".equals(a.get(3))) ? 1L : 0L;
+            });
+        single("GETBIT", 3, (s, a) ->
+            {
+                Keyspace.Bitmap bitmap = s.keyspace().bitmap(a.get(1), false);
+                return null != bitmap && bitmap.ones.contains(parseLong(a.get(2))) ? 1L : 0L;
+            });
+        single("BITCOUNT", -2, (s, a) ->
+            {
+                Keyspace.Bitmap bitmap = s.keyspace().bitmap(a.get(1), false);
+                if (null == bitmap)
+                    return 0L;
+                if (a.size() == 2)
+                    return (long) bitmap.ones.size();
+                if (a.size() != 4)
+                    throw new RespException("ERR syntax error");
+                long start = parseLong(a.get(2));
+                long end = parseLong(a.get(3));
+                if (start < 0)
+                    start = Math.max(bitmap.length + start, 0);
+                if (end < 0)
+                    end = bitmap.length + end;
+                end = Math.min(end, bitmap.length - 1);
+                if (start > end)
+                    return 0L;
+                return (long) bitmap.ones.subSet(start * 8, end * 8 + 8).size();
+            });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, String> hash(Session s, String key, boolean create) {
+        return create ? s.keyspace().getOrCreate(key, Map.class, LinkedHashMap::new) : s.keyspace().get(key, Map.class);
+    }
+
+    private static void registerHashes() {
+        single("HSET", -4, (s, a) ->
+            {
+                if (a.size() % 2 != 0)
+                    throw new RespException("ERR wrong number of arguments for 'hset' command");
+                Map<String, String> hash = hash(s, a.get(1), true);
+                long added = 0;
+                for (int i = 2; i < a.size(); i += 2) {
+                    if (null == hash.put(a.get(i), a.get(i + 1)))
+                        added++;
+                }
+                return added;
+            });
+        single("HMSET", -4, (s, a) ->
+            {
+                if (a.size() % 2 != 0)
+                    throw new RespException("ERR wrong number of arguments for 'hmset' command");
+                Map<String, String> hash = hash(s, a.get(1), true);
+                for (int i = 2; i < a.size(); i += 2) {
+                    hash.put(a.get(i), a.get(i + 1));
+                }
+                return Reply.OK;
+            });
+        single("HSETNX", 4, (s, a) -> null == hash(s, a.get(1), true).putIfAbsent(a.get(2), a.get(3)));
+        single("HGET", 3, (s, a) ->
+            {
+                Map<String, String> hash = hash(s, a.get(1), false);
+                return null == hash ? null : hash.get(a.get(2));
+            });
+        single("HMGET", -3, (s, a) ->
+            {
+                Map<String, String> hash = hash(s, a.get(1), false);
+                List<String> values = new ArrayList<>();
+                for (String field : a.subList(2, a.size())) {
+                    values.add(null == hash ? null : hash.get(field));
+                }
+                return values;
+            });
+        single("HGETALL", 2, (s, a) ->
+            {
+                Map<String, String> hash = hash(s, a.get(1), false);
+                List<String> values = new ArrayList<>();
+                if (null != hash) {
+                    for (Map.Entry<String, String> entry : hash.entrySet()) {
+                        values.add(entry.getKey());
+                        values.add(entry.getValue());
+                    }
+                }
+                return values;
+            });
+        single("HKEYS", 2, (s, a) ->
+            {
+                Map<String, String> hash = hash(s, a.get(1), false);
+                return null == hash ? Collections.emptyList() : new ArrayList<>(hash.keySet());
+            });
+        single("HVALS", 2, (s, a) ->
+            {
+                Map<String, String> hash = hash(s, a.get(1), false);
+                return null == hash ? Collections.emptyList() : new ArrayList<>(hash.values());
+            });
+        single("HDEL", -3, (s, a) ->
+            {
+                Map<String, String> hash = hash(s, a.get(1), false);
+                if (null == hash)
+                    return 0L;
+                long removed = count(a.subList(2, a.size()), field -> null != hash.remove(field));
+                s.keyspace().removeIfEmpty(a.get(1));
+                return removed;
+            });
+        single("HLEN", 2, (s, a) ->
+            {
+                Map<String, String> hash = hash(s, a.get(1), false);
+                return null == hash ? 0L : (long) hash.size();
+            });
+        single("HEXISTS", 3, (s, a) ->
+            {
+                Map<String, String> hash = hash(s, a.get(1), false);
+                return null != hash && hash.containsKey(a.get(2));
+            });
+        single("HINCRBY", 4, (s, a) ->
+            {
+                Map<String, String> hash = hash(s, a.get(1), true);
+                String old = hash.get(a.get(2));
+                long value = (null == old ? 0 : parseLong(old)) + parseLong(a.get(3));
+                hash.put(a.get(2), String.valueOf(value));
+                return value;
+            });
+        single("HINCRBYFLOAT", 4, (s, a) ->
+            {
+                Map<String, String> hash = hash(s, a.get(1), true);
+                String old = hash.get(a.get(2));
+                String value = Reply.formatDouble((null == old ? 0 : parseDouble(old)) + parseDouble(a.get(3)));
+                hash.put(a.get(2), value);
+                return value;
+            });
+        single("HSCAN", -3, (s, a) ->
+            {
+                Map<String, String> hash = hash(s, a.get(1), false);
+                List<List<String>> items = new ArrayList<>();
+                if (null != hash) {
+                    for (Map.Entry<String, String> entry : hash.entrySet()) {
+                        items.add(Arrays.asList(entry.getKey(), entry.getValue()));
+                    }
+                }
+                return scan(items, a, 3);
+            });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<String> set(Session s, String key, boolean create) {
+        return create ? s.keyspace().getOrCreate(key, Set.class, LinkedHashSet::new) : s.keyspace().get(key, Set.class);
+    }
+
+    /**
+     * 多个集合做并、差、交运算，不存在的key视为空集合
+     */
+    private static Set<String> combine(Session s, List<String> keys, String op) {
+        Set<String> result = null;
+        for (String key : keys) {
+            Set<String> set = set(s, key, false);
+            Set<String> members = null == set ? Collections.emptySet() : set;
+            if (null == result)
+                result = new LinkedHashSet<>(members);
+            else if ("UNION".equals(op))
+                result.addAll(members);
+            else if ("DIFF".equals(op))
+                result.removeAll(members);
+            else
+                result.retainAll(members);
+        }
+        return result;
+    }
+
+    private static void registerSets() {
+        single("SADD", -3, (s, a) ->
+            {
+                Set<String> set = set(s, a.get(1), true);
+                return count(a.subList(2, a.size()), set::add);
+            });
+        single("SREM", -3, (s, a) ->
+            {
+                Set<String> set = set(s, a.get(1), false);
+                if (null == set)
+                    return 0L;
+                long removed = count(a.subList(2, a.size()), set::remove);
+                s.keyspace().removeIfEmpty(a.get(1));
+                return removed;
+            });
+        single("SMEMBERS", 2, (s, a) ->
+            {
+                Set<String> set = set(s, a.get(1), false);
+                return null == set ? Collections.emptyList() : new ArrayList<>(set);
+            });
+        single("SCARD", 2, (s, a) ->
+            {
+                Set<String> set = set(s, a.get(1), false);
+                return null == set ? 0L : (long) set.size();
+            });
+        single("SISMEMBER", 3, (s, a) ->
+            {
+                Set<String> set = set(s, a.get(1), false);
+                return null != set && set.contains(a.get(2));
+            });
+        for (String op : new String[] { "UNION", "DIFF", "INTER" }) {
+            multi("S" + op, -2, (s, a) -> new ArrayList<>(combine(s, a.subList(1, a.size()), op)));
+            multi("S" + op + "STORE", -3, (s, a) ->
+                {
+                    Set<String> result = combine(s, a.subList(2, a.size()), op);
+                    s.keyspace().remove(a.get(1));
+                    if (!result.isEmpty())
+                        s.keyspace().put(a.get(1), result);
+                    return (long) result.size();
+                });
+        }
+        single("SSCAN", -3, (s, a) ->
+            {
+                Set<String> set = set(s, a.get(1), false);
+                List<List<String>> items = new ArrayList<>();
+                if (null != set) {
+                    for (String member : set) {
+                        items.add(Collections.singletonList(member));
+                    }
+                }
+                return scan(items, a, 3);
+            });
+    }
+
+    private static Keyspace.ZSet zset(Session s, String key, boolean create) {
+        return create ? s.keyspace().getOrCreate(key, Keyspace.ZSet.class, Keyspace.ZSet::new)
+                : s.keyspace().get(key, Keyspace.ZSet.class);
+    }
+
+    /**
+     * 分数区间的边界，支持"("开区间以及-inf、+inf
+     */
+    private static boolean inRange(double score, String min, String max) {
+        boolean minOpen = min.startsWith("(");
+        boolean maxOpen = max.startsWith("(");
+        double low = parseDouble(minOpen ? min.substring(1) : min);
+        double high = parseDouble(maxOpen ? max.substring(1) : max);
+        return (minOpen ? score > low : score >= low) && (maxOpen ? score < high : score <= high);
+    }
+
+    private static List<Object> withScores(List<Map.Entry<String, Double>> entries, boolean withScores) {
+        List<Object> values = new ArrayList<>();
+        for (Map.Entry<String, Double> entry : entries) {
+            values.add(entry.getKey());
+            if (withScores)
+                values.add(entry.getValue());
+        }
+        return values;
+    }
+
+    private static List<Map.Entry<String, Double>> byRank(Session s, List<String> a, boolean reverse) {
+        Keyspace.ZSet zset = zset(s, a.get(1), false);
+        if (null == zset)
+            return Collections.emptyList();
+        List<Map.Entry<String, Double>> sorted = zset.sorted();
+        if (reverse)
+            Collections.reverse(sorted);
+        int size = sorted.size();
+        long start = parseLong(a.get(2));
+        long stop = parseLong(a.get(3));
+        start = start < 0 ? Math.max(size + start, 0) : start;
+        stop = stop < 0 ? size + stop : Math.min(stop, size - 1);
+        return start > stop ? Collections.emptyList() : sorted.subList((int) start, (int) stop + 1);
+    }
+
+    private static List<Object> byScore(Session s, List<String> a, boolean reverse) {
+        Keyspace.ZSet zset = zset(s, a.get(1), false);
+        if (null == zset)
+            return Collections.emptyList();
+        String min = reverse ? a.get(3) : a.get(2);
+        String max = reverse ? a.get(2) : a.get(3);
+        boolean withScores = false;
+        long offset = 0;
+        long limit = -1;
+        for (int i = 4; i < a.size(); i++) {
+            if ("WITHSCORES".equalsIgnoreCase(a.get(i))) {
+                withScores = true;
+            } else if ("LIMIT".equalsIgnoreCase(a.get(i)) && i + 2 < a.size()) {
+                offset = parseLong(a.get(++i));
+                limit = parseLong(a.get(++i));
+            } else {
+                throw new RespException("ERR syntax error");
+            }
+        }
+        List<Map.Entry<String, Double>> sorted = zset.sorted();
+        if (reverse)
+            Collections.reverse(sorted);
+        List<Map.Entry<String, Double>> matched = new ArrayList<>();
+        for (Map.Entry<String, Double> entry : sorted) {
+            if (inRange(entry.getValue(), min, max))
+                matched.add(entry);
+        }
+        int from = (int) Math.min(offset, matched.size());
+        int to = limit < 0 ? matched.size() : (int) Math.min(from + limit, matched.size());
+        return withScores(matched.subList(from, to), withScores);
+    }
+
+    private static void registerSortedSets() {
+        single("ZADD", -4, (s, a) ->
+            {
+                int i = 2;
+                boolean nx = false;
+                boolean xx = false;
+                boolean ch = false;
+                boolean incr = false;
+                for (; i < a.size(); i++) {
+                    String option = a.get(i).toUpperCase(Locale.ROOT);
+                    if ("NX".equals(option))
+                        nx = true;
+                    else if ("XX".equals(option))
+                        xx = true;
+                    else if ("CH".equals(option))
+                        ch = true;
+                    else if ("INCR".equals(option))
+                        incr = true;
+                    else
+                        break;
+                }
+                if ((a.size() - i) % 2 != 0 || i == a.size())
+                    throw new RespException("ERR syntax error");
+                Keyspace.ZSet zset = zset(s, a.get(1), true);
+                long changed = 0;
+                Double last = null;
+                for (; i < a.size(); i += 2) {
+                    double score = parseDouble(a.get(i));
+                    String member = a.get(i + 1);
+                    Double old = zset.scores.get(member);
+                    if ((nx && null != old) || (xx && null == old))
+                        continue;
+                    double value = incr && null != old ? old + score : score;
+                    zset.scores.put(member, value);
+                    last = value;
+                    if (null == old || (ch && old != value))
+                        changed++;
+                }
+                s.keyspace().removeIfEmpty(a.get(1));
+                return incr ? (Object) last : (Object) changed;
+            });
+        single("ZINCRBY", 4, (s, a) ->
+            {
+                Keyspace.ZSet zset = zset(s, a.get(1), true);
+                return zset.scores.merge(a.get(3), parseDouble(a.get(2)), Double::sum);
+            });
+        single("ZSCORE", 3, (s, a) ->
+            {
+                Keyspace.ZSet zset = zset(s, a.get(1), false);
+                return null == zset ? null : zset.scores.get(a.get(2));
+            });
+        single("ZCARD", 2, (s, a) ->
+            {
+                Keyspace.ZSet zset = zset(s, a.get(1), false);
+                return null == zset ? 0L : (long) zset.scores.size();
+            });
+        single("ZREM", -3, (s, a) ->
+            {
+                Keyspace.ZSet zset = zset(s, a.get(1), false);
+                if (null == zset)
+                    return 0L;
+                long removed = count(a.subList(2, a.size()), member -> null != zset.scores.remove(member));
+                s.keyspace().removeIfEmpty(a.get(1));
+                return removed;
+            });
+        single("ZREMRANGEBYSCORE", 4, (s, a) ->
+            {
+                Keyspace.ZSet zset = zset(s, a.get(1), false);
+                if (null == zset)
+                    return 0L;
+                long removed = count(new ArrayList<>(zset.scores.keySet()),
+                        member -> inRange(zset.scores.get(member), a.get(2), a.get(3))
+                                && null != zset.scores.remove(member));
+                s.keyspace().removeIfEmpty(a.get(1));
+                return removed;
+            });
+        single("ZCOUNT", 4, (s, a) ->
+            {
+                Keyspace.ZSet zset = zset(s, a.get(1), false);
+                if (null == zset)
+                    return 0L;
+                return zset.scores.values().stream().filter(score -> inRange(score, a.get(2), a.get(3))).count();
+            });
+        single("ZRANGE", -4, (s, a) -> withScores(byRank(s, a, false), a.size() > 4));
+        single("ZREVRANGE", -4, (s, a) -> withScores(byRank(s, a, true), a.size() > 4));
+        single("ZRANGEBYSCORE", -4, (s, a) -> byScore(s, a, false));
+        single("ZREVRANGEBYSCORE", -4, (s, a) -> byScore(s, a, true));
+        single("ZSCAN", -3, (s, a) ->
+            {
+                Keyspace.ZSet zset = zset(s, a.get(1), false);
+                List<List<String>> items = new ArrayList<>();
+                if (null != zset) {
+                    for (Map.Entry<String, Double> entry : zset.sorted()) {
+                        items.add(Arrays.asList(entry.getKey(), Reply.formatDouble(entry.getValue())));
+                    }
+                }
+                return scan(items, a, 3);
+            });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> list(Session s, String key, boolean create) {
+        return create ? s.keyspace().getOrCreate(key, List.class, LinkedList::new) : s.keyspace().get(key, List.class);
+    }
+
+    private static Object pop(Session s, String key, boolean head) {
+        List<String> list = list(s, key, false);
+        if (null == list)
+            return null;
+        String value = head ? list.remove(0) : list.remove(list.size() - 1);
+        s.keyspace().removeIfEmpty(key);
+        return value;
+    }
+
+    private static void registerLists() {
+        single("LPUSH", -3, (s, a) ->
+            {
+                List<String> list = list(s, a.get(1), true);
+                for (String value : a.subList(2, a.size())) {
+                    list.add(0, value);
+                }
+                return (long) list.size();
+            });
+        single("RPUSH", -3, (s, a) ->
+            {
+                List<String> list = list(s, a.get(1), true);
+                list.addAll(a.subList(2, a.size()));
+                return (long) list.size();
+            });
+        single("LPOP", 2, (s, a) -> pop(s, a.get(1), true));
+        single("RPOP", 2, (s, a) -> pop(s, a.get(1), false));
+        single("LLEN", 2, (s, a) ->
+            {
+                List<String> list = list(s, a.get(1), false);
+                return null == list ? 0L : (long) list.size();
+            });
+        single("LINDEX", 3, (s, a) ->
+            {
+                List<String> list = list(s, a.get(1), false);
+                if (null == list)
+                    return null;
+                long index = parseLong(a.get(2));
+                index = index < 0 ? list.size() + index : index;
+                return index < 0 || index >= list.size() ? null : list.get((int) index);
+            });
+        single("LRANGE", 4, (s, a) ->
+            {
+                List<String> list = list(s, a.get(1), false);
+                if (null == list)
+                    return Collections.emptyList();
+                int size = list.size();
+                long start = parseLong(a.get(2));
+                long stop = parseLong(a.get(3));
+                start = start < 0 ? Math.max(size + start, 0) : start;
+                stop = stop < 0 ? size + stop : Math.min(stop, size - 1);
+                return start > stop ? Collections.emptyList() : new ArrayList<>(list.subList((int) start, (int) stop + 1));
+            });
+        single("LREM", 4, (s, a) ->
+            {
+                List<String> list = list(s, a.get(1), false);
+                if (null == list)
+                    return 0L;
+                long count = parseLong(a.get(2));
+                long removed = 0;
+                if (count < 0)
+                    Collections.reverse(list);
+                Iterator<String> it = list.iterator();
+                while (it.hasNext() && (count == 0 || removed < Math.abs(count))) {
+                    if (it.next().equals(a.get(3))) {
+                        it.remove();
+                        removed++;
+                    }
+                }
+                if (count < 0)
+                    Collections.reverse(list);
+                s.keyspace().removeIfEmpty(a.get(1));
+                return removed;
+            });
+    }
+
+    private static void registerScripts() {
+        register("EVAL", -3, -1, 0, 0, (s, a) -> s.server.scripts().eval(s, a.get(1), keysOf(a), argsOf(a)));
+        register("EVALSHA", -3, -1, 0, 0,
+                (s, a) -> s.server.scripts().evalsha(s, a.get(1), keysOf(a), argsOf(a)));
+        keyless("SCRIPT", -2, (s, a) ->
+            {
+                switch (a.get(1).toUpperCase(Locale.ROOT)) {
+                case "LOAD":
+                    return s.server.scripts().load(a.get(2));
+                case "EXISTS":
+                    List<Long> exists = new ArrayList<>();
+                    for (String sha1 : a.subList(2, a.size())) {
+                        exists.add(s.server.scripts().exists(sha1) ? 1L : 0L);
+                    }
+                    return exists;
+                case "FLUSH":
+                    s.server.scripts().flush();
+                    return Reply.OK;
+                default:
+                    throw new RespException("ERR Unknown SCRIPT subcommand '" + a.get(1) + "'");
+                }
+            });
+    }
+
+    private static void registerTopology() {
+        keyless("SENTINEL", -2, (s, a) ->
+            {
+                if (!"GET-MASTER-ADDR-BY-NAME".equalsIgnoreCase(a.get(1)) || a.size() < 3)
+                    throw new RespException("ERR Unknown sentinel subcommand '" + a.get(1) + "'");
+                RespServer master = s.server.monitoredMaster(a.get(2));
+                if (null == master)
+                    return Reply.NULL_ARRAY;
+                return Arrays.asList(RespServer.HOST, String.valueOf(master.getPort()));
+            });
+        keyless("CLUSTER", -2, (s, a) ->
+            {
+                RespCluster cluster = s.server.cluster;
+                if (null == cluster)
+                    throw new RespException("ERR This instance has cluster support disabled");
+                switch (a.get(1).toUpperCase(Locale.ROOT)) {
+                case "SLOTS":
+                    return cluster.slots();
+                case "NODES":
+                    return cluster.nodes(s.server);
+                case "MYID":
+                    return s.server.getNodeId();
+                case "KEYSLOT":
+                    return (long) RespCluster.slotOf(a.get(2));
+                case "INFO":
+                    return "cluster_state:ok\r\ncluster_slots_assigned:" + RespCluster.SLOTS + "\r\ncluster_known_nodes:"
+                            + cluster.getNodes().size() + "\r\n";
+                default:
+                    throw new RespException("ERR Unknown CLUSTER subcommand '" + a.get(1) + "'");
+                }
+            });
+    }
+
+    /**
+     * 只支持RESP2下的广播模式：CLIENT TRACKING ON|OFF REDIRECT id BCAST [PREFIX p ...]
+     */
+    private static Object tracking(Session s, List<String> a) {
+        if (a.size() < 3)
+            throw new RespException("ERR syntax error");
+        if ("OFF".equalsIgnoreCase(a.get(2))) {
+            s.trackingRedirect = 0;
+            s.trackingPrefixes = new ArrayList<>();
+            return Reply.OK;
+        }
+        long redirect = 0;
+        boolean bcast = false;
+        List<String> prefixes = new ArrayList<>();
+        for (int i = 3; i < a.size(); i++) {
+            String option = a.get(i).toUpperCase(Locale.ROOT);
+            if ("REDIRECT".equals(option) && i + 1 < a.size())
+                redirect = parseLong(a.get(++i));
+            else if ("BCAST".equals(option))
+                bcast = true;
+            else if ("PREFIX".equals(option) && i + 1 < a.size())
+                prefixes.add(a.get(++i));
+            else
+                throw new RespException("ERR syntax error");
+        }
+        if (!bcast || 0 == redirect)
+            throw new RespException("ERR only BCAST mode with REDIRECT is supported");
+        if (null == s.server.session(redirect))
+            throw new RespException("ERR The client ID you want redirect to does not exist");
+        s.trackingRedirect = redirect;
+        s.trackingPrefixes = prefixes;
+        return Reply.OK;
+    }
+
+    private static List<String> keysOf(List<String> a) {
+        int numKeys = (int) parseLong(a.get(2));
+        if (numKeys < 0 || numKeys > a.size() - 3)
+            throw new RespException("ERR Number of keys can't be greater than number of args");
+        return a.subList(3, 3 + numKeys);
+    }
+
+    private static List<String> argsOf(List<String> a) {
+        return a.subList(3 + (int) parseLong(a.get(2)), a.size());
+    }
+
+    /**
+     * SCAN系列命令：游标为元素的下标，每个元素输出一项或两项（field和value），MATCH只匹配第一项
+     */
+    private static List<Object> scan(List<List<String>> items, List<String> a, int optionsFrom) {
+        long cursor = parseLong(a.get(optionsFrom - 1));
+        String pattern = null;
+        long count = 10;
+        for (int i = optionsFrom; i + 1 < a.size(); i += 2) {
+            String option = a.get(i).toUpperCase(Locale.ROOT);
+            if ("MATCH".equals(option))
+                pattern = a.get(i + 1);
+            else if ("COUNT".equals(option))
+                count = parseLong(a.get(i + 1));
+            else if (!"TYPE".equals(option))
+                throw new RespException("ERR syntax error");
+        }
+        if (count < 1)
+            throw new RespException("ERR syntax error");
+        List<String> page = new ArrayList<>();
+        int i = (int) Math.min(cursor, items.size());
+        int to = (int) Math.min(i + count, items.size());
+        for (; i < to; i++) {
+            List<String> item = items.get(i);
+            if (null == pattern || globMatch(pattern, item.get(0)))
+                page.addAll(item);
+        }
+        return Arrays.asList(to >= items.size() ? "0" : String.valueOf(to), page);
+    }
+
+    /**
+     * redis的glob匹配，支持*、?、[...]（含^取反和a-z范围）以及\转义
+     */
+    static boolean globMatch(String pattern, String text) {
+        return globMatch(pattern, 0, text, 0);
+    }
+
+    private static boolean globMatch(String p, int pi, String t, int ti) {
+        while (pi < p.length()) {
+            char c = p.charAt(pi);
+            if (c == '*') {
+                for (int i = ti; i <= t.length(); i++) {
+                    if (globMatch(p, pi + 1, t, i))
+                        return true;
+                }
+                return false;
+            }
+            if (ti >= t.length())
+                return false;
+            if (c == '?') {
+                pi++;
+            } else if (c == '[') {
+                int close = p.indexOf(']', pi + 2);
+                if (close < 0)
+                    return false;
+                boolean negate = p.charAt(pi + 1) == '^';
+                boolean matched = false;
+                for (int i = negate ? pi + 2 : pi + 1; i < close; i++) {
+                    if (i + 2 < close && p.charAt(i + 1) == '-') {
+                        matched |= t.charAt(ti) >= p.charAt(i) && t.charAt(ti) <= p.charAt(i + 2);
+                        i += 2;
+                    } else {
+                        matched |= t.charAt(ti) == p.charAt(i);
+                    }
+                }
+                if (matched == negate)
+                    return false;
+                pi = close + 1;
+            } else {
+                if (c == '\\' && pi + 1 < p.length())
+                    c = p.charAt(++pi);
+                if (c != t.charAt(ti))
+                    return false;
+                pi++;
+            }
+            ti++;
+        }
+        return ti == t.length();
+    }
+
+    /**
+     * MEMORY USAGE的估算：内容的字节数加上每个对象和元素固定的开销
+     */
+    private static long memoryOf(Object value) {
+        long bytes = 48;
+        if (value instanceof String)
+            return bytes + ((String) value).length();
+        if (value instanceof Keyspace.Bitmap)
+            return bytes + ((Keyspace.Bitmap) value).length;
+        if (value instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                bytes += 16 + entry.getKey().toString().length() + entry.getValue().toString().length();
+            }
+            return bytes;
+        }
+        Iterable<?> items = value instanceof Keyspace.ZSet ? ((Keyspace.ZSet) value).scores.keySet()
+                : (Iterable<?>) value;
+        for (Object item : items) {
+            bytes += 16 + item.toString().length();
+        }
+        return bytes;
+    }
+
+    private static String typeOf(Object value) {
+        if (null == value)
+            return "none";
+        if (value instanceof String || value instanceof Keyspace.Bitmap)
+            return "string";
+        if (value instanceof Map)
+            return "hash";
+        if (value instanceof Set)
+            return "set";
+        if (value instanceof List)
+            return "list";
+        return "zset";
+    }
+
+    private static Object setWithTtl(Session s, String key, String value, long ttl) {
+        if (ttl <= 0)
+            throw new RespException("ERR invalid expire time in setex");
+        s.keyspace().put(key, value);
+        s.keyspace().expireAt(key, System.currentTimeMillis() + ttl);
+        return Reply.OK;
+    }
+
+    /**
+     * 修改字符串的值，保留原有的过期时间
+     */
+    private static void keepTtl(Session s, String key, String value) {
+        long pttl = s.keyspace().pttl(key);
+        s.keyspace().put(key, value);
+        if (pttl >= 0)
+            s.keyspace().expireAt(key, System.currentTimeMillis() + pttl);
+    }
+
+    private static long incrBy(Session s, String key, long delta) {
+        String old = s.keyspace().get(key, String.class);
+        long value = (null == old ? 0 : parseLong(old)) + delta;
+        keepTtl(s, key, String.valueOf(value));
+        return value;
+    }
+
+    private static long count(List<String> items, Function<String, Boolean> action) {
+        long count = 0;
+        for (String item : items) {
+            if (action.apply(item))
+                count++;
+        }
+        return count;
+    }
+
+    static long parseLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new RespException("ERR value is not an integer or out of range");
+        }
+    }
+
+    static double parseDouble(String value) {
+        switch (value.toLowerCase(Locale.ROOT)) {
+        case "+inf":
+        case "inf":
+            return Double.POSITIVE_INFINITY;
+        case "-inf":
+            return Double.NEGATIVE_INFINITY;
+        default:
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                throw new RespException("ERR value is not a valid float");
+            }
+        }
+    }
+}
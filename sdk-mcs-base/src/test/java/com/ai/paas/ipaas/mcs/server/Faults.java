@@ -0,0 +1,105 @@
+package com.ai.paas.ipaas.mcs.server;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 注入到RespServer的故障：回复延迟、命令报错、断开连接，以及只收不回（模拟网络分区）。
+ * 可以在任意线程中修改，对之后收到的命令生效
+ */
+public class Faults {
+
+    /**
+     * 匹配所有命令
+     */
+    public static final String ANY_COMMAND = "*";
+
+    static final class Rule {
+        /**
+         * 要回复的错误，为null时断开连接
+         */
+        final RespException error;
+        /**
+         * 剩余次数，负数表示不限
+         */
+        private final AtomicInteger remaining;
+
+        Rule(RespException error, int times) {
+            this.error = error;
+            this.remaining = new AtomicInteger(times);
+        }
+
+        boolean take() {
+            return remaining.get() < 0 || remaining.getAndDecrement() > 0;
+        }
+    }
+
+    private final Map<String, Rule> rules = new ConcurrentHashMap<>();
+    private volatile long latencyMillis;
+    private volatile boolean blackhole;
+
+    /**
+     * 每条回复延迟发送，不阻塞其他连接，同一连接上的回复仍按顺序发送
+     */
+    public Faults latency(long millis) {
+        this.latencyMillis = millis;
+        return this;
+    }
+
+    long latency() {
+        return latencyMillis;
+    }
+
+    /**
+     * 接下来times次收到command时回复error而不执行
+     *
+     * @param command 命令名，ANY_COMMAND匹配所有命令
+     * @param error   完整的错误信息，如"ERR injected"、"LOADING ..."
+     * @param times   次数，负数表示一直报错
+     */
+    public Faults fail(String command, String error, int times) {
+        rules.put(command.toUpperCase(Locale.ROOT), new Rule(new RespException(error), times));
+        return this;
+    }
+
+    /**
+     * 接下来times次收到command时不回复，直接断开连接
+     */
+    public Faults disconnect(String command, int times) {
+        rules.put(command.toUpperCase(Locale.ROOT), new Rule(null, times));
+        return this;
+    }
+
+    /**
+     * 开启后丢弃收到的命令，既不执行也不回复，客户端只能等到超时
+     */
+    public Faults blackhole(boolean on) {
+        this.blackhole = on;
+        return this;
+    }
+
+    boolean blackhole() {
+        return blackhole;
+    }
+
+    /**
+     * 清除所有故障
+     */
+    public void clear() {
+        rules.clear();
+        latencyMillis = 0;
+        blackhole = false;
+    }
+
+    /**
+     * 命令是否命中故障，命中时消耗一次
+     */
+    Rule match(String command) {
+        Rule rule = rules.get(command);
+        if (null == rule)
+            rule = rules.get(ANY_COMMAND);
+        return null != rule && rule.take() ? rule : null;
+    }
+}
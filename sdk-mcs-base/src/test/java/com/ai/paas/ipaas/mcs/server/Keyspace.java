@@ -0,0 +1,230 @@
+package com.ai.paas.ipaas.mcs.server;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * 内存中的数据，value为String、hash(Map)、set(Set)、zset(ZSet)或list(LinkedList)，SETBIT写过的字符串为Bitmap。
+ * 字符串统一按ISO-8859-1与字节互转，二进制数据可以原样存取。过期的key在访问时删除
+ */
+public class Keyspace {
+
+    private final Map<String, Object> values = new HashMap<>();
+    private final Map<String, Long> expireAt = new HashMap<>();
+
+    /**
+     * 有序集合，按分数排序时分数相同的按成员排序
+     */
+    static class ZSet {
+        final Map<String, Double> scores = new HashMap<>();
+
+        List<Map.Entry<String, Double>> sorted() {
+            List<Map.Entry<String, Double>> entries = new ArrayList<>(scores.entrySet());
+            entries.sort((a, b) ->
+                {
+                    int c = Double.compare(a.getValue(), b.getValue());
+                    return c != 0 ? c : a.getKey().compareTo(b.getKey());
+                });
+            return entries;
+        }
+    }
+
+    /**
+     * 按位操作的字符串，只记录为1的位，偏移量很大时也不用分配整个字符串；按字符串读取时再转换
+     */
+    static class Bitmap {
+        final TreeSet<Long> ones = new TreeSet<>();
+        /**
+         * 字节数
+         */
+        long length;
+
+        static Bitmap of(String value) {
+            Bitmap bitmap = new Bitmap();
+            bitmap.length = value.length();
+            for (int i = 0; i < value.length(); i++) {
+                for (int bit = 0; bit < 8; bit++) {
+                    if ((value.charAt(i) & (0x80 >> bit)) != 0)
+                        bitmap.ones.add(i * 8L + bit);
+                }
+            }
+            return bitmap;
+        }
+
+        /**
+         * @return 原来的值
+         */
+        boolean set(long offset, boolean value) {
+            length = Math.max(length, offset / 8 + 1);
+            return value ? !ones.add(offset) : ones.remove(offset);
+        }
+
+        String text() {
+            char[] chars = new char[(int) length];
+            for (long offset : ones) {
+                chars[(int) (offset / 8)] |= 0x80 >> (offset % 8);
+            }
+            return new String(chars);
+        }
+    }
+
+    public synchronized Object get(String key) {
+        Long at = expireAt.get(key);
+        if (null != at && at <= System.currentTimeMillis()) {
+            values.remove(key);
+            expireAt.remove(key);
+        }
+        return values.get(key);
+    }
+
+    /**
+     * 按类型取值，类型不符时抛出WRONGTYPE
+     */
+    synchronized <T> T get(String key, Class<T> type) {
+        Object value = get(key);
+        if (value instanceof Bitmap && type == String.class) {
+            value = ((Bitmap) value).text();
+            values.put(key, value);
+        }
+        if (null != value && !type.isInstance(value))
+            throw new RespException("WRONGTYPE Operation against a key holding the wrong kind of value");
+        return type.cast(value);
+    }
+
+    <T> T getOrCreate(String key, Class<T> type, Supplier<T> creator) {
+        T value = get(key, type);
+        if (null == value) {
+            value = creator.get();
+            values.put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * 取按位操作的字符串，原来是String时就地转换，保留过期时间
+     */
+    synchronized Bitmap bitmap(String key, boolean create) {
+        Object value = get(key);
+        if (value instanceof String) {
+            value = Bitmap.of((String) value);
+            values.put(key, value);
+        } else if (null == value && create) {
+            value = new Bitmap();
+            values.put(key, value);
+        } else if (null != value && !(value instanceof Bitmap)) {
+            throw new RespException("WRONGTYPE Operation against a key holding the wrong kind of value");
+        }
+        return (Bitmap) value;
+    }
+
+    /**
+     * 写入value并清除过期时间
+     */
+    public synchronized void put(String key, Object value) {
+        values.put(key, value);
+        expireAt.remove(key);
+    }
+
+    public synchronized boolean remove(String key) {
+        boolean existed = null != get(key);
+        values.remove(key);
+        expireAt.remove(key);
+        return existed;
+    }
+
+    /**
+     * 把key连同过期时间移到另一个Keyspace，模拟集群迁移slot时的MIGRATE
+     */
+    boolean moveTo(String key, Keyspace target) {
+        synchronized (this) {
+            Object value = get(key);
+            if (null == value)
+                return false;
+            synchronized (target) {
+                target.values.put(key, value);
+                target.expireAt.remove(key);
+                Long at = expireAt.get(key);
+                if (null != at)
+                    target.expireAt.put(key, at);
+            }
+            values.remove(key);
+            expireAt.remove(key);
+            return true;
+        }
+    }
+
+    /**
+     * 把from连同过期时间改名为to，覆盖to原来的value
+     */
+    synchronized boolean rename(String from, String to) {
+        Object value = get(from);
+        if (null == value)
+            return false;
+        Long at = expireAt.remove(from);
+        values.remove(from);
+        values.put(to, value);
+        if (null == at)
+            expireAt.remove(to);
+        else
+            expireAt.put(to, at);
+        return true;
+    }
+
+    /**
+     * 集合类型的value为空时删除key，与redis一致
+     */
+    void removeIfEmpty(String key) {
+        Object value = values.get(key);
+        if ((value instanceof Map && ((Map<?, ?>) value).isEmpty())
+                || (value instanceof Collection && ((Collection<?>) value).isEmpty())
+                || (value instanceof ZSet && ((ZSet) value).scores.isEmpty()))
+            remove(key);
+    }
+
+    /**
+     * @return 剩余有效期(ms)，没有过期时间时返回-1，key不存在时返回-2
+     */
+    synchronized long pttl(String key) {
+        if (null == get(key))
+            return -2;
+        Long at = expireAt.get(key);
+        return null == at ? -1 : Math.max(at - System.currentTimeMillis(), 0);
+    }
+
+    synchronized boolean expireAt(String key, long at) {
+        if (null == get(key))
+            return false;
+        expireAt.put(key, at);
+        return true;
+    }
+
+    synchronized boolean persist(String key) {
+        return null != get(key) && null != expireAt.remove(key);
+    }
+
+    /**
+     * 当前所有未过期的key
+     */
+    public synchronized List<String> keys() {
+        List<String> keys = new ArrayList<>();
+        for (String key : new ArrayList<>(values.keySet())) {
+            if (null != get(key))
+                keys.add(key);
+        }
+        return keys;
+    }
+
+    public synchronized int size() {
+        return keys().size();
+    }
+
+    public synchronized void clear() {
+        values.clear();
+        expireAt.clear();
+    }
+}
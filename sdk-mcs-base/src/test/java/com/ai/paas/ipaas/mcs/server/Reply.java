@@ -0,0 +1,91 @@
+package com.ai.paas.ipaas.mcs.server;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collection;
+
+/**
+ * RESP回复的编码。null为空bulk，Long/Integer为整数，String/byte[]/Double为bulk，Collection为数组，
+ * Status为简单字符串，RespException为错误
+ */
+final class Reply {
+
+    static final Status OK = new Status("OK");
+    static final Status PONG = new Status("PONG");
+    static final Status QUEUED = new Status("QUEUED");
+    /**
+     * 空数组回复(*-1)，如超时的阻塞命令
+     */
+    static final Object NULL_ARRAY = new Object();
+    /**
+     * 命令已经自行发送了回复，如SUBSCRIBE每个频道一条回复
+     */
+    static final Object NONE = new Object();
+
+    private static final byte[] CRLF = { '\r', '\n' };
+
+    static final class Status {
+        final String text;
+
+        Status(String text) {
+            this.text = text;
+        }
+    }
+
+    private Reply() {
+    }
+
+    static Status status(String text) {
+        return new Status(text);
+    }
+
+    static void encode(Object reply, ByteArrayOutputStream out) {
+        if (null == reply) {
+            line(out, "$-1");
+        } else if (reply == NULL_ARRAY) {
+            line(out, "*-1");
+        } else if (reply instanceof Status) {
+            line(out, "+" + ((Status) reply).text);
+        } else if (reply instanceof RespException) {
+            line(out, "-" + ((RespException) reply).getMessage());
+        } else if (reply instanceof Long || reply instanceof Integer) {
+            line(out, ":" + reply);
+        } else if (reply instanceof Boolean) {
+            line(out, (Boolean) reply ? ":1" : ":0");
+        } else if (reply instanceof Double) {
+            bulk(out, formatDouble((Double) reply).getBytes(RespServer.CHARSET));
+        } else if (reply instanceof String) {
+            bulk(out, ((String) reply).getBytes(RespServer.CHARSET));
+        } else if (reply instanceof byte[]) {
+            bulk(out, (byte[]) reply);
+        } else if (reply instanceof Collection) {
+            Collection<?> items = (Collection<?>) reply;
+            line(out, "*" + items.size());
+            for (Object item : items) {
+                encode(item, out);
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported reply type: " + reply.getClass());
+        }
+    }
+
+    /**
+     * 整数值的分数不带小数部分，与redis一致
+     */
+    static String formatDouble(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e17)
+            return String.valueOf((long) value);
+        return String.valueOf(value);
+    }
+
+    private static void bulk(ByteArrayOutputStream out, byte[] data) {
+        line(out, "$" + data.length);
+        out.write(data, 0, data.length);
+        out.write(CRLF, 0, 2);
+    }
+
+    private static void line(ByteArrayOutputStream out, String text) {
+        byte[] bytes = text.getBytes(RespServer.CHARSET);
+        out.write(bytes, 0, bytes.length);
+        out.write(CRLF, 0, 2);
+    }
+}
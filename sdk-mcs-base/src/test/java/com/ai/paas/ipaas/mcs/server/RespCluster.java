@@ -0,0 +1,175 @@
+package com.ai.paas.ipaas.mcs.server;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import redis.clients.jedis.util.JedisClusterCRC16;
+
+/**
+ * 由多个RespServer组成的集群，16384个slot平均分配给各节点。节点回复CLUSTER SLOTS/NODES，
+ * 命令的key不属于本节点时回复MOVED，多个key不在同一slot时回复CROSSSLOT；迁移slot期间回复ASK
+ */
+public class RespCluster implements Closeable {
+
+    static final int SLOTS = 16384;
+
+    private final List<RespServer> nodes = new ArrayList<>();
+    private final RespServer[] owners = new RespServer[SLOTS];
+    /**
+     * 正在迁移的slot及迁入的节点
+     */
+    private final Map<Integer, RespServer> importing = new HashMap<>();
+
+    public RespCluster(int size) {
+        for (int i = 0; i < size; i++) {
+            RespServer node = new RespServer();
+            nodes.add(node);
+            for (int slot = SLOTS * i / size; slot < SLOTS * (i + 1) / size; slot++) {
+                owners[slot] = node;
+            }
+            node.cluster = this;
+        }
+    }
+
+    public List<RespServer> getNodes() {
+        return Collections.unmodifiableList(nodes);
+    }
+
+    /**
+     * 所有节点的host:port
+     */
+    public String[] getAddresses() {
+        String[] addresses = new String[nodes.size()];
+        for (int i = 0; i < addresses.length; i++) {
+            addresses[i] = nodes.get(i).getAddress();
+        }
+        return addresses;
+    }
+
+    public synchronized RespServer ownerOf(String key) {
+        return owners[slotOf(key)];
+    }
+
+    public static int slotOf(String key) {
+        return JedisClusterCRC16.getSlot(key.getBytes(RespServer.CHARSET));
+    }
+
+    /**
+     * 开始把slot迁移到target，相当于CLUSTER SETSLOT MIGRATING/IMPORTING。
+     * 迁移期间源节点上找不到的key回复ASK，客户端先发ASKING再到target上执行
+     */
+    public synchronized void migrate(int slot, RespServer target) {
+        if (!nodes.contains(target) || owners[slot] == target)
+            throw new IllegalArgumentException("Cannot migrate slot " + slot + " to " + target.getAddress());
+        importing.put(slot, target);
+    }
+
+    /**
+     * 把正在迁移的slot中的一个key移到目标节点，相当于MIGRATE
+     *
+     * @return key不存在时返回false
+     */
+    public synchronized boolean migrateKey(String key) {
+        int slot = slotOf(key);
+        RespServer target = importing.get(slot);
+        if (null == target)
+            throw new IllegalStateException("Slot " + slot + " is not migrating");
+        return owners[slot].getKeyspace().moveTo(key, target.getKeyspace());
+    }
+
+    /**
+     * 结束迁移：剩余的key移到目标节点，slot归目标节点所有，此后源节点回复MOVED
+     */
+    public synchronized void completeMigration(int slot) {
+        RespServer target = importing.remove(slot);
+        if (null == target)
+            throw new IllegalStateException("Slot " + slot + " is not migrating");
+        Keyspace source = owners[slot].getKeyspace();
+        for (String key : source.keys()) {
+            if (slotOf(key) == slot)
+                source.moveTo(key, target.getKeyspace());
+        }
+        owners[slot] = target;
+    }
+
+    /**
+     * @param asking 客户端刚发过ASKING
+     */
+    synchronized void checkSlot(RespServer node, List<String> keys, boolean asking) {
+        if (keys.isEmpty())
+            return;
+        int slot = slotOf(keys.get(0));
+        for (String key : keys) {
+            if (slotOf(key) != slot)
+                throw new RespException("CROSSSLOT Keys in request don't hash to the same slot");
+        }
+        RespServer owner = owners[slot];
+        RespServer target = importing.get(slot);
+        if (owner == node) {
+            if (null == target)
+                return;
+            for (String key : keys) {
+                if (null == node.getKeyspace().get(key))
+                    throw new RespException("ASK " + slot + " " + target.getAddress());
+            }
+            return;
+        }
+        if (target != node || !asking)
+            throw new RespException("MOVED " + slot + " " + owner.getAddress());
+    }
+
+    /**
+     * CLUSTER SLOTS：每段连续的slot一项[起始, 结束, [host, port, nodeId]]
+     */
+    synchronized List<Object> slots() {
+        List<Object> ranges = new ArrayList<>();
+        int start = 0;
+        for (int slot = 1; slot <= SLOTS; slot++) {
+            if (slot == SLOTS || owners[slot] != owners[start]) {
+                RespServer owner = owners[start];
+                ranges.add(Arrays.asList((long) start, (long) slot - 1,
+                        Arrays.asList(RespServer.HOST, (long) owner.getPort(), owner.getNodeId())));
+                start = slot;
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * CLUSTER NODES：每个节点一行，均为master
+     */
+    synchronized String nodes(RespServer self) {
+        StringBuilder text = new StringBuilder();
+        for (RespServer node : nodes) {
+            text.append(node.getNodeId()).append(' ').append(node.getAddress()).append('@')
+                    .append(node.getPort() + 10000).append(' ').append(node == self ? "myself,master" : "master")
+                    .append(" - 0 0 ").append(nodes.indexOf(node) + 1).append(" connected");
+            int start = -1;
+            for (int slot = 0; slot <= SLOTS; slot++) {
+                boolean owned = slot < SLOTS && owners[slot] == node;
+                if (owned && start < 0) {
+                    start = slot;
+                } else if (!owned && start >= 0) {
+                    text.append(' ').append(start);
+                    if (slot - 1 > start)
+                        text.append('-').append(slot - 1);
+                    start = -1;
+                }
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+
+    @Override
+    public void close() {
+        for (RespServer node : nodes) {
+            node.close();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.ai.paas.ipaas.mcs.server;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.RetryOneTime;
+import org.apache.zookeeper.server.ServerCnxnFactory;
+import org.apache.zookeeper.server.ZooKeeperServer;
+
+/**
+ * codis的替身：进程内的ZooKeeper，在指定路径下注册一个RespServer作为codis proxy，供jodis发现
+ */
+public class RespCodis implements Closeable {
+
+    private final File dataDir;
+    private final ServerCnxnFactory factory;
+    private final RespServer proxy = new RespServer();
+
+    public RespCodis(String proxyPath) {
+        try {
+            dataDir = Files.createTempDirectory("resp-codis").toFile();
+            ZooKeeperServer zk = new ZooKeeperServer(dataDir, dataDir, 2000);
+            factory = ServerCnxnFactory.createFactory(new InetSocketAddress(RespServer.HOST, 0), 100);
+            factory.startup(zk);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        try (CuratorFramework curator = CuratorFrameworkFactory.newClient(getZkAddress(), new RetryOneTime(100))) {
+            curator.start();
+            String info = "{\"addr\":\"" + proxy.getAddress() + "\",\"state\":\"online\"}";
+            curator.create().creatingParentsIfNeeded().forPath(proxyPath + "/proxy-1",
+                    info.getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            close();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public String getZkAddress() {
+        return RespServer.HOST + ":" + factory.getLocalPort();
+    }
+
+    public RespServer getProxy() {
+        return proxy;
+    }
+
+    @Override
+    public void close() {
+        proxy.close();
+        factory.shutdown();
+        deleteRecursively(dataDir);
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (null != children) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        if (!file.delete())
+            file.deleteOnExit();
+    }
+}
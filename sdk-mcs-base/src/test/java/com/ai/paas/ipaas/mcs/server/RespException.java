@@ -0,0 +1,13 @@
+package com.ai.paas.ipaas.mcs.server;
+
+/**
+ * 命令执行出错，消息原样作为错误回复返回，以错误类型开头，如"ERR ..."、"WRONGTYPE ..."、"MOVED ..."
+ */
+public class RespException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public RespException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,512 @@
+package com.ai.paas.ipaas.mcs.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 进程内的RESP服务端，代替真实的redis用于测试和基准测试，无需网络环境。
+ * 基于NIO，单个事件线程依次执行所有连接的命令，与redis一样命令之间不会交错；支持pipeline、事务和发布订阅，
+ * 以及写命令的keyspace通知和CLIENT TRACKING广播模式的失效消息。
+ * 实现了ICacheClient用到的命令，lua脚本只支持客户端内置的几个脚本（见Scripts）。
+ * 可以作为sentinel（monitor、failover）或集群节点（见RespCluster），并可以注入延迟和故障（见Faults）。
+ */
+public class RespServer implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(RespServer.class);
+
+    static final Charset CHARSET = StandardCharsets.ISO_8859_1;
+    public static final String HOST = "127.0.0.1";
+    /**
+     * CLIENT TRACKING的失效消息频道
+     */
+    static final String INVALIDATE_CHANNEL = "__redis__:invalidate";
+
+    private final Keyspace keyspace = new Keyspace();
+    private final Scripts scripts = new Scripts();
+    private final String nodeId = UUID.randomUUID().toString().replace("-", "") + "00000000";
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final Thread loop;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Set<Session> sessions = new LinkedHashSet<>();
+    private final Map<String, Set<Session>> channels = new HashMap<>();
+    private final Map<String, Set<Session>> patterns = new HashMap<>();
+    private long nextSessionId = 1;
+    private final Map<String, RespServer> monitored = new ConcurrentHashMap<>();
+    private final Faults faults = new Faults();
+    /**
+     * 有延迟回复等待发送的连接及下一条回复的发送时间，只在事件线程中访问
+     */
+    private final Map<Session, Long> delayed = new HashMap<>();
+    private volatile boolean running = true;
+    private volatile String password;
+    private volatile int replicaAcks;
+    /**
+     * CONFIG SET notify-keyspace-events，包含K时发送keyspace通知（不区分事件类型）
+     */
+    volatile String notifyKeyspaceEvents = "";
+    volatile RespCluster cluster;
+
+    /**
+     * 在随机端口上启动
+     */
+    public RespServer() {
+        this(0);
+    }
+
+    public RespServer(int port) {
+        try {
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(HOST, port));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        loop = new Thread(this::run, "resp-server-" + getPort());
+        loop.setDaemon(true);
+        loop.start();
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * host:port
+     */
+    public String getAddress() {
+        return HOST + ":" + getPort();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public Keyspace getKeyspace() {
+        return keyspace;
+    }
+
+    Scripts scripts() {
+        return scripts;
+    }
+
+    /**
+     * 要求客户端先AUTH
+     */
+    public RespServer requirePassword(String password) {
+        this.password = password;
+        return this;
+    }
+
+    String password() {
+        return password;
+    }
+
+    /**
+     * WAIT回复的已确认从节点数，默认为0，即没有从节点
+     */
+    public RespServer replicaAcks(int acks) {
+        this.replicaAcks = acks;
+        return this;
+    }
+
+    int replicaAcks() {
+        return replicaAcks;
+    }
+
+    /**
+     * 作为sentinel监控master，回复SENTINEL get-master-addr-by-name
+     */
+    public RespServer monitor(String masterName, RespServer master) {
+        monitored.put(masterName, master);
+        return this;
+    }
+
+    RespServer monitoredMaster(String masterName) {
+        return monitored.get(masterName);
+    }
+
+    /**
+     * 作为sentinel完成主从切换：之后get-master-addr-by-name回复新的master，并在+switch-master频道发布切换消息
+     */
+    public void failover(String masterName, RespServer newMaster) {
+        RespServer oldMaster = monitored.put(masterName, newMaster);
+        if (null == oldMaster)
+            throw new IllegalStateException("No master named " + masterName);
+        publish("+switch-master", masterName + " " + HOST + " " + oldMaster.getPort() + " " + HOST + " "
+                + newMaster.getPort());
+    }
+
+    public Faults faults() {
+        return faults;
+    }
+
+    /**
+     * 断开所有客户端连接，模拟服务端重启或网络闪断
+     */
+    public void disconnectAll() {
+        execute(() ->
+            {
+                for (Session session : new ArrayList<>(sessions)) {
+                    disconnect(session);
+                }
+            });
+    }
+
+    /**
+     * 向订阅者发布消息，可以在任意线程调用
+     */
+    public void publish(String channel, String message) {
+        execute(() -> publishNow(channel, message));
+    }
+
+    /**
+     * 在事件线程中执行，执行完成后返回
+     */
+    void execute(Runnable task) {
+        if (Thread.currentThread() == loop) {
+            task.run();
+            return;
+        }
+        CountDownLatch done = new CountDownLatch(1);
+        tasks.add(() ->
+            {
+                try {
+                    task.run();
+                } finally {
+                    done.countDown();
+                }
+            });
+        selector.wakeup();
+        try {
+            done.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    int publishNow(String channel, Object message) {
+        int received = 0;
+        Set<Session> subscribers = channels.get(channel);
+        if (null != subscribers) {
+            for (Session session : new ArrayList<>(subscribers)) {
+                session.send(Arrays.asList("message", channel, message));
+                flush(session);
+                received++;
+            }
+        }
+        for (Map.Entry<String, Set<Session>> entry : new ArrayList<>(patterns.entrySet())) {
+            if (!Commands.globMatch(entry.getKey(), channel))
+                continue;
+            for (Session session : new ArrayList<>(entry.getValue())) {
+                session.send(Arrays.asList("pmessage", entry.getKey(), channel, message));
+                flush(session);
+                received++;
+            }
+        }
+        return received;
+    }
+
+    /**
+     * 写命令执行后，发送keyspace通知，并向追踪这些key的连接指定的接收方发送失效消息
+     *
+     * @param keys 为null表示清空了所有key
+     */
+    private void keysChanged(String event, List<String> keys) {
+        if (null != keys && notifyKeyspaceEvents.indexOf('K') >= 0) {
+            for (String key : keys) {
+                publishNow("__keyspace@0__:" + key, event);
+            }
+        }
+        for (Session session : new ArrayList<>(sessions)) {
+            if (0 == session.trackingRedirect)
+                continue;
+            Session target = session(session.trackingRedirect);
+            if (null == target || !target.subscriptions.contains(INVALIDATE_CHANNEL))
+                continue;
+            if (null == keys) {
+                target.send(Arrays.asList("message", INVALIDATE_CHANNEL, null));
+            } else {
+                List<String> tracked = new ArrayList<>();
+                for (String key : keys) {
+                    if (session.tracks(key))
+                        tracked.add(key);
+                }
+                if (tracked.isEmpty())
+                    continue;
+                target.send(Arrays.asList("message", INVALIDATE_CHANNEL, tracked));
+            }
+            flush(target);
+        }
+    }
+
+    int subscribe(Session session, String channel) {
+        if (session.subscriptions.add(channel))
+            channels.computeIfAbsent(channel, c -> new LinkedHashSet<>()).add(session);
+        return session.subscriptions.size() + session.patterns.size();
+    }
+
+    int unsubscribe(Session session, String channel) {
+        if (session.subscriptions.remove(channel)) {
+            Set<Session> subscribers = channels.get(channel);
+            subscribers.remove(session);
+            if (subscribers.isEmpty())
+                channels.remove(channel);
+        }
+        return session.subscriptions.size() + session.patterns.size();
+    }
+
+    int psubscribe(Session session, String pattern) {
+        if (session.patterns.add(pattern))
+            patterns.computeIfAbsent(pattern, c -> new LinkedHashSet<>()).add(session);
+        return session.subscriptions.size() + session.patterns.size();
+    }
+
+    int punsubscribe(Session session, String pattern) {
+        if (session.patterns.remove(pattern)) {
+            Set<Session> subscribers = patterns.get(pattern);
+            subscribers.remove(session);
+            if (subscribers.isEmpty())
+                patterns.remove(pattern);
+        }
+        return session.subscriptions.size() + session.patterns.size();
+    }
+
+    Session session(long id) {
+        for (Session session : sessions) {
+            if (session.id == id)
+                return session;
+        }
+        return null;
+    }
+
+    int sessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * 订阅了频道的连接数，用于等待客户端的订阅生效
+     */
+    public int subscriberCount(String channel) {
+        Set<Session> subscribers = channels.get(channel);
+        return null == subscribers ? 0 : subscribers.size();
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select(nextDelay());
+                Runnable task;
+                while (null != (task = tasks.poll())) {
+                    task.run();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid())
+                        continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Session session = (Session) key.attachment();
+                    if (key.isWritable())
+                        flush(session);
+                    if (key.isValid() && key.isReadable())
+                        read(session);
+                }
+                flushDelayed();
+            }
+        } catch (IOException e) {
+            log.error(e.getMessage(), e);
+        } finally {
+            for (Session session : new ArrayList<>(sessions)) {
+                disconnect(session);
+            }
+            stopped.countDown();
+        }
+    }
+
+    /**
+     * 距下一条延迟回复的发送时间(ms)，没有延迟回复时返回0，即一直等待
+     */
+    private long nextDelay() {
+        if (delayed.isEmpty())
+            return 0;
+        long now = System.nanoTime();
+        long next = Long.MAX_VALUE;
+        for (long sendAt : delayed.values()) {
+            next = Math.min(next, sendAt - now);
+        }
+        return Math.max(TimeUnit.NANOSECONDS.toMillis(next), 1);
+    }
+
+    private void flushDelayed() {
+        long now = System.nanoTime();
+        for (Map.Entry<Session, Long> entry : new ArrayList<>(delayed.entrySet())) {
+            if (entry.getValue() - now <= 0)
+                flush(entry.getKey());
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (null == channel)
+            return;
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        Session session = new Session(this, channel, key, nextSessionId++);
+        key.attach(session);
+        sessions.add(session);
+    }
+
+    private void read(Session session) {
+        try {
+            if (!session.read()) {
+                disconnect(session);
+                return;
+            }
+            if (faults.blackhole()) {
+                session.discardInput();
+                return;
+            }
+            List<String> command;
+            while (null != (command = session.nextCommand())) {
+                Object reply = dispatch(session, command);
+                if (reply != Reply.NONE)
+                    session.send(reply);
+                if (session.quit)
+                    break;
+            }
+        } catch (RespException e) {
+            session.send(e);
+            session.quit = true;
+        } catch (IOException e) {
+            disconnect(session);
+            return;
+        }
+        flush(session);
+        if (session.quit)
+            disconnect(session);
+    }
+
+    private void flush(Session session) {
+        try {
+            Long sendAt = session.flush();
+            if (null == sendAt)
+                delayed.remove(session);
+            else
+                delayed.put(session, sendAt);
+        } catch (IOException e) {
+            disconnect(session);
+        }
+    }
+
+    void disconnect(Session session) {
+        for (String channel : new ArrayList<>(session.subscriptions)) {
+            unsubscribe(session, channel);
+        }
+        for (String pattern : new ArrayList<>(session.patterns)) {
+            punsubscribe(session, pattern);
+        }
+        sessions.remove(session);
+        delayed.remove(session);
+        session.close();
+    }
+
+    /**
+     * 执行一条命令，返回回复；注入的故障、认证、订阅、事务和集群slot的检查在这里统一处理
+     */
+    Object dispatch(Session session, List<String> args) {
+        String name = args.get(0).toUpperCase(Locale.ROOT);
+        Faults.Rule fault = faults.match(name);
+        if (null != fault) {
+            if (null != fault.error)
+                return fault.error;
+            session.quit = true;
+            return Reply.NONE;
+        }
+        Commands.Command command = Commands.get(name);
+        if (null == command)
+            return new RespException("ERR unknown command '" + args.get(0) + "'");
+        if (!command.accepts(args.size()))
+            return new RespException("ERR wrong number of arguments for '" + args.get(0).toLowerCase(Locale.ROOT)
+                    + "' command");
+        if (null != password && !session.authenticated && !"AUTH".equals(name))
+            return new RespException("NOAUTH Authentication required.");
+        if (session.subscribed() && !command.pubSub)
+            return new RespException(
+                    "ERR only (P)SUBSCRIBE / (P)UNSUBSCRIBE / PING / QUIT allowed in this context");
+        if (null != session.transaction && !command.transactional) {
+            session.transaction.add(args);
+            return Reply.QUEUED;
+        }
+        boolean asking = session.asking;
+        session.asking = false;
+        try {
+            RespCluster current = cluster;
+            if (null != current)
+                current.checkSlot(this, command.keys(args), asking);
+            Object reply;
+            synchronized (keyspace) {
+                reply = command.handler.handle(session, args);
+            }
+            if ("FLUSHDB".equals(name) || "FLUSHALL".equals(name))
+                keysChanged(null, null);
+            else if (!command.readOnly && command.firstKey != 0)
+                keysChanged(name.toLowerCase(Locale.ROOT), command.keys(args));
+            return reply;
+        } catch (RespException e) {
+            return e;
+        } catch (RuntimeException e) {
+            // 模拟实现的缺陷作为错误回复返回，不能让服务线程退出、客户端一直等待
+            log.error(e.getMessage(), e);
+            return new RespException("ERR " + e);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            stopped.await(5, TimeUnit.SECONDS);
+            serverChannel.close();
+            selector.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.warn(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.ai.paas.ipaas.mcs.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.junit.Test;
+
+import com.ai.paas.ipaas.mcs.ICacheClient;
+import com.ai.paas.ipaas.mcs.exception.CacheException;
+import com.ai.paas.ipaas.mcs.impl.CacheClient;
+import com.ai.paas.ipaas.mcs.impl.CacheClusterClient;
+import com.ai.paas.ipaas.mcs.impl.SentinelClient;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+public class RespServerTest {
+
+    @SuppressWarnings("rawtypes")
+    private static GenericObjectPoolConfig config() {
+        return new GenericObjectPoolConfig();
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline)
+                fail("condition not met in 5s");
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    public void testAskAndMovedDuringMigration() {
+        try (RespCluster cluster = new RespCluster(3)) {
+            ICacheClient client = new CacheClusterClient(config(), cluster.getAddresses());
+            client.set("{user}:1", "a");
+            client.set("{user}:2", "b");
+            int slot = RespCluster.slotOf("{user}:1");
+            RespServer source = cluster.ownerOf("{user}:1");
+            RespServer target = cluster.getNodes().get(0) == source ? cluster.getNodes().get(1)
+                    : cluster.getNodes().get(0);
+
+            cluster.migrate(slot, target);
+            cluster.migrateKey("{user}:1");
+            // 已迁走的key和新写入的key经ASK到目标节点，未迁走的key仍在源节点
+            assertEquals("a", client.get("{user}:1"));
+            assertEquals("b", client.get("{user}:2"));
+            client.set("{user}:3", "c");
+            assertEquals("c", target.getKeyspace().get("{user}:3"));
+            assertEquals("b", source.getKeyspace().get("{user}:2"));
+
+            cluster.completeMigration(slot);
+            assertSame(target, cluster.ownerOf("{user}:2"));
+            assertEquals("b", client.get("{user}:2"));
+            client.close();
+        }
+    }
+
+    @Test
+    public void testLatency() {
+        try (RespServer server = new RespServer()) {
+            ICacheClient client = new CacheClient(config(), server.getAddress());
+            client.set("k", "v");
+            server.faults().latency(100);
+            long start = System.nanoTime();
+            assertEquals("v", client.get("k"));
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 100);
+            client.close();
+        }
+    }
+
+    @Test
+    public void testInjectedErrorAndDisconnect() {
+        try (RespServer server = new RespServer()) {
+            ICacheClient client = new CacheClient(config(), server.getAddress());
+            client.set("k", "v");
+            server.faults().fail("GET", "ERR injected", 1);
+            try {
+                client.get("k");
+                fail();
+            } catch (CacheException e) {
+                assertTrue(e.getCause().getMessage().contains("injected"));
+            }
+            assertEquals("v", client.get("k"));
+            // 断开连接属于连接异常，会重试
+            server.faults().disconnect("GET", 1);
+            assertEquals("v", client.get("k"));
+            client.close();
+        }
+    }
+
+    @Test
+    public void testBlackholeTimesOut() {
+        try (RespServer server = new RespServer()) {
+            server.faults().blackhole(true);
+            try (Jedis jedis = new Jedis(RespServer.HOST, server.getPort(), 200)) {
+                jedis.get("k");
+                fail();
+            } catch (JedisConnectionException e) {
+                // 超时
+            }
+            server.faults().clear();
+            try (Jedis jedis = new Jedis(RespServer.HOST, server.getPort(), 200)) {
+                assertEquals("PONG", jedis.ping());
+            }
+        }
+    }
+
+    @Test
+    public void testSentinelFailover() throws InterruptedException {
+        try (RespServer master = new RespServer(); RespServer replica = new RespServer();
+                RespServer sentinel = new RespServer().monitor("mymaster", master)) {
+            ICacheClient client = new SentinelClient(config(), sentinel.getAddress());
+            client.set("k", "v1");
+            assertEquals("v1", master.getKeyspace().get("k"));
+            waitFor(() -> sentinel.subscriberCount("+switch-master") > 0);
+
+            sentinel.failover("mymaster", replica);
+            waitFor(() ->
+                {
+                    client.set("k", "v2");
+                    return "v2".equals(replica.getKeyspace().get("k"));
+                });
+            // 切换前的重试可能仍写到旧master，切换完成后的写入只到新master
+            client.set("k", "v3");
+            assertEquals("v3", replica.getKeyspace().get("k"));
+            assertNotEquals("v3", master.getKeyspace().get("k"));
+            client.close();
+        }
+    }
+
+    @Test
+    public void testUnknownScript() {
+        try (RespServer server = new RespServer()) {
+            ICacheClient client = new CacheClient(config(), server.getAddress());
+            // 只执行客户端中定义的脚本，其他脚本明确报错而不是按内容猜测
+            try {
+                client.eval("return redis.call('get', KEYS[1])", Collections.singletonList("k"),
+                        Collections.<String> emptyList());
+                fail();
+            } catch (CacheException e) {
+                assertTrue(String.valueOf(e.getCause()).contains("RespServer only runs"));
+            }
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.ai.paas.ipaas.mcs.server;
+
+import java.lang.reflect.Field;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ai.paas.ipaas.mcs.impl.LuaScript;
+
+/**
+ * 脚本缓存及执行。没有lua解释器，按SHA1识别客户端中定义的LuaScript，用java逐句实现同样的逻辑，
+ * 脚本中的redis.call通过call转给对应命令的实现；其他脚本返回错误。
+ * 客户端的脚本内容一旦修改，SHA1随之改变，未同步修改这里的实现时执行即报错，而不会按旧逻辑继续运行
+ */
+class Scripts {
+
+    interface Emulation {
+        Object run(Session session, List<String> keys, List<String> args);
+    }
+
+    private static final String IMPL = "com.ai.paas.ipaas.mcs.impl.";
+
+    /**
+     * 脚本SHA1到实现的映射
+     */
+    private static final Map<String, Emulation> EMULATIONS = new HashMap<>();
+
+    static {
+        emulate("DistributedLock", "ACQUIRE", Scripts::acquire);
+        emulate("DistributedLock", "RELEASE", Scripts::release);
+        emulate("LockWatchdog", "RENEW", Scripts::renew);
+        emulate("ScriptLock", "REENTRANT_ACQUIRE", Scripts::reentrantAcquire);
+        emulate("ScriptLock", "REENTRANT_RELEASE", Scripts::reentrantRelease);
+        emulate("ScriptLock", "READ_ACQUIRE", Scripts::readAcquire);
+        emulate("ScriptLock", "READ_RELEASE", Scripts::readRelease);
+        emulate("ScriptLock", "WRITE_ACQUIRE", Scripts::writeAcquire);
+        emulate("ScriptLock", "WRITE_RELEASE", Scripts::writeRelease);
+        emulate("SingleFlightLoader", "WRITE_ENVELOPE", Scripts::writeEnvelope);
+        emulate("SingleFlightLoader", "WRITE_WITH_STALE", Scripts::writeWithStale);
+        emulate("ChunkedValueStore", "SWAP", Scripts::swap);
+    }
+
+    /**
+     * 按类名和字段名取得客户端定义的脚本，取不到时类初始化失败
+     */
+    private static void emulate(String className, String fieldName, Emulation emulation) {
+        try {
+            Field field = Class.forName(IMPL + className).getDeclaredField(fieldName);
+            field.setAccessible(true);
+            EMULATIONS.put(((LuaScript) field.get(null)).getSha1(), emulation);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Script " + className + "." + fieldName + " not found", e);
+        }
+    }
+
+    private final Map<String, String> cache = new ConcurrentHashMap<>();
+
+    String load(String script) {
+        String sha1 = sha1Hex(script);
+        cache.put(sha1, script);
+        return sha1;
+    }
+
+    boolean exists(String sha1) {
+        return cache.containsKey(sha1.toLowerCase());
+    }
+
+    void flush() {
+        cache.clear();
+    }
+
+    Object eval(Session session, String script, List<String> keys, List<String> args) {
+        return run(session, load(script), keys, args);
+    }
+
+    Object evalsha(Session session, String sha1, List<String> keys, List<String> args) {
+        String lower = sha1.toLowerCase();
+        if (!cache.containsKey(lower))
+            throw new RespException("NOSCRIPT No matching script. Please use EVAL.");
+        return run(session, lower, keys, args);
+    }
+
+    private static Object run(Session session, String sha1, List<String> keys, List<String> args) {
+        Emulation emulation = EMULATIONS.get(sha1);
+        if (null == emulation)
+            throw new RespException("ERR Error running script " + sha1
+                    + ": RespServer only runs the LuaScript constants it emulates");
+        return emulation.run(session, keys, args);
+    }
+
+    /**
+     * 相当于脚本中的redis.call，出错时抛出RespException，与lua中一样中止脚本；布尔值与回复一样转为整数
+     */
+    private static Object call(Session session, String... args) {
+        Object reply = Commands.get(args[0].toUpperCase(Locale.ROOT)).handler.handle(session, Arrays.asList(args));
+        if (reply instanceof Boolean)
+            return (Boolean) reply ? 1L : 0L;
+        return reply;
+    }
+
+    private static long callLong(Session session, String... args) {
+        return (Long) call(session, args);
+    }
+
+    private static long number(String value) {
+        return Commands.parseLong(value);
+    }
+
+    /**
+     * DistributedLock.ACQUIRE
+     */
+    private static Object acquire(Session s, List<String> keys, List<String> args) {
+        String key = keys.get(0);
+        if (null != call(s, "set", key, args.get(0), "NX", "PX", args.get(1)))
+            return Arrays.asList(1L, keys.size() > 1 ? callLong(s, "incr", keys.get(1)) : 0L);
+        long ttl = callLong(s, "pttl", key);
+        if (ttl == -2)
+            return Arrays.asList(0L, 0L);
+        if (ttl == -1) {
+            call(s, "pexpire", key, args.get(1));
+            ttl = number(args.get(1));
+        }
+        return Arrays.asList(0L, ttl);
+    }
+
+    /**
+     * DistributedLock.RELEASE
+     */
+    private static Object release(Session s, List<String> keys, List<String> args) {
+        if (!args.get(0).equals(call(s, "get", keys.get(0))))
+            return 0L;
+        call(s, "del", keys.get(0));
+        if (!args.get(1).isEmpty())
+            call(s, "publish", args.get(1), args.get(0));
+        return 1L;
+    }
+
+    /**
+     * LockWatchdog.RENEW
+     */
+    private static Object renew(Session s, List<String> keys, List<String> args) {
+        if (args.get(0).equals(call(s, "get", keys.get(0))))
+            return call(s, "pexpire", keys.get(0), args.get(1));
+        return 0L;
+    }
+
+    /**
+     * ScriptLock.REENTRANT_ACQUIRE
+     */
+    private static Object reentrantAcquire(Session s, List<String> keys, List<String> args) {
+        String key = keys.get(0);
+        if (callLong(s, "exists", key) == 0 || callLong(s, "hexists", key, args.get(0)) == 1) {
+            long n = callLong(s, "hincrby", key, args.get(0), "1");
+            call(s, "pexpire", key, args.get(1));
+            return Arrays.asList(1L, n);
+        }
+        long ttl = callLong(s, "pttl", key);
+        if (ttl == -1) {
+            call(s, "pexpire", key, args.get(1));
+            ttl = number(args.get(1));
+        }
+        return Arrays.asList(0L, Math.max(ttl, 0));
+    }
+
+    /**
+     * ScriptLock.REENTRANT_RELEASE
+     */
+    private static Object reentrantRelease(Session s, List<String> keys, List<String> args) {
+        String key = keys.get(0);
+        if (callLong(s, "hexists", key, args.get(0)) == 0)
+            return -1L;
+        long n = callLong(s, "hincrby", key, args.get(0), "-1");
+        if (n > 0)
+            return n;
+        call(s, "del", key);
+        if (!args.get(1).isEmpty())
+            call(s, "publish", args.get(1), args.get(0));
+        return 0L;
+    }
+
+    /**
+     * ScriptLock.RW_PRELUDE中取当前时间的部分
+     */
+    private static long now(Session s) {
+        List<?> time = (List<?>) call(s, "time");
+        return number((String) time.get(0)) * 1000 + number((String) time.get(1)) / 1000;
+    }
+
+    /**
+     * ScriptLock.RW_PRELUDE中清理过期读锁的部分，返回mode，没有时为null
+     */
+    private static String prelude(Session s, List<String> keys, long now) {
+        for (Object owner : (List<?>) call(s, "zrangebyscore", keys.get(1), "-inf", String.valueOf(now))) {
+            call(s, "hdel", keys.get(0), (String) owner);
+        }
+        call(s, "zremrangebyscore", keys.get(1), "-inf", String.valueOf(now));
+        String mode = (String) call(s, "hget", keys.get(0), "mode");
+        if ("read".equals(mode) && callLong(s, "zcard", keys.get(1)) == 0) {
+            call(s, "del", keys.get(0));
+            mode = null;
+        }
+        return mode;
+    }
+
+    /**
+     * ScriptLock.READ_ACQUIRE
+     */
+    private static Object readAcquire(Session s, List<String> keys, List<String> args) {
+        long now = now(s);
+        String mode = prelude(s, keys, now);
+        if (null == mode || "read".equals(mode) || args.get(0).equals(call(s, "hget", keys.get(0), "writer"))) {
+            if (null == mode)
+                call(s, "hset", keys.get(0), "mode", "read");
+            long n = callLong(s, "hincrby", keys.get(0), args.get(0), "1");
+            call(s, "zadd", keys.get(1), String.valueOf(now + number(args.get(1))), args.get(0));
+            String ttl = String.valueOf(Math.max(callLong(s, "pttl", keys.get(0)), number(args.get(1))));
+            call(s, "pexpire", keys.get(0), ttl);
+            call(s, "pexpire", keys.get(1), ttl);
+            return Arrays.asList(1L, n);
+        }
+        return Arrays.asList(0L, Math.max(callLong(s, "pttl", keys.get(0)), 0));
+    }
+
+    /**
+     * ScriptLock.READ_RELEASE
+     */
+    private static Object readRelease(Session s, List<String> keys, List<String> args) {
+        String mode = prelude(s, keys, now(s));
+        if (callLong(s, "hexists", keys.get(0), args.get(0)) == 0)
+            return -1L;
+        long n = callLong(s, "hincrby", keys.get(0), args.get(0), "-1");
+        if (n > 0)
+            return n;
+        call(s, "hdel", keys.get(0), args.get(0));
+        call(s, "zrem", keys.get(1), args.get(0));
+        if ("read".equals(mode) && callLong(s, "zcard", keys.get(1)) == 0) {
+            call(s, "del", keys.get(0), keys.get(1));
+            if (!args.get(1).isEmpty())
+                call(s, "publish", args.get(1), "*");
+        }
+        return 0L;
+    }
+
+    /**
+     * ScriptLock.WRITE_ACQUIRE
+     */
+    private static Object writeAcquire(Session s, List<String> keys, List<String> args) {
+        long now = now(s);
+        String mode = prelude(s, keys, now);
+        if (null == mode) {
+            call(s, "hmset", keys.get(0), "mode", "write", "writer", args.get(0), "wcount", "1");
+            call(s, "pexpire", keys.get(0), args.get(1));
+            return Arrays.asList(1L, 1L);
+        }
+        if ("write".equals(mode) && args.get(0).equals(call(s, "hget", keys.get(0), "writer"))) {
+            long n = callLong(s, "hincrby", keys.get(0), "wcount", "1");
+            call(s, "pexpire", keys.get(0),
+                    String.valueOf(Math.max(callLong(s, "pttl", keys.get(0)), number(args.get(1)))));
+            return Arrays.asList(1L, n);
+        }
+        if ("read".equals(mode)) {
+            List<?> last = (List<?>) call(s, "zrange", keys.get(1), "-1", "-1", "withscores");
+            return Arrays.asList(0L, Math.max((long) ((Double) last.get(1) - now), 0));
+        }
+        return Arrays.asList(0L, Math.max(callLong(s, "pttl", keys.get(0)), 0));
+    }
+
+    /**
+     * ScriptLock.WRITE_RELEASE
+     */
+    private static Object writeRelease(Session s, List<String> keys, List<String> args) {
+        String mode = prelude(s, keys, now(s));
+        if (!"write".equals(mode) || !args.get(0).equals(call(s, "hget", keys.get(0), "writer")))
+            return -1L;
+        long n = callLong(s, "hincrby", keys.get(0), "wcount", "-1");
+        if (n > 0)
+            return n;
+        call(s, "hdel", keys.get(0), "writer", "wcount");
+        if (callLong(s, "zcard", keys.get(1)) > 0)
+            call(s, "hset", keys.get(0), "mode", "read");
+        else
+            call(s, "del", keys.get(0), keys.get(1));
+        if (!args.get(1).isEmpty())
+            call(s, "publish", args.get(1), "*");
+        return 0L;
+    }
+
+    /**
+     * SingleFlightLoader.WRITE_ENVELOPE
+     */
+    private static Object writeEnvelope(Session s, List<String> keys, List<String> args) {
+        call(s, "hmset", keys.get(0), "v", args.get(0), "d", args.get(1), "e", args.get(2));
+        return call(s, "expire", keys.get(0), args.get(3));
+    }
+
+    /**
+     * SingleFlightLoader.WRITE_WITH_STALE
+     */
+    private static Object writeWithStale(Session s, List<String> keys, List<String> args) {
+        call(s, "setex", keys.get(0), args.get(1), args.get(0));
+        return call(s, "setex", keys.get(1), args.get(2), args.get(0));
+    }
+
+    /**
+     * ChunkedValueStore.SWAP
+     */
+    private static Object swap(Session s, List<String> keys, List<String> args) {
+        Object old = call(s, "getset", keys.get(0), args.get(0));
+        if (number(args.get(1)) > 0)
+            call(s, "expire", keys.get(0), args.get(1));
+        return old;
+    }
+
+    private static String sha1Hex(String script) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(script.getBytes(RespServer.CHARSET));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
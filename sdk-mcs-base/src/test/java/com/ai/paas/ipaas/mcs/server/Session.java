@@ -0,0 +1,223 @@
+package com.ai.paas.ipaas.mcs.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一条客户端连接：读缓冲、待发送的回复，以及认证、事务、订阅等连接状态。只在服务端的事件线程中访问
+ */
+class Session {
+
+    final RespServer server;
+    final SocketChannel channel;
+    final SelectionKey key;
+    /**
+     * CLIENT ID
+     */
+    final long id;
+    final Set<String> subscriptions = new LinkedHashSet<>();
+    final Set<String> patterns = new LinkedHashSet<>();
+    boolean authenticated;
+    /**
+     * 发送完当前回复后关闭连接
+     */
+    boolean quit;
+    /**
+     * MULTI之后排队的命令，不在事务中时为null
+     */
+    List<List<String>> transaction;
+    /**
+     * 收到ASKING，下一条命令可以访问正在导入本节点的slot
+     */
+    boolean asking;
+    /**
+     * CLIENT TRACKING BCAST：接收失效消息的连接，为0时未开启；prefixes为空表示所有key
+     */
+    long trackingRedirect;
+    List<String> trackingPrefixes = new ArrayList<>();
+
+    private byte[] buffer = new byte[4096];
+    private int start = 0;
+    private int end = 0;
+    private final Deque<Pending> pending = new ArrayDeque<>();
+
+    /**
+     * 待发送的回复及最早的发送时间(System.nanoTime)
+     */
+    private static final class Pending {
+        final ByteBuffer data;
+        final long sendAt;
+
+        Pending(ByteBuffer data, long sendAt) {
+            this.data = data;
+            this.sendAt = sendAt;
+        }
+    }
+
+    Session(RespServer server, SocketChannel channel, SelectionKey key, long id) {
+        this.server = server;
+        this.channel = channel;
+        this.key = key;
+        this.id = id;
+    }
+
+    /**
+     * 处于订阅状态，只能执行订阅相关的命令
+     */
+    boolean subscribed() {
+        return !subscriptions.isEmpty() || !patterns.isEmpty();
+    }
+
+    /**
+     * 是否追踪key的变化
+     */
+    boolean tracks(String key) {
+        if (0 == trackingRedirect)
+            return false;
+        if (trackingPrefixes.isEmpty())
+            return true;
+        for (String prefix : trackingPrefixes) {
+            if (key.startsWith(prefix))
+                return true;
+        }
+        return false;
+    }
+
+    Keyspace keyspace() {
+        return server.getKeyspace();
+    }
+
+    /**
+     * 读入数据，连接已关闭时返回false
+     */
+    boolean read() throws IOException {
+        if (end == buffer.length) {
+            if (start > 0) {
+                System.arraycopy(buffer, start, buffer, 0, end - start);
+                end -= start;
+                start = 0;
+            } else {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+        }
+        int n = channel.read(ByteBuffer.wrap(buffer, end, buffer.length - end));
+        if (n < 0)
+            return false;
+        end += n;
+        return true;
+    }
+
+    /**
+     * 解析出下一条完整的命令，数据不完整时返回null。除RESP数组外也支持以空格分隔的内联命令
+     */
+    List<String> nextCommand() {
+        if (start == end)
+            return null;
+        int pos = start;
+        int eol = lineEnd(pos);
+        if (eol < 0)
+            return null;
+        if (buffer[pos] != '*') {
+            String line = new String(buffer, pos, eol - pos, RespServer.CHARSET).trim();
+            start = eol + 2;
+            List<String> args = new ArrayList<>();
+            for (String arg : line.split("\\s+")) {
+                if (!arg.isEmpty())
+                    args.add(arg);
+            }
+            return args.isEmpty() ? nextCommand() : args;
+        }
+        int count = parseInt(pos + 1, eol);
+        pos = eol + 2;
+        List<String> args = new ArrayList<>(Math.max(count, 0));
+        for (int i = 0; i < count; i++) {
+            eol = lineEnd(pos);
+            if (eol < 0)
+                return null;
+            if (buffer[pos] != '$')
+                throw new RespException("ERR Protocol error: expected '$', got '" + (char) buffer[pos] + "'");
+            int len = parseInt(pos + 1, eol);
+            pos = eol + 2;
+            if (end - pos < len + 2)
+                return null;
+            args.add(new String(buffer, pos, len, RespServer.CHARSET));
+            pos += len + 2;
+        }
+        start = pos;
+        return args;
+    }
+
+    /**
+     * 丢弃已读入的数据
+     */
+    void discardInput() {
+        start = end;
+    }
+
+    private int lineEnd(int from) {
+        for (int i = from; i < end - 1; i++) {
+            if (buffer[i] == '\r' && buffer[i + 1] == '\n')
+                return i;
+        }
+        return -1;
+    }
+
+    private int parseInt(int from, int to) {
+        try {
+            return Integer.parseInt(new String(buffer, from, to - from, RespServer.CHARSET));
+        } catch (NumberFormatException e) {
+            throw new RespException("ERR Protocol error: invalid length");
+        }
+    }
+
+    void send(Object reply) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Reply.encode(reply, out);
+        long delay = TimeUnit.MILLISECONDS.toNanos(server.faults().latency());
+        pending.add(new Pending(ByteBuffer.wrap(out.toByteArray()), System.nanoTime() + delay));
+    }
+
+    /**
+     * 尽量写出已到发送时间的回复，写不完时关注可写事件
+     *
+     * @return 下一条回复的发送时间，没有需要等待的回复时返回null
+     */
+    Long flush() throws IOException {
+        long now = System.nanoTime();
+        boolean blocked = false;
+        while (!pending.isEmpty()) {
+            Pending head = pending.peek();
+            if (head.sendAt - now > 0)
+                break;
+            channel.write(head.data);
+            if (head.data.hasRemaining()) {
+                blocked = true;
+                break;
+            }
+            pending.poll();
+        }
+        if (key.isValid())
+            key.interestOps(blocked ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        return blocked || pending.isEmpty() ? null : pending.peek().sendAt;
+    }
+
+    void close() {
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // 已关闭
+        }
+    }
+}
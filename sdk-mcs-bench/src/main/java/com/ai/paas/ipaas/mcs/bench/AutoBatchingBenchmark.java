@@ -0,0 +1,87 @@
+package com.ai.paas.ipaas.mcs.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ai.paas.ipaas.mcs.ICacheClient;
+import com.ai.paas.ipaas.mcs.impl.AutoBatchingCacheClient;
+import com.ai.paas.ipaas.mcs.impl.AutoBatchingConfig;
+import com.ai.paas.ipaas.mcs.impl.CacheClient;
+import com.ai.paas.ipaas.mcs.server.RespServer;
+
+/**
+ * 大量线程同时get单个key时，直接使用连接池与自动合并请求的对比。
+ * 运行：gradle :sdk-mcs-bench:jmh -Pbench=AutoBatchingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(128)
+@Fork(1)
+public class AutoBatchingBenchmark {
+
+    private static final int KEY_COUNT = 1000;
+
+    /**
+     * 合并的时间窗口(us)，off为不合并
+     */
+    @Param({ "off", "0", "100" })
+    public String windowMicros;
+
+    private RespServer server;
+    private ICacheClient client;
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private int index = (int) (Math.random() * KEY_COUNT);
+
+        String nextKey() {
+            index = index + 1 >= KEY_COUNT ? 0 : index + 1;
+            return "bench:key:" + index;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        GenericObjectPoolConfig<?> config = new GenericObjectPoolConfig<>();
+        config.setMaxTotal(16);
+        config.setMaxIdle(16);
+        server = new RespServer();
+        client = new CacheClient(config, server.getAddress());
+        for (int i = 0; i < KEY_COUNT; i++) {
+            client.set("bench:key:" + i, "value" + i);
+        }
+        if (!"off".equals(windowMicros)) {
+            AutoBatchingConfig batchingConfig = new AutoBatchingConfig();
+            batchingConfig.setWindowMicros(Long.parseLong(windowMicros));
+            client = new AutoBatchingCacheClient(client, batchingConfig);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public String get(ThreadState state) {
+        return client.get(state.nextKey());
+    }
+}
@@ -0,0 +1,30 @@
+package com.ai.paas.ipaas.mcs.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 分两轮运行基准测试：吞吐量（ops/s，附带GC profiler的分配速率gc.alloc.rate.norm），
+ * 以及采样延迟（us/op，输出p0.50/p0.99/p0.999）。第一个参数为要运行的基准测试的正则，缺省全部运行
+ */
+public class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : ".*";
+        Options throughput = new OptionsBuilder().include(include).mode(Mode.Throughput)
+                .timeUnit(TimeUnit.SECONDS).addProfiler(GCProfiler.class).build();
+        new Runner(throughput).run();
+        Options latency = new OptionsBuilder().include(include).mode(Mode.SampleTime)
+                .timeUnit(TimeUnit.MICROSECONDS).build();
+        new Runner(latency).run();
+    }
+}
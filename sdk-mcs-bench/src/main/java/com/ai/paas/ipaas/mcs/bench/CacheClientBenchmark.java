@@ -0,0 +1,174 @@
+package com.ai.paas.ipaas.mcs.bench;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ai.paas.ipaas.mcs.ICacheClient;
+import com.ai.paas.ipaas.mcs.impl.CacheClient;
+import com.ai.paas.ipaas.mcs.impl.CacheClusterClient;
+import com.ai.paas.ipaas.mcs.impl.CacheCodisClient;
+import com.ai.paas.ipaas.mcs.impl.SentinelClient;
+import com.ai.paas.ipaas.mcs.server.RespCluster;
+import com.ai.paas.ipaas.mcs.server.RespCodis;
+import com.ai.paas.ipaas.mcs.server.RespServer;
+
+/**
+ * 四种客户端常用命令的基准测试，服务端为进程内的RESP替身，不依赖外部redis。
+ * 测的是客户端自身的开销（编码、连接池、路由、分配），不代表真实redis的延迟
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheClientBenchmark {
+
+    private static final int KEY_COUNT = 10;
+    private static final String HASH = "bench:hash";
+    private static final String ZSET = "bench:zset";
+    private static final String VALUE = repeat('v', 64);
+
+    @Param({ "single", "sentinel", "cluster", "codis" })
+    public String mode;
+
+    private final List<Closeable> servers = new ArrayList<>();
+    private ICacheClient client;
+    private String[] keys;
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        private static final AtomicInteger IDS = new AtomicInteger();
+
+        final String lockName = "bench:lock:" + IDS.incrementAndGet();
+        private int index;
+
+        /**
+         * 在[0, bound)内轮转
+         */
+        int next(int bound) {
+            index = index + 1 >= bound ? 0 : index + 1;
+            return index;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        GenericObjectPoolConfig<?> config = new GenericObjectPoolConfig<>();
+        config.setMaxTotal(64);
+        config.setMaxIdle(64);
+        switch (mode) {
+        case "single": {
+            RespServer server = register(new RespServer());
+            client = new CacheClient(config, server.getAddress());
+            break;
+        }
+        case "sentinel": {
+            RespServer master = register(new RespServer());
+            RespServer sentinel = register(new RespServer().monitor("mymaster", master));
+            client = new SentinelClient(config, "mymaster", sentinel.getAddress(), null);
+            break;
+        }
+        case "cluster": {
+            RespCluster cluster = register(new RespCluster(3));
+            client = new CacheClusterClient(config, cluster.getAddresses());
+            break;
+        }
+        case "codis": {
+            RespCodis codis = register(new RespCodis("/jodis/bench"));
+            client = new CacheCodisClient(codis.getZkAddress(), "/jodis/bench");
+            break;
+        }
+        default:
+            throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+        keys = new String[KEY_COUNT];
+        Map<String, String> hash = new HashMap<>();
+        for (int i = 0; i < KEY_COUNT; i++) {
+            keys[i] = "bench:key:" + i;
+            client.set(keys[i], VALUE);
+            hash.put("field" + i, VALUE);
+        }
+        client.hmset(HASH, hash);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (null != client)
+            client.close();
+        for (Closeable server : servers) {
+            server.close();
+        }
+        servers.clear();
+    }
+
+    @Benchmark
+    public String get(ThreadState state) {
+        return client.get(keys[state.next(KEY_COUNT)]);
+    }
+
+    @Benchmark
+    public String set(ThreadState state) {
+        return client.set(keys[state.next(KEY_COUNT)], VALUE);
+    }
+
+    @Benchmark
+    public List<String> mget() {
+        return client.mget(keys);
+    }
+
+    @Benchmark
+    public List<Object> pipelineGet() {
+        return client.pipelineGet(keys);
+    }
+
+    @Benchmark
+    public Map<String, String> hgetAll() {
+        return client.hgetAll(HASH);
+    }
+
+    @Benchmark
+    public Long zadd(ThreadState state) {
+        int member = state.next(1000);
+        return client.zadd(ZSET, member, "member" + member);
+    }
+
+    @Benchmark
+    public boolean acquireLock(ThreadState state) {
+        String identifier = client.acquireLock(state.lockName, 1000, 5000);
+        return client.releaseLock(state.lockName, identifier);
+    }
+
+    private <T extends Closeable> T register(T server) {
+        servers.add(server);
+        return server;
+    }
+
+    private static String repeat(char c, int times) {
+        char[] chars = new char[times];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,147 @@
+package com.ai.paas.ipaas.mcs.impl;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 回放访问序列，比较LocalCache（W-TinyLFU）与普通LRU在相同容量下的命中率。
+ * 每个条目的权重按1计，容量即条目数。放在impl包中是为了直接使用包内可见的LocalCache。
+ * 不带参数时使用内置的合成序列：Zipf分布的热点访问，以及在其中穿插大量只访问一次的key的批量扫描；
+ * 参数为访问序列文件时逐个回放，每行第一个空白分隔的字段为key。
+ * 运行：gradle :sdk-mcs-bench:hitRatio [-Ptrace=文件,...]
+ */
+public class HitRatioSimulator {
+
+    private static final int[] CAPACITIES = { 1000, 5000, 20000 };
+    private static final long SEED = 20180101L;
+
+    private HitRatioSimulator() {
+    }
+
+    /**
+     * 与LocalCache容量相同的LRU，作为对照
+     */
+    private static final class Lru extends LinkedHashMap<String, Boolean> {
+        private static final long serialVersionUID = 1L;
+        private final int capacity;
+
+        Lru(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String[]> traces = new LinkedHashMap<>();
+        if (args.length == 0) {
+            traces.put("zipf", zipf(100000, 0.99, 2000000, 0));
+            traces.put("zipf+scan", zipf(100000, 0.99, 2000000, 200000));
+            traces.put("loop+scan", loopWithScan(4000, 1000000, 50000));
+        } else {
+            for (String file : args) {
+                traces.put(Paths.get(file).getFileName().toString(), read(file));
+            }
+        }
+        System.out.println(String.format("%-16s %10s %10s %10s", "trace", "capacity", "lru", "w-tinylfu"));
+        for (Map.Entry<String, String[]> trace : traces.entrySet()) {
+            for (int capacity : CAPACITIES) {
+                System.out.println(String.format("%-16s %10d %9.2f%% %9.2f%%", trace.getKey(), capacity,
+                        lru(trace.getValue(), capacity) * 100, tinyLfu(trace.getValue(), capacity) * 100));
+            }
+        }
+    }
+
+    static double lru(String[] trace, int capacity) {
+        Lru cache = new Lru(capacity);
+        long hits = 0;
+        for (String key : trace) {
+            if (null != cache.get(key))
+                hits++;
+            else
+                cache.put(key, Boolean.TRUE);
+        }
+        return (double) hits / trace.length;
+    }
+
+    static double tinyLfu(String[] trace, int capacity) {
+        LocalCache<String, Boolean> cache = new LocalCache<>(capacity, TimeUnit.DAYS.toMillis(1), (key, value) -> 1);
+        long hits = 0;
+        for (String key : trace) {
+            if (null != cache.get(key))
+                hits++;
+            else
+                cache.put(key, Boolean.TRUE);
+        }
+        return (double) hits / trace.length;
+    }
+
+    /**
+     * Zipf分布的访问，每隔一段插入一批只访问一次的key，模拟夜间批处理扫描
+     *
+     * @param keys     热点key的个数
+     * @param skew     Zipf分布的指数
+     * @param length   热点访问的次数
+     * @param scanKeys 扫描的key总数，平均分成20批
+     */
+    static String[] zipf(int keys, double skew, int length, int scanKeys) {
+        double[] cdf = new double[keys];
+        double sum = 0;
+        for (int i = 0; i < keys; i++) {
+            sum += 1 / Math.pow(i + 1, skew);
+            cdf[i] = sum;
+        }
+        Random random = new Random(SEED);
+        List<String> trace = new ArrayList<>(length + scanKeys);
+        int batches = 20;
+        int scanned = 0;
+        for (int i = 0; i < length; i++) {
+            int index = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+            trace.add("hot:" + (index < 0 ? -index - 1 : index));
+            if (scanKeys > 0 && (i + 1) % (length / batches) == 0) {
+                for (int j = 0; j < scanKeys / batches; j++) {
+                    trace.add("scan:" + scanned++);
+                }
+            }
+        }
+        return trace.toArray(new String[0]);
+    }
+
+    /**
+     * 循环访问一个固定集合，中间穿插扫描；LRU在集合大于容量时完全失效
+     */
+    static String[] loopWithScan(int loopKeys, int length, int scanEvery) {
+        List<String> trace = new ArrayList<>(length * 2);
+        int scanned = 0;
+        for (int i = 0; i < length; i++) {
+            trace.add("loop:" + i % loopKeys);
+            if ((i + 1) % scanEvery == 0) {
+                for (int j = 0; j < scanEvery; j++) {
+                    trace.add("scan:" + scanned++);
+                }
+            }
+        }
+        return trace.toArray(new String[0]);
+    }
+
+    static String[] read(String file) throws IOException {
+        try (Stream<String> lines = Files.lines(Paths.get(file), StandardCharsets.UTF_8)) {
+            return lines.map(String::trim).filter(line -> !line.isEmpty()).map(line -> line.split("\\s+")[0])
+                    .toArray(String[]::new);
+        }
+    }
+}
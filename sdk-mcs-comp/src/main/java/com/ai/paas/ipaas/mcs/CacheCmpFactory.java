@@ -1,8 +1,15 @@
 package com.ai.paas.ipaas.mcs;
 
+import com.ai.paas.ipaas.mcs.impl.AbstractAsyncCacheClient;
+import com.ai.paas.ipaas.mcs.impl.AsyncCacheClient;
+import com.ai.paas.ipaas.mcs.impl.AsyncCacheClusterClient;
+import com.ai.paas.ipaas.mcs.impl.AsyncCacheCodisClient;
+import com.ai.paas.ipaas.mcs.impl.AsyncSentinelClient;
 import com.ai.paas.ipaas.mcs.impl.CacheClient;
 import com.ai.paas.ipaas.mcs.impl.CacheClusterClient;
 import com.ai.paas.ipaas.mcs.impl.CacheCodisClient;
+import com.ai.paas.ipaas.mcs.impl.CircuitBreakerConfig;
+import com.ai.paas.ipaas.mcs.impl.CommandExecutorAware;
 import com.ai.paas.ipaas.mcs.impl.SentinelClient;
 import com.ai.paas.util.Assert;
 
@@ -17,6 +24,7 @@ import java.util.concurrent.ConcurrentHashMap;
 public class CacheCmpFactory {
 
     private static Map<String, ICacheClient> cacheClients = new ConcurrentHashMap<>();
+    private static Map<String, IAsyncCacheClient> asyncCacheClients = new ConcurrentHashMap<>();
     private static final String MCS_MODE_SINGILE = "single";
     private static final String MCS_MODE_MASTER = "master";
     private static final String MCS_MODE_SENTINEL = "sentinel";
@@ -33,7 +41,12 @@ public class CacheCmpFactory {
      *               maxtotal", "500","mcs.maxIdle", "10","mcs.minIdle", "5",
      *               "mcs.testOnBorrow",
      *               "true","mcs.codis.zk.addr":"xxx.xxx.xxx.xxx:2181;xxx.xxx.xxx.
-     *               xxx:2181;xxx.xxx.xxx.xxx:2181","mcs.codis.zk.path", ""
+     *               xxx:2181;xxx.xxx.xxx.xxx:2181","mcs.codis.zk.path", "",
+     *               熔断器："mcs.breaker.enabled", "true",
+     *               "mcs.breaker.failureRate", "50", "mcs.breaker.slowCallRate",
+     *               "100", "mcs.breaker.slowCallMillis", "2000",
+     *               "mcs.breaker.minCalls", "20", "mcs.breaker.waitOpenMillis",
+     *               "5000", "mcs.breaker.halfOpenCalls", "5"
      * @return
      */
     @SuppressWarnings("rawtypes")
@@ -65,7 +78,10 @@ public class CacheCmpFactory {
             cacheClient = new CacheClient(genericObjectPoolConfig, host, password);
             break;
         case MCS_MODE_SENTINEL:
-            cacheClient = new SentinelClient(genericObjectPoolConfig, clusterName, host, password);
+            SentinelClient sentinelClient = new SentinelClient(genericObjectPoolConfig, clusterName, host, password);
+            sentinelClient.setLockReplicaAck(Integer.parseInt(config.getProperty("mcs.lock.replicas", "0")),
+                    Long.parseLong(config.getProperty("mcs.lock.replicaTimeout", "100")));
+            cacheClient = sentinelClient;
             break;
         case MCS_MODE_CLUSTER:
             String[] hostArray = host.split(";|,");
@@ -75,7 +91,7 @@ public class CacheCmpFactory {
             String zkAddr = config.getProperty("mcs.codis.zk.addr", "");
             String zkPath = config.getProperty("mcs.codis.zk.path", "");
             Assert.notNull(zkAddr, "Must set mcs.codis.zk.addr when use coide mode!");
-            Assert.notNull(zkAddr,
+            Assert.notNull(zkPath,
                     "Must set mcs.codis.zk.path(/zk/codis/db_xxx/proxy|/jodis/xxx) when use coide mode!");
             cacheClient = new CacheCodisClient(zkAddr, zkPath);
             break;
@@ -83,10 +99,70 @@ public class CacheCmpFactory {
             cacheClient = new CacheClient(genericObjectPoolConfig, host, password);
         }
 
+        if (cacheClient instanceof CommandExecutorAware)
+            configCircuitBreaker(((CommandExecutorAware) cacheClient).getCircuitBreaker().getConfig(), config);
         cacheClients.put(key, cacheClient);
         return cacheClient;
     }
 
+    /**
+     * 获取异步客户端，配置项与getClient相同，连接池相关配置不起作用
+     * 
+     * @param config
+     * @return
+     */
+    public static IAsyncCacheClient getAsyncClient(Properties config) {
+        String mode = config.getProperty("mcs.mode", MCS_MODE_SINGILE);
+        String clusterName = config.getProperty("mcs.cluster", "mymaster");
+        String host = config.getProperty("mcs.host", "127.0.0.1:6379");
+        String password = config.getProperty("mcs.password", "");
+        Assert.notNull(mode, "mcs.mode can not be null, must be one of single|master|sentinel|cluster|codis");
+        Assert.notNull(host, "redis host address can not be null. mcs.host must have values");
+        String key = mode.hashCode() + "-" + host.hashCode();
+
+        IAsyncCacheClient cacheClient = null;
+        if (null != asyncCacheClients.get(key)) {
+            return asyncCacheClients.get(key);
+        }
+        switch (mode) {
+        case MCS_MODE_SENTINEL:
+            cacheClient = new AsyncSentinelClient(clusterName, host, password);
+            break;
+        case MCS_MODE_CLUSTER:
+            String[] hostArray = host.split(";|,");
+            cacheClient = new AsyncCacheClusterClient(hostArray, password);
+            break;
+        case MCS_MODE_CODIS:
+            String zkAddr = config.getProperty("mcs.codis.zk.addr", "");
+            String zkPath = config.getProperty("mcs.codis.zk.path", "");
+            Assert.notNull(zkAddr, "Must set mcs.codis.zk.addr when use coide mode!");
+            Assert.notNull(zkPath,
+                    "Must set mcs.codis.zk.path(/zk/codis/db_xxx/proxy|/jodis/xxx) when use coide mode!");
+            cacheClient = new AsyncCacheCodisClient(zkAddr, zkPath, password);
+            break;
+        default:
+            cacheClient = new AsyncCacheClient(host, password);
+        }
+
+        configCircuitBreaker(((AbstractAsyncCacheClient) cacheClient).getCircuitBreaker().getConfig(), config);
+        asyncCacheClients.put(key, cacheClient);
+        return cacheClient;
+    }
+
+    private static void configCircuitBreaker(CircuitBreakerConfig breakerConfig, Properties config) {
+        breakerConfig.setEnabled(Boolean.parseBoolean(config.getProperty("mcs.breaker.enabled", "true")));
+        breakerConfig.setFailureRateThreshold(Float.parseFloat(config.getProperty("mcs.breaker.failureRate", "50")));
+        breakerConfig
+                .setSlowCallRateThreshold(Float.parseFloat(config.getProperty("mcs.breaker.slowCallRate", "100")));
+        breakerConfig
+                .setSlowCallDurationMillis(Long.parseLong(config.getProperty("mcs.breaker.slowCallMillis", "2000")));
+        breakerConfig.setMinimumNumberOfCalls(Integer.parseInt(config.getProperty("mcs.breaker.minCalls", "20")));
+        breakerConfig.setWaitDurationInOpenStateMillis(
+                Long.parseLong(config.getProperty("mcs.breaker.waitOpenMillis", "5000")));
+        breakerConfig.setPermittedCallsInHalfOpenState(
+                Integer.parseInt(config.getProperty("mcs.breaker.halfOpenCalls", "5")));
+    }
+
     public static ICacheClient getClient() throws IOException {
         Properties config = new Properties();
         config.load(CacheCmpFactory.class.getResourceAsStream("/redis.conf"));